@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+
+/**
+ * Common open / read benchmarks, run against a synthetic dataset created by the subclass.
+ * The data variable is assumed to be (time, [level,] y, x); three access patterns are measured:
+ * <ul>
+ * <li>a full horizontal slab at one time (map rendering),</li>
+ * <li>a time series at a single grid point (point extraction),</li>
+ * <li>a small horizontal box at one time (subsetting).</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public abstract class AbstractReadBenchmark {
+  protected static final int NT = 48;
+  protected static final int NY = 361;
+  protected static final int NX = 720;
+
+  private Path dir;
+  private String location;
+  private NetcdfFile ncfile;
+  private Variable data;
+  private Section slab, timeSeries, box;
+
+  /**
+   * Write the benchmark dataset into dir.
+   *
+   * @return the location to pass to {@link #open}
+   */
+  protected abstract String createDataset(Path dir) throws Exception;
+
+  protected NetcdfFile open(String location) throws IOException {
+    return NetcdfFiles.open(location);
+  }
+
+  /** Called once on the file used by the read benchmarks, e.g. to send it IOSP messages. */
+  protected void configure(NetcdfFile ncfile) {}
+
+  protected Variable findDataVariable(NetcdfFile ncfile) {
+    return ncfile.findVariable("temperature");
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    dir = SyntheticData.createTempDir(getClass().getSimpleName());
+    location = createDataset(dir);
+    ncfile = open(location);
+    configure(ncfile);
+    data = findDataVariable(ncfile);
+    if (data == null) {
+      throw new IllegalStateException("No data variable found in " + location);
+    }
+
+    int[] shape = data.getShape();
+    int rank = shape.length;
+    int[] origin = new int[rank];
+    int[] size = new int[rank];
+
+    // one time (and level), all y, x
+    for (int i = 0; i < rank; i++) {
+      size[i] = i < rank - 2 ? 1 : shape[i];
+    }
+    slab = new Section(origin, size);
+
+    // all times, a single point in the middle of the grid
+    for (int i = 0; i < rank; i++) {
+      origin[i] = i == 0 ? 0 : shape[i] / 2;
+      size[i] = i == 0 ? shape[0] : 1;
+    }
+    timeSeries = new Section(origin, size);
+
+    // one time, a box of 1/16 the horizontal area
+    for (int i = 0; i < rank; i++) {
+      origin[i] = i < rank - 2 ? 0 : shape[i] / 4;
+      size[i] = i < rank - 2 ? 1 : Math.max(1, shape[i] / 4);
+    }
+    box = new Section(origin, size);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    if (ncfile != null) {
+      ncfile.close();
+    }
+    SyntheticData.deleteRecursively(dir);
+  }
+
+  @Benchmark
+  public void openFile(Blackhole bh) throws IOException {
+    try (NetcdfFile nc = open(location)) {
+      bh.consume(nc.getVariables().size());
+    }
+  }
+
+  @Benchmark
+  public Array readSlab() throws IOException, InvalidRangeException {
+    return data.read(slab);
+  }
+
+  @Benchmark
+  public Array readTimeSeries() throws IOException, InvalidRangeException {
+    return data.read(timeSeries);
+  }
+
+  @Benchmark
+  public Array readBox() throws IOException, InvalidRangeException {
+    return data.read(box);
+  }
+}
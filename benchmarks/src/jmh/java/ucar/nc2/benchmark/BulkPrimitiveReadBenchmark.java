@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.write.NetcdfFormatWriter;
+import ucar.unidata.io.RandomAccessFile;
+
+/**
+ * Reads a multi-hundred-MB float or double array with the bulk RandomAccessFile.readFloat(float[], int, int) and
+ * readDouble(double[], int, int) methods, compared to reading it one element at a time, as those methods used to.
+ * Also reads the same values as a netCDF-3 variable, which goes through the bulk methods in N3iospNew.
+ * The throughput in MB/s is {@code size / time}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BulkPrimitiveReadBenchmark {
+  private static final int NX = 1024;
+
+  @Param({"float", "double"})
+  public String type;
+
+  @Param({"256"})
+  public int sizeMB;
+
+  private Path dir;
+  private DataType dataType;
+  private int n;
+  private RandomAccessFile raf;
+  private NetcdfFile ncfile;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException, InvalidRangeException {
+    dataType = DataType.getType(type);
+    n = sizeMB * 1024 * 1024 / dataType.getSize();
+    dir = SyntheticData.createTempDir(getClass().getSimpleName());
+
+    // the same big-endian values, as a raw file and as a netCDF-3 variable
+    String rawLocation = dir.resolve("data.bin").toString();
+    try (RandomAccessFile out = new RandomAccessFile(rawLocation, "rw")) {
+      ByteBuffer bb = ByteBuffer.allocate(NX * dataType.getSize()).order(ByteOrder.BIG_ENDIAN);
+      for (int row = 0; row < n / NX; row++) {
+        bb.clear();
+        for (int x = 0; x < NX; x++) {
+          if (dataType == DataType.FLOAT) {
+            bb.putFloat(SyntheticData.value(0, row, x));
+          } else {
+            bb.putDouble(SyntheticData.value(0, row, x));
+          }
+        }
+        out.write(bb.array());
+      }
+    }
+
+    String ncLocation = dir.resolve("data.nc").toString();
+    NetcdfFormatWriter.Builder builder = NetcdfFormatWriter.createNewNetcdf3(ncLocation).setFill(false);
+    builder.addDimension("y", n / NX);
+    builder.addDimension("x", NX);
+    builder.addVariable("data", dataType, "y x");
+    try (NetcdfFormatWriter writer = builder.build();
+        RandomAccessFile in = new RandomAccessFile(rawLocation, "r")) {
+      int rows = 1024;
+      for (int row = 0; row < n / NX; row += rows) {
+        Array slab = Array.factory(dataType, new int[] {rows, NX});
+        for (int i = 0; i < rows * NX; i++) {
+          slab.setDouble(i, dataType == DataType.FLOAT ? in.readFloat() : in.readDouble());
+        }
+        writer.write("data", new int[] {row, 0}, slab);
+      }
+    }
+
+    raf = new RandomAccessFile(rawLocation, "r");
+    ncfile = NetcdfFiles.open(ncLocation);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    if (raf != null) {
+      raf.close();
+    }
+    if (ncfile != null) {
+      ncfile.close();
+    }
+    SyntheticData.deleteRecursively(dir);
+  }
+
+  @Benchmark
+  public Object readBulk() throws IOException {
+    raf.seek(0);
+    if (dataType == DataType.FLOAT) {
+      float[] data = new float[n];
+      raf.readFloat(data, 0, n);
+      return data;
+    } else {
+      double[] data = new double[n];
+      raf.readDouble(data, 0, n);
+      return data;
+    }
+  }
+
+  @Benchmark
+  public Object readElementwise() throws IOException {
+    raf.seek(0);
+    if (dataType == DataType.FLOAT) {
+      float[] data = new float[n];
+      for (int i = 0; i < n; i++) {
+        data[i] = raf.readFloat();
+      }
+      return data;
+    } else {
+      double[] data = new double[n];
+      for (int i = 0; i < n; i++) {
+        data[i] = raf.readDouble();
+      }
+      return data;
+    }
+  }
+
+  @Benchmark
+  public Array readVariable() throws IOException {
+    return ncfile.findVariable("data").read();
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thredds.featurecollection.FeatureCollectionConfig;
+import thredds.featurecollection.FeatureCollectionType;
+import thredds.inventory.CollectionUpdateType;
+import ucar.nc2.grib.collection.GribCdmIndex;
+import ucar.nc2.grib.collection.GribIndexParallelism;
+
+/**
+ * Builds the gbx9 and ncx4 indexes of a collection of GRIB-2 files from scratch, serially and with
+ * GribIndexParallelism. With partition "none" the files make one collection; with partition "file" each file is a
+ * collection of its own, and the partition unions their coordinates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GribCollectionIndexBenchmark {
+  private static final Logger logger = LoggerFactory.getLogger(GribCollectionIndexBenchmark.class);
+  private static final int NRUNS = 24;
+  private static final int NTIMES = 24;
+  private static final int NLEVELS = 10;
+  private static final int NY = 181;
+  private static final int NX = 360;
+
+  @Param({"none", "file"})
+  public String partition;
+
+  @Param({"1", "4"})
+  public int parallelism;
+
+  private Path dir;
+  private FeatureCollectionConfig config;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    dir = SyntheticData.createTempDir(getClass().getSimpleName());
+    SyntheticData.writeGrib2Collection(dir, NRUNS, NTIMES, NLEVELS, NY, NX);
+    String spec = dir.toString().replace('\\', '/') + "/synthetic_.*\\.grib2$";
+    config = new FeatureCollectionConfig("synthetic", "synthetic", FeatureCollectionType.GRIB2, spec, null, null, null,
+        partition, null);
+    GribIndexParallelism.setLevel(parallelism);
+  }
+
+  /** Start each build without any index files. */
+  @Setup(Level.Invocation)
+  public void deleteIndexes() throws IOException {
+    try (Stream<Path> paths = Files.list(dir)) {
+      paths.filter(p -> !p.toString().endsWith(".grib2")).forEach(p -> p.toFile().delete());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    GribIndexParallelism.setLevel(1);
+    SyntheticData.deleteRecursively(dir);
+  }
+
+  @Benchmark
+  public boolean buildIndexes() throws IOException {
+    return GribCdmIndex.updateGribCollection(config, CollectionUpdateType.always, logger);
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.benchmark;
+
+import java.nio.file.Path;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+/**
+ * Reads simple-packed GRIB-2 records through GribIosp.
+ * The gbx9 and ncx4 indexes are created by the first open, during setup, so openFile measures opening
+ * an existing collection index.
+ */
+public class GribReadBenchmark extends AbstractReadBenchmark {
+  private static final int NLEVELS = 10;
+
+  @Override
+  protected String createDataset(Path dir) throws Exception {
+    String location = dir.resolve("synthetic.grib2").toString();
+    SyntheticData.writeGrib2(location, 0, NT, NLEVELS, NY / 2, NX / 2);
+    return location;
+  }
+
+  @Override
+  protected Variable findDataVariable(NetcdfFile ncfile) {
+    return ncfile.findVariable("Temperature_isobaric");
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.benchmark;
+
+import java.nio.file.Path;
+import org.openjdk.jmh.annotations.Param;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.iosp.ChunkDecodeParallelism;
+
+/**
+ * Reads chunked, shuffled and deflated data from a netCDF-4 file through H5iospNew and H5tiledLayoutBB.
+ * Writing the file uses the netCDF-C library, so it must be loadable (see ucar.nc2.jni.netcdf.Nc4Iosp);
+ * reading is pure Java.
+ */
+public class Hdf5ChunkedReadBenchmark extends AbstractReadBenchmark {
+
+  @Param({"1", "5"})
+  public int deflateLevel;
+
+  @Param({"1", "4"})
+  public int decodeParallelism;
+
+  @Override
+  protected String createDataset(Path dir) throws Exception {
+    String location = dir.resolve("synthetic.nc4").toString();
+    SyntheticData.writeNetcdf4(location, NT, NY, NX, new int[] {1, 90, 180}, deflateLevel);
+    return location;
+  }
+
+  @Override
+  protected void configure(NetcdfFile ncfile) {
+    ncfile.sendIospMessage(ChunkDecodeParallelism.of(decodeParallelism));
+  }
+}
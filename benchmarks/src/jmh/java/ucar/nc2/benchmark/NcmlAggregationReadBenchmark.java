@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.dataset.NetcdfDatasets;
+
+/** Reads through an NcML joinExisting aggregation of netCDF-3 files, one file per time step. */
+public class NcmlAggregationReadBenchmark extends AbstractReadBenchmark {
+
+  @Override
+  protected String createDataset(Path dir) throws Exception {
+    return SyntheticData.writeJoinExistingAggregation(dir, NT, 1, NY, NX);
+  }
+
+  @Override
+  protected NetcdfFile open(String location) throws IOException {
+    return NetcdfDatasets.openFile(location, null);
+  }
+}
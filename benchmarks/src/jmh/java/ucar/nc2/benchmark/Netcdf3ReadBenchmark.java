@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.benchmark;
+
+import java.nio.file.Path;
+import org.openjdk.jmh.annotations.Param;
+
+/** Reads from a netCDF-3 file through N3iospNew, with time as either a fixed or the record dimension. */
+public class Netcdf3ReadBenchmark extends AbstractReadBenchmark {
+
+  @Param({"false", "true"})
+  public boolean record;
+
+  @Override
+  protected String createDataset(Path dir) throws Exception {
+    String location = dir.resolve("synthetic.nc").toString();
+    SyntheticData.writeNetcdf3(location, NT, NY, NX, record);
+    return location;
+  }
+}
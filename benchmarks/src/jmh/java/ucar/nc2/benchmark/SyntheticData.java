@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.Variable;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.write.Nc4Chunking;
+import ucar.nc2.write.Nc4ChunkingStrategy;
+import ucar.nc2.write.NetcdfFileFormat;
+import ucar.nc2.write.NetcdfFormatWriter;
+
+/**
+ * Generates the synthetic input files used by the benchmarks, so that no external test data is needed.
+ * All generators are deterministic: the same arguments always produce the same bytes.
+ */
+public class SyntheticData {
+
+  private SyntheticData() {}
+
+  /** Create a new temporary directory for benchmark data. */
+  public static Path createTempDir(String prefix) throws IOException {
+    return Files.createTempDirectory("netcdf-java-bench-" + prefix);
+  }
+
+  /** Recursively delete a directory created by {@link #createTempDir}. */
+  public static void deleteRecursively(Path dir) throws IOException {
+    if (dir == null || !Files.exists(dir)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(dir)) {
+      paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  /** Deterministic, smoothly varying value for element (t, y, x) so that compressors behave realistically. */
+  static float value(int t, int y, int x) {
+    return (float) (280.0 + 10.0 * Math.sin(0.05 * x + 0.1 * t) * Math.cos(0.07 * y));
+  }
+
+  static float[] makeField(int nt, int ny, int nx) {
+    float[] data = new float[nt * ny * nx];
+    int count = 0;
+    for (int t = 0; t < nt; t++) {
+      for (int y = 0; y < ny; y++) {
+        for (int x = 0; x < nx; x++) {
+          data[count++] = value(t, y, x);
+        }
+      }
+    }
+    return data;
+  }
+
+  /**
+   * Write a netCDF-3 file containing a float variable "temperature(time, lat, lon)" with coordinate variables.
+   *
+   * @param location path of the file to write
+   * @param nt number of times
+   * @param ny number of latitudes
+   * @param nx number of longitudes
+   * @param record if true, time is the unlimited (record) dimension
+   */
+  public static void writeNetcdf3(String location, int nt, int ny, int nx, boolean record)
+      throws IOException, InvalidRangeException {
+    NetcdfFormatWriter.Builder builder = NetcdfFormatWriter.createNewNetcdf3(location).setFill(false);
+    addGridVariables(builder, nt, ny, nx, record);
+    try (NetcdfFormatWriter writer = builder.build()) {
+      writeGridVariables(writer, nt, ny, nx, 0);
+    }
+  }
+
+  /**
+   * Write a netCDF-4 (HDF5) file containing a chunked, shuffled and deflated "temperature(time, lat, lon)" variable.
+   * Requires the netCDF-C library to be loadable.
+   *
+   * @param location path of the file to write
+   * @param chunks chunk shape for the temperature variable
+   * @param deflateLevel zlib compression level, 0 - 9
+   */
+  public static void writeNetcdf4(String location, int nt, int ny, int nx, int[] chunks, int deflateLevel)
+      throws IOException, InvalidRangeException {
+    Nc4Chunking chunker = Nc4ChunkingStrategy.factory(Nc4Chunking.Strategy.standard, deflateLevel, true);
+    NetcdfFormatWriter.Builder builder =
+        NetcdfFormatWriter.createNewNetcdf4(NetcdfFileFormat.NETCDF4, location, chunker).setFill(false);
+    addGridVariables(builder, nt, ny, nx, false).addAttribute(Attribute.builder(CDM.CHUNK_SIZES)
+        .setValues(Array.factory(DataType.INT, new int[] {chunks.length}, chunks)).build());
+    try (NetcdfFormatWriter writer = builder.build()) {
+      writeGridVariables(writer, nt, ny, nx, 0);
+    }
+  }
+
+  private static Variable.Builder addGridVariables(NetcdfFormatWriter.Builder builder, int nt, int ny, int nx,
+      boolean record) {
+    if (record) {
+      builder.addUnlimitedDimension("time");
+    } else {
+      builder.addDimension("time", nt);
+    }
+    builder.addDimension("lat", ny);
+    builder.addDimension("lon", nx);
+    builder.addVariable("time", DataType.DOUBLE, "time")
+        .addAttribute(new Attribute(CDM.UNITS, "hours since 2000-01-01"));
+    builder.addVariable("lat", DataType.FLOAT, "lat").addAttribute(new Attribute(CDM.UNITS, "degrees_north"));
+    builder.addVariable("lon", DataType.FLOAT, "lon").addAttribute(new Attribute(CDM.UNITS, "degrees_east"));
+    Variable.Builder temperature = builder.addVariable("temperature", DataType.FLOAT, "time lat lon");
+    temperature.addAttribute(new Attribute(CDM.UNITS, "K"));
+    return temperature;
+  }
+
+  private static void writeGridVariables(NetcdfFormatWriter writer, int nt, int ny, int nx, int timeOffset)
+      throws IOException, InvalidRangeException {
+    double[] times = new double[nt];
+    for (int t = 0; t < nt; t++) {
+      times[t] = timeOffset + t;
+    }
+    float[] lats = new float[ny];
+    for (int y = 0; y < ny; y++) {
+      lats[y] = -90.0f + 180.0f * y / Math.max(1, ny - 1);
+    }
+    float[] lons = new float[nx];
+    for (int x = 0; x < nx; x++) {
+      lons[x] = 360.0f * x / nx;
+    }
+    writer.write("time", Array.factory(DataType.DOUBLE, new int[] {nt}, times));
+    writer.write("lat", Array.factory(DataType.FLOAT, new int[] {ny}, lats));
+    writer.write("lon", Array.factory(DataType.FLOAT, new int[] {nx}, lons));
+    writer.write("temperature", Array.factory(DataType.FLOAT, new int[] {nt, ny, nx}, makeField(nt, ny, nx)));
+  }
+
+  /**
+   * Write a set of netCDF-3 files, each holding ntPerFile consecutive times, and an NcML joinExisting
+   * aggregation over them.
+   *
+   * @return path of the NcML file
+   */
+  public static String writeJoinExistingAggregation(Path dir, int nfiles, int ntPerFile, int ny, int nx)
+      throws IOException, InvalidRangeException {
+    StringBuilder ncml = new StringBuilder();
+    ncml.append("<?xml version='1.0' encoding='UTF-8'?>\n");
+    ncml.append("<netcdf xmlns='http://www.unidata.ucar.edu/namespaces/netcdf/ncml-2.2'>\n");
+    ncml.append("  <aggregation dimName='time' type='joinExisting'>\n");
+    for (int i = 0; i < nfiles; i++) {
+      String location = dir.resolve(String.format("agg_%04d.nc", i)).toString();
+      NetcdfFormatWriter.Builder builder = NetcdfFormatWriter.createNewNetcdf3(location).setFill(false);
+      addGridVariables(builder, ntPerFile, ny, nx, true);
+      try (NetcdfFormatWriter writer = builder.build()) {
+        writeGridVariables(writer, ntPerFile, ny, nx, i * ntPerFile);
+      }
+      ncml.append(String.format("    <netcdf location='%s' ncoords='%d'/>%n", location, ntPerFile));
+    }
+    ncml.append("  </aggregation>\n");
+    ncml.append("</netcdf>\n");
+
+    Path ncmlPath = dir.resolve("joinExisting.ncml");
+    try (Writer w = Files.newBufferedWriter(ncmlPath, StandardCharsets.UTF_8)) {
+      w.write(ncml.toString());
+    }
+    return ncmlPath.toString();
+  }
+
+  /**
+   * Write a Zarr v2 directory store with a single little-endian float array "temperature", compressed with zlib.
+   *
+   * @return path of the store
+   */
+  public static String writeZarr(Path dir, int nt, int ny, int nx, int[] chunks) throws IOException {
+    Path store = dir.resolve("synthetic.zarr");
+    Path var = store.resolve("temperature");
+    Files.createDirectories(var);
+    writeString(store.resolve(".zgroup"), "{\"zarr_format\": 2}");
+    writeString(store.resolve(".zattrs"), "{\"title\": \"synthetic benchmark data\"}");
+    writeString(var.resolve(".zarray"),
+        String.format("{\"chunks\": [%d, %d, %d], \"compressor\": {\"id\": \"zlib\", \"level\": 1}, "
+            + "\"dtype\": \"<f4\", \"fill_value\": \"NaN\", \"filters\": null, \"order\": \"C\", "
+            + "\"shape\": [%d, %d, %d], \"zarr_format\": 2}", chunks[0], chunks[1], chunks[2], nt, ny, nx));
+    writeString(var.resolve(".zattrs"), "{\"units\": \"K\"}");
+
+    int[] shape = {nt, ny, nx};
+    int[] nchunks = new int[3];
+    for (int i = 0; i < 3; i++) {
+      nchunks[i] = (shape[i] + chunks[i] - 1) / chunks[i];
+    }
+    ByteBuffer bb = ByteBuffer.allocate(chunks[0] * chunks[1] * chunks[2] * 4).order(ByteOrder.LITTLE_ENDIAN);
+    for (int ct = 0; ct < nchunks[0]; ct++) {
+      for (int cy = 0; cy < nchunks[1]; cy++) {
+        for (int cx = 0; cx < nchunks[2]; cx++) {
+          bb.clear();
+          for (int t = 0; t < chunks[0]; t++) {
+            for (int y = 0; y < chunks[1]; y++) {
+              for (int x = 0; x < chunks[2]; x++) {
+                bb.putFloat(value(ct * chunks[0] + t, cy * chunks[1] + y, cx * chunks[2] + x));
+              }
+            }
+          }
+          Files.write(var.resolve(ct + "." + cy + "." + cx), deflate(bb.array()));
+        }
+      }
+    }
+    return store.toString();
+  }
+
+  private static void writeString(Path path, String contents) throws IOException {
+    Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static byte[] deflate(byte[] data) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 2);
+    try (DeflaterOutputStream dos = new DeflaterOutputStream(bos, new Deflater(1))) {
+      dos.write(data);
+    }
+    return bos.toByteArray();
+  }
+
+  /**
+   * Write a GRIB-2 file containing one simple-packed temperature message per forecast hour and pressure level,
+   * on a regular lat/lon grid.
+   *
+   * @param location path of the file to write
+   * @param runHour reference time hour (all runs are on 2000-01-01)
+   * @param ntimes number of forecast hours
+   * @param nlevels number of isobaric levels
+   * @param ny number of latitudes
+   * @param nx number of longitudes
+   */
+  public static void writeGrib2(String location, int runHour, int ntimes, int nlevels, int ny, int nx)
+      throws IOException {
+    try (OutputStream out = Files.newOutputStream(new File(location).toPath())) {
+      for (int t = 0; t < ntimes; t++) {
+        for (int z = 0; z < nlevels; z++) {
+          out.write(makeGrib2Message(runHour, t, 100000 - 5000 * z, ny, nx));
+        }
+      }
+    }
+  }
+
+  /**
+   * Write a collection of GRIB-2 files, one per model run, into dir.
+   *
+   * @return the files written
+   */
+  public static List<String> writeGrib2Collection(Path dir, int nruns, int ntimes, int nlevels, int ny, int nx)
+      throws IOException {
+    List<String> result = new ArrayList<>();
+    for (int run = 0; run < nruns; run++) {
+      String location = dir.resolve(String.format("synthetic_%02d.grib2", run)).toString();
+      writeGrib2(location, run % 24, ntimes, nlevels, ny, nx);
+      result.add(location);
+    }
+    return result;
+  }
+
+  // GRIB-2 with Grid Definition Template 3.0, Product Definition Template 4.0, Data Representation Template 5.0
+  static byte[] makeGrib2Message(int runHour, int forecastHour, int pressurePa, int ny, int nx) {
+    int npoints = ny * nx;
+    int nbits = 16;
+    float ref = 200.0f;
+    int binaryScale = -6; // values are (ref + X * 2^E)
+    ByteBuffer sec7 = ByteBuffer.allocate(5 + npoints * 2);
+    sec7.putInt(5 + npoints * 2).put((byte) 7);
+    for (int y = 0; y < ny; y++) {
+      for (int x = 0; x < nx; x++) {
+        float v = value(forecastHour, y, x) - pressurePa / 10000.0f;
+        int packed = Math.round((v - ref) * (1 << -binaryScale));
+        sec7.putShort((short) Math.max(0, Math.min(0xFFFF, packed)));
+      }
+    }
+
+    int len = 16 + 21 + 72 + 34 + 21 + 6 + sec7.capacity() + 4;
+    ByteBuffer bb = ByteBuffer.allocate(len); // big endian
+
+    // Section 0: indicator
+    bb.put("GRIB".getBytes(StandardCharsets.US_ASCII)).putShort((short) 0).put((byte) 0).put((byte) 2).putLong(len);
+
+    // Section 1: identification
+    Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    cal.clear();
+    cal.set(2000, Calendar.JANUARY, 1, runHour, 0, 0);
+    bb.putInt(21).put((byte) 1).putShort((short) 7).putShort((short) 0).put((byte) 2).put((byte) 1).put((byte) 1)
+        .putShort((short) cal.get(Calendar.YEAR)).put((byte) (cal.get(Calendar.MONTH) + 1))
+        .put((byte) cal.get(Calendar.DAY_OF_MONTH)).put((byte) cal.get(Calendar.HOUR_OF_DAY)).put((byte) 0)
+        .put((byte) 0).put((byte) 0).put((byte) 1);
+
+    // Section 3: grid definition, regular lat/lon covering 20N-60N, 230E-300E
+    int la1 = 60000000, la2 = 20000000, lo1 = 230000000, lo2 = 300000000;
+    bb.putInt(72).put((byte) 3).put((byte) 0).putInt(npoints).put((byte) 0).put((byte) 0).putShort((short) 0);
+    bb.put((byte) 6).put((byte) 0).putInt(0).put((byte) 0).putInt(0).put((byte) 0).putInt(0);
+    bb.putInt(nx).putInt(ny).putInt(0).putInt(0xFFFFFFFF).putInt(la1).putInt(lo1).put((byte) 0x30);
+    bb.putInt(la2).putInt(lo2).putInt((lo2 - lo1) / Math.max(1, nx - 1)).putInt((la1 - la2) / Math.max(1, ny - 1))
+        .put((byte) 0);
+
+    // Section 4: product definition, temperature on an isobaric surface
+    bb.putInt(34).put((byte) 4).putShort((short) 0).putShort((short) 0);
+    bb.put((byte) 0).put((byte) 0).put((byte) 2).put((byte) 0).put((byte) 96).putShort((short) 0).put((byte) 0)
+        .put((byte) 1).putInt(forecastHour).put((byte) 100).put((byte) 0).putInt(pressurePa).put((byte) 255)
+        .put((byte) 0).putInt(0);
+
+    // Section 5: data representation, simple packing
+    bb.putInt(21).put((byte) 5).putInt(npoints).putShort((short) 0);
+    bb.putFloat(ref).putShort((short) (0x8000 | -binaryScale)).putShort((short) 0).put((byte) nbits).put((byte) 0);
+
+    // Section 6: no bitmap
+    bb.putInt(6).put((byte) 6).put((byte) 255);
+
+    // Section 7: data
+    bb.put(sec7.array());
+
+    // Section 8: end
+    bb.put("7777".getBytes(StandardCharsets.US_ASCII));
+    return bb.array();
+  }
+}
@@ -0,0 +1,17 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.benchmark;
+
+import java.nio.file.Path;
+
+/** Reads zlib compressed chunks from a local Zarr directory store through ZarrIosp. */
+public class ZarrReadBenchmark extends AbstractReadBenchmark {
+
+  @Override
+  protected String createDataset(Path dir) throws Exception {
+    return SyntheticData.writeZarr(dir, NT, NY - 1, NX, new int[] {1, 90, 180});
+  }
+}
@@ -2224,6 +2224,53 @@ public class NetcdfFile implements FileCacheable, Closeable {
     return result;
   }
 
+  /**
+   * Read the same records of several variables at once, eg the variables of a station time series over a time range.
+   * The IOSP may read each record once, rather than once per variable: the netCDF-3 IOSP does this for record
+   * variables, and the members of a Structure are read with one read of the Structure.
+   *
+   * @param variables top level Variables of this file, or members of its top level Structures.
+   * @param section the wanted records: the leading Ranges of each variable, or of its parent Structure for a member.
+   *        The remaining dimensions are read in full. A null Range means all of that dimension; null means all.
+   * @return one Array for each variable, in the same order, as if read with Variable.read(Section).
+   * @throws IOException if read error
+   * @throws InvalidRangeException if invalid section
+   */
+  public List<Array> readRecords(List<Variable> variables, @Nullable Section section)
+      throws IOException, InvalidRangeException {
+    if (iosp == null)
+      return IospHelper.readRecords(variables, section);
+
+    // variables with cached data, or that are not read from the iosp, are read through Variable.read()
+    List<Variable> fromIosp = new ArrayList<>();
+    List<Variable> others = new ArrayList<>();
+    for (Variable v : variables) {
+      if (isReadFromIosp(v) && (v.getParentStructure() == null || isReadFromIosp(v.getParentStructure())))
+        fromIosp.add(v);
+      else
+        others.add(v);
+    }
+    if (others.isEmpty())
+      return iosp.readRecords(variables, section);
+
+    List<Array> iospData = iosp.readRecords(fromIosp, section);
+    List<Array> otherData = IospHelper.readRecords(others, section);
+    List<Array> result = new ArrayList<>(variables.size());
+    int nextIosp = 0;
+    int nextOther = 0;
+    for (Variable v : variables) {
+      if (nextIosp < fromIosp.size() && fromIosp.get(nextIosp) == v)
+        result.add(iospData.get(nextIosp++));
+      else
+        result.add(otherData.get(nextOther++));
+    }
+    return result;
+  }
+
+  private boolean isReadFromIosp(Variable v) {
+    return v.getNetcdfFile() == this && !v.hasCachedData() && v.proxyReader == v;
+  }
+
   /**
    * Read a variable using the given section specification.
    *
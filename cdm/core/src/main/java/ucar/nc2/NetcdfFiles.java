@@ -100,6 +100,13 @@ public class NetcdfFiles {
         log.info("Cant load class InMemoryRandomAccessFileProvider", e);
     }
 
+    try {
+      registerRandomAccessFileProvider("ucar.unidata.io.MappedRandomAccessFile$Provider");
+    } catch (Throwable e) {
+      if (loadWarnings)
+        log.info("Cant load class MappedRandomAccessFileProvider", e);
+    }
+
     // if a user explicitly registers an IOSP or RandomAccessFile implementation via
     // registerIOProvider or registerRandomAccessFileProvider, this ensures they are tried first,
     // even before the core implementations.
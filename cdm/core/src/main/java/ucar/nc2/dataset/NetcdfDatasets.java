@@ -28,7 +28,7 @@ public class NetcdfDatasets {
   ////////////////////////////////////////////////////////////////////////////////////
   // NetcdfFile caching
 
-  private static ucar.nc2.util.cache.FileCache netcdfFileCache;
+  private static FileCacheIF netcdfFileCache;
   private static ucar.nc2.util.cache.FileFactory defaultNetcdfFileFactory = new StandardFileFactory();
 
   // no state, so a singleton is ok
@@ -66,6 +66,18 @@ public class NetcdfDatasets {
     netcdfFileCache = new FileCache("NetcdfFileCache", minElementsInMemory, maxElementsInMemory, hardLimit, period);
   }
 
+  /**
+   * Enable file caching with the given cache, for example a {@link ucar.nc2.util.cache.FileCacheStriped}.
+   * Call this before calling acquireFile(). When application terminates, call NetcdfDataset.shutdown().
+   *
+   * @param cache use this cache; if null, disable caching.
+   */
+  public static synchronized void setNetcdfFileCache(FileCacheIF cache) {
+    if (null != netcdfFileCache && netcdfFileCache != cache)
+      netcdfFileCache.disable();
+    netcdfFileCache = cache;
+  }
+
   public static synchronized void disableNetcdfFileCache() {
     if (null != netcdfFileCache)
       netcdfFileCache.disable();
@@ -398,7 +410,7 @@ public class NetcdfDatasets {
    * @param spiObject sent to iosp.setSpecial() if not null
    * @return NetcdfFile or throw an Exception.
    */
-  private static NetcdfFile openOrAcquireFile(FileCache cache, FileFactory factory, Object hashKey, DatasetUrl durl,
+  private static NetcdfFile openOrAcquireFile(FileCacheIF cache, FileFactory factory, Object hashKey, DatasetUrl durl,
       int buffer_size, ucar.nc2.util.CancelTask cancelTask, Object spiObject) throws IOException {
 
     if (factory == null)
@@ -418,14 +418,7 @@ public class CFGridWriter2 {
     // create the data
     double[] latData = new double[nx * ny];
     double[] lonData = new double[nx * ny];
-    for (int i = 0; i < ny; i++) {
-      for (int j = 0; j < nx; j++) {
-        ProjectionPoint projPoint = ProjectionPoint.create(xData[j], yData[i]);
-        LatLonPoint latlonPoint = proj.projToLatLon(projPoint);
-        latData[i * nx + j] = latlonPoint.getLatitude();
-        lonData[i * nx + j] = latlonPoint.getLongitude();
-      }
-    }
+    Projections.projToLatLonGrid(proj, xData, yData, latData, lonData);
     Array latDataArray = Array.factory(DataType.DOUBLE, new int[] {ny, nx}, latData);
     latVar.setCachedData(latDataArray, false);
 
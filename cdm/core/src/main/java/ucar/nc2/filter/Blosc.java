@@ -5,17 +5,156 @@
 
 package ucar.nc2.filter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
-
-// TODO: Still to be implemented
+/**
+ * Filter implementation of Blosc (https://www.blosc.org), as used by numcodecs (Zarr) and the HDF5 blosc filter.
+ * <p>
+ * Reads and writes the Blosc 1 frame format: a 16 byte header, the start offsets of the blocks, and the blocks,
+ * each of which is (optionally) byte or bit shuffled and then compressed, possibly split into one stream per byte of
+ * the element. The blosclz, lz4/lz4hc, zlib and zstd inner codecs are decoded in pure Java; snappy is not, and an
+ * IOException is thrown when decoding data that uses it.
+ * <p>
+ * Encoding supports blosclz, lz4/lz4hc and zlib; an IOException is thrown when zstd or snappy is requested.
+ * <p>
+ * Large frames are decoded with one task per block on the common fork join pool.
+ */
 public class Blosc extends Filter {
 
   private static final String name = "blosc";
 
   private static final int id = 32001;
 
-  public Blosc(Map<String, Object> properties) {}
+  // header
+  private static final int HEADER_SIZE = 16;
+  private static final int VERSION_FORMAT = 2;
+  private static final int MAX_VERSION_FORMAT = 4;
+  private static final int FLAG_SHUFFLE = 0x1;
+  private static final int FLAG_MEMCPYED = 0x2;
+  private static final int FLAG_BITSHUFFLE = 0x4;
+  private static final int FLAG_DONT_SPLIT = 0x10;
+
+  // splitting blocks into one stream per byte of the element
+  private static final int MAX_SPLITS = 16;
+  private static final int MIN_BUFFERSIZE = 128;
+
+  // decode frames at least this large one block per task
+  private static final int PARALLEL_MIN_BYTES = 1024 * 1024;
+
+  // numcodecs defaults
+  private static final String DEFAULT_CNAME = "lz4";
+  private static final int DEFAULT_CLEVEL = 5;
+
+  public enum ShuffleType {
+    AUTOSHUFFLE(-1), NOSHUFFLE(0), SHUFFLE(1), BITSHUFFLE(2);
+
+    private final int code;
+
+    ShuffleType(int code) {
+      this.code = code;
+    }
+
+    public static ShuffleType fromCode(int code) {
+      for (ShuffleType s : values()) {
+        if (s.code == code) {
+          return s;
+        }
+      }
+      throw new IllegalArgumentException("Invalid blosc shuffle: " + code);
+    }
+  }
+
+  /** The inner compressors, with the code recorded in the frame header. */
+  public enum Compressor {
+    BLOSCLZ("blosclz", 0, 1), LZ4("lz4", 1, 1), LZ4HC("lz4hc", 1, 1), SNAPPY("snappy", 2, 1), ZLIB("zlib", 3,
+        1), ZSTD("zstd", 4, 1);
+
+    private final String name;
+    private final int code;
+    private final int versionFormat;
+
+    Compressor(String name, int code, int versionFormat) {
+      this.name = name;
+      this.code = code;
+      this.versionFormat = versionFormat;
+    }
+
+    public static Compressor fromName(String name) {
+      for (Compressor c : values()) {
+        if (c.name.equalsIgnoreCase(name)) {
+          return c;
+        }
+      }
+      throw new IllegalArgumentException("Invalid blosc compressor: " + name);
+    }
+
+    static Compressor fromCode(int code) throws IOException {
+      for (Compressor c : values()) {
+        if (c.code == code) {
+          return c;
+        }
+      }
+      throw new IOException("Unknown blosc compressor code: " + code);
+    }
+  }
+
+  private final Compressor compressor;
+  private final int clevel; // compression level
+  private final ShuffleType shuffle;
+  private final int blocksize; // 0 = automatic
+  private final int typesize;
+
+  /**
+   * Properties are either those of the numcodecs Blosc codec ("cname", "clevel", "shuffle", "blocksize"), or the
+   * HDF5 filter client data (typesize, clevel, shuffle and compressor code in elements 2, 4, 5 and 6).
+   * The element size is only needed for encoding, since it is recorded in the frame.
+   */
+  public Blosc(Map<String, Object> properties) {
+    int[] data = properties.get(Filters.Keys.DATA) instanceof int[] ? (int[]) properties.get(Filters.Keys.DATA) : null;
+
+    Object cname = properties.get("cname");
+    if (cname != null) {
+      this.compressor = Compressor.fromName(cname.toString());
+    } else if (data != null && data.length > 6) {
+      Compressor c;
+      try {
+        c = Compressor.fromCode(data[6]);
+      } catch (IOException e) {
+        throw new IllegalArgumentException(e.getMessage());
+      }
+      this.compressor = c;
+    } else {
+      this.compressor = Compressor.fromName(DEFAULT_CNAME);
+    }
+
+    this.clevel = getInt(properties, "clevel", data != null && data.length > 4 ? data[4] : DEFAULT_CLEVEL);
+    if (clevel < 0 || clevel > 9) {
+      throw new IllegalArgumentException("Invalid compression level: " + clevel);
+    }
+    this.shuffle = ShuffleType.fromCode(
+        getInt(properties, "shuffle", data != null && data.length > 5 ? data[5] : ShuffleType.SHUFFLE.code));
+    this.blocksize = getInt(properties, "blocksize", 0);
+    int elemSize = getInt(properties, Filters.Keys.ELEM_SIZE,
+        getInt(properties, "typesize", data != null && data.length > 2 ? data[2] : 1));
+    this.typesize = (elemSize < 1 || elemSize > 255) ? 1 : elemSize;
+  }
+
+  private static int getInt(Map<String, Object> properties, String key, int defaultValue) {
+    Object value = properties.get(key);
+    if (value instanceof Number) {
+      return ((Number) value).intValue();
+    } else if (value instanceof String) {
+      return Integer.parseInt((String) value);
+    }
+    return defaultValue;
+  }
 
   @Override
   public String getName() {
@@ -27,14 +166,699 @@ public class Blosc extends Filter {
     return id;
   }
 
+  ////////////////////////////////////////////////////////////////
+  // decode
+
   @Override
-  public byte[] encode(byte[] dataIn) {
-    return new byte[0];
+  public byte[] decode(byte[] dataIn) throws IOException {
+    if (dataIn.length < HEADER_SIZE) {
+      throw new IOException("Blosc frame too small: " + dataIn.length);
+    }
+    int version = dataIn[0] & 0xff;
+    int flags = dataIn[2] & 0xff;
+    int typesize = dataIn[3] & 0xff;
+    int nbytes = readInt(dataIn, 4);
+    int blocksize = readInt(dataIn, 8);
+    int cbytes = readInt(dataIn, 12);
+
+    if (version == 0 || version > MAX_VERSION_FORMAT) {
+      throw new IOException("Unsupported blosc format version: " + version);
+    }
+    if ((flags & (FLAG_SHUFFLE | FLAG_BITSHUFFLE)) == (FLAG_SHUFFLE | FLAG_BITSHUFFLE)) {
+      throw new IOException("Blosc2 extended headers are not supported");
+    }
+    if (nbytes < 0 || cbytes > dataIn.length || cbytes < HEADER_SIZE) {
+      throw new IOException("Corrupt blosc header: nbytes= " + nbytes + " cbytes= " + cbytes);
+    }
+
+    byte[] dataOut = new byte[nbytes];
+    if (nbytes == 0) {
+      return dataOut;
+    }
+    if ((flags & FLAG_MEMCPYED) != 0) {
+      if (cbytes < HEADER_SIZE + nbytes) {
+        throw new IOException("Corrupt blosc header: nbytes= " + nbytes + " cbytes= " + cbytes);
+      }
+      System.arraycopy(dataIn, HEADER_SIZE, dataOut, 0, nbytes);
+      return dataOut;
+    }
+    if (blocksize <= 0) {
+      throw new IOException("Corrupt blosc header: blocksize= " + blocksize);
+    }
+
+    Frame frame = new Frame(dataIn, cbytes, dataOut, flags, Math.max(typesize, 1), blocksize);
+    if (frame.nblocks > 1 && nbytes >= PARALLEL_MIN_BYTES) {
+      try {
+        IntStream.range(0, frame.nblocks).parallel().forEach(frame::decodeBlockUnchecked);
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    } else {
+      for (int j = 0; j < frame.nblocks; j++) {
+        frame.decodeBlock(j);
+      }
+    }
+    return dataOut;
+  }
+
+  /** A Blosc frame being decoded. Blocks are independent, and may be decoded concurrently. */
+  private static class Frame {
+    private final byte[] src;
+    private final int cbytes;
+    private final byte[] dest;
+    private final int flags;
+    private final int typesize;
+    private final int blocksize;
+    private final int nblocks;
+    private final int leftover;
+    private final Compressor compressor;
+
+    Frame(byte[] src, int cbytes, byte[] dest, int flags, int typesize, int blocksize) throws IOException {
+      this.src = src;
+      this.cbytes = cbytes;
+      this.dest = dest;
+      this.flags = flags;
+      this.typesize = typesize;
+      this.blocksize = blocksize;
+      this.nblocks = dest.length / blocksize + (dest.length % blocksize == 0 ? 0 : 1);
+      this.leftover = dest.length % blocksize;
+      this.compressor = Compressor.fromCode((flags & 0xe0) >> 5);
+      if (HEADER_SIZE + 4L * nblocks > cbytes) {
+        throw new IOException("Corrupt blosc frame: too short for " + nblocks + " blocks");
+      }
+    }
+
+    void decodeBlockUnchecked(int j) {
+      try {
+        decodeBlock(j);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    void decodeBlock(int j) throws IOException {
+      boolean leftoverBlock = (j == nblocks - 1) && leftover > 0;
+      int bsize = leftoverBlock ? leftover : blocksize;
+      int destOffset = j * blocksize;
+      boolean doShuffle = (flags & FLAG_SHUFFLE) != 0 && typesize > 1;
+      boolean doBitshuffle = (flags & FLAG_BITSHUFFLE) != 0 && bsize >= typesize;
+      boolean split = (flags & FLAG_DONT_SPLIT) == 0 && !leftoverBlock;
+      int nsplits = split ? typesize : 1;
+      int neblock = bsize / nsplits;
+
+      byte[] out = (doShuffle || doBitshuffle) ? new byte[bsize] : dest;
+      int outOffset = (doShuffle || doBitshuffle) ? 0 : destOffset;
+
+      int pos = readInt(src, HEADER_SIZE + 4 * j);
+      for (int s = 0; s < nsplits; s++) {
+        if (pos < 0 || pos > cbytes - 4) {
+          throw new IOException("Corrupt blosc frame: block " + j + " starts outside of the frame");
+        }
+        int streamBytes = readInt(src, pos);
+        pos += 4;
+        if (streamBytes < 0 || streamBytes > cbytes - pos) {
+          throw new IOException("Corrupt blosc frame: stream of block " + j + " extends outside of the frame");
+        }
+        int dstOffset = outOffset + s * neblock;
+        if (streamBytes == neblock) { // stored uncompressed
+          System.arraycopy(src, pos, out, dstOffset, neblock);
+        } else {
+          int n = decompress(compressor, src, pos, streamBytes, out, dstOffset, neblock);
+          if (n != neblock) {
+            throw new IOException(
+                "Corrupt blosc frame: block " + j + " decompressed to " + n + " bytes, expected " + neblock);
+          }
+        }
+        pos += streamBytes;
+      }
+
+      if (doShuffle) {
+        unshuffle(typesize, bsize, out, dest, destOffset);
+      } else if (doBitshuffle) {
+        bitunshuffle(typesize, bsize, out, dest, destOffset);
+      }
+    }
   }
 
+  private static int decompress(Compressor compressor, byte[] src, int srcOffset, int srcLen, byte[] dst,
+      int dstOffset, int dstLen) throws IOException {
+    switch (compressor) {
+      case BLOSCLZ:
+        return BloscLZ.decompress(src, srcOffset, srcOffset + srcLen, dst, dstOffset, dstOffset + dstLen);
+      case LZ4:
+      case LZ4HC:
+        return LZ4.decompress(src, srcOffset, srcOffset + srcLen, dst, dstOffset, dstOffset + dstLen);
+      case ZLIB:
+        return inflate(src, srcOffset, srcLen, dst, dstOffset, dstLen);
+      case ZSTD:
+        return Zstd.decompress(src, srcOffset, srcOffset + srcLen, dst, dstOffset, dstOffset + dstLen);
+      default:
+        throw new IOException("Blosc compressor " + compressor.name + " is not supported");
+    }
+  }
+
+  private static int inflate(byte[] src, int srcOffset, int srcLen, byte[] dst, int dstOffset, int dstLen)
+      throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(src, srcOffset, srcLen);
+      int n = 0;
+      while (n < dstLen && !inflater.finished()) {
+        int count = inflater.inflate(dst, dstOffset + n, dstLen - n);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        n += count;
+      }
+      return n;
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt blosc zlib stream", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////
+  // encode
+
   @Override
-  public byte[] decode(byte[] dataIn) {
-    return new byte[0];
+  public byte[] encode(byte[] dataIn) throws IOException {
+    int nbytes = dataIn.length;
+    Compressor encoder = compressor;
+    if (encoder == Compressor.ZSTD || encoder == Compressor.SNAPPY) {
+      throw new IOException("Blosc compressor " + encoder.name + " is not supported for encoding");
+    }
+    ShuffleType doShuffle = shuffle;
+    if (doShuffle == ShuffleType.AUTOSHUFFLE) {
+      doShuffle = typesize == 1 ? ShuffleType.BITSHUFFLE : ShuffleType.SHUFFLE;
+    }
+
+    if (clevel == 0 || nbytes < MIN_BUFFERSIZE) {
+      return memcpyed(dataIn, encoder);
+    }
+
+    int bsize = computeBlocksize(nbytes);
+    int nblocks = nbytes / bsize + (nbytes % bsize == 0 ? 0 : 1);
+    int leftover = nbytes % bsize;
+    boolean split = typesize <= MAX_SPLITS && bsize / typesize >= MIN_BUFFERSIZE;
+
+    int flags = encoder.code << 5;
+    if (doShuffle == ShuffleType.SHUFFLE) {
+      flags |= FLAG_SHUFFLE;
+    } else if (doShuffle == ShuffleType.BITSHUFFLE) {
+      flags |= FLAG_BITSHUFFLE;
+    }
+    if (!split) {
+      flags |= FLAG_DONT_SPLIT;
+    }
+
+    int maxOut = HEADER_SIZE + nbytes; // if its larger than this, store it instead
+    byte[] out = new byte[HEADER_SIZE + 4 * nblocks + nbytes + 4 * MAX_SPLITS * nblocks];
+    int pos = HEADER_SIZE + 4 * nblocks;
+    byte[] shuffled = new byte[bsize];
+    byte[] compressed = new byte[Math.max(LZ4.maxCompressedLength(bsize), BloscLZ.maxCompressedLength(bsize))];
+    for (int j = 0; j < nblocks; j++) {
+      boolean leftoverBlock = (j == nblocks - 1) && leftover > 0;
+      int blen = leftoverBlock ? leftover : bsize;
+      byte[] block = dataIn;
+      int blockOffset = j * bsize;
+      if (doShuffle == ShuffleType.SHUFFLE && typesize > 1) {
+        shuffle(typesize, blen, dataIn, blockOffset, shuffled);
+        block = shuffled;
+        blockOffset = 0;
+      } else if (doShuffle == ShuffleType.BITSHUFFLE && blen >= typesize) {
+        bitshuffle(typesize, blen, dataIn, blockOffset, shuffled);
+        block = shuffled;
+        blockOffset = 0;
+      }
+
+      writeInt(out, HEADER_SIZE + 4 * j, pos);
+      int nsplits = (split && !leftoverBlock) ? typesize : 1;
+      int neblock = blen / nsplits;
+      for (int s = 0; s < nsplits; s++) {
+        int clen = compress(encoder, block, blockOffset + s * neblock, neblock, compressed);
+        if (pos + 4 + Math.min(clen, neblock) > maxOut) {
+          return memcpyed(dataIn, encoder);
+        }
+        if (clen < neblock) {
+          writeInt(out, pos, clen);
+          System.arraycopy(compressed, 0, out, pos + 4, clen);
+          pos += 4 + clen;
+        } else { // store uncompressed
+          writeInt(out, pos, neblock);
+          System.arraycopy(block, blockOffset + s * neblock, out, pos + 4, neblock);
+          pos += 4 + neblock;
+        }
+      }
+    }
+
+    writeHeader(out, encoder, flags, nbytes, bsize, pos);
+    return Arrays.copyOf(out, pos);
+  }
+
+  private byte[] memcpyed(byte[] dataIn, Compressor encoder) {
+    byte[] out = new byte[HEADER_SIZE + dataIn.length];
+    int flags = (encoder.code << 5) | FLAG_MEMCPYED | FLAG_DONT_SPLIT;
+    writeHeader(out, encoder, flags, dataIn.length, dataIn.length, out.length);
+    System.arraycopy(dataIn, 0, out, HEADER_SIZE, dataIn.length);
+    return out;
+  }
+
+  private void writeHeader(byte[] out, Compressor encoder, int flags, int nbytes, int bsize, int cbytes) {
+    out[0] = VERSION_FORMAT;
+    out[1] = (byte) encoder.versionFormat;
+    out[2] = (byte) flags;
+    out[3] = (byte) typesize;
+    writeInt(out, 4, nbytes);
+    writeInt(out, 8, bsize);
+    writeInt(out, 12, cbytes);
+  }
+
+  /** A simplified version of the c-blosc heuristic: larger blocks for higher compression levels. */
+  private int computeBlocksize(int nbytes) {
+    int bsize;
+    if (blocksize > 0) {
+      bsize = Math.max(blocksize, MIN_BUFFERSIZE);
+    } else if (clevel <= 3) {
+      bsize = 32 * 1024;
+    } else if (clevel <= 6) {
+      bsize = 64 * 1024;
+    } else {
+      bsize = 128 * 1024;
+    }
+    if (compressor == Compressor.ZLIB && blocksize <= 0) {
+      bsize *= 2;
+    }
+    bsize = Math.min(bsize, nbytes);
+    if (bsize > typesize) {
+      bsize -= bsize % typesize; // whole elements
+    }
+    return bsize;
+  }
+
+  private int compress(Compressor encoder, byte[] src, int srcOffset, int srcLen, byte[] dst) {
+    if (encoder == Compressor.BLOSCLZ) {
+      return BloscLZ.compress(src, srcOffset, srcLen, dst);
+    } else if (encoder == Compressor.ZLIB) {
+      Deflater deflater = new Deflater(clevel);
+      try {
+        deflater.setInput(src, srcOffset, srcLen);
+        deflater.finish();
+        int n = 0;
+        while (!deflater.finished() && n < srcLen) {
+          n += deflater.deflate(dst, n, Math.min(dst.length, srcLen) - n);
+        }
+        return deflater.finished() ? n : srcLen;
+      } finally {
+        deflater.end();
+      }
+    }
+    return LZ4.compress(src, srcOffset, srcLen, dst);
+  }
+
+  ////////////////////////////////////////////////////////////////
+  // shuffle
+
+  private static void shuffle(int typesize, int blen, byte[] src, int srcOffset, byte[] dest) {
+    int nelems = blen / typesize;
+    for (int j = 0; j < typesize; j++) {
+      for (int i = 0; i < nelems; i++) {
+        dest[j * nelems + i] = src[srcOffset + i * typesize + j];
+      }
+    }
+    int done = nelems * typesize;
+    System.arraycopy(src, srcOffset + done, dest, done, blen - done);
+  }
+
+  private static void unshuffle(int typesize, int blen, byte[] src, byte[] dest, int destOffset) {
+    int nelems = blen / typesize;
+    for (int j = 0; j < typesize; j++) {
+      for (int i = 0; i < nelems; i++) {
+        dest[destOffset + i * typesize + j] = src[j * nelems + i];
+      }
+    }
+    int done = nelems * typesize;
+    System.arraycopy(src, done, dest, destOffset + done, blen - done);
+  }
+
+  /*
+   * Bit shuffle, as in the bitshuffle library: bit k of byte b of element i is moved to bit (i % 8) of byte
+   * (b * 8 + k) * (nelems / 8) + i / 8. Only a multiple of 8 elements is shuffled, the remaining bytes are copied.
+   */
+  private static void bitshuffle(int typesize, int blen, byte[] src, int srcOffset, byte[] dest) {
+    int nelems = blen / typesize;
+    nelems -= nelems % 8;
+    int nrow = nelems / 8;
+    int done = nelems * typesize;
+    Arrays.fill(dest, 0, done, (byte) 0);
+    for (int i = 0; i < nelems; i++) {
+      int bit = 1 << (i & 7);
+      int col = i >> 3;
+      for (int b = 0; b < typesize; b++) {
+        int val = src[srcOffset + i * typesize + b];
+        if (val == 0) {
+          continue;
+        }
+        for (int k = 0; k < 8; k++) {
+          if ((val & (1 << k)) != 0) {
+            dest[(b * 8 + k) * nrow + col] |= bit;
+          }
+        }
+      }
+    }
+    System.arraycopy(src, srcOffset + done, dest, done, blen - done);
+  }
+
+  private static void bitunshuffle(int typesize, int blen, byte[] src, byte[] dest, int destOffset) {
+    int nelems = blen / typesize;
+    nelems -= nelems % 8;
+    int nrow = nelems / 8;
+    int done = nelems * typesize;
+    Arrays.fill(dest, destOffset, destOffset + done, (byte) 0);
+    for (int b = 0; b < typesize; b++) {
+      for (int k = 0; k < 8; k++) {
+        int rowStart = (b * 8 + k) * nrow;
+        for (int col = 0; col < nrow; col++) {
+          int val = src[rowStart + col];
+          if (val == 0) {
+            continue;
+          }
+          for (int t = 0; t < 8; t++) {
+            if ((val & (1 << t)) != 0) {
+              dest[destOffset + (col * 8 + t) * typesize + b] |= 1 << k;
+            }
+          }
+        }
+      }
+    }
+    System.arraycopy(src, done, dest, destOffset + done, blen - done);
+  }
+
+  ////////////////////////////////////////////////////////////////
+
+  private static int readInt(byte[] b, int pos) {
+    return (b[pos] & 0xff) | (b[pos + 1] & 0xff) << 8 | (b[pos + 2] & 0xff) << 16 | (b[pos + 3] & 0xff) << 24;
+  }
+
+  private static void writeInt(byte[] b, int pos, int value) {
+    b[pos] = (byte) value;
+    b[pos + 1] = (byte) (value >>> 8);
+    b[pos + 2] = (byte) (value >>> 16);
+    b[pos + 3] = (byte) (value >>> 24);
+  }
+
+  /** Copy a match, where the source may overlap the destination, as LZ77 requires. */
+  private static void copyMatch(byte[] b, int from, int to, int len) {
+    if (to - from >= len) {
+      System.arraycopy(b, from, b, to, len);
+    } else {
+      for (int i = 0; i < len; i++) {
+        b[to + i] = b[from + i];
+      }
+    }
+  }
+
+  private static IOException corrupt(String codec) {
+    return new IOException("Corrupt blosc " + codec + " stream");
+  }
+
+  /** The BloscLZ format, a variant of FastLZ level 2. */
+  static class BloscLZ {
+    private static final int MAX_DISTANCE = 8191;
+    private static final int MIN_MATCH = 3;
+    private static final int MAX_COPY = 32; // longest literal run
+    private static final int HASH_LOG = 13;
+
+    static int maxCompressedLength(int len) {
+      return len + len / MAX_COPY + 1;
+    }
+
+    static int decompress(byte[] src, int ip, int ipLimit, byte[] dst, int op, int opLimit) throws IOException {
+      int start = op;
+      if (ip >= ipLimit) {
+        return 0;
+      }
+      int ctrl = src[ip++] & 31;
+      while (true) {
+        if (ctrl >= 32) { // match
+          int len = (ctrl >> 5) - 1;
+          int ofs = (ctrl & 31) << 8;
+          if (len == 7 - 1) {
+            int code;
+            do {
+              if (ip >= ipLimit) {
+                throw corrupt("blosclz");
+              }
+              code = src[ip++] & 0xff;
+              len += code;
+            } while (code == 255);
+          }
+          if (ip >= ipLimit) {
+            throw corrupt("blosclz");
+          }
+          int code = src[ip++] & 0xff;
+          len += 3;
+          int distance = ofs + code + 1;
+          if (code == 255 && ofs == (31 << 8)) { // 16 bit distance
+            if (ip + 1 >= ipLimit) {
+              throw corrupt("blosclz");
+            }
+            ofs = (src[ip++] & 0xff) << 8;
+            ofs += src[ip++] & 0xff;
+            distance = ofs + MAX_DISTANCE + 1;
+          }
+          if (len > opLimit - op || distance > op - start) {
+            throw corrupt("blosclz");
+          }
+          copyMatch(dst, op - distance, op, len);
+          op += len;
+
+        } else { // literal run
+          ctrl++;
+          if (ctrl > opLimit - op || ctrl > ipLimit - ip) {
+            throw corrupt("blosclz");
+          }
+          System.arraycopy(src, ip, dst, op, ctrl);
+          op += ctrl;
+          ip += ctrl;
+        }
+
+        if (ip >= ipLimit) {
+          break;
+        }
+        ctrl = src[ip++] & 0xff;
+      }
+      return op - start;
+    }
+
+    /**
+     * Greedy single pass compression, using only the short (13 bit) distances.
+     *
+     * @param dst must be at least maxCompressedLength(srcLen) long
+     * @return number of bytes written to dst
+     */
+    static int compress(byte[] src, int srcOffset, int srcLen, byte[] dst) {
+      int[] table = new int[1 << HASH_LOG];
+      Arrays.fill(table, -1);
+      int srcEnd = srcOffset + srcLen;
+      int anchor = srcOffset;
+      int ip = srcOffset;
+      int op = 0;
+
+      // the stream starts with a literal run, since the first byte can't be matched
+      while (ip + MIN_MATCH <= srcEnd) {
+        int seq = read3(src, ip);
+        int h = (seq * -1640531535) >>> (32 - HASH_LOG);
+        int ref = table[h];
+        table[h] = ip;
+        if (ref < 0 || ip - ref > MAX_DISTANCE || read3(src, ref) != seq) {
+          ip++;
+          continue;
+        }
+        int len = MIN_MATCH;
+        while (ip + len < srcEnd && src[ip + len] == src[ref + len]) {
+          len++;
+        }
+        op = writeLiterals(src, anchor, ip - anchor, dst, op);
+        op = writeMatch(dst, op, len, ip - ref);
+        ip += len;
+        anchor = ip;
+      }
+      return writeLiterals(src, anchor, srcEnd - anchor, dst, op);
+    }
+
+    private static int read3(byte[] b, int pos) {
+      return (b[pos] & 0xff) | (b[pos + 1] & 0xff) << 8 | (b[pos + 2] & 0xff) << 16;
+    }
+
+    private static int writeLiterals(byte[] src, int anchor, int literals, byte[] dst, int op) {
+      while (literals > 0) {
+        int run = Math.min(literals, MAX_COPY);
+        dst[op++] = (byte) (run - 1);
+        System.arraycopy(src, anchor, dst, op, run);
+        op += run;
+        anchor += run;
+        literals -= run;
+      }
+      return op;
+    }
+
+    private static int writeMatch(byte[] dst, int op, int len, int distance) {
+      int d = distance - 1;
+      int code = len - 2; // 1..6 in the control byte, 7 means the length continues
+      if (code < 7) {
+        dst[op++] = (byte) ((code << 5) + (d >>> 8));
+      } else {
+        dst[op++] = (byte) ((7 << 5) + (d >>> 8));
+        int rest = len - 9;
+        while (rest >= 255) {
+          dst[op++] = (byte) 255;
+          rest -= 255;
+        }
+        dst[op++] = (byte) rest;
+      }
+      dst[op++] = (byte) d;
+      return op;
+    }
+  }
+
+  /** The LZ4 block format. */
+  static class LZ4 {
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5; // the last 5 bytes are always literals
+    private static final int MF_LIMIT = 12; // the last match must start at least 12 bytes before the end
+    private static final int MAX_DISTANCE = 65535;
+    private static final int HASH_LOG = 14;
+
+    static int maxCompressedLength(int len) {
+      return len + len / 255 + 16;
+    }
+
+    static int decompress(byte[] src, int ip, int ipLimit, byte[] dst, int op, int opLimit) throws IOException {
+      int start = op;
+      while (ip < ipLimit) {
+        int token = src[ip++] & 0xff;
+
+        int literals = token >>> 4;
+        if (literals == 15) {
+          int b;
+          do {
+            if (ip >= ipLimit) {
+              throw corrupt("lz4");
+            }
+            b = src[ip++] & 0xff;
+            literals += b;
+          } while (b == 255);
+        }
+        if (literals > ipLimit - ip || literals > opLimit - op) {
+          throw corrupt("lz4");
+        }
+        System.arraycopy(src, ip, dst, op, literals);
+        ip += literals;
+        op += literals;
+        if (ip >= ipLimit) {
+          break; // the last sequence has no match
+        }
+
+        if (ip + 1 >= ipLimit) {
+          throw corrupt("lz4");
+        }
+        int distance = (src[ip] & 0xff) | (src[ip + 1] & 0xff) << 8;
+        ip += 2;
+        int len = token & 0xf;
+        if (len == 15) {
+          int b;
+          do {
+            if (ip >= ipLimit) {
+              throw corrupt("lz4");
+            }
+            b = src[ip++] & 0xff;
+            len += b;
+          } while (b == 255);
+        }
+        len += MIN_MATCH;
+        if (distance == 0 || distance > op - start || len > opLimit - op) {
+          throw corrupt("lz4");
+        }
+        copyMatch(dst, op - distance, op, len);
+        op += len;
+      }
+      return op - start;
+    }
+
+    /**
+     * Greedy single pass compression.
+     *
+     * @param dst must be at least maxCompressedLength(srcLen) long
+     * @return number of bytes written to dst
+     */
+    static int compress(byte[] src, int srcOffset, int srcLen, byte[] dst) {
+      int[] table = new int[1 << HASH_LOG];
+      Arrays.fill(table, -1);
+      int srcEnd = srcOffset + srcLen;
+      int matchLimit = srcEnd - LAST_LITERALS;
+      int mfLimit = srcEnd - MF_LIMIT;
+      int anchor = srcOffset;
+      int ip = srcOffset;
+      int op = 0;
+
+      while (ip < mfLimit) {
+        int seq = readInt(src, ip);
+        int h = hash(seq);
+        int ref = table[h];
+        table[h] = ip;
+        if (ref < 0 || ip - ref > MAX_DISTANCE || readInt(src, ref) != seq) {
+          ip++;
+          continue;
+        }
+        // extend backwards, then forwards
+        while (ip > anchor && ref > srcOffset && src[ip - 1] == src[ref - 1]) {
+          ip--;
+          ref--;
+        }
+        int len = MIN_MATCH;
+        while (ip + len < matchLimit && src[ip + len] == src[ref + len]) {
+          len++;
+        }
+        int tokenPos = op;
+        op = writeLiterals(src, anchor, ip - anchor, dst, op);
+        dst[op++] = (byte) (ip - ref);
+        dst[op++] = (byte) ((ip - ref) >>> 8);
+        int extra = len - MIN_MATCH;
+        dst[tokenPos] |= (byte) Math.min(extra, 15);
+        if (extra >= 15) {
+          op = writeLength(dst, op, extra - 15);
+        }
+        ip += len;
+        anchor = ip;
+      }
+
+      // last literals
+      return writeLiterals(src, anchor, srcEnd - anchor, dst, op);
+    }
+
+    private static int hash(int seq) {
+      return (seq * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    /** Write the token and literals of a sequence. The caller adds the match length to the token. */
+    private static int writeLiterals(byte[] src, int anchor, int literals, byte[] dst, int op) {
+      dst[op++] = (byte) (Math.min(literals, 15) << 4);
+      if (literals >= 15) {
+        op = writeLength(dst, op, literals - 15);
+      }
+      System.arraycopy(src, anchor, dst, op, literals);
+      return op + literals;
+    }
+
+    private static int writeLength(byte[] dst, int op, int len) {
+      while (len >= 255) {
+        dst[op++] = (byte) 255;
+        len -= 255;
+      }
+      dst[op++] = (byte) len;
+      return op;
+    }
   }
 
   public static class Provider implements FilterProvider {
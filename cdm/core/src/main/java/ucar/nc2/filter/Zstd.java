@@ -0,0 +1,767 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.filter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A Zstandard (RFC 8878) decompressor, for the zstd streams inside Blosc frames.
+ * <p>
+ * Decodes any number of concatenated frames into a region of a byte array. Dictionaries are not supported, and
+ * frame checksums are not verified. The window is the region being decoded into, so matches may not refer to
+ * anything before its start.
+ */
+final class Zstd {
+  private static final int MAGIC = 0xFD2FB528;
+  private static final int SKIPPABLE_MAGIC = 0x184D2A50; // to 0x184D2A5F
+  private static final int MAX_BLOCK_SIZE = 128 * 1024;
+
+  private static final int RAW_BLOCK = 0;
+  private static final int RLE_BLOCK = 1;
+  private static final int COMPRESSED_BLOCK = 2;
+
+  private static final int RAW_LITERALS = 0;
+  private static final int RLE_LITERALS = 1;
+  private static final int COMPRESSED_LITERALS = 2;
+  private static final int TREELESS_LITERALS = 3;
+
+  private static final int PREDEFINED_MODE = 0;
+  private static final int RLE_MODE = 1;
+  private static final int FSE_MODE = 2;
+  private static final int REPEAT_MODE = 3;
+
+  private static final int MAX_HUFFMAN_BITS = 12;
+
+  private static final int[] LL_BASE = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 18, 20, 22, 24, 28,
+      32, 40, 48, 64, 128, 256, 512, 1024, 2048, 4096, 8192, 16384, 32768, 65536};
+  private static final int[] LL_BITS = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 3, 3, 4, 6,
+      7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+  private static final int[] ML_BASE = {3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23,
+      24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34, 35, 37, 39, 41, 43, 47, 51, 59, 67, 83, 99, 131, 259, 515, 1027, 2051,
+      4099, 8195, 16387, 32771, 65539};
+  private static final int[] ML_BITS = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+      0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 3, 3, 4, 4, 5, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+
+  private static final short[] LL_DEFAULT = {4, 3, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 1, 1, 1, 2, 2, 2, 2, 2, 2, 2, 2, 2,
+      3, 2, 1, 1, 1, 1, 1, -1, -1, -1, -1};
+  private static final short[] ML_DEFAULT = {1, 4, 3, 2, 2, 2, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
+      1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1, -1, -1, -1};
+  private static final short[] OF_DEFAULT =
+      {1, 1, 1, 1, 1, 1, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1, -1};
+
+  private static final FseTable LL_DEFAULT_TABLE = FseTable.build(LL_DEFAULT, LL_DEFAULT.length - 1, 6);
+  private static final FseTable ML_DEFAULT_TABLE = FseTable.build(ML_DEFAULT, ML_DEFAULT.length - 1, 6);
+  private static final FseTable OF_DEFAULT_TABLE = FseTable.build(OF_DEFAULT, OF_DEFAULT.length - 1, 5);
+
+  private Zstd() {}
+
+  /**
+   * Decompress the frames in src[ip, ipLimit) into dst[op, opLimit).
+   *
+   * @return number of bytes written to dst
+   */
+  static int decompress(byte[] src, int ip, int ipLimit, byte[] dst, int op, int opLimit) throws IOException {
+    int start = op;
+    while (ip < ipLimit) {
+      if (ipLimit - ip < 4) {
+        throw corrupt();
+      }
+      int magic = readInt(src, ip);
+      ip += 4;
+      if ((magic & 0xFFFFFFF0) == SKIPPABLE_MAGIC) {
+        if (ipLimit - ip < 4) {
+          throw corrupt();
+        }
+        long size = readInt(src, ip) & 0xFFFFFFFFL;
+        if (size > ipLimit - ip - 4) {
+          throw corrupt();
+        }
+        ip += 4 + (int) size;
+        continue;
+      }
+      if (magic != MAGIC) {
+        throw new IOException("Not a zstd frame");
+      }
+      Frame frame = new Frame(dst, start, opLimit);
+      ip = frame.decode(src, ip, ipLimit, op);
+      op = frame.op;
+    }
+    return op - start;
+  }
+
+  /** The state of a frame being decoded: repeat offsets, and the tables that later blocks may reuse. */
+  private static class Frame {
+    final byte[] dst;
+    final int windowStart;
+    final int opLimit;
+    int op;
+
+    final int[] reps = {1, 4, 8};
+    HuffmanTable huffman;
+    FseTable llTable;
+    FseTable ofTable;
+    FseTable mlTable;
+    byte[] literals = new byte[MAX_BLOCK_SIZE];
+
+    Frame(byte[] dst, int windowStart, int opLimit) {
+      this.dst = dst;
+      this.windowStart = windowStart;
+      this.opLimit = opLimit;
+    }
+
+    int decode(byte[] src, int ip, int ipLimit, int op) throws IOException {
+      this.op = op;
+      if (ip >= ipLimit) {
+        throw corrupt();
+      }
+      int descriptor = src[ip++] & 0xff;
+      int fcsFlag = descriptor >>> 6;
+      boolean singleSegment = (descriptor & 0x20) != 0;
+      boolean checksum = (descriptor & 0x04) != 0;
+      int dictIdFlag = descriptor & 0x03;
+      if ((descriptor & 0x08) != 0) {
+        throw corrupt();
+      }
+      int dictIdSize = dictIdFlag == 3 ? 4 : dictIdFlag;
+      int fcsSize = fcsFlag == 0 ? (singleSegment ? 1 : 0) : 1 << fcsFlag;
+      int headerSize = (singleSegment ? 0 : 1) + dictIdSize + fcsSize;
+      if (ipLimit - ip < headerSize) {
+        throw corrupt();
+      }
+      ip += singleSegment ? 0 : 1; // window descriptor, the window is all of dst
+      long dictId = 0;
+      for (int i = 0; i < dictIdSize; i++) {
+        dictId |= (src[ip++] & 0xffL) << (8 * i);
+      }
+      if (dictId != 0) {
+        throw new IOException("zstd dictionaries are not supported");
+      }
+      ip += fcsSize;
+
+      boolean last = false;
+      while (!last) {
+        if (ipLimit - ip < 3) {
+          throw corrupt();
+        }
+        int header = (src[ip] & 0xff) | (src[ip + 1] & 0xff) << 8 | (src[ip + 2] & 0xff) << 16;
+        ip += 3;
+        last = (header & 1) != 0;
+        int type = (header >>> 1) & 3;
+        int size = header >>> 3;
+        switch (type) {
+          case RAW_BLOCK:
+            if (size > ipLimit - ip || size > opLimit - this.op) {
+              throw corrupt();
+            }
+            System.arraycopy(src, ip, dst, this.op, size);
+            this.op += size;
+            ip += size;
+            break;
+          case RLE_BLOCK:
+            if (ip >= ipLimit || size > opLimit - this.op) {
+              throw corrupt();
+            }
+            Arrays.fill(dst, this.op, this.op + size, src[ip++]);
+            this.op += size;
+            break;
+          case COMPRESSED_BLOCK:
+            if (size > ipLimit - ip || size > MAX_BLOCK_SIZE) {
+              throw corrupt();
+            }
+            decodeCompressedBlock(src, ip, ip + size);
+            ip += size;
+            break;
+          default:
+            throw corrupt();
+        }
+      }
+      if (checksum) {
+        if (ipLimit - ip < 4) {
+          throw corrupt();
+        }
+        ip += 4; // not verified
+      }
+      return ip;
+    }
+
+    private void decodeCompressedBlock(byte[] src, int ip, int end) throws IOException {
+      // literals section
+      if (ip >= end) {
+        throw corrupt();
+      }
+      int b0 = src[ip] & 0xff;
+      int literalsType = b0 & 3;
+      int sizeFormat = (b0 >>> 2) & 3;
+      int nliterals;
+      if (literalsType == RAW_LITERALS || literalsType == RLE_LITERALS) {
+        int headerSize;
+        if ((sizeFormat & 1) == 0) {
+          headerSize = 1;
+          nliterals = b0 >>> 3;
+        } else if (sizeFormat == 1) {
+          headerSize = 2;
+          checkAvailable(ip, end, 2);
+          nliterals = (b0 >>> 4) + ((src[ip + 1] & 0xff) << 4);
+        } else {
+          headerSize = 3;
+          checkAvailable(ip, end, 3);
+          nliterals = (b0 >>> 4) + ((src[ip + 1] & 0xff) << 4) + ((src[ip + 2] & 0xff) << 12);
+        }
+        ip += headerSize;
+        if (nliterals > MAX_BLOCK_SIZE) {
+          throw corrupt();
+        }
+        if (literalsType == RAW_LITERALS) {
+          checkAvailable(ip, end, nliterals);
+          System.arraycopy(src, ip, literals, 0, nliterals);
+          ip += nliterals;
+        } else {
+          checkAvailable(ip, end, 1);
+          Arrays.fill(literals, 0, nliterals, src[ip++]);
+        }
+
+      } else {
+        int headerSize = sizeFormat < 2 ? 3 : sizeFormat + 2;
+        checkAvailable(ip, end, headerSize);
+        long header = 0;
+        for (int i = 0; i < headerSize; i++) {
+          header |= (src[ip + i] & 0xffL) << (8 * i);
+        }
+        int sizeBits = sizeFormat < 2 ? 10 : (sizeFormat == 2 ? 14 : 18);
+        int mask = (1 << sizeBits) - 1;
+        nliterals = (int) (header >>> 4) & mask;
+        int compressedSize = (int) (header >>> (4 + sizeBits)) & mask;
+        boolean fourStreams = sizeFormat != 0;
+        ip += headerSize;
+        checkAvailable(ip, end, compressedSize);
+        if (nliterals > MAX_BLOCK_SIZE) {
+          throw corrupt();
+        }
+        int streamsStart = ip;
+        if (literalsType == COMPRESSED_LITERALS) {
+          huffman = new HuffmanTable();
+          streamsStart = huffman.read(src, ip, ip + compressedSize);
+        } else if (huffman == null) {
+          throw corrupt();
+        }
+        huffman.decodeStreams(src, streamsStart, ip + compressedSize, fourStreams, literals, nliterals);
+        ip += compressedSize;
+      }
+
+      // sequences section
+      checkAvailable(ip, end, 1);
+      int nseqs = src[ip++] & 0xff;
+      if (nseqs >= 128) {
+        if (nseqs == 255) {
+          checkAvailable(ip, end, 2);
+          nseqs = (src[ip] & 0xff) + ((src[ip + 1] & 0xff) << 8) + 0x7F00;
+          ip += 2;
+        } else {
+          checkAvailable(ip, end, 1);
+          nseqs = ((nseqs - 128) << 8) + (src[ip++] & 0xff);
+        }
+      }
+      if (nseqs == 0) {
+        copyLiterals(0, nliterals);
+        return;
+      }
+
+      checkAvailable(ip, end, 1);
+      int modes = src[ip++] & 0xff;
+      if ((modes & 3) != 0) {
+        throw corrupt();
+      }
+      int[] next = {ip};
+      llTable = selectTable(modes >>> 6, src, next, end, LL_DEFAULT_TABLE, llTable, LL_BASE.length - 1, 9);
+      ofTable = selectTable((modes >>> 4) & 3, src, next, end, OF_DEFAULT_TABLE, ofTable, 31, 8);
+      mlTable = selectTable((modes >>> 2) & 3, src, next, end, ML_DEFAULT_TABLE, mlTable, ML_BASE.length - 1, 9);
+      ip = next[0];
+
+      BackwardBits bits = new BackwardBits(src, ip, end);
+      int llState = (int) bits.read(llTable.log);
+      int ofState = (int) bits.read(ofTable.log);
+      int mlState = (int) bits.read(mlTable.log);
+
+      int litPos = 0;
+      for (int i = 0; i < nseqs; i++) {
+        int ofCode = ofTable.symbol[ofState];
+        int mlCode = mlTable.symbol[mlState];
+        int llCode = llTable.symbol[llState];
+        if (ofCode > 31 || mlCode >= ML_BASE.length || llCode >= LL_BASE.length) {
+          throw corrupt();
+        }
+        long offsetValue = (1L << ofCode) + bits.read(ofCode);
+        int matchLength = ML_BASE[mlCode] + (int) bits.read(ML_BITS[mlCode]);
+        int literalLength = LL_BASE[llCode] + (int) bits.read(LL_BITS[llCode]);
+
+        if (i < nseqs - 1) {
+          llState = llTable.newState[llState] + (int) bits.read(llTable.nbBits[llState]);
+          mlState = mlTable.newState[mlState] + (int) bits.read(mlTable.nbBits[mlState]);
+          ofState = ofTable.newState[ofState] + (int) bits.read(ofTable.nbBits[ofState]);
+        }
+        if (bits.isOverflowed()) {
+          throw corrupt();
+        }
+
+        int offset = repeatOffset(offsetValue, literalLength);
+
+        if (literalLength > nliterals - litPos) {
+          throw corrupt();
+        }
+        copyLiterals(litPos, literalLength);
+        litPos += literalLength;
+
+        if (offset <= 0 || offset > op - windowStart || matchLength > opLimit - op) {
+          throw corrupt();
+        }
+        copyMatch(dst, op - offset, op, matchLength);
+        op += matchLength;
+      }
+      copyLiterals(litPos, nliterals - litPos);
+    }
+
+    private int repeatOffset(long offsetValue, int literalLength) throws IOException {
+      int offset;
+      if (offsetValue > 3) {
+        if (offsetValue - 3 > Integer.MAX_VALUE) {
+          throw corrupt();
+        }
+        offset = (int) (offsetValue - 3);
+        reps[2] = reps[1];
+        reps[1] = reps[0];
+        reps[0] = offset;
+        return offset;
+      }
+      int index = (int) offsetValue - 1 + (literalLength == 0 ? 1 : 0);
+      if (index == 0) {
+        return reps[0];
+      }
+      offset = index == 3 ? reps[0] - 1 : reps[index];
+      if (index != 1) {
+        reps[2] = reps[1];
+      }
+      reps[1] = reps[0];
+      reps[0] = offset;
+      return offset;
+    }
+
+    private void copyLiterals(int from, int n) throws IOException {
+      if (n > opLimit - op) {
+        throw corrupt();
+      }
+      System.arraycopy(literals, from, dst, op, n);
+      op += n;
+    }
+  }
+
+  private static FseTable selectTable(int mode, byte[] src, int[] ip, int end, FseTable predefined,
+      FseTable previous, int maxSymbol, int maxLog) throws IOException {
+    switch (mode) {
+      case PREDEFINED_MODE:
+        return predefined;
+      case RLE_MODE:
+        checkAvailable(ip[0], end, 1);
+        int symbol = src[ip[0]++] & 0xff;
+        if (symbol > maxSymbol) {
+          throw corrupt();
+        }
+        return FseTable.rle(symbol);
+      case FSE_MODE:
+        short[] counts = new short[maxSymbol + 1];
+        int[] result = readCounts(src, ip[0], end, counts, maxSymbol, maxLog);
+        ip[0] = result[0];
+        return FseTable.build(counts, result[1], result[2]);
+      case REPEAT_MODE:
+        if (previous == null) {
+          throw corrupt();
+        }
+        return previous;
+      default:
+        throw corrupt();
+    }
+  }
+
+  /**
+   * Read an FSE table description (normalized counts).
+   *
+   * @return position after the description, the largest symbol, and the accuracy log
+   */
+  private static int[] readCounts(byte[] src, int ip, int end, short[] counts, int maxSymbol, int maxLog)
+      throws IOException {
+    ForwardBits bits = new ForwardBits(src, ip, end);
+    int log = (int) bits.read(4) + 5;
+    if (log > maxLog) {
+      throw corrupt();
+    }
+    int remaining = (1 << log) + 1;
+    int threshold = 1 << log;
+    int nbBits = log + 1;
+    int symbol = 0;
+    boolean previous0 = false;
+    while (remaining > 1 && symbol <= maxSymbol) {
+      if (previous0) {
+        int repeat;
+        do {
+          repeat = (int) bits.read(2);
+          symbol += repeat;
+        } while (repeat == 3);
+        if (symbol > maxSymbol) {
+          throw corrupt();
+        }
+      }
+      int max = (2 * threshold - 1) - remaining;
+      int value;
+      int low = (int) bits.peek(nbBits - 1);
+      if (low < max) {
+        value = low;
+        bits.skip(nbBits - 1);
+      } else {
+        value = (int) bits.peek(nbBits);
+        if (value >= threshold) {
+          value -= max;
+        }
+        bits.skip(nbBits);
+      }
+      int count = value - 1;
+      remaining -= Math.abs(count);
+      counts[symbol++] = (short) count;
+      previous0 = count == 0;
+      while (remaining < threshold) {
+        nbBits--;
+        threshold >>= 1;
+      }
+    }
+    if (remaining != 1 || bits.isOverflowed()) {
+      throw corrupt();
+    }
+    return new int[] {bits.bytePosition(), symbol - 1, log};
+  }
+
+  /** An FSE decoding table. */
+  private static class FseTable {
+    final int log;
+    final int[] symbol;
+    final int[] nbBits;
+    final int[] newState;
+
+    FseTable(int log) {
+      int size = 1 << log;
+      this.log = log;
+      this.symbol = new int[size];
+      this.nbBits = new int[size];
+      this.newState = new int[size];
+    }
+
+    static FseTable rle(int symbol) {
+      FseTable table = new FseTable(0);
+      table.symbol[0] = symbol;
+      return table;
+    }
+
+    static FseTable build(short[] counts, int maxSymbol, int log) {
+      FseTable table = new FseTable(log);
+      int size = 1 << log;
+      int[] next = new int[maxSymbol + 1];
+      int highThreshold = size - 1;
+      for (int s = 0; s <= maxSymbol; s++) {
+        if (counts[s] == -1) {
+          table.symbol[highThreshold--] = s;
+          next[s] = 1;
+        } else {
+          next[s] = Math.max(counts[s], 0);
+        }
+      }
+      int step = (size >>> 1) + (size >>> 3) + 3;
+      int mask = size - 1;
+      int position = 0;
+      for (int s = 0; s <= maxSymbol; s++) {
+        for (int i = 0; i < counts[s]; i++) {
+          table.symbol[position] = s;
+          do {
+            position = (position + step) & mask;
+          } while (position > highThreshold);
+        }
+      }
+      for (int u = 0; u < size; u++) {
+        int s = table.symbol[u];
+        int nextState = next[s]++;
+        int bits = log - (31 - Integer.numberOfLeadingZeros(nextState));
+        table.nbBits[u] = bits;
+        table.newState[u] = (nextState << bits) - size;
+      }
+      return table;
+    }
+  }
+
+  /** A Huffman decoding table for literals, indexed by the next maxBits bits of the stream. */
+  private static class HuffmanTable {
+    int maxBits;
+    byte[] symbol;
+    byte[] nbBits;
+
+    /** Read the tree description, return the position after it. */
+    int read(byte[] src, int ip, int end) throws IOException {
+      checkAvailable(ip, end, 1);
+      int header = src[ip++] & 0xff;
+      int[] weights = new int[256];
+      int nweights;
+      if (header >= 128) {
+        nweights = header - 127;
+        checkAvailable(ip, end, (nweights + 1) / 2);
+        for (int i = 0; i < nweights; i++) {
+          int b = src[ip + i / 2] & 0xff;
+          weights[i] = (i % 2 == 0) ? b >>> 4 : b & 0xf;
+        }
+        ip += (nweights + 1) / 2;
+      } else {
+        checkAvailable(ip, end, header);
+        nweights = readFseWeights(src, ip, ip + header, weights);
+        ip += header;
+      }
+
+      // the weight of the last symbol is implied
+      int total = 0;
+      for (int i = 0; i < nweights; i++) {
+        if (weights[i] > MAX_HUFFMAN_BITS) {
+          throw corrupt();
+        }
+        if (weights[i] > 0) {
+          total += 1 << (weights[i] - 1);
+        }
+      }
+      if (total == 0) {
+        throw corrupt();
+      }
+      maxBits = 32 - Integer.numberOfLeadingZeros(total);
+      int rest = (1 << maxBits) - total;
+      if (Integer.bitCount(rest) != 1 || maxBits > MAX_HUFFMAN_BITS || nweights >= 256) {
+        throw corrupt();
+      }
+      weights[nweights++] = Integer.numberOfTrailingZeros(rest) + 1;
+
+      // symbols take 2^(weight-1) entries, lowest weights first
+      int size = 1 << maxBits;
+      symbol = new byte[size];
+      nbBits = new byte[size];
+      int position = 0;
+      for (int w = 1; w <= maxBits; w++) {
+        int n = 1 << (w - 1);
+        for (int s = 0; s < nweights; s++) {
+          if (weights[s] != w) {
+            continue;
+          }
+          for (int i = 0; i < n; i++) {
+            symbol[position] = (byte) s;
+            nbBits[position] = (byte) (maxBits + 1 - w);
+            position++;
+          }
+        }
+      }
+      if (position != size) {
+        throw corrupt();
+      }
+      return ip;
+    }
+
+    // weights compressed with FSE, decoded with two interleaved states
+    private static int readFseWeights(byte[] src, int ip, int end, int[] weights) throws IOException {
+      short[] counts = new short[256];
+      int[] result = readCounts(src, ip, end, counts, 255, 6);
+      FseTable table = FseTable.build(counts, result[1], result[2]);
+      BackwardBits bits = new BackwardBits(src, result[0], end);
+      int state1 = (int) bits.read(table.log);
+      int state2 = (int) bits.read(table.log);
+      int n = 0;
+      while (true) {
+        if (n > 253) {
+          throw corrupt();
+        }
+        weights[n++] = table.symbol[state1];
+        state1 = table.newState[state1] + (int) bits.read(table.nbBits[state1]);
+        if (bits.isOverflowed()) {
+          weights[n++] = table.symbol[state2];
+          break;
+        }
+        weights[n++] = table.symbol[state2];
+        state2 = table.newState[state2] + (int) bits.read(table.nbBits[state2]);
+        if (bits.isOverflowed()) {
+          weights[n++] = table.symbol[state1];
+          break;
+        }
+      }
+      return n;
+    }
+
+    void decodeStreams(byte[] src, int ip, int end, boolean fourStreams, byte[] out, int n) throws IOException {
+      if (!fourStreams) {
+        decodeStream(src, ip, end, out, 0, n);
+        return;
+      }
+      checkAvailable(ip, end, 6);
+      int size1 = (src[ip] & 0xff) | (src[ip + 1] & 0xff) << 8;
+      int size2 = (src[ip + 2] & 0xff) | (src[ip + 3] & 0xff) << 8;
+      int size3 = (src[ip + 4] & 0xff) | (src[ip + 5] & 0xff) << 8;
+      int start1 = ip + 6;
+      int start2 = start1 + size1;
+      int start3 = start2 + size2;
+      int start4 = start3 + size3;
+      if (start4 > end) {
+        throw corrupt();
+      }
+      int segment = (n + 3) / 4;
+      if (3 * segment > n) {
+        throw corrupt();
+      }
+      decodeStream(src, start1, start2, out, 0, segment);
+      decodeStream(src, start2, start3, out, segment, segment);
+      decodeStream(src, start3, start4, out, 2 * segment, segment);
+      decodeStream(src, start4, end, out, 3 * segment, n - 3 * segment);
+    }
+
+    private void decodeStream(byte[] src, int start, int end, byte[] out, int outPos, int n) throws IOException {
+      BackwardBits bits = new BackwardBits(src, start, end);
+      for (int i = 0; i < n; i++) {
+        int index = (int) bits.peek(maxBits);
+        out[outPos + i] = symbol[index];
+        bits.skip(nbBits[index]);
+      }
+      if (bits.remaining() != 0) {
+        throw corrupt();
+      }
+    }
+  }
+
+  /** Reads bits forward, from the low bits of each byte, as in FSE table descriptions. */
+  private static class ForwardBits {
+    private final byte[] src;
+    private final int start;
+    private final int end;
+    private long bitPos;
+
+    ForwardBits(byte[] src, int start, int end) {
+      this.src = src;
+      this.start = start;
+      this.end = end;
+    }
+
+    long peek(int n) {
+      long value = 0;
+      for (int i = 0; i < n; i++) {
+        long pos = bitPos + i;
+        int index = start + (int) (pos >>> 3);
+        if (index < end && ((src[index] >>> (pos & 7)) & 1) != 0) {
+          value |= 1L << i;
+        }
+      }
+      return value;
+    }
+
+    void skip(int n) {
+      bitPos += n;
+    }
+
+    long read(int n) {
+      long value = peek(n);
+      skip(n);
+      return value;
+    }
+
+    boolean isOverflowed() {
+      return bitPos > 8L * (end - start);
+    }
+
+    int bytePosition() {
+      return start + (int) ((bitPos + 7) >>> 3);
+    }
+  }
+
+  /**
+   * Reads bits backward, from the end of a stream whose last byte is padded with a marker bit, as the Huffman and
+   * FSE streams are written. Bits past the start of the stream read as zero.
+   */
+  private static class BackwardBits {
+    private final byte[] src;
+    private final int start;
+    private final int end;
+    private long bitPos; // number of unread bits
+
+    BackwardBits(byte[] src, int start, int end) throws IOException {
+      if (end <= start || src[end - 1] == 0) {
+        throw corrupt();
+      }
+      this.src = src;
+      this.start = start;
+      this.end = end;
+      int last = src[end - 1] & 0xff;
+      this.bitPos = 8L * (end - start - 1) + (31 - Integer.numberOfLeadingZeros(last));
+    }
+
+    long peek(int n) {
+      if (n == 0) {
+        return 0;
+      }
+      long low = bitPos - n;
+      if (low < 0) {
+        return bitPos <= 0 ? 0 : peekAt(0, (int) bitPos) << -low;
+      }
+      return peekAt(low, n);
+    }
+
+    // n bits starting at bit position low, n <= 56
+    private long peekAt(long low, int n) {
+      int index = start + (int) (low >>> 3);
+      long word = 0;
+      for (int i = 0; i < 8 && index + i < end; i++) {
+        word |= (src[index + i] & 0xffL) << (8 * i);
+      }
+      return (word >>> (low & 7)) & ((1L << n) - 1);
+    }
+
+    void skip(int n) {
+      bitPos -= n;
+    }
+
+    long read(int n) {
+      long value = peek(n);
+      skip(n);
+      return value;
+    }
+
+    long remaining() {
+      return bitPos;
+    }
+
+    boolean isOverflowed() {
+      return bitPos < 0;
+    }
+  }
+
+  private static void checkAvailable(int ip, int end, int n) throws IOException {
+    if (n < 0 || n > end - ip) {
+      throw corrupt();
+    }
+  }
+
+  private static int readInt(byte[] b, int pos) {
+    return (b[pos] & 0xff) | (b[pos + 1] & 0xff) << 8 | (b[pos + 2] & 0xff) << 16 | (b[pos + 3] & 0xff) << 24;
+  }
+
+  /** Copy a match, where the source may overlap the destination. */
+  private static void copyMatch(byte[] b, int from, int to, int len) {
+    if (to - from >= len) {
+      System.arraycopy(b, from, b, to, len);
+    } else {
+      for (int i = 0; i < len; i++) {
+        b[to + i] = b[from + i];
+      }
+    }
+  }
+
+  private static IOException corrupt() {
+    return new IOException("Corrupt blosc zstd stream");
+  }
+}
@@ -6,6 +6,7 @@ package ucar.nc2.ft2.coverage;
 
 import ucar.ma2.*;
 import ucar.nc2.constants.AxisType;
+import ucar.nc2.util.CurvilinearGridIndex;
 import ucar.nc2.util.Optional;
 import ucar.unidata.geoloc.LatLonPoint;
 import ucar.unidata.geoloc.LatLonPoints;
@@ -113,10 +114,7 @@ public class HorizCoordSys2D extends HorizCoordSys {
 
   @Override
   public Optional<CoordReturn> findXYindexFromCoord(double x, double y) {
-    synchronized (this) {
-      if (edges == null)
-        edges = new Edges();
-    }
+    Edges edges = getEdges();
     CoordReturn result = new CoordReturn();
     int[] index = new int[2];
     boolean ok = edges.findCoordElement(y, x, index);
@@ -130,6 +128,26 @@ public class HorizCoordSys2D extends HorizCoordSys {
     return Optional.of(result);
   }
 
+  /**
+   * Find the cells of many lat,lon points at once, eg for extracting points from a large curvilinear grid.
+   *
+   * @param lats latitude of the points.
+   * @param lons longitude of the points, same length as lats.
+   * @return for each point, y * nx + x of the cell that contains it, or -1 if not in the grid.
+   */
+  public int[] findXYindexFromLatLons(double[] lats, double[] lons) {
+    Edges edges = getEdges();
+    int[] result = new int[lats.length];
+    edges.findCoordElements(lats, lons, result);
+    return result;
+  }
+
+  private synchronized Edges getEdges() {
+    if (edges == null)
+      edges = new Edges();
+    return edges;
+  }
+
   @Override
   public List<CoverageCoordAxis> getCoordAxes() {
     List<CoverageCoordAxis> result = new ArrayList<>();
@@ -140,17 +158,14 @@ public class HorizCoordSys2D extends HorizCoordSys {
 
   // return y, x ranges
   private Optional<List<RangeIterator>> computeBounds(LatLonRect llbb, int horizStride) {
-    synchronized (this) {
-      if (edges == null)
-        edges = new Edges();
-    }
-    return edges.computeBoundsExhaustive(llbb, horizStride);
+    return getEdges().computeBoundsExhaustive(llbb, horizStride);
   }
 
   // assume this class is instantiated when these edges are needed
   private class Edges {
     private ArrayDouble.D2 latEdge, lonEdge;
     private MAMath.MinMax latMinMax, lonMinMax;
+    private CurvilinearGridIndex index;
 
     Edges() {
       latEdge = (ArrayDouble.D2) latAxis2D.getCoordBoundsAsArray();
@@ -170,87 +185,28 @@ public class HorizCoordSys2D extends HorizCoordSys {
       if (debug)
         System.out.printf("Bounds (%d %d): lat= (%f,%f) lon = (%f,%f) %n", nrows, ncols, latMinMax.min, latMinMax.max,
             lonMinMax.min, lonMinMax.max);
+
+      index = new CurvilinearGridIndex(latEdge, lonEdge);
     }
 
     /**
-     * Find the best index for the given lat,lon point.
+     * Find the index for the given lat,lon point.
      *
      * @param wantLat lat of point
      * @param wantLon lon of point
-     * @param rectIndex return (row,col) index, or best guess here. may not be null
+     * @param rectIndex return (row,col) index
      * @return false if not in the grid.
      */
     public boolean findCoordElement(double wantLat, double wantLon, int[] rectIndex) {
       double wantLonNormal = LatLonPoints.lonNormalFrom(wantLon, lonMinMax.min);
-      return findCoordElementNoForce(wantLat, wantLonNormal, rectIndex);
+      return index.findCell(wantLat, wantLonNormal, rectIndex);
     }
 
-    private boolean findCoordElementNoForce(double wantLat, double wantLon, int[] rectIndex) {
-      if (wantLat < latMinMax.min)
-        return false;
-      if (wantLat > latMinMax.max)
-        return false;
-      if (wantLon < lonMinMax.min)
-        return false;
-      if (wantLon > lonMinMax.max)
-        return false;
-
-      double gradientLat = (latMinMax.max - latMinMax.min) / nrows;
-      double gradientLon = (lonMinMax.max - lonMinMax.min) / ncols;
-
-      double diffLat = wantLat - latMinMax.min;
-      double diffLon = wantLon - lonMinMax.min;
-
-      // initial guess
-      rectIndex[0] = (int) Math.round(diffLat / gradientLat); // row
-      rectIndex[1] = (int) Math.round(diffLon / gradientLon); // col
-
-      int count = 0;
-      while (true) {
-        count++;
-        if (debug)
-          System.out.printf("%nIteration %d %n", count);
-        if (contains(wantLat, wantLon, rectIndex))
-          return true;
-
-        if (!jump2(wantLat, wantLon, rectIndex))
-          return false;
-
-        // bouncing around
-        if (count > 10) {
-          // last ditch attempt
-          return incr(wantLat, wantLon, rectIndex);
-        }
-      }
-    }
-
-    /**
-     * Is the point (lat,lon) contained in the (row, col) rectangle ?
-     *
-     * @param wantLat lat of point
-     * @param wantLon lon of point
-     * @param rectIndex rectangle row, col, will be clipped to [0, nrows), [0, ncols)
-     * @return true if contained
-     */
-    private boolean containsOld(double wantLat, double wantLon, int[] rectIndex) {
-      rectIndex[0] = Math.max(Math.min(rectIndex[0], nrows - 1), 0);
-      rectIndex[1] = Math.max(Math.min(rectIndex[1], ncols - 1), 0);
-
-      int row = rectIndex[0];
-      int col = rectIndex[1];
-
-      if (debug)
-        System.out.printf(" (%d,%d) contains (%f,%f) in (lat=%f %f) (lon=%f %f) ?%n", rectIndex[0], rectIndex[1],
-            wantLat, wantLon, latEdge.get(row, col), latEdge.get(row + 1, col), lonEdge.get(row, col),
-            lonEdge.get(row, col + 1));
-
-      if (wantLat < latEdge.get(row, col))
-        return false;
-      if (wantLat > latEdge.get(row + 1, col))
-        return false;
-      if (wantLon < lonEdge.get(row, col))
-        return false;
-      return !(wantLon > lonEdge.get(row, col + 1));
+    void findCoordElements(double[] wantLat, double[] wantLon, int[] result) {
+      double[] wantLonNormal = new double[wantLon.length];
+      for (int i = 0; i < wantLon.length; i++)
+        wantLonNormal[i] = LatLonPoints.lonNormalFrom(wantLon[i], lonMinMax.min);
+      index.findCells(wantLat, wantLonNormal, result);
     }
 
     /**
@@ -326,149 +282,6 @@ public class HorizCoordSys2D extends HorizCoordSys {
       return det > 0;
     }
 
-    private boolean jumpOld(double wantLat, double wantLon, int[] rectIndex) {
-      int row = Math.max(Math.min(rectIndex[0], nrows - 1), 0);
-      int col = Math.max(Math.min(rectIndex[1], ncols - 1), 0);
-      double gradientLat = latEdge.get(row + 1, col) - latEdge.get(row, col);
-      double gradientLon = lonEdge.get(row, col + 1) - lonEdge.get(row, col);
-
-      double diffLat = wantLat - latEdge.get(row, col);
-      double diffLon = wantLon - lonEdge.get(row, col);
-
-      int drow = (int) Math.round(diffLat / gradientLat);
-      int dcol = (int) Math.round(diffLon / gradientLon);
-
-      if (debug)
-        System.out.printf("   jump from %d %d (grad=%f %f) (diff=%f %f) (delta=%d %d)", row, col, gradientLat,
-            gradientLon, diffLat, diffLon, drow, dcol);
-
-      if ((drow == 0) && (dcol == 0)) {
-        if (debug)
-          System.out.printf("%n   incr:");
-        return incr(wantLat, wantLon, rectIndex);
-      } else {
-        rectIndex[0] = Math.max(Math.min(row + drow, nrows - 1), 0);
-        rectIndex[1] = Math.max(Math.min(col + dcol, ncols - 1), 0);
-        if (debug)
-          System.out.printf(" to (%d %d)%n", rectIndex[0], rectIndex[1]);
-        return (row != rectIndex[0]) || (col != rectIndex[1]); // nothing has changed
-      }
-
-    }
-
-    /**
-     * jump to a new row,col
-     *
-     * @param wantLat want this lat
-     * @param wantLon want this lon
-     * @param rectIndex starting row, col and replaced by new guess
-     * @return true if new guess, false if failure
-     */
-    /*
-     * choose x, y such that (matrix multiply) :
-     * 
-     * (wantx) = (fxx fxy) (x)
-     * (wanty) (fyx fyy) (y)
-     * 
-     * where fxx = d(fx)/dx ~= delta lon in lon direction
-     * where fxy = d(fx)/dy ~= delta lon in lat direction
-     * where fyx = d(fy)/dx ~= delta lat in lon direction
-     * where fyy = d(fy)/dy ~= delta lat in lat direction
-     * 
-     * 2 linear equations in 2 unknowns, solve in usual way
-     */
-    private boolean jump2(double wantLat, double wantLon, int[] rectIndex) {
-      int row = Math.max(Math.min(rectIndex[0], nrows - 1), 0);
-      int col = Math.max(Math.min(rectIndex[1], ncols - 1), 0);
-      double lat = latEdge.get(row, col);
-      double lon = lonEdge.get(row, col);
-      double diffLat = wantLat - lat;
-      double diffLon = wantLon - lon;
-
-      double dlatdy = latEdge.get(row + 1, col) - lat;
-      double dlatdx = latEdge.get(row, col + 1) - lat;
-      double dlondx = lonEdge.get(row, col + 1) - lon;
-      double dlondy = lonEdge.get(row + 1, col) - lon;
-
-      // solve for dlon
-
-      double dx = (diffLon - dlondy * diffLat / dlatdy) / (dlondx - dlatdx * dlondy / dlatdy);
-      // double dy = (diffLat - dlatdx * diffLon / dlondx) / (dlatdy - dlatdx * dlondy / dlondx);
-      double dy = (diffLat - dlatdx * dx) / dlatdy;
-
-      if (debug)
-        System.out.printf(
-            "   jump from %d %d (dlondx=%f dlondy=%f dlatdx=%f dlatdy=%f) (diffLat,Lon=%f %f) (deltalat,Lon=%f %f)",
-            row, col, dlondx, dlondy, dlatdx, dlatdy, diffLat, diffLon, dy, dx);
-
-      int drow = (int) Math.round(dy);
-      int dcol = (int) Math.round(dx);
-
-      if ((drow == 0) && (dcol == 0)) {
-        if (debug)
-          System.out.printf("%n   incr:");
-        return incr(wantLat, wantLon, rectIndex);
-      } else {
-        rectIndex[0] = Math.max(Math.min(row + drow, nrows - 1), 0);
-        rectIndex[1] = Math.max(Math.min(col + dcol, ncols - 1), 0);
-        if (debug)
-          System.out.printf(" to (%d %d)%n", rectIndex[0], rectIndex[1]);
-        return (row != rectIndex[0]) || (col != rectIndex[1]); // nothing has changed
-      }
-
-    }
-
-    private boolean incr(double wantLat, double wantLon, int[] rectIndex) {
-      int row = rectIndex[0];
-      int col = rectIndex[1];
-      double diffLat = wantLat - latEdge.get(row, col);
-      double diffLon = wantLon - lonEdge.get(row, col);
-
-      if (Math.abs(diffLat) > Math.abs(diffLon)) { // try lat first
-        rectIndex[0] = row + ((diffLat > 0) ? 1 : -1);
-        if (contains(wantLat, wantLon, rectIndex))
-          return true;
-        rectIndex[1] = col + ((diffLon > 0) ? 1 : -1);
-        if (contains(wantLat, wantLon, rectIndex))
-          return true;
-      } else {
-        rectIndex[1] = col + ((diffLon > 0) ? 1 : -1);
-        if (contains(wantLat, wantLon, rectIndex))
-          return true;
-        rectIndex[0] = row + ((diffLat > 0) ? 1 : -1);
-        if (contains(wantLat, wantLon, rectIndex))
-          return true;
-      }
-
-      // back to original, do box search
-      rectIndex[0] = row;
-      rectIndex[1] = col;
-      return box9(wantLat, wantLon, rectIndex);
-    }
-
-    // we think its got to be in one of the 9 boxes around rectIndex
-    private boolean box9(double wantLat, double wantLon, int[] rectIndex) {
-      int row = rectIndex[0];
-      int minrow = Math.max(row - 1, 0);
-      int maxrow = Math.min(row + 1, nrows);
-
-      int col = rectIndex[1];
-      int mincol = Math.max(col - 1, 0);
-      int maxcol = Math.min(col + 1, ncols);
-
-      if (debug)
-        System.out.printf("%n   box9:");
-      for (int i = minrow; i <= maxrow; i++)
-        for (int j = mincol; j <= maxcol; j++) {
-          rectIndex[0] = i;
-          rectIndex[1] = j;
-          if (contains(wantLat, wantLon, rectIndex))
-            return true;
-        }
-
-      return false;
-    }
-
     // return y, x ranges
     Optional<List<RangeIterator>> computeBoundsExhaustive(LatLonRect rect, int horizStride) {
       LatLonPoint llpt = rect.getLowerLeftPoint();
@@ -7,14 +7,15 @@ package ucar.nc2.ft2.coverage.adapter;
 import ucar.nc2.dataset.CoordinateAxis2D;
 import ucar.ma2.ArrayDouble;
 import ucar.ma2.MAMath;
+import ucar.nc2.util.CurvilinearGridIndex;
 
 /**
  * fork ucar.nc2.dt.grid.GridCoordinate2D for adaption of GridCoverage
  *
  * 2D Coordinate System has lat(x,y) and lon(x,y).
  * This class implements finding the index (i,j) from (lat, lon) coord.
- * This is for "one-off" computation, not a systematic lookup table for all points in a pixel array.
- * Hueristic search of the 2D space for the cell that contains the point.
+ * The cells are found with a CurvilinearGridIndex, built on first use; the hueristic search of the 2D space is only
+ * used to make a best guess when the point is not in any cell.
  *
  * @author caron
  * @since Jul 10, 2009
@@ -27,6 +28,7 @@ public class GeoGridCoordinate2D {
   private final int nrows, ncols;
   private ArrayDouble.D2 latEdge, lonEdge;
   private MAMath.MinMax latMinMax, lonMinMax;
+  private CurvilinearGridIndex index;
 
   GeoGridCoordinate2D(CoordinateAxis2D latCoord, CoordinateAxis2D lonCoord) {
     this.latCoord = latCoord;
@@ -40,8 +42,8 @@ public class GeoGridCoordinate2D {
     ncols = shape[1];
   }
 
-  private void findBounds() {
-    if (lonMinMax != null)
+  private synchronized void findBounds() {
+    if (index != null)
       return;
 
     lonEdge = lonCoord.getEdges();
@@ -54,40 +56,43 @@ public class GeoGridCoordinate2D {
     if (debug)
       System.out.printf("Bounds (%d %d): lat= (%f,%f) lon = (%f,%f) %n", nrows, ncols, latMinMax.min, latMinMax.max,
           lonMinMax.min, lonMinMax.max);
+
+    index = new CurvilinearGridIndex(latEdge, lonEdge);
   }
 
-  // brute force
+  // same result as testing every cell
   public boolean findCoordElementForce(double wantLat, double wantLon, int[] rectIndex) {
     findBounds();
-    if (wantLat < latMinMax.min)
-      return false;
-    if (wantLat > latMinMax.max)
-      return false;
-    if (wantLon < lonMinMax.min)
-      return false;
-    if (wantLon > lonMinMax.max)
-      return false;
-
-    boolean saveDebug = debug;
-    debug = false;
-    for (int row = 0; row < nrows; row++) {
-      for (int col = 0; col < ncols; col++) {
-
-        rectIndex[0] = row;
-        rectIndex[1] = col;
-
-        if (contains(wantLat, wantLon, rectIndex)) {
-          debug = saveDebug;
-          return true;
-        }
-      }
-    }
-    // debug = saveDebug;
-    return false;
+    return index.findCell(wantLat, wantLon, rectIndex);
   }
 
+  /**
+   * Find the index for the given lat,lon point.
+   *
+   * @param wantLat lat of point
+   * @param wantLon lon of point
+   * @param rectIndex return (row,col) index, or best guess here. may not be null
+   *
+   * @return false if not in the grid.
+   */
   public boolean findCoordElement(double wantLat, double wantLon, int[] rectIndex) {
-    return findCoordElementNoForce(wantLat, wantLon, rectIndex);
+    findBounds();
+    if (index.findCell(wantLat, wantLon, rectIndex))
+      return true;
+    return findCoordElementNoForce(wantLat, wantLon, rectIndex); // best guess
+  }
+
+  /**
+   * Find the index of many lat,lon points at once.
+   *
+   * @param wantLat lat of points
+   * @param wantLon lon of points, same length as wantLat
+   * @param result return row * ncols + col of each point here, or -1 if not in the grid. same length as wantLat
+   * @return the number of points in the grid.
+   */
+  public int findCoordElements(double[] wantLat, double[] wantLon, int[] result) {
+    findBounds();
+    return index.findCells(wantLat, wantLon, result);
   }
 
 
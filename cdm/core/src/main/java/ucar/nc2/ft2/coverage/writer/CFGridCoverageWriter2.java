@@ -425,14 +425,7 @@ public class CFGridCoverageWriter2 {
     double[] lonData = new double[numX * numY];
 
     // create the data
-    for (int i = 0; i < numY; i++) {
-      for (int j = 0; j < numX; j++) {
-        ProjectionPoint projPoint = ProjectionPoint.create(xData[j], yData[i]);
-        LatLonPoint latlonPoint = proj.projToLatLon(projPoint);
-        latData[i * numX + j] = latlonPoint.getLatitude();
-        lonData[i * numX + j] = latlonPoint.getLongitude();
-      }
-    }
+    Projections.projToLatLonGrid(proj, xData, yData, latData, lonData);
 
     Variable latVar = writer.findVariable("lat");
     assert latVar != null : "We should have added lat var in addLatLon2D().";
@@ -29,6 +29,7 @@ import ucar.nc2.Variable;
 import ucar.nc2.constants.DataFormatType;
 import ucar.nc2.internal.iosp.hdf4.HdfEos;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.ChunkDecodeParallelism;
 import ucar.nc2.iosp.IospHelper;
 import ucar.nc2.iosp.Layout;
 import ucar.nc2.iosp.LayoutBB;
@@ -36,6 +37,7 @@ import ucar.nc2.iosp.LayoutRegular;
 import ucar.nc2.iosp.netcdf3.N3iosp;
 import ucar.nc2.time.CalendarDate;
 import ucar.nc2.util.CancelTask;
+import ucar.nc2.util.cache.ChunkCache;
 import ucar.nc2.write.NetcdfFileFormat;
 import ucar.unidata.io.RandomAccessFile;
 import javax.annotation.Nullable;
@@ -116,6 +118,8 @@ public class H5iospNew extends AbstractIOServiceProvider {
   private boolean isEos;
   boolean includeOriginalAttributes;
   private Charset valueCharset;
+  private ChunkDecodeParallelism chunkDecodeParallelism; // null means use the global setting
+  private ChunkCache chunkCache; // null means use the global cache, if any
 
   @Override
   public void build(RandomAccessFile raf, Group.Builder rootGroup, CancelTask cancelTask) throws IOException {
@@ -142,6 +146,14 @@ public class H5iospNew extends AbstractIOServiceProvider {
     if (message instanceof Charset) {
       setValueCharset((Charset) message);
     }
+    if (message instanceof ChunkDecodeParallelism) {
+      chunkDecodeParallelism = (ChunkDecodeParallelism) message;
+      return Boolean.TRUE;
+    }
+    if (message instanceof ChunkCache) {
+      chunkCache = (ChunkCache) message;
+      return Boolean.TRUE;
+    }
     if (message.equals(IOSP_MESSAGE_GET_NETCDF_FILE_FORMAT)) {
       if (!header.isNetcdf4()) {
         return null;
@@ -223,7 +235,10 @@ public class H5iospNew extends AbstractIOServiceProvider {
         System.out.println("read variable filtered " + v2.getFullName() + " vinfo = " + vinfo);
       assert vinfo.isChunked;
       ByteOrder bo = (vinfo.typeInfo.endian == 0) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
-      layout = new H5tiledLayoutBB(v2, wantSection, raf, vinfo.mfp.getFilters(), bo);
+      ChunkDecodeParallelism parallelism =
+          chunkDecodeParallelism != null ? chunkDecodeParallelism : ChunkDecodeParallelism.getGlobal();
+      ChunkCache cache = chunkCache != null ? chunkCache : ChunkCache.getGlobal();
+      layout = new H5tiledLayoutBB(v2, wantSection, raf, vinfo.mfp.getFilters(), bo, parallelism, cache);
       if (vinfo.typeInfo.isVString) {
         data = readFilteredStringData((LayoutBB) layout);
       } else {
@@ -11,7 +11,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
@@ -20,11 +25,15 @@ import ucar.nc2.Variable;
 import ucar.nc2.filter.Filter;
 import ucar.nc2.filter.Filters;
 import ucar.nc2.filter.UnknownFilterException;
+import ucar.nc2.iosp.ChunkDecodeParallelism;
 import ucar.nc2.iosp.LayoutBB;
 import ucar.nc2.iosp.LayoutBBTiled;
 import ucar.nc2.iosp.hdf5.DataBTree;
 import ucar.nc2.util.IO;
+import ucar.nc2.util.cache.ChunkCache;
+import ucar.unidata.io.MappedRandomAccessFile;
 import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.io.RemoteRandomAccessFile;
 
 /**
  * Iterator to read/write subsets of an array.
@@ -48,6 +57,9 @@ public class H5tiledLayoutBB implements LayoutBB {
   private RandomAccessFile raf;
   private Filter[] filters;
   private ByteOrder byteOrder;
+  private ChunkCache chunkCache;
+  private String location, varName; // for chunkCache keys
+  private long lastModified;
 
   private Section want;
   private int[] chunkSize; // from the StorageLayout message (exclude the elemSize)
@@ -71,6 +83,27 @@ public class H5tiledLayoutBB implements LayoutBB {
    */
   public H5tiledLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf, H5objects.Filter[] filterProps,
       ByteOrder byteOrder) throws InvalidRangeException, IOException {
+    this(v2, wantSection, raf, filterProps, byteOrder, ChunkDecodeParallelism.SERIAL, null);
+  }
+
+  /**
+   * Constructor.
+   * This is for HDF5 chunked data storage. The data is read by chunk, for efficiency.
+   * Chunks are read in file order, and decoded on up to parallelism threads.
+   * Decoded chunks are looked up in and added to the chunkCache, if not null.
+   *
+   * @param v2 Variable to index over; assumes that vinfo is the data object
+   * @param wantSection the wanted section of data, contains a List of Range objects. must be complete
+   * @param raf the RandomAccessFile
+   * @param filterProps set of filter properties from which filter object will be created
+   * @param parallelism number of chunks that may be decoded concurrently
+   * @param chunkCache cache of decoded chunks, may be null
+   * @throws InvalidRangeException if section invalid for this variable
+   * @throws IOException on io error
+   */
+  public H5tiledLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf, H5objects.Filter[] filterProps,
+      ByteOrder byteOrder, ChunkDecodeParallelism parallelism, @Nullable ChunkCache chunkCache)
+      throws InvalidRangeException, IOException {
     wantSection = Section.fill(wantSection, v2.getShape());
 
     H5headerNew.Vinfo vinfo = (H5headerNew.Vinfo) v2.getSPobject();
@@ -91,6 +124,12 @@ public class H5tiledLayoutBB implements LayoutBB {
       }
     }
     this.byteOrder = byteOrder;
+    this.chunkCache = chunkCache;
+    if (chunkCache != null) {
+      this.location = raf.getLocation();
+      this.lastModified = raf.getLastModified();
+      this.varName = v2.getFullName();
+    }
 
     // we have to translate the want section into the same rank as the storageSize, in order to be able to call
     // Section.intersect(). It appears that storageSize (actually msl.chunkSize) may have an extra dimension, relative
@@ -111,7 +150,7 @@ public class H5tiledLayoutBB implements LayoutBB {
     // create the data chunk iterator
     DataBTree.DataChunkIterator iter = vinfo.btree.getDataChunkIteratorFilter(this.want);
     DataChunkIterator dcIter = new DataChunkIterator(iter);
-    delegate = new LayoutBBTiled(dcIter, chunkSize, elemSize, this.want);
+    delegate = new LayoutBBTiled(dcIter, chunkSize, elemSize, this.want, parallelism);
 
     if (System.getProperty(INFLATEBUFFERSIZE) != null) {
       try {
@@ -161,27 +200,62 @@ public class H5tiledLayoutBB implements LayoutBB {
     return sbuff.toString();
   }
 
+  /**
+   * When the file is remote, the raw bytes of the next chunks are read together, up to this many bytes at a time,
+   * so that the reads can be merged and made concurrently.
+   */
+  private static final int REMOTE_PREFETCH_SIZE = 16 * 1024 * 1024;
+
   private class DataChunkIterator implements LayoutBBTiled.DataChunkIterator {
     DataBTree.DataChunkIterator delegate;
+    private final Deque<DataChunk> prefetched = new ArrayDeque<>();
 
     DataChunkIterator(DataBTree.DataChunkIterator delegate) {
       this.delegate = delegate;
     }
 
     public boolean hasNext() {
-      return delegate.hasNext();
+      return !prefetched.isEmpty() || delegate.hasNext();
     }
 
     public LayoutBBTiled.DataChunk next() throws IOException {
-      return new DataChunk(delegate.next());
+      if (!(raf instanceof RemoteRandomAccessFile)) {
+        return new DataChunk(delegate.next());
+      }
+      if (prefetched.isEmpty()) {
+        prefetch((RemoteRandomAccessFile) raf);
+      }
+      return prefetched.removeFirst();
+    }
+
+    private void prefetch(RemoteRandomAccessFile remote) throws IOException {
+      List<DataChunk> toRead = new ArrayList<>();
+      List<RemoteRandomAccessFile.ByteRange> ranges = new ArrayList<>();
+      long nbytes = 0;
+      while (delegate.hasNext() && (prefetched.isEmpty() || nbytes < REMOTE_PREFETCH_SIZE)) {
+        DataChunk chunk = new DataChunk(delegate.next());
+        prefetched.addLast(chunk);
+        if (chunk.getIfDecoded() == null) {
+          toRead.add(chunk);
+          ranges.add(new RemoteRandomAccessFile.ByteRange(chunk.delegate.filePos, chunk.delegate.size));
+          nbytes += chunk.delegate.size;
+        }
+      }
+      if (!ranges.isEmpty()) {
+        List<byte[]> raw = remote.readRanges(ranges);
+        for (int i = 0; i < toRead.size(); i++) {
+          toRead.get(i).raw = raw.get(i);
+        }
+      }
     }
   }
 
-  private class DataChunk implements LayoutBBTiled.DataChunk {
+  private class DataChunk implements LayoutBBTiled.DecodableDataChunk {
     // Copied from ArrayList.
     private static final int MAX_ARRAY_LEN = Integer.MAX_VALUE - 8;
 
     DataBTree.DataChunk delegate;
+    byte[] raw; // already read, when the file is remote
 
     DataChunk(DataBTree.DataChunk delegate) {
       this.delegate = delegate;
@@ -217,12 +291,69 @@ public class H5tiledLayoutBB implements LayoutBB {
     }
 
     public ByteBuffer getByteBuffer() throws IOException {
+      ByteBuffer mapped = getMapped();
+      if (mapped != null) {
+        return mapped;
+      }
+      if (chunkCache == null) {
+        return decodeFilters(readRaw());
+      }
+      return chunkCache.get(makeKey(), () -> decodeFilters(readRaw()));
+    }
+
+    public ByteBuffer getIfDecoded() {
+      try {
+        ByteBuffer mapped = getMapped();
+        if (mapped != null) {
+          return mapped;
+        }
+      } catch (IOException e) {
+        return null; // let the read report it
+      }
+      return chunkCache == null ? null : chunkCache.getIfPresent(makeKey());
+    }
+
+    // A chunk that all filters were skipped for is a view of the mapped file, no need to read or cache it
+    @Nullable
+    private ByteBuffer getMapped() throws IOException {
+      if (raw != null || !(raf instanceof MappedRandomAccessFile)) {
+        return null;
+      }
+      for (int i = 0; i < filters.length; i++) {
+        if (!isBitSet(delegate.filterMask, i)) {
+          return null;
+        }
+      }
+      return ((MappedRandomAccessFile) raf).getByteBuffer(delegate.filePos, delegate.size).order(byteOrder);
+    }
+
+    public ByteBuffer decode(byte[] data) throws IOException {
+      ByteBuffer result = decodeFilters(data);
+      return chunkCache == null ? result : chunkCache.put(makeKey(), result);
+    }
+
+    private ChunkCache.Key makeKey() {
+      return ChunkCache.makeKey(location, lastModified, varName, delegate.filePos);
+    }
+
+    public byte[] readRaw() throws IOException {
+      if (raw != null) {
+        byte[] data = raw;
+        raw = null;
+        return data;
+      }
       try {
-        // read the data
         byte[] data = new byte[delegate.size];
         raf.seek(delegate.filePos);
         raf.readFully(data);
+        return data;
+      } catch (OutOfMemoryError e) {
+        throw outOfMemory(e);
+      }
+    }
 
+    private ByteBuffer decodeFilters(byte[] data) throws IOException {
+      try {
         // apply filters backwards
         for (int i = filters.length - 1; i >= 0; i--) {
           Filter f = filters[i];
@@ -239,13 +370,17 @@ public class H5tiledLayoutBB implements LayoutBB {
         result.order(byteOrder);
         return result;
       } catch (OutOfMemoryError e) {
-        Error oom = new OutOfMemoryError("Ran out of memory trying to read HDF5 filtered chunk. Either increase the "
-            + "JVM's heap size (use the -Xmx switch) or reduce the size of the dataset's chunks (use nccopy -c).");
-        oom.initCause(e); // OutOfMemoryError lacks a constructor with a cause parameter.
-        throw oom;
+        throw outOfMemory(e);
       }
     }
 
+    private Error outOfMemory(OutOfMemoryError e) {
+      Error oom = new OutOfMemoryError("Ran out of memory trying to read HDF5 filtered chunk. Either increase the "
+          + "JVM's heap size (use the -Xmx switch) or reduce the size of the dataset's chunks (use nccopy -c).");
+      oom.initCause(e); // OutOfMemoryError lacks a constructor with a cause parameter.
+      return oom;
+    }
+
     boolean isBitSet(int val, int bitno) {
       return ((val >>> bitno) & 1) != 0;
     }
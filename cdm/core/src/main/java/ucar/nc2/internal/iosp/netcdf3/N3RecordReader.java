@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.internal.iosp.netcdf3;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+import ucar.ma2.Section;
+import ucar.nc2.Variable;
+import ucar.nc2.iosp.IospHelper;
+import ucar.nc2.iosp.Layout;
+import ucar.nc2.iosp.LayoutRegularSegmented;
+import ucar.unidata.io.MappedRandomAccessFile;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.io.RemoteRandomAccessFile;
+
+/**
+ * Reads a Section of a netCDF-3 record variable with a few large reads, instead of one seek and read per record.
+ * <p>
+ * All the segments of the Section (one or more per record) are computed up front. Segments less than MAX_GAP
+ * apart are coalesced into blocks of at most MAX_BLOCK bytes, reading through the other record variables in between.
+ * A block is read from a local file with one call, taken as a view of a MappedRandomAccessFile, or, for a
+ * RemoteRandomAccessFile, all the blocks are fetched with one readRanges call. The segments are then decoded from
+ * the blocks into the primitive array. A segment larger than a block is read on its own, straight into the array.
+ * <p>
+ * If a record cache size is set, blocks are widened to whole records, up to that size, and the last block is kept.
+ * Reading several record variables over the same records then reads those records from the file once.
+ * Several record variables can also be read together with readRecords(), which reads blocks of whole records
+ * and decodes every variable from each block.
+ * <p>
+ * Not thread-safe: like the RandomAccessFile, it is guarded by the IOSP.
+ */
+class N3RecordReader {
+  static final int MAX_BLOCK = 4 * 1024 * 1024; // largest coalesced read, when not caching records
+  static final int MAX_GAP = 64 * 1024; // read through gaps up to this size, rather than making another read
+
+  private int recordCacheSize; // 0 = dont cache
+  private long cachePos;
+  private int cacheLen;
+  private byte[] cache;
+
+  /** Set the maximum size of the record cache in bytes, 0 to not cache records. */
+  void setRecordCacheSize(int recordCacheSize) {
+    if (recordCacheSize < 0)
+      throw new IllegalArgumentException("Record cache size must be >= 0, was " + recordCacheSize);
+    this.recordCacheSize = recordCacheSize;
+    clearCache();
+  }
+
+  int getRecordCacheSize() {
+    return recordCacheSize;
+  }
+
+  /** Discard the cached records, eg when the file has been written to. */
+  void clearCache() {
+    cache = null;
+    cacheLen = 0;
+  }
+
+  /**
+   * Read data subset from file for a record variable, create primitive array.
+   *
+   * @param raf read from here, must have big endian byte order.
+   * @param begin starting address of the variable in the first record.
+   * @param elemSize size of an element in bytes.
+   * @param recStart starting address of the first record.
+   * @param recsize size of a record in bytes.
+   * @param shape shape of the variable.
+   * @param section the wanted section of data.
+   * @param dataType dataType of the variable.
+   * @return primitive array with data read in, CHAR converted to char[].
+   */
+  Object readData(RandomAccessFile raf, long begin, int elemSize, long recStart, long recsize, int[] shape,
+      Section section, DataType dataType) throws IOException, InvalidRangeException {
+    Layout layout = new LayoutRegularSegmented(begin, elemSize, recsize, shape, section);
+    Object pa = IospHelper.makePrimitiveArray((int) layout.getTotalNelems(), dataType);
+    Segments segs = new Segments(layout, elemSize);
+
+    // coalesce the segments into blocks
+    List<Block> blocks = new ArrayList<>();
+    int first = 0;
+    while (first < segs.n) {
+      if (segs.nbytes[first] > Math.max(MAX_BLOCK, recordCacheSize)) {
+        readLargeSegment(raf, segs, first, dataType, pa);
+        first++;
+        continue;
+      }
+      Block block = recordCacheSize > 0 ? makeRecordBlock(raf, segs, first, recStart, recsize) : null;
+      if (block == null)
+        block = makeBlock(segs, first);
+      blocks.add(block);
+      first = block.lastSeg;
+    }
+
+    // read the blocks and decode their segments
+    if (raf instanceof RemoteRandomAccessFile && recordCacheSize == 0) {
+      List<RemoteRandomAccessFile.ByteRange> ranges = new ArrayList<>(blocks.size());
+      for (Block block : blocks)
+        ranges.add(new RemoteRandomAccessFile.ByteRange(block.start, block.length()));
+      List<byte[]> raw = ((RemoteRandomAccessFile) raf).readRanges(ranges);
+      for (int i = 0; i < blocks.size(); i++) {
+        Block block = blocks.get(i);
+        decode(ByteBuffer.wrap(raw.get(i)), block.start, segs, block.firstSeg, block.lastSeg, dataType, pa);
+      }
+
+    } else {
+      for (Block block : blocks) {
+        ByteBuffer bb = getBlock(raf, block.start, block.length(), block.isRecords);
+        decode(bb, block.start, segs, block.firstSeg, block.lastSeg, dataType, pa);
+      }
+    }
+
+    if (dataType == DataType.CHAR)
+      return IospHelper.convertByteToChar((byte[]) pa);
+    return pa;
+  }
+
+  /**
+   * Read the same records of several record variables, reading each record once, and decoding the segments of
+   * every variable from it.
+   *
+   * @param raf read from here, must have big endian byte order.
+   * @param recStart starting address of the first record.
+   * @param recsize size of a record in bytes, at most Integer.MAX_VALUE.
+   * @param vars record variables of this file.
+   * @param sections the wanted section of each variable, all with the same record Range.
+   * @return primitive array with data read in for each variable, CHAR converted to char[].
+   */
+  Object[] readRecords(RandomAccessFile raf, long recStart, long recsize, List<Variable> vars, List<Section> sections)
+      throws IOException, InvalidRangeException {
+    int nvars = vars.size();
+    Object[] result = new Object[nvars];
+    Segments[] segs = new Segments[nvars];
+    for (int k = 0; k < nvars; k++) {
+      Variable v = vars.get(k);
+      N3headerNew.Vinfo vinfo = (N3headerNew.Vinfo) v.getSPobject();
+      Layout layout = new LayoutRegularSegmented(vinfo.begin, v.getElementSize(), recsize, v.getShape(),
+          sections.get(k));
+      result[k] = IospHelper.makePrimitiveArray((int) layout.getTotalNelems(), v.getDataType());
+      segs[k] = new Segments(layout, v.getElementSize());
+    }
+
+    // blocks of whole records, reading through unwanted records up to MAX_GAP
+    Range records = sections.get(0).getRange(0);
+    long fileLength = raf.length();
+    long maxBlock = Math.max(MAX_BLOCK, recordCacheSize);
+    long gap = (records.stride() - 1) * recsize;
+    int[] next = new int[nvars]; // the next segment of each variable
+    int i = 0;
+    while (i < records.length()) {
+      int firstRec = records.element(i);
+      int j = i + 1;
+      while (j < records.length() && gap <= MAX_GAP && (records.element(j) - firstRec + 1) * recsize <= maxBlock)
+        j++;
+      long start = recStart + firstRec * recsize;
+      // the last record may be short
+      long end = Math.min(recStart + (records.element(j - 1) + 1) * recsize, fileLength);
+      if (end <= start)
+        throw new EOFException("Reading record " + firstRec + " at " + start + " file length = " + fileLength);
+
+      ByteBuffer bb = getBlock(raf, start, (int) (end - start), recordCacheSize > 0);
+      for (int k = 0; k < nvars; k++) {
+        int last = next[k];
+        while (last < segs[k].n && segs[k].pos[last] < end)
+          last++;
+        decode(bb, start, segs[k], next[k], last, vars.get(k).getDataType(), result[k]);
+        next[k] = last;
+      }
+      i = j;
+    }
+
+    for (int k = 0; k < nvars; k++) {
+      if (next[k] < segs[k].n)
+        throw new EOFException("Reading " + vars.get(k).getFullName() + " at " + segs[k].pos[next[k]]
+            + " file length = " + fileLength);
+      if (vars.get(k).getDataType() == DataType.CHAR)
+        result[k] = IospHelper.convertByteToChar((byte[]) result[k]);
+    }
+    return result;
+  }
+
+  // the segments starting at first, up to MAX_BLOCK bytes, with gaps no larger than MAX_GAP
+  private Block makeBlock(Segments segs, int first) {
+    long start = segs.pos[first];
+    long end = start + segs.nbytes[first];
+    int last = first + 1;
+    while (last < segs.n) {
+      long segStart = segs.pos[last];
+      long segEnd = segStart + segs.nbytes[last];
+      if (segStart < end || segStart - end > MAX_GAP || segEnd - start > MAX_BLOCK)
+        break;
+      end = segEnd;
+      last++;
+    }
+    return new Block(start, end, first, last, false);
+  }
+
+  // the whole records holding the segments starting at first, up to recordCacheSize bytes; null if one doesnt fit
+  private Block makeRecordBlock(RandomAccessFile raf, Segments segs, int first, long recStart, long recsize)
+      throws IOException {
+    long fileLength = raf.length();
+    long start = recStart + ((segs.pos[first] - recStart) / recsize) * recsize;
+    long end = -1;
+    int last = first;
+    while (last < segs.n) {
+      long segStart = segs.pos[last];
+      if (segStart < start)
+        break;
+      long segEnd = segStart + segs.nbytes[last];
+      // the last record may be short
+      long recEnd = Math.min(recStart + ((segEnd - 1 - recStart) / recsize + 1) * recsize, fileLength);
+      recEnd = Math.max(recEnd, segEnd);
+      if (recEnd - start > recordCacheSize)
+        break;
+      end = Math.max(end, recEnd);
+      last++;
+    }
+    return last == first ? null : new Block(start, end, first, last, true);
+  }
+
+  // the bytes [start, start + length) of the file, from the cache, a view of the mapping, or read from the file
+  private ByteBuffer getBlock(RandomAccessFile raf, long start, int length, boolean isRecords) throws IOException {
+    if (cache != null && start >= cachePos && start + length <= cachePos + cacheLen)
+      return ByteBuffer.wrap(cache, (int) (start - cachePos), length).slice();
+    if (raf instanceof MappedRandomAccessFile)
+      return ((MappedRandomAccessFile) raf).getByteBuffer(start, length);
+
+    byte[] raw = new byte[length];
+    raf.seek(start);
+    raf.readFully(raw);
+    if (isRecords) {
+      cache = raw;
+      cachePos = start;
+      cacheLen = length;
+    }
+    return ByteBuffer.wrap(raw);
+  }
+
+  private static void readLargeSegment(RandomAccessFile raf, Segments segs, int i, DataType dataType, Object pa)
+      throws IOException {
+    raf.seek(segs.pos[i]);
+    int dest = segs.dest[i];
+    int nelems = segs.nelems[i];
+    Class<?> primitive = dataType.getPrimitiveClassType();
+    if (primitive == byte.class || dataType == DataType.CHAR) {
+      raf.readFully((byte[]) pa, dest, nelems);
+    } else if (primitive == short.class) {
+      raf.readShort((short[]) pa, dest, nelems);
+    } else if (primitive == int.class) {
+      raf.readInt((int[]) pa, dest, nelems);
+    } else if (primitive == long.class) {
+      raf.readLong((long[]) pa, dest, nelems);
+    } else if (dataType == DataType.FLOAT) {
+      raf.readFloat((float[]) pa, dest, nelems);
+    } else if (dataType == DataType.DOUBLE) {
+      raf.readDouble((double[]) pa, dest, nelems);
+    } else {
+      throw new IllegalStateException("unknown type= " + dataType);
+    }
+  }
+
+  // decode the segments [first, last) from bb, which holds the file bytes starting at blockStart
+  private static void decode(ByteBuffer bb, long blockStart, Segments segs, int first, int last, DataType dataType,
+      Object pa) throws EOFException {
+    bb.order(ByteOrder.BIG_ENDIAN);
+    Class<?> primitive = dataType.getPrimitiveClassType();
+    for (int i = first; i < last; i++) {
+      long offset = segs.pos[i] - blockStart;
+      if (offset + segs.nbytes[i] > bb.limit())
+        throw new EOFException("Reading record data at " + segs.pos[i] + " nbytes = " + segs.nbytes[i]);
+      bb.position((int) offset);
+      int dest = segs.dest[i];
+      int nelems = segs.nelems[i];
+      if (primitive == byte.class || dataType == DataType.CHAR) {
+        bb.get((byte[]) pa, dest, nelems);
+      } else if (primitive == short.class) {
+        bb.asShortBuffer().get((short[]) pa, dest, nelems);
+      } else if (primitive == int.class) {
+        bb.asIntBuffer().get((int[]) pa, dest, nelems);
+      } else if (primitive == long.class) {
+        bb.asLongBuffer().get((long[]) pa, dest, nelems);
+      } else if (dataType == DataType.FLOAT) {
+        bb.asFloatBuffer().get((float[]) pa, dest, nelems);
+      } else if (dataType == DataType.DOUBLE) {
+        bb.asDoubleBuffer().get((double[]) pa, dest, nelems);
+      } else {
+        throw new IllegalStateException("unknown type= " + dataType);
+      }
+    }
+  }
+
+  /** All the segments of a Layout, in file order. */
+  private static class Segments {
+    int n;
+    long[] pos = new long[16];
+    int[] nbytes = new int[16];
+    int[] dest = new int[16];
+    int[] nelems = new int[16];
+
+    Segments(Layout layout, int elemSize) throws IOException {
+      while (layout.hasNext()) {
+        Layout.Chunk chunk = layout.next();
+        if (n == pos.length) {
+          pos = Arrays.copyOf(pos, 2 * n);
+          nbytes = Arrays.copyOf(nbytes, 2 * n);
+          dest = Arrays.copyOf(dest, 2 * n);
+          nelems = Arrays.copyOf(nelems, 2 * n);
+        }
+        long size = (long) chunk.getNelems() * elemSize;
+        pos[n] = chunk.getSrcPos();
+        nbytes[n] = size > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) size;
+        dest[n] = (int) chunk.getDestElem();
+        nelems[n] = chunk.getNelems();
+        n++;
+      }
+    }
+  }
+
+  /** The segments [firstSeg, lastSeg), which lie in the file bytes [start, end). */
+  private static class Block {
+    final long start, end;
+    final int firstSeg, lastSeg;
+    final boolean isRecords; // whole records, to be cached
+
+    Block(long start, long end, int firstSeg, int lastSeg, boolean isRecords) {
+      this.start = start;
+      this.end = end;
+      this.firstSeg = firstSeg;
+      this.lastSeg = lastSeg;
+      this.isRecords = isRecords;
+    }
+
+    int length() {
+      return (int) (end - start);
+    }
+  }
+}
@@ -7,7 +7,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Formatter;
+import java.util.List;
 import java.util.Optional;
 import ucar.ma2.Array;
 import ucar.ma2.ArrayStructureBB;
@@ -89,6 +91,33 @@ public class N3iospNew extends AbstractIOServiceProvider implements IOServicePro
 
   private Charset valueCharset;
 
+  // reads record variables with coalesced reads, and optionally caches whole records
+  final N3RecordReader recordReader = new N3RecordReader();
+
+  /**
+   * Send an instance as an IOSP message to cache whole records while reading record variables. Reading several
+   * record variables over the same records, each no larger than the cache, then reads those records once:
+   *
+   * <pre>
+   * ncfile.sendIospMessage(new N3iospNew.RecordCache(64 * 1024 * 1024));
+   * </pre>
+   *
+   * A size of 0 (the default) turns record caching off.
+   */
+  public static final class RecordCache {
+    private final int maxBytes;
+
+    public RecordCache(int maxBytes) {
+      if (maxBytes < 0)
+        throw new IllegalArgumentException("Record cache size must be >= 0, was " + maxBytes);
+      this.maxBytes = maxBytes;
+    }
+
+    public int getMaxBytes() {
+      return maxBytes;
+    }
+  }
+
   @Override
   public boolean isValidFile(ucar.unidata.io.RandomAccessFile raf) throws IOException {
     return N3headerNew.isValidFile(raf);
@@ -173,9 +202,16 @@ public class N3iospNew extends AbstractIOServiceProvider implements IOServicePro
     Vinfo vinfo = (Vinfo) v2.getSPobject();
     DataType dataType = v2.getDataType();
 
-    Layout layout = (!v2.isUnlimited()) ? new LayoutRegular(vinfo.begin, v2.getElementSize(), v2.getShape(), section)
-        : new LayoutRegularSegmented(vinfo.begin, v2.getElementSize(), header.recsize, v2.getShape(), section);
+    if (v2.isUnlimited()) {
+      if (section.computeSize() == 0) {
+        return Array.factory(dataType, section.getShape());
+      }
+      Object data = recordReader.readData(raf, vinfo.begin, v2.getElementSize(), header.recStart, header.recsize,
+          v2.getShape(), section, dataType);
+      return Array.factory(dataType, section.getShape(), data);
+    }
 
+    Layout layout = new LayoutRegular(vinfo.begin, v2.getElementSize(), v2.getShape(), section);
     if (layout.getTotalNelems() == 0) {
       return Array.factory(dataType, section.getShape());
     }
@@ -184,6 +220,41 @@ public class N3iospNew extends AbstractIOServiceProvider implements IOServicePro
     return Array.factory(dataType, section.getShape(), data);
   }
 
+  /** Record variables are read together, each record once; other variables are read as usual. */
+  @Override
+  public List<Array> readRecords(List<Variable> variables, @Nullable Section section)
+      throws IOException, InvalidRangeException {
+    List<Variable> recordVars = new ArrayList<>();
+    List<Section> recordSections = new ArrayList<>();
+    List<Variable> others = new ArrayList<>();
+    for (Variable v : variables) {
+      if (v.isUnlimited() && !(v instanceof Structure) && !v.isMemberOfStructure()
+          && v.getSPobject() instanceof Vinfo) {
+        recordVars.add(v);
+        recordSections.add(IospHelper.makeRecordSection(v.getShape(), section));
+      } else {
+        others.add(v);
+      }
+    }
+    if (recordVars.size() < 2 || header.recsize > Integer.MAX_VALUE)
+      return IospHelper.readRecords(variables, section);
+
+    Object[] recordData = recordReader.readRecords(raf, header.recStart, header.recsize, recordVars, recordSections);
+    List<Array> otherData = IospHelper.readRecords(others, section);
+    List<Array> result = new ArrayList<>(variables.size());
+    int nextRecord = 0;
+    int nextOther = 0;
+    for (Variable v : variables) {
+      if (nextRecord < recordVars.size() && recordVars.get(nextRecord) == v) {
+        int[] shape = recordSections.get(nextRecord).getShape();
+        result.add(Array.factory(v.getDataType(), shape, recordData[nextRecord++]));
+      } else {
+        result.add(otherData.get(nextOther++));
+      }
+    }
+    return result;
+  }
+
   @Override
   public long readToByteChannel(ucar.nc2.Variable v2, Section section, WritableByteChannel channel)
       throws java.io.IOException, ucar.ma2.InvalidRangeException {
@@ -255,6 +326,7 @@ public class N3iospNew extends AbstractIOServiceProvider implements IOServicePro
 
   @Override
   public void close() throws java.io.IOException {
+    recordReader.clearCache();
     if (raf != null) {
       if (header != null) {
         long size = header.calcFileSize();
@@ -269,6 +341,7 @@ public class N3iospNew extends AbstractIOServiceProvider implements IOServicePro
   public void reacquire() throws IOException {
     super.reacquire();
     header.raf = this.raf;
+    recordReader.clearCache();
   }
 
   @Override
@@ -285,6 +358,10 @@ public class N3iospNew extends AbstractIOServiceProvider implements IOServicePro
       this.useRecordStructure = true;
       return null;
     }
+    if (message instanceof RecordCache) {
+      recordReader.setRecordCacheSize(((RecordCache) message).getMaxBytes());
+      return Boolean.TRUE;
+    }
     if (message.equals(IOSP_MESSAGE_GET_NETCDF_FILE_FORMAT)) {
       return header.useLongOffset ? NetcdfFileFormat.NETCDF3_64BIT_OFFSET : NetcdfFileFormat.NETCDF3;
     }
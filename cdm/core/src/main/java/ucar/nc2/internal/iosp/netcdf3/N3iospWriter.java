@@ -101,6 +101,7 @@ public class N3iospWriter extends N3iospNew implements IOServiceProviderWriter {
 
   @Override
   public boolean rewriteHeader(boolean largeFile) throws IOException {
+    recordReader.clearCache();
     return ((N3headerWriter) header).rewriteHeader(largeFile, null);
   }
 
@@ -109,6 +110,7 @@ public class N3iospWriter extends N3iospNew implements IOServiceProviderWriter {
 
   @Override
   public void writeData(Variable v2, Section section, Array values) throws java.io.IOException, InvalidRangeException {
+    recordReader.clearCache();
     N3headerNew.Vinfo vinfo = (N3headerNew.Vinfo) v2.getSPobject();
     DataType dataType = v2.getDataType();
 
@@ -139,6 +141,7 @@ public class N3iospWriter extends N3iospNew implements IOServiceProviderWriter {
 
   @Override
   public int appendStructureData(Structure s, StructureData sdata) throws IOException, InvalidRangeException {
+    recordReader.clearCache();
     int recnum = header.numrecs;
     setNumrecs(recnum + 1);
     writeRecordData(s, recnum, sdata);
@@ -397,6 +400,7 @@ public class N3iospWriter extends N3iospNew implements IOServiceProviderWriter {
   //////////////////////////////////////////////////////////////////////////////////////////////
   @Override
   public boolean syncExtend() throws IOException {
+    recordReader.clearCache();
     boolean result = ((N3headerWriter) header).synchNumrecs();
     if (result && log.isDebugEnabled())
       log.debug(" N3iosp syncExtend " + raf.getLocation() + " numrecs =" + header.numrecs);
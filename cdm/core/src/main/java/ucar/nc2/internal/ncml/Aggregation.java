@@ -19,6 +19,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 
 /**
  * Superclass for NcML Aggregation Builder.
@@ -62,6 +63,20 @@ public abstract class Aggregation implements ucar.nc2.ncml.AggregationIF {
     executor = exec;
   }
 
+  private static int maxConcurrentReads = 4;
+
+  /**
+   * Limit how many nested datasets one aggregation reads at the same time on the executor. Applies to Aggregations
+   * created after this call. Default 4.
+   *
+   * @param max maximum number of nested dataset reads in flight, per aggregation
+   */
+  public static void setMaxConcurrentReads(int max) {
+    if (max < 1)
+      throw new IllegalArgumentException("maxConcurrentReads must be > 0");
+    maxConcurrentReads = max;
+  }
+
   public static void setTypicalDatasetMode(String mode) {
     if (mode.equalsIgnoreCase("random"))
       typicalDatasetMode = TypicalDataset.RANDOM;
@@ -99,6 +114,9 @@ public abstract class Aggregation implements ucar.nc2.ncml.AggregationIF {
   protected boolean isDate;
   protected DateFormatter dateFormatter = new DateFormatter();
 
+  // bounds the nested dataset reads this aggregation has in flight on the executor
+  protected final Semaphore readPermits = new Semaphore(maxConcurrentReads);
+
   /**
    * Create an Aggregation for the given NetcdfDataset.
    * The following addXXXX methods are called, then build(), before the object is ready for use.
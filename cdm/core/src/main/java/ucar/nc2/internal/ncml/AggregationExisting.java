@@ -6,21 +6,12 @@
 package ucar.nc2.internal.ncml;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileLock;
-import java.nio.channels.OverlappingFileLockException;
-import java.nio.charset.StandardCharsets;
-import java.util.Date;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import org.jdom2.Element;
-import thredds.client.catalog.Catalog;
 import thredds.inventory.MFile;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
@@ -44,6 +35,7 @@ import ucar.nc2.util.CancelTask;
  * @author caron
  */
 class AggregationExisting extends AggregationOuter {
+  private AggregationIndex index; // the persistent info, read once
 
   AggregationExisting(NetcdfDataset.Builder ncd, String dimName, String recheckS) {
     super(ncd, dimName, Type.joinExisting, recheckS);
@@ -169,235 +161,118 @@ class AggregationExisting extends AggregationOuter {
   }
 
   /**
-   * Persist info (ncoords, coordValues) from joinExisting, since that can be expensive to
-   * recreate.
+   * Persist info (ncoords, coordValues, promoted attributes) from joinExisting, since that can be expensive to
+   * recreate. Only the changes since the index was read are written.
    */
   public void persistWrite() throws IOException {
-    if (diskCache2 == null) {
+    File indexFile = getIndexFile();
+    if (indexFile == null) {
       return;
     }
 
-    String cacheName = getCacheName();
-    if (cacheName == null) {
+    // only write out if something changed after the index was last written, or if the file has been deleted
+    if (!cacheDirty && indexFile.exists()) {
       return;
     }
-    if (cacheName.startsWith("file:")) { // LOOK HACK
-      cacheName = cacheName.substring(5);
+    if (index == null) {
+      index = AggregationIndex.read(indexFile);
     }
-    File cacheFile = diskCache2.getCacheFile(cacheName);
-    if (cacheFile == null) {
-      throw new IllegalStateException();
+
+    List<String> keys = new ArrayList<>();
+    for (AggDataset dataset : getDatasets()) {
+      AggDatasetOuter dod = (AggDatasetOuter) dataset;
+      Map<String, Array> cached = new LinkedHashMap<>();
+      for (CacheVar pv : cacheList) {
+        Array data = pv.getData(dod.getId());
+        if (data != null) {
+          cached.put(pv.varName, data);
+        }
+      }
+
+      MFile mfile = dod.getMFile();
+      String key = getIndexKey(dod);
+      keys.add(key);
+      index.put(key, new AggregationIndex.Entry(mfile == null ? -1 : mfile.getLength(),
+          mfile == null ? -1 : mfile.getLastModified(), dod.getNcoords(null), cached));
+    }
+    index.retainAll(keys);
+    index.write(indexFile);
+    cacheDirty = false;
+
+    if (logger.isDebugEnabled()) {
+      logger.debug("Aggregation persisted = {} nentries= {}", indexFile.getPath(), index.size());
     }
+  }
 
-    // only write out if something changed after the cache file was last written, or if the file has been deleted
-    if (!cacheDirty && cacheFile.exists()) {
+  // read info from the persistent index, if it exists
+  protected void persistRead() {
+    File indexFile = getIndexFile();
+    if (indexFile == null) {
       return;
     }
 
-    File dir = cacheFile.getParentFile();
-    if (!dir.exists()) {
-      if (!dir.mkdirs()) {
-        logger.error("Cant make cache directory= " + cacheFile);
+    // called twice while building, the second time for the promoted attributes
+    if (index == null) {
+      if (logger.isDebugEnabled()) {
+        logger.debug(" Try to Read cache {}", indexFile.getPath());
       }
+      index = AggregationIndex.read(indexFile);
     }
 
-    // Get a file channel for the file
-    try (FileOutputStream fos = new FileOutputStream(cacheFile);
-        FileChannel channel = fos.getChannel();
-        PrintWriter out = new PrintWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
-
-      // Try acquiring the lock without blocking. This method returns
-      // null or throws an exception if the file is already locked.
-      FileLock lock;
-      try {
-        lock = channel.tryLock();
-      } catch (OverlappingFileLockException e) {
-        // File is already locked in this thread or virtual machine
-        return; // give up
-      }
-      if (lock == null) {
-        return;
+    for (AggDataset dataset : getDatasets()) {
+      AggDatasetOuter dod = (AggDatasetOuter) dataset;
+      MFile mfile = dod.getMFile();
+      AggregationIndex.Entry entry = (mfile == null) ? index.find(getIndexKey(dod), -1, -1)
+          : index.find(getIndexKey(dod), mfile.getLength(), mfile.getLastModified());
+      if (entry == null) {
+        // new or changed dataset
+        if (logger.isDebugEnabled()) {
+          logger.debug(" no cache for dataset= {}", dod.getId());
+        }
+        continue;
       }
 
-      out.print("<?xml version='1.0' encoding='UTF-8'?>\n");
-      out.print("<aggregation xmlns='http://www.unidata.ucar.edu/namespaces/netcdf/ncml-2.2' version='3' ");
-      out.print("type='" + type + "' ");
-      if (dimName != null) {
-        out.print("dimName='" + dimName + "' ");
-      }
-      if (datasetManager.getRecheck() != null) {
-        out.print("recheckEvery='" + datasetManager.getRecheck() + "' ");
+      if (dod.ncoord == 0) {
+        dod.ncoord = entry.ncoord;
       }
-      out.print(">\n");
 
-      List<AggDataset> nestedDatasets = getDatasets();
-      for (AggDataset dataset : nestedDatasets) {
-        AggDatasetOuter dod = (AggDatasetOuter) dataset;
-        if (dod.getId() == null) {
-          logger.warn("id is null");
+      for (Map.Entry<String, Array> cached : entry.cached.entrySet()) {
+        CacheVar pv = findCacheVariable(cached.getKey());
+        if (pv == null) {
+          continue; // promoted attributes are not known the first time through
         }
-
-        out.print("  <netcdf id='" + dod.getId() + "' ");
-        out.print("ncoords='" + dod.getNcoords(null) + "' >\n");
-
-        for (CacheVar pv : cacheList) {
-          Array data = pv.getData(dod.getId());
-          if (data != null) {
-            out.print("    <cache varName='" + pv.varName + "' >");
-            while (data.hasNext()) {
-              out.printf("%s ", data.next());
-            }
-            out.print("</cache>\n");
-            if (logger.isDebugEnabled()) {
-              logger.debug(
-                  " wrote array = " + pv.varName + " nelems= " + data.getSize() + " for " + dataset.getLocation());
-            }
-          }
+        if (pv.getData(dod.getId()) == null) {
+          pv.putData(dod.getId(), cached.getValue());
+          countCacheUse++;
         }
-        out.print("  </netcdf>\n");
-      }
-
-      out.print("</aggregation>\n");
-
-      long time = datasetManager.getLastScanned();
-      if (time == 0) {
-        time = System.currentTimeMillis(); // no scans (eg all static) will have a 0
-      }
-
-      if (!cacheFile.setLastModified(time)) {
-        logger.warn("FAIL to set lastModified on {}", cacheFile.getPath());
-      }
-      cacheDirty = false;
-
-      if (logger.isDebugEnabled()) {
-        logger.debug("Aggregation persisted = " + cacheFile.getPath() + " lastModified= "
-            + new Date(datasetManager.getLastScanned()));
       }
     }
   }
 
-  // read info from the persistent XML file, if it exists
-  protected void persistRead() {
+  // the index file in the DiskCache2, named after the ncml location; null if there is none
+  private File getIndexFile() {
     if (diskCache2 == null) {
-      return;
+      return null;
     }
 
     String cacheName = getCacheName();
     if (cacheName == null) {
-      return;
+      return null;
     }
-    if (cacheName.startsWith("file:")) // LOOK
-    {
+    if (cacheName.startsWith("file:")) { // LOOK HACK
       cacheName = cacheName.substring(5);
     }
-
-    File cacheFile = diskCache2.getCacheFile(cacheName);
+    File cacheFile = diskCache2.getCacheFile(cacheName + AggregationIndex.SUFFIX);
     if (cacheFile == null) {
       throw new IllegalStateException();
     }
-    if (!cacheFile.exists()) {
-      return;
-    }
-    long lastWritten = cacheFile.lastModified();
-
-    if (logger.isDebugEnabled()) {
-      logger.debug(" Try to Read cache {} " + cacheFile.getPath());
-    }
-
-    Element aggElem;
-    try {
-      aggElem = ucar.nc2.util.xml.Parse.readRootElement("file:" + cacheFile.getPath());
-    } catch (IOException e) {
-      if (debugCache) {
-        System.out.println(" No cache for " + cacheName + " - " + e.getMessage());
-      }
-      return;
-    }
-
-    String version = aggElem.getAttributeValue("version");
-    if (!"3".equals(version)) {
-      return; // dont read old cache files, recreate
-    }
-
-    // use a map to find datasets to avoid O(n**2) searching
-    Map<String, AggDataset> map = new HashMap<>();
-    for (AggDataset ds : getDatasets()) {
-      map.put(ds.getId(), ds);
-    }
-
-    List<Element> ncList = aggElem.getChildren("netcdf", Catalog.ncmlNS);
-    for (Element netcdfElemNested : ncList) {
-      String id = netcdfElemNested.getAttributeValue("id");
-      AggDatasetOuter dod = (AggDatasetOuter) map.get(id);
-
-      if (null == dod) {
-        // this should mean that the dataset has been deleted. so not a problem
-        if (logger.isDebugEnabled()) {
-          logger.debug(" have cache but no dataset= {}", id);
-        }
-        continue;
-      }
-      if (logger.isDebugEnabled()) {
-        logger.debug(" use cache for dataset= {}", id);
-      }
-
-      MFile mfile = dod.getMFile();
-      if (mfile != null && mfile.getLastModified() > lastWritten) { // skip datasets that have changed
-        if (logger.isDebugEnabled()) {
-          logger.debug(" dataset was changed= {}", mfile);
-        }
-        continue;
-      }
-
-      if (dod.ncoord == 0) {
-        String ncoordsS = netcdfElemNested.getAttributeValue("ncoords");
-        try {
-          dod.ncoord = Integer.parseInt(ncoordsS);
-          if (logger.isDebugEnabled()) {
-            logger.debug(" Read the cache; ncoords = {}", dod.ncoord);
-          }
-        } catch (NumberFormatException e) {
-          logger.error("bad ncoord attribute on dataset=" + id);
-        }
-      }
-
-      // if (dod.coordValue != null) continue; // allow ncml to override
-
-      List<Element> cacheElemList = netcdfElemNested.getChildren("cache", Catalog.ncmlNS);
-      for (Element cacheElemNested : cacheElemList) {
-        String varName = cacheElemNested.getAttributeValue("varName");
-        CacheVar pv = findCacheVariable(varName);
-        if (pv != null) {
-          String sdata = cacheElemNested.getText();
-          if (sdata.isEmpty()) {
-            continue;
-          }
-          if (logger.isDebugEnabled()) {
-            logger.debug(" read data for var = " + varName + " size= " + sdata.length());
-          }
-
-          // long start = System.nanoTime();
-          String[] vals = sdata.split(" ");
-
-          try {
-            Array data = Array.makeArray(pv.dtype, vals);
-            pv.putData(id, data);
-            countCacheUse++;
-
-          } catch (Exception e) {
-            logger.warn("Error reading cached data ", e);
-          }
-
-        } else {
-          logger.warn("not a cache var=" + varName);
-        }
-      }
-    }
-
+    return cacheFile;
   }
 
-  // name to use in the DiskCache2 for the persistent XML info.
-  // Document root is aggregation
+  private String getIndexKey(AggDatasetOuter dod) {
+    MFile mfile = dod.getMFile();
+    return (mfile == null) ? dod.getId() : mfile.getPath();
+  }
 
   // has the name getCacheName()
   private String getCacheName() {
@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.internal.ncml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.IndexIterator;
+
+/**
+ * A compact binary index of the nested datasets of a joinExisting aggregation, kept in the persistence DiskCache2,
+ * so that reopening the aggregation does not open unchanged component files.
+ * An entry is keyed by the path of the component file, and is only used if the file still has the same size and last
+ * modified time. It holds the number of coordinates, and the values of the cached variables: the coordinate values and
+ * promoted global attributes.
+ * <p>
+ * The file is a header followed by a log of put and remove records. Changes are appended, so adding a file to a large
+ * aggregation writes just one record. The log is rewritten when most of its records are obsolete.
+ */
+class AggregationIndex {
+  static final String SUFFIX = ".aggx";
+
+  private static final int MAGIC = 0x41474758; // "AGGX"
+  private static final int VERSION = 1;
+  private static final byte PUT = 1;
+  private static final byte REMOVE = 2;
+  private static final int MIN_RECORDS_TO_COMPACT = 1000;
+
+  /** The saved information about one component file. */
+  static class Entry {
+    final long size;
+    final long lastModified;
+    final int ncoord;
+    final Map<String, Array> cached; // varName -> values
+
+    Entry(long size, long lastModified, int ncoord, Map<String, Array> cached) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.ncoord = ncoord;
+      this.cached = cached;
+    }
+  }
+
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+  private final Map<String, Entry> pending = new LinkedHashMap<>(); // not yet written, null value means remove
+  private int nrecords; // number of records in the file
+  private long fileLength; // length of the valid part of the file
+  private boolean rewrite = true; // cant append to the file
+
+  /**
+   * Read the index from a file. If the file does not exist or cant be read, return an empty index, which rewrites the
+   * file when written.
+   */
+  static AggregationIndex read(File file) {
+    AggregationIndex index = new AggregationIndex();
+    if (!file.exists())
+      return index;
+
+    byte[] bytes;
+    try {
+      bytes = Files.readAllBytes(file.toPath());
+    } catch (IOException e) {
+      Aggregation.logger.warn("Cant read aggregation index {}", file.getPath(), e);
+      return index;
+    }
+
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION)
+        return index; // dont read other versions, recreate
+      index.fileLength = bytes.length - in.available();
+      index.rewrite = false;
+
+      int kind;
+      while ((kind = in.read()) >= 0) {
+        String path = in.readUTF();
+        if (kind == PUT)
+          index.entries.put(path, readEntry(in));
+        else if (kind == REMOVE)
+          index.entries.remove(path);
+        else
+          throw new IOException("Unknown record type " + kind);
+        index.nrecords++;
+        index.fileLength = bytes.length - in.available();
+      }
+
+    } catch (IOException e) {
+      // eg an append that did not finish; keep what we have, and rewrite the file
+      Aggregation.logger.debug("Aggregation index {} is truncated after {} records", file.getPath(), index.nrecords);
+      index.rewrite = true;
+    }
+    return index;
+  }
+
+  /** Get the entry for a component file, if it has not changed since it was put. */
+  @Nullable
+  Entry find(String path, long size, long lastModified) {
+    Entry entry = entries.get(path);
+    if (entry == null || entry.size != size || entry.lastModified != lastModified)
+      return null;
+    return entry;
+  }
+
+  /** Add or replace the entry for a component file. Does nothing if it has already been saved with these values. */
+  void put(String path, Entry entry) {
+    Entry old = find(path, entry.size, entry.lastModified);
+    if (old != null && old.ncoord == entry.ncoord && old.cached.keySet().containsAll(entry.cached.keySet()))
+      return;
+    entries.put(path, entry);
+    pending.put(path, entry);
+  }
+
+  /** Remove the entries of component files that are no longer in the aggregation. */
+  void retainAll(Collection<String> paths) {
+    Set<String> keep = new HashSet<>(paths);
+    Iterator<String> iter = entries.keySet().iterator();
+    while (iter.hasNext()) {
+      String path = iter.next();
+      if (!keep.contains(path)) {
+        iter.remove();
+        pending.put(path, null);
+      }
+    }
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  boolean isDirty() {
+    return rewrite || !pending.isEmpty();
+  }
+
+  /**
+   * Write the changes since the index was read or last written. They are appended to the file, unless it has been
+   * changed by someone else, or most of it would be obsolete, in which case the file is rewritten.
+   * Does nothing if another thread or process is appending to the file.
+   */
+  void write(File file) throws IOException {
+    if (!isDirty())
+      return;
+    File dir = file.getParentFile();
+    if (dir != null && !dir.exists() && !dir.mkdirs())
+      Aggregation.logger.error("Cant make cache directory= " + dir);
+
+    boolean compact = nrecords + pending.size() > Math.max(MIN_RECORDS_TO_COMPACT, 2 * entries.size());
+    if (rewrite || compact || file.length() != fileLength) {
+      rewrite(file);
+    } else {
+      append(file);
+    }
+  }
+
+  private void append(File file) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bos)) {
+      for (Map.Entry<String, Entry> change : pending.entrySet())
+        writeRecord(out, change.getKey(), change.getValue());
+    }
+
+    try (FileOutputStream fos = new FileOutputStream(file, true); FileChannel channel = fos.getChannel()) {
+      if (tryLock(channel) == null || channel.size() != fileLength)
+        return; // someone else is writing it, give up
+      fos.write(bos.toByteArray());
+      fos.flush();
+    }
+    nrecords += pending.size();
+    fileLength += bos.size();
+    pending.clear();
+  }
+
+  private void rewrite(File file) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bos)) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      for (Map.Entry<String, Entry> entry : entries.entrySet())
+        writeRecord(out, entry.getKey(), entry.getValue());
+    }
+
+    // write a temporary file and move it into place, so a reader never sees a partial index
+    File tmp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+    try {
+      Files.write(tmp.toPath(), bos.toByteArray());
+      try {
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tmp.toPath());
+    }
+    nrecords = entries.size();
+    fileLength = bos.size();
+    rewrite = false;
+    pending.clear();
+  }
+
+  @Nullable
+  private static FileLock tryLock(FileChannel channel) throws IOException {
+    try {
+      return channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      return null; // already locked in this JVM
+    }
+  }
+
+  private static void writeRecord(DataOutputStream out, String path, @Nullable Entry entry) throws IOException {
+    out.writeByte(entry == null ? REMOVE : PUT);
+    out.writeUTF(path);
+    if (entry == null)
+      return;
+    out.writeLong(entry.size);
+    out.writeLong(entry.lastModified);
+    out.writeInt(entry.ncoord);
+    out.writeInt(entry.cached.size());
+    for (Map.Entry<String, Array> cached : entry.cached.entrySet()) {
+      out.writeUTF(cached.getKey());
+      writeArray(out, cached.getValue());
+    }
+  }
+
+  private static Entry readEntry(DataInputStream in) throws IOException {
+    long size = in.readLong();
+    long lastModified = in.readLong();
+    int ncoord = in.readInt();
+    int nvars = in.readInt();
+    Map<String, Array> cached = new LinkedHashMap<>();
+    for (int i = 0; i < nvars; i++) {
+      String varName = in.readUTF();
+      cached.put(varName, readArray(in));
+    }
+    return new Entry(size, lastModified, ncoord, cached);
+  }
+
+  private static void writeArray(DataOutputStream out, Array data) throws IOException {
+    DataType dtype = data.getDataType();
+    out.writeUTF(dtype.toString());
+    int[] shape = data.getShape();
+    out.writeInt(shape.length);
+    for (int len : shape)
+      out.writeInt(len);
+
+    IndexIterator iter = data.getIndexIterator();
+    while (iter.hasNext()) {
+      switch (dtype) {
+        case BYTE:
+        case UBYTE:
+        case ENUM1:
+          out.writeByte(iter.getByteNext());
+          break;
+        case CHAR:
+          out.writeChar(iter.getCharNext());
+          break;
+        case SHORT:
+        case USHORT:
+        case ENUM2:
+          out.writeShort(iter.getShortNext());
+          break;
+        case INT:
+        case UINT:
+        case ENUM4:
+          out.writeInt(iter.getIntNext());
+          break;
+        case LONG:
+        case ULONG:
+          out.writeLong(iter.getLongNext());
+          break;
+        case FLOAT:
+          out.writeFloat(iter.getFloatNext());
+          break;
+        case DOUBLE:
+          out.writeDouble(iter.getDoubleNext());
+          break;
+        default:
+          out.writeUTF(String.valueOf(iter.getObjectNext()));
+      }
+    }
+  }
+
+  private static Array readArray(DataInputStream in) throws IOException {
+    DataType dtype = DataType.getType(in.readUTF());
+    if (dtype == null)
+      throw new IOException("Unknown data type");
+    int[] shape = new int[in.readInt()];
+    for (int i = 0; i < shape.length; i++)
+      shape[i] = in.readInt();
+
+    Array data = Array.factory(dtype, shape);
+    IndexIterator iter = data.getIndexIterator();
+    while (iter.hasNext()) {
+      switch (dtype) {
+        case BYTE:
+        case UBYTE:
+        case ENUM1:
+          iter.setByteNext(in.readByte());
+          break;
+        case CHAR:
+          iter.setCharNext(in.readChar());
+          break;
+        case SHORT:
+        case USHORT:
+        case ENUM2:
+          iter.setShortNext(in.readShort());
+          break;
+        case INT:
+        case UINT:
+        case ENUM4:
+          iter.setIntNext(in.readInt());
+          break;
+        case LONG:
+        case ULONG:
+          iter.setLongNext(in.readLong());
+          break;
+        case FLOAT:
+          iter.setFloatNext(in.readFloat());
+          break;
+        case DOUBLE:
+          iter.setDoubleNext(in.readDouble());
+          break;
+        default:
+          iter.setObjectNext(in.readUTF());
+      }
+    }
+    return data;
+  }
+}
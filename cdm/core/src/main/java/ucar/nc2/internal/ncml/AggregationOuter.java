@@ -5,6 +5,7 @@
 package ucar.nc2.internal.ncml;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.Formatter;
@@ -16,6 +17,8 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import thredds.inventory.MFile;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
@@ -51,6 +54,10 @@ abstract class AggregationOuter extends Aggregation implements ProxyReader {
   protected static boolean debugCache, debugInvocation, debugStride;
   public static int invocation; // debugging
 
+  // true while a task runs on the executor; a nested aggregation then reads serially, rather than wait for
+  // tasks that may not get a thread while this one holds it
+  private static final ThreadLocal<Boolean> onExecutor = ThreadLocal.withInitial(() -> false);
+
   protected List<String> aggVarNames = new ArrayList<>(); // explicitly specified in the NcML
   protected List<VariableDS.Builder> aggVars = new ArrayList<>(); // actual vars that will be aggregated
   private int totalCoords; // the aggregation dimension size
@@ -405,7 +412,10 @@ abstract class AggregationOuter extends Aggregation implements ProxyReader {
     if (debug)
       System.out.println("   agg wants range=" + mainv.getFullName() + "(" + joinRange + ")");
 
-    // LOOK: could multithread here
+    // fmrc may have ragged time, so the nested data is not always the size of its part of sectionData
+    if (useExecutor() && (type == Type.joinExisting || type == Type.joinExistingOne || type == Type.joinNew))
+      return readSectionConcurrently(mainv, section, dtype, sectionData, cancelTask);
+
     List<AggDataset> nestedDatasets = getDatasets();
     for (AggDataset nested : nestedDatasets) {
       AggDatasetOuter dod = (AggDatasetOuter) nested;
@@ -472,7 +482,7 @@ abstract class AggregationOuter extends Aggregation implements ProxyReader {
     int destPos = 0;
 
     List<AggDataset> nestedDatasets = getDatasets();
-    if (executor != null) {
+    if (useExecutor()) {
       CompletionService<Result> completionService = new ExecutorCompletionService<>(executor);
 
       int count = 0;
@@ -511,6 +521,146 @@ abstract class AggregationOuter extends Aggregation implements ProxyReader {
     return allData;
   }
 
+  /*
+   * Read a section using the executor, so the nested datasets are opened and read at the same time, at most
+   * maxConcurrentReads for this aggregation. The part of sectionData for each nested dataset is known in advance,
+   * so each task copies its data straight into it.
+   */
+  private Array readSectionConcurrently(Variable mainv, Section section, DataType dtype, Array sectionData,
+      CancelTask cancelTask) throws IOException, InvalidRangeException {
+    List<Range> ranges = section.getRanges();
+    Range joinRange = section.getRange(0);
+    List<Range> innerSection = ranges.subList(1, ranges.size());
+    long innerSize = new Section(innerSection).computeSize();
+
+    List<SectionReaderTask> tasks = new ArrayList<>();
+    long destPos = 0;
+    for (AggDataset nested : getDatasets()) {
+      AggDatasetOuter dod = (AggDatasetOuter) nested;
+      Range nestedJoinRange = dod.getNestedJoinRange(joinRange);
+      if (nestedJoinRange == null)
+        continue;
+
+      if (type == Type.joinNew) {
+        tasks.add(new SectionReaderTask(dod, mainv, innerSection, dtype, sectionData, destPos, innerSize, cancelTask));
+        destPos += innerSize;
+      } else {
+        List<Range> nestedSection = new ArrayList<>(ranges);
+        nestedSection.set(0, nestedJoinRange);
+        long size = nestedJoinRange.length() * innerSize;
+        tasks.add(new SectionReaderTask(dod, mainv, nestedSection, dtype, sectionData, destPos, size, cancelTask));
+        destPos += size;
+      }
+    }
+
+    CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+    ExecutionException failure = null;
+    int submitted = 0;
+    int done = 0;
+    try {
+      for (SectionReaderTask task : tasks) {
+        readPermits.acquire();
+        Future<Void> finished;
+        while ((finished = completionService.poll()) != null) {
+          done++;
+          failure = getFailure(finished, failure);
+        }
+        if (failure != null || ((cancelTask != null) && cancelTask.isCancel())) {
+          readPermits.release();
+          break;
+        }
+        try {
+          completionService.submit(task);
+        } catch (RejectedExecutionException e) {
+          readPermits.release();
+          throw e;
+        }
+        submitted++;
+      }
+
+      // wait for all of them, so no task writes into sectionData after we return
+      for (; done < submitted; done++)
+        failure = getFailure(completionService.take(), failure);
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("readAgg " + getLocation() + " was interrupted");
+    }
+
+    if (failure != null) {
+      Throwable cause = failure.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      if (cause instanceof InvalidRangeException)
+        throw (InvalidRangeException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      throw new IOException("readAgg " + getLocation(), cause);
+    }
+
+    if ((cancelTask != null) && cancelTask.isCancel())
+      return null;
+    return sectionData;
+  }
+
+  private static boolean useExecutor() {
+    return executor != null && !onExecutor.get();
+  }
+
+  // keep the first failure
+  private static ExecutionException getFailure(Future<Void> finished, ExecutionException failure)
+      throws InterruptedException {
+    try {
+      finished.get();
+    } catch (ExecutionException e) {
+      if (failure == null)
+        return e;
+    }
+    return failure;
+  }
+
+  private class SectionReaderTask implements Callable<Void> {
+    AggDatasetOuter dod;
+    Variable mainv;
+    List<Range> nestedSection;
+    DataType dtype;
+    Array sectionData;
+    int destPos, size;
+    CancelTask cancelTask;
+
+    SectionReaderTask(AggDatasetOuter dod, Variable mainv, List<Range> nestedSection, DataType dtype,
+        Array sectionData, long destPos, long size, CancelTask cancelTask) {
+      this.dod = dod;
+      this.mainv = mainv;
+      this.nestedSection = nestedSection;
+      this.dtype = dtype;
+      this.sectionData = sectionData;
+      this.destPos = (int) destPos;
+      this.size = (int) size;
+      this.cancelTask = cancelTask;
+    }
+
+    public Void call() throws Exception {
+      onExecutor.set(true);
+      try {
+        Array varData = dod.read(mainv, cancelTask, nestedSection);
+        if (varData == null)
+          return null; // cancelled
+        varData = MAMath.convert(varData, dtype); // just in case it need to be converted
+        if (varData.getSize() != size)
+          throw new IOException("readAgg " + getLocation() + ": " + dod.getLocation() + " returned "
+              + varData.getSize() + " values, expected " + size);
+
+        // the tasks write disjoint parts of sectionData
+        Array.arraycopy(varData, 0, sectionData, destPos, size);
+        return null;
+      } finally {
+        onExecutor.remove();
+        readPermits.release();
+      }
+    }
+  }
+
   private static class ReaderTask implements Callable<Result> {
     AggDataset ds;
     Variable mainv;
@@ -525,8 +675,13 @@ abstract class AggregationOuter extends Aggregation implements ProxyReader {
     }
 
     public Result call() throws Exception {
-      Array data = ds.read(mainv, cancelTask);
-      return new Result(data, index);
+      onExecutor.set(true);
+      try {
+        Array data = ds.read(mainv, cancelTask);
+        return new Result(data, index);
+      } finally {
+        onExecutor.remove();
+      }
     }
   }
 
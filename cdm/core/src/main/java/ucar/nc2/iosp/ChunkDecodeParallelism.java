@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The number of filtered (e.g. compressed) data chunks that may be decoded concurrently while reading a
+ * single Section. A level of 1 (the default) decodes chunks serially on the reading thread.
+ * <p>
+ * With a level greater than 1, the raw chunk bytes are still read from the RandomAccessFile in order, on the
+ * reading thread, but decoding is handed to a shared pool, with at most "level" chunks in flight per read.
+ * Where each chunk is a separate object that can be fetched independently (eg a Zarr store on S3), fetching
+ * is also done concurrently, so the level also bounds the number of requests in flight per read.
+ * <p>
+ * The level can be set globally with {@link #setGlobal(int)}, or per file by sending an instance as an IOSP
+ * message:
+ *
+ * <pre>
+ * ncfile.sendIospMessage(ChunkDecodeParallelism.of(4));
+ * </pre>
+ */
+@Immutable
+public final class ChunkDecodeParallelism {
+  public static final ChunkDecodeParallelism SERIAL = new ChunkDecodeParallelism(1);
+
+  private static volatile ChunkDecodeParallelism global = SERIAL;
+  private static ExecutorService executor;
+  private static ExecutorService fetchExecutor;
+
+  /**
+   * @param level maximum number of chunks decoded concurrently, must be at least 1
+   * @return the parallelism object, to be sent as an IOSP message or passed to a Layout.
+   */
+  public static ChunkDecodeParallelism of(int level) {
+    if (level < 1) {
+      throw new IllegalArgumentException("Chunk decode parallelism must be >= 1, was " + level);
+    }
+    return level == 1 ? SERIAL : new ChunkDecodeParallelism(level);
+  }
+
+  /** Set the parallelism used by files that have not been sent their own. */
+  public static void setGlobal(int level) {
+    global = of(level);
+  }
+
+  /** The parallelism used by files that have not been sent their own. */
+  public static ChunkDecodeParallelism getGlobal() {
+    return global;
+  }
+
+  /** The shared pool that chunks are decoded on. Uses daemon threads, one per available processor. */
+  public static synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+    return executor;
+  }
+
+  /**
+   * The shared pool that independently readable chunks are fetched and decoded on. Since its threads mostly wait
+   * on I/O, they are created as needed; the number in use is bounded by the levels of the reads in progress.
+   */
+  static synchronized ExecutorService getFetchExecutor() {
+    if (fetchExecutor == null) {
+      fetchExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "chunk-fetch");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return fetchExecutor;
+  }
+
+  ////////////////////////////////////////////////////////////////
+  private final int level;
+
+  private ChunkDecodeParallelism(int level) {
+    this.level = level;
+  }
+
+  public int getLevel() {
+    return level;
+  }
+
+  public boolean isParallel() {
+    return level > 1;
+  }
+
+  @Override
+  public String toString() {
+    return "ChunkDecodeParallelism{" + level + '}';
+  }
+}
@@ -7,7 +7,9 @@ package ucar.nc2.iosp;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.channels.WritableByteChannel;
+import java.util.List;
 import javax.annotation.Nullable;
+import ucar.ma2.Array;
 import ucar.ma2.Section;
 import ucar.ma2.InvalidRangeException;
 import ucar.ma2.StructureDataIterator;
@@ -148,6 +150,23 @@ public interface IOServiceProvider {
    */
   ucar.ma2.Array readSection(ParsedSectionSpec cer) throws IOException, InvalidRangeException;
 
+  /**
+   * Read the same records of several variables at once. The default reads each top level variable separately,
+   * and the members of a top level Structure with one read of the Structure. IOSPs that store several variables
+   * in each record may override, to read each record once.
+   *
+   * @param variables top level variables, or members of top level Structures.
+   * @param section the wanted records: the leading Ranges of each variable, or of its parent Structure for a member.
+   *        The remaining dimensions are read in full. A null Range means all of that dimension; null means all.
+   *        IOSP may not modify.
+   * @return one Array for each variable, in the same order, as if read with Variable.read(Section).
+   * @see IospHelper#readRecords(List, Section)
+   */
+  default List<Array> readRecords(List<Variable> variables, @Nullable Section section)
+      throws IOException, InvalidRangeException {
+    return IospHelper.readRecords(variables, section);
+  }
+
   /**
    * Get the structure iterator. iosps with top level sequences must override.
    * Not threadsafe; do not use multiple StructureDataIterator for the same iosp.
@@ -9,6 +9,7 @@ import ucar.unidata.io.RandomAccessFile;
 import ucar.unidata.io.PositioningDataInputStream;
 import ucar.ma2.*;
 import ucar.nc2.ParsedSectionSpec;
+import ucar.nc2.Sequence;
 import ucar.nc2.Variable;
 import ucar.nc2.Structure;
 import ucar.nc2.stream.NcStream;
@@ -21,6 +22,10 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * Helper methods for IOSP's for reading data.
@@ -970,4 +975,115 @@ public class IospHelper {
     return result;
   }
 
+  ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  // reading the same records of several variables
+
+  /**
+   * Read the same records of several variables; the default IOServiceProvider.readRecords().
+   * Top level variables are read one at a time. The members of each top level Structure are read together,
+   * with one read of the selected members, or for a Sequence, with one pass through its records.
+   *
+   * @param variables top level variables, or members of top level Structures.
+   * @param section the wanted records: the leading Ranges of each variable, or of its parent Structure for a member.
+   *        The remaining dimensions are read in full. A null Range means all of that dimension; null means all.
+   * @return one Array for each variable, in the same order.
+   */
+  public static List<Array> readRecords(List<Variable> variables, @Nullable Section section)
+      throws IOException, InvalidRangeException {
+    Array[] result = new Array[variables.size()];
+    Map<Structure, List<Integer>> membersOf = new LinkedHashMap<>();
+    for (int i = 0; i < variables.size(); i++) {
+      Variable v = variables.get(i);
+      Structure parent = v.getParentStructure();
+      if (parent == null) {
+        result[i] = v.read(makeRecordSection(v.getShape(), section));
+      } else if (parent.getParentStructure() == null) {
+        membersOf.computeIfAbsent(parent, k -> new ArrayList<>()).add(i);
+      } else {
+        throw new IllegalArgumentException("Cant read records of nested member " + v.getFullName());
+      }
+    }
+
+    for (Map.Entry<Structure, List<Integer>> entry : membersOf.entrySet()) {
+      Structure parent = entry.getKey();
+      List<String> names = new ArrayList<>();
+      for (int i : entry.getValue())
+        names.add(variables.get(i).getShortName());
+
+      if (parent instanceof Sequence) {
+        Array[] data = readSequenceMembers((Sequence) parent, names, section);
+        for (int j = 0; j < names.size(); j++)
+          result[entry.getValue().get(j)] = data[j];
+      } else {
+        // allows IOSPs to optimize for a subset of members
+        ArrayStructure data = (ArrayStructure) parent.select(names).read(makeRecordSection(parent.getShape(), section));
+        for (int i : entry.getValue())
+          result[i] = data.extractMemberArray(data.findMember(variables.get(i).getShortName()));
+      }
+    }
+    return Arrays.asList(result);
+  }
+
+  /**
+   * The Section of a variable whose leading Ranges are the wanted records, and whose other Ranges are all.
+   *
+   * @param shape shape of the variable.
+   * @param records the leading Ranges, null Ranges mean all; null means all records.
+   * @return the filled Section, with a Range for each dimension of the variable.
+   * @throws InvalidRangeException if records has more Ranges than the variable, or they are out of bounds.
+   */
+  public static Section makeRecordSection(int[] shape, @Nullable Section records) throws InvalidRangeException {
+    int nrecordDims = (records == null) ? 0 : records.getRank();
+    if (nrecordDims > shape.length)
+      throw new InvalidRangeException("Section rank " + nrecordDims + " is greater than the rank " + shape.length);
+    Section.Builder sb = Section.builder();
+    for (int i = 0; i < shape.length; i++) {
+      if (i < nrecordDims)
+        sb.appendRange(records.getRange(i));
+      else
+        sb.appendRangeAll();
+    }
+    return Section.fill(sb.build(), shape);
+  }
+
+  // one pass through the records of a Sequence, picking out the members; a Sequence has one (record) dimension
+  private static Array[] readSequenceMembers(Sequence seq, List<String> names, @Nullable Section section)
+      throws IOException, InvalidRangeException {
+    if (section != null && section.getRank() > 1)
+      throw new InvalidRangeException("Section rank " + section.getRank() + " is greater than the rank 1 of Sequence");
+    Range records = (section == null || section.getRank() == 0) ? null : section.getRange(0);
+
+    List<List<Array>> pieces = new ArrayList<>();
+    for (int j = 0; j < names.size(); j++)
+      pieces.add(new ArrayList<>());
+    try (StructureDataIterator iter = seq.getStructureIterator(-1)) {
+      int recno = 0;
+      while (iter.hasNext()) {
+        StructureData sdata = iter.next();
+        if (records != null && recno > records.last())
+          break;
+        if (records == null || records.contains(recno)) {
+          for (int j = 0; j < names.size(); j++)
+            pieces.get(j).add(sdata.getArray(names.get(j)));
+        }
+        recno++;
+      }
+    }
+
+    Array[] result = new Array[names.size()];
+    for (int j = 0; j < names.size(); j++) {
+      Variable member = seq.findVariable(names.get(j));
+      List<Array> memberPieces = pieces.get(j);
+      int[] memberShape = memberPieces.isEmpty() ? member.getShape() : memberPieces.get(0).getShape();
+      int[] shape = new int[memberShape.length + 1];
+      shape[0] = memberPieces.size();
+      System.arraycopy(memberShape, 0, shape, 1, memberShape.length);
+      result[j] = Array.factory(member.getDataType(), shape);
+      IndexIterator to = result[j].getIndexIterator();
+      for (Array piece : memberPieces)
+        MAMath.copy(member.getDataType(), piece.getIndexIterator(), to);
+    }
+    return result;
+  }
+
 }
@@ -8,12 +8,23 @@ import ucar.ma2.InvalidRangeException;
 import ucar.ma2.Section;
 import java.io.IOException;
 import java.nio.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * For datasets where the data are stored in chunks, and must be processed, eg compressed or filtered.
  * The data is read, processed, and placed in a ByteBuffer. Chunks have an offset into the ByteBuffer.
  * "Tiled" means that all chunks are assumed to be equal size.
  * Chunks do not necessarily cover the array, missing data is possible.
+ * <p>
+ * If constructed with a {@link ChunkDecodeParallelism} level greater than one, and the chunks are
+ * {@link DecodableDataChunk}s, the raw bytes of the next intersecting chunks are read ahead (in order, on the
+ * calling thread) and decoded concurrently on a shared pool, while the caller copies out of the current one.
+ * Chunks that {@link DecodableDataChunk#canReadConcurrently() can be read concurrently} are also fetched on a
+ * shared pool, so that the latency of fetching them overlaps.
  *
  * @author caron
  * @since Jan 9, 2008
@@ -25,6 +36,8 @@ public class LayoutBBTiled implements LayoutBB {
 
   private DataChunkIterator chunkIterator; // iterate across chunks
   private IndexChunkerTiled index; // iterate within a chunk
+  private final int parallelism;
+  private final Deque<PendingChunk> pending = new ArrayDeque<>(); // chunks being decoded, in iteration order
 
   // track the overall iteration
   private long totalNelems, totalNelemsDone; // total number of elemens
@@ -40,7 +53,22 @@ public class LayoutBBTiled implements LayoutBB {
    * @param wantSection the wanted section of data, contains a List of Range objects. Must be complete.
    */
   public LayoutBBTiled(DataChunkIterator chunkIterator, int[] chunkSize, int elemSize, Section wantSection) {
+    this(chunkIterator, chunkSize, elemSize, wantSection, ChunkDecodeParallelism.SERIAL);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param chunkIterator iterator over all data chunks
+   * @param chunkSize all chunks assumed to be the same size
+   * @param elemSize size of an element in bytes.
+   * @param wantSection the wanted section of data, contains a List of Range objects. Must be complete.
+   * @param parallelism maximum number of chunks decoded concurrently
+   */
+  public LayoutBBTiled(DataChunkIterator chunkIterator, int[] chunkSize, int elemSize, Section wantSection,
+      ChunkDecodeParallelism parallelism) {
     this.chunkIterator = chunkIterator;
+    this.parallelism = parallelism.getLevel();
     this.chunkSize = chunkSize;
     this.elemSize = elemSize;
     this.want = wantSection;
@@ -68,29 +96,36 @@ public class LayoutBBTiled implements LayoutBB {
     if ((index == null) || !index.hasNext()) { // get new data node
       try {
         Section dataSection;
-        DataChunk dataChunk;
+        ByteBuffer bb;
 
-        while (true) { // look for intersecting sections
-          if (!chunkIterator.hasNext()) {
+        if (parallelism > 1) {
+          fillPending();
+          PendingChunk pendingChunk = pending.poll();
+          if (pendingChunk == null) {
             next = null;
             return false;
           }
-
-          // get next dataChunk
-          try {
-            dataChunk = chunkIterator.next();
-          } catch (IOException e) {
-            e.printStackTrace();
-            next = null;
-            return false;
+          dataSection = pendingChunk.dataSection;
+          bb = pendingChunk.get();
+
+        } else {
+          DataChunk dataChunk;
+          while (true) { // look for intersecting sections
+            if (!chunkIterator.hasNext()) {
+              next = null;
+              return false;
+            }
+
+            dataChunk = chunkIterator.next(); // get next dataChunk
+
+            // make the dataSection for this chunk
+            dataSection = new Section(dataChunk.getOffset(), chunkSize);
+            if (debugIntersection)
+              System.out.println(" test intersecting: " + dataSection + " want: " + want);
+            if (dataSection.intersects(want)) // does it intersect ?
+              break;
           }
-
-          // make the dataSection for this chunk
-          dataSection = new Section(dataChunk.getOffset(), chunkSize);
-          if (debugIntersection)
-            System.out.println(" test intersecting: " + dataSection + " want: " + want);
-          if (dataSection.intersects(want)) // does it intersect ?
-            break;
+          bb = dataChunk.getByteBuffer(); // this does the uncompression
         }
 
         if (debug)
@@ -98,9 +133,10 @@ public class LayoutBBTiled implements LayoutBB {
               " found intersecting dataSection: " + dataSection + " intersect= " + dataSection.intersect(want));
 
         index = new IndexChunkerTiled(dataSection, want); // new indexer into this chunk
-        next = new Chunk(dataChunk.getByteBuffer()); // this does the uncompression
+        next = new Chunk(bb);
 
       } catch (InvalidRangeException | IOException e) {
+        cancelPending();
         throw new IllegalStateException(e);
       }
     }
@@ -116,6 +152,70 @@ public class LayoutBBTiled implements LayoutBB {
     return next;
   }
 
+  // read ahead until there are parallelism intersecting chunks in flight, or the chunks are exhausted
+  private void fillPending() throws IOException, InvalidRangeException {
+    while (pending.size() < parallelism && chunkIterator.hasNext()) {
+      DataChunk dataChunk = chunkIterator.next();
+      Section dataSection = new Section(dataChunk.getOffset(), chunkSize);
+      if (debugIntersection)
+        System.out.println(" test intersecting: " + dataSection + " want: " + want);
+      if (!dataSection.intersects(want))
+        continue;
+
+      Future<ByteBuffer> future;
+      if (dataChunk instanceof DecodableDataChunk) {
+        DecodableDataChunk decodable = (DecodableDataChunk) dataChunk;
+        ByteBuffer decoded = decodable.getIfDecoded();
+        if (decoded != null) {
+          future = CompletableFuture.completedFuture(decoded);
+        } else if (decodable.canReadConcurrently()) {
+          future = ChunkDecodeParallelism.getFetchExecutor().submit(() -> decodable.getByteBuffer());
+        } else {
+          byte[] raw = decodable.readRaw(); // the file is only read on this thread
+          future = ChunkDecodeParallelism.getExecutor().submit(() -> decodable.decode(raw));
+        }
+      } else {
+        future = CompletableFuture.completedFuture(dataChunk.getByteBuffer());
+      }
+      pending.add(new PendingChunk(dataSection, future));
+    }
+  }
+
+  private void cancelPending() {
+    for (PendingChunk pendingChunk : pending) {
+      pendingChunk.future.cancel(true);
+    }
+    pending.clear();
+  }
+
+  private static class PendingChunk {
+    final Section dataSection;
+    final Future<ByteBuffer> future;
+
+    PendingChunk(Section dataSection, Future<ByteBuffer> future) {
+      this.dataSection = dataSection;
+      this.future = future;
+    }
+
+    ByteBuffer get() throws IOException {
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while decoding chunk", e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException)
+          throw (IOException) cause;
+        if (cause instanceof RuntimeException)
+          throw (RuntimeException) cause;
+        if (cause instanceof Error)
+          throw (Error) cause;
+        throw new IOException(cause);
+      }
+    }
+  }
+
   public String toString() {
     StringBuilder sbuff = new StringBuilder();
     sbuff.append("want=").append(want).append("; ");
@@ -148,6 +248,36 @@ public class LayoutBBTiled implements LayoutBB {
     ByteBuffer getByteBuffer() throws IOException;
   }
 
+  /**
+   * A data chunk whose reading and decoding can be separated, so that decoding can be done on another thread.
+   * getByteBuffer() must be equivalent to decode(readRaw()).
+   */
+  public interface DecodableDataChunk extends DataChunk {
+    /** Read the raw (encoded) bytes of the chunk. Called on the reading thread, in iteration order. */
+    byte[] readRaw() throws IOException;
+
+    /** Decode the raw bytes. May be called on any thread, so must not touch the RandomAccessFile. */
+    ByteBuffer decode(byte[] raw) throws IOException;
+
+    /** Return the decoded chunk if it is available without reading, eg from a cache, else null. */
+    default ByteBuffer getIfDecoded() {
+      return null;
+    }
+
+    /**
+     * True if readRaw() may be called on any thread, concurrently with reading other chunks, eg when each chunk is a
+     * separate object in a store. Then the chunk is both read and decoded on a shared pool.
+     */
+    default boolean canReadConcurrently() {
+      return false;
+    }
+
+    @Override
+    default ByteBuffer getByteBuffer() throws IOException {
+      return decode(readRaw());
+    }
+  }
+
   /**
    * A chunk of data that is contiguous in both the source and destination.
    * Everything is done in elements, not bytes.
@@ -4,6 +4,8 @@
  */
 package ucar.nc2.time;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.re2j.Matcher;
 import com.google.re2j.Pattern;
 import java.util.Objects;
@@ -48,6 +50,9 @@ import java.util.Formatter;
  */
 @Immutable
 public class CalendarDateUnit {
+  // parsed units, keyed by calendar name and udunit string; datasets use the same few units over and over
+  private static final Cache<String, CalendarDateUnit> cache = CacheBuilder.newBuilder().maximumSize(1000).build();
+
   public static final CalendarDateUnit unixDateUnit =
       CalendarDateUnit.of(null, CalendarPeriod.Field.Second, CalendarDate.parseISOformat(null, "1970-01-01T00:00:00"));
 
@@ -69,7 +74,7 @@ public class CalendarDateUnit {
     Calendar calt = Calendar.get(calendarName);
     if (calt == null)
       calt = Calendar.getDefault();
-    return new CalendarDateUnit(calt, udunitString);
+    return fromCache(calt, udunitString);
   }
 
   /**
@@ -83,7 +88,17 @@ public class CalendarDateUnit {
   public static CalendarDateUnit withCalendar(Calendar calt, String udunitString) {
     if (calt == null)
       calt = Calendar.getDefault();
-    return new CalendarDateUnit(calt, udunitString);
+    return fromCache(calt, udunitString);
+  }
+
+  private static CalendarDateUnit fromCache(Calendar calt, String udunitString) {
+    String key = calt.name() + " " + udunitString;
+    CalendarDateUnit got = cache.getIfPresent(key);
+    if (got == null) {
+      got = new CalendarDateUnit(calt, udunitString);
+      cache.put(key, got);
+    }
+    return got;
   }
 
   /**
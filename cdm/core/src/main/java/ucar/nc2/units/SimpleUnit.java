@@ -41,6 +41,8 @@ public class SimpleUnit {
       Unit alias = u.clone(UnitName.newUnitName("mb"));
       unitDB.addUnit(alias);
 
+      UnitParser.clearCache(); // in case "mb" was parsed before the alias was added
+
       kmUnit = SimpleUnit.factoryWithExceptions("km");
       meterUnit = SimpleUnit.factoryWithExceptions("m");
       pressureUnit = SimpleUnit.factoryWithExceptions("Pa");
@@ -76,8 +78,7 @@ public class SimpleUnit {
    * @see ucar.units.UnitFormat#parse
    */
   public static SimpleUnit factoryWithExceptions(String name) throws UnitException {
-    UnitFormat format = UnitFormatManager.instance();
-    Unit uu = format.parse(name);
+    Unit uu = UnitParser.parse(name);
     // if (isDateUnit(uu)) return new DateUnit(name);
     if (isTimeUnit(uu))
       return new TimeUnit(name);
@@ -86,8 +87,7 @@ public class SimpleUnit {
 
   // need subclass access
   protected static Unit makeUnit(String name) throws UnitException {
-    UnitFormat format = UnitFormatManager.instance();
-    return format.parse(name);
+    return UnitParser.parse(name);
   }
 
   /**
@@ -101,8 +101,7 @@ public class SimpleUnit {
   public static boolean isCompatible(String unitString1, String unitString2) {
     Unit uu1, uu2;
     try {
-      UnitFormat format = UnitFormatManager.instance();
-      uu1 = format.parse(unitString1);
+      uu1 = UnitParser.parse(unitString1);
     } catch (Exception e) {
       if (debugParse)
         System.out.println("Parse " + unitString1 + " got Exception1 " + e);
@@ -110,8 +109,7 @@ public class SimpleUnit {
     }
 
     try {
-      UnitFormat format = UnitFormatManager.instance();
-      uu2 = format.parse(unitString2);
+      uu2 = UnitParser.parse(unitString2);
     } catch (Exception e) {
       if (debugParse)
         System.out.println("Parse " + unitString2 + " got Exception2 " + e);
@@ -130,9 +128,8 @@ public class SimpleUnit {
    * @throws UnitException if units parsing fails
    */
   public static boolean isCompatibleWithExceptions(String unitString1, String unitString2) throws UnitException {
-    UnitFormat format = UnitFormatManager.instance();
-    Unit uu1 = format.parse(unitString1);
-    Unit uu2 = format.parse(unitString2);
+    Unit uu1 = UnitParser.parse(unitString1);
+    Unit uu2 = UnitParser.parse(unitString2);
     return uu1.isCompatible(uu2);
   }
 
@@ -266,8 +263,7 @@ public class SimpleUnit {
   public boolean isCompatible(String unitString) {
     Unit uuWant;
     try {
-      UnitFormat format = UnitFormatManager.instance();
-      uuWant = format.parse(unitString);
+      uuWant = UnitParser.parse(unitString);
     } catch (Exception e) {
       if (debugParse)
         System.out.println("Parse " + unitString + " got Exception1 " + e);
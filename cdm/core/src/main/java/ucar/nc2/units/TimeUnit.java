@@ -8,6 +8,7 @@ package ucar.nc2.units;
 import ucar.unidata.util.Format;
 import ucar.units.ConversionException;
 import ucar.units.UnitException;
+import ucar.units.UnitParser;
 import java.util.StringTokenizer;
 import java.util.Date;
 import java.util.Calendar;
@@ -54,7 +55,7 @@ public class TimeUnit extends SimpleUnit {
       throw new IllegalArgumentException("Not TimeUnit = " + text);
 
     uu = SimpleUnit.makeUnit(unitString); // always a base unit
-    factor = uu.convertTo(1.0, SimpleUnit.secsUnit);
+    factor = UnitParser.getConverter(unitString, "sec").convert(1.0);
   }
 
   /**
@@ -68,7 +69,7 @@ public class TimeUnit extends SimpleUnit {
     this.value = value;
     this.unitString = unitString;
     uu = SimpleUnit.makeUnit(unitString);
-    factor = uu.convertTo(1.0, SimpleUnit.secsUnit);
+    factor = UnitParser.getConverter(unitString, "sec").convert(1.0);
   }
 
   /**
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.util;
+
+import java.util.Arrays;
+import javax.annotation.concurrent.Immutable;
+import ucar.ma2.ArrayDouble;
+import ucar.ma2.DataType;
+
+/**
+ * A spatial index of the cells of a curvilinear grid, for finding the cell that contains a point.
+ * The grid is given by the (y, x) coordinates of its cell edges, eg lat(nrows+1, ncols+1) and lon(nrows+1, ncols+1),
+ * and cell (row, col) is the quadrilateral with corners (row, col), (row, col+1), (row+1, col+1), (row+1, col).
+ * <p>
+ * The bounding box of the grid is divided into a regular grid of buckets, and each cell is listed in every bucket
+ * its own bounding box overlaps. A lookup only tests the few cells listed in the bucket of the point, instead of
+ * searching the whole grid. Building the index is O(n), and it is immutable, so build it once per coordinate system
+ * and share it between threads.
+ * <p>
+ * Cells with a missing (NaN) corner are never found. The result is the same as testing every cell in row major order
+ * and returning the first that contains the point.
+ */
+@Immutable
+public class CurvilinearGridIndex {
+  private static final int MAX_BUCKETS = 1 << 22;
+
+  private final int nrows, ncols;
+  private final double[] yEdge, xEdge; // (nrows+1) * (ncols+1)
+  private final double ymin, ymax, xmin, xmax;
+  private final int nby, nbx;
+  private final double bucketHeight, bucketWidth;
+  private final int[] bucketStart; // cells of bucket b are cells[bucketStart[b] .. bucketStart[b+1])
+  private final int[] cells; // row * ncols + col, in increasing order within a bucket
+
+  /**
+   * Build the index.
+   *
+   * @param yEdge y (eg lat) coordinate of the cell edges, shape (nrows+1, ncols+1).
+   * @param xEdge x (eg lon) coordinate of the cell edges, same shape as yEdge.
+   */
+  public CurvilinearGridIndex(ArrayDouble.D2 yEdge, ArrayDouble.D2 xEdge) {
+    int[] shape = yEdge.getShape();
+    if (!Arrays.equals(shape, xEdge.getShape()))
+      throw new IllegalArgumentException("y and x edges must have the same shape");
+    if (shape[0] < 2 || shape[1] < 2)
+      throw new IllegalArgumentException("edges must have at least 2 rows and columns");
+    this.nrows = shape[0] - 1;
+    this.ncols = shape[1] - 1;
+    this.yEdge = (double[]) yEdge.get1DJavaArray(DataType.DOUBLE);
+    this.xEdge = (double[]) xEdge.get1DJavaArray(DataType.DOUBLE);
+
+    double ylo = Double.MAX_VALUE, yhi = -Double.MAX_VALUE;
+    double xlo = Double.MAX_VALUE, xhi = -Double.MAX_VALUE;
+    for (int i = 0; i < this.yEdge.length; i++) {
+      double y = this.yEdge[i];
+      double x = this.xEdge[i];
+      if (Double.isNaN(y) || Double.isNaN(x))
+        continue;
+      ylo = Math.min(ylo, y);
+      yhi = Math.max(yhi, y);
+      xlo = Math.min(xlo, x);
+      xhi = Math.max(xhi, x);
+    }
+    this.ymin = ylo;
+    this.ymax = yhi;
+    this.xmin = xlo;
+    this.xmax = xhi;
+
+    // about one bucket per cell, in the aspect ratio of the bounding box
+    int target = (int) Math.max(1, Math.min((long) nrows * ncols, MAX_BUCKETS));
+    double height = ymax - ymin;
+    double width = xmax - xmin;
+    int bx = 1;
+    if (height > 0 && width > 0)
+      bx = (int) Math.ceil(Math.sqrt(target * width / height));
+    else if (width > 0)
+      bx = target;
+    this.nbx = Math.max(1, Math.min(bx, target));
+    this.nby = Math.max(1, target / nbx);
+    this.bucketHeight = height > 0 ? height / nby : 1;
+    this.bucketWidth = width > 0 ? width / nbx : 1;
+
+    // count the cells in each bucket, then fill them in
+    int[] count = new int[nby * nbx + 1];
+    int[] box = new int[4];
+    for (int row = 0; row < nrows; row++) {
+      for (int col = 0; col < ncols; col++) {
+        if (!bucketBox(row, col, box))
+          continue;
+        for (int by = box[0]; by <= box[1]; by++)
+          for (int bxi = box[2]; bxi <= box[3]; bxi++)
+            count[by * nbx + bxi + 1]++;
+      }
+    }
+    for (int b = 0; b < nby * nbx; b++)
+      count[b + 1] += count[b];
+    this.bucketStart = count.clone();
+    this.cells = new int[count[nby * nbx]];
+    for (int row = 0; row < nrows; row++) {
+      for (int col = 0; col < ncols; col++) {
+        if (!bucketBox(row, col, box))
+          continue;
+        for (int by = box[0]; by <= box[1]; by++)
+          for (int bxi = box[2]; bxi <= box[3]; bxi++)
+            cells[count[by * nbx + bxi]++] = row * ncols + col;
+      }
+    }
+  }
+
+  // the range of buckets the bounding box of a cell overlaps: {bymin, bymax, bxmin, bxmax}; false if a corner is NaN
+  private boolean bucketBox(int row, int col, int[] box) {
+    double ylo = Double.MAX_VALUE, yhi = -Double.MAX_VALUE;
+    double xlo = Double.MAX_VALUE, xhi = -Double.MAX_VALUE;
+    for (int dr = 0; dr <= 1; dr++) {
+      for (int dc = 0; dc <= 1; dc++) {
+        int i = (row + dr) * (ncols + 1) + col + dc;
+        double y = yEdge[i];
+        double x = xEdge[i];
+        if (Double.isNaN(y) || Double.isNaN(x))
+          return false;
+        ylo = Math.min(ylo, y);
+        yhi = Math.max(yhi, y);
+        xlo = Math.min(xlo, x);
+        xhi = Math.max(xhi, x);
+      }
+    }
+    box[0] = bucketY(ylo);
+    box[1] = bucketY(yhi);
+    box[2] = bucketX(xlo);
+    box[3] = bucketX(xhi);
+    return true;
+  }
+
+  private int bucketY(double y) {
+    return Math.max(0, Math.min((int) ((y - ymin) / bucketHeight), nby - 1));
+  }
+
+  private int bucketX(double x) {
+    return Math.max(0, Math.min((int) ((x - xmin) / bucketWidth), nbx - 1));
+  }
+
+  public int getNrows() {
+    return nrows;
+  }
+
+  public int getNcols() {
+    return ncols;
+  }
+
+  /**
+   * Find the cell that contains the point.
+   *
+   * @param wantY y (eg lat) of the point.
+   * @param wantX x (eg lon) of the point, in the same range as the x edges.
+   * @return row * ncols + col of the cell, or -1 if no cell contains the point.
+   */
+  public int findCell(double wantY, double wantX) {
+    if (!(wantY >= ymin && wantY <= ymax && wantX >= xmin && wantX <= xmax))
+      return -1; // also NaN
+    int b = bucketY(wantY) * nbx + bucketX(wantX);
+    for (int i = bucketStart[b]; i < bucketStart[b + 1]; i++) {
+      int cell = cells[i];
+      if (contains(cell / ncols, cell % ncols, wantY, wantX))
+        return cell;
+    }
+    return -1;
+  }
+
+  /**
+   * Find the cell that contains the point.
+   *
+   * @param wantY y (eg lat) of the point.
+   * @param wantX x (eg lon) of the point, in the same range as the x edges.
+   * @param rectIndex return (row, col) here if found, else left unchanged.
+   * @return false if no cell contains the point.
+   */
+  public boolean findCell(double wantY, double wantX, int[] rectIndex) {
+    int cell = findCell(wantY, wantX);
+    if (cell < 0)
+      return false;
+    rectIndex[0] = cell / ncols;
+    rectIndex[1] = cell % ncols;
+    return true;
+  }
+
+  /**
+   * Find the cells that contain many points at once.
+   *
+   * @param wantY y (eg lat) of the points.
+   * @param wantX x (eg lon) of the points, same length as wantY.
+   * @param result return row * ncols + col of the cell of each point here, or -1 if not found; same length as wantY.
+   * @return the number of points found.
+   */
+  public int findCells(double[] wantY, double[] wantX, int[] result) {
+    if (wantX.length != wantY.length || result.length != wantY.length)
+      throw new IllegalArgumentException("wantY, wantX and result must have the same length");
+    int nfound = 0;
+    for (int i = 0; i < wantY.length; i++) {
+      result[i] = findCell(wantY[i], wantX[i]);
+      if (result[i] >= 0)
+        nfound++;
+    }
+    return nfound;
+  }
+
+  /*
+   * To be inside a convex quadrilateral, as you trace around from p1 to p2 to p3 to p4 and back to p1, the signed
+   * areas of the triangles p1 p2 p, p2 p3 p, p3 p4 p, and p4 p1 p must all have the same sign.
+   * See GridCoordinate2D.contains().
+   */
+  private boolean contains(int row, int col, double wantY, double wantX) {
+    int i1 = row * (ncols + 1) + col;
+    int i4 = i1 + ncols + 1;
+    double x1 = xEdge[i1], y1 = yEdge[i1];
+    double x2 = xEdge[i1 + 1], y2 = yEdge[i1 + 1];
+    double x3 = xEdge[i4 + 1], y3 = yEdge[i4 + 1];
+    double x4 = xEdge[i4], y4 = yEdge[i4];
+
+    boolean sign = detIsPositive(x1, y1, x2, y2, wantX, wantY);
+    if (sign != detIsPositive(x2, y2, x3, y3, wantX, wantY))
+      return false;
+    if (sign != detIsPositive(x3, y3, x4, y4, wantX, wantY))
+      return false;
+    return sign == detIsPositive(x4, y4, x1, y1, wantX, wantY);
+  }
+
+  private static boolean detIsPositive(double x0, double y0, double x1, double y1, double x2, double y2) {
+    return (x1 * y2 - y1 * x2 - x0 * y2 + y0 * x2 + x0 * y1 - y0 * x1) > 0;
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.util.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Formatter;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A size-bounded cache of decoded (decompressed, unfiltered) data chunks, weighted by their size in bytes and
+ * evicted in approximately least-recently-used order.
+ * <p>
+ * Chunks are keyed by file location and last modified time, variable name, and the file position of the chunk, so
+ * a single cache can be shared by all NetcdfFile objects that open the same file, eg through a FileCache.
+ * Cached buffers must be treated as read-only; {@link #get} hands each caller its own duplicate.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * ChunkCache.setGlobal(new ChunkCache(256 * 1024 * 1024)); // all files
+ * ncfile.sendIospMessage(new ChunkCache(64 * 1024 * 1024)); // or one file
+ * </pre>
+ */
+@ThreadSafe
+public class ChunkCache {
+  private static final int ENTRY_OVERHEAD = 128; // approximate bytes used by the key and cache entry
+
+  private static volatile ChunkCache global;
+
+  /** Set the cache used by all files that have not been sent their own. Set to null to disable (the default). */
+  public static void setGlobal(@Nullable ChunkCache cache) {
+    global = cache;
+  }
+
+  /** The cache used by all files that have not been sent their own, or null if none. */
+  @Nullable
+  public static ChunkCache getGlobal() {
+    return global;
+  }
+
+  ////////////////////////////////////////////////////////////////
+  private final long maxBytes;
+  private final Cache<Key, ByteBuffer> cache;
+
+  /**
+   * Create a chunk cache.
+   *
+   * @param maxBytes maximum total size in bytes of the cached chunks.
+   */
+  public ChunkCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+    this.cache = CacheBuilder.newBuilder().maximumWeight(maxBytes)
+        .weigher((Key key, ByteBuffer bb) -> (int) Math.min(Integer.MAX_VALUE, bb.capacity() + ENTRY_OVERHEAD))
+        .recordStats().build();
+  }
+
+  /**
+   * Get a decoded chunk, decoding and caching it if needed.
+   *
+   * @param key identifies the chunk, see {@link #makeKey}
+   * @param decoder called to decode the chunk if it is not in the cache
+   * @return a duplicate of the cached buffer, with the same byte order and positioned at 0.
+   */
+  public ByteBuffer get(Key key, Callable<ByteBuffer> decoder) throws IOException {
+    try {
+      return duplicate(cache.get(key, decoder));
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      throw new IOException(cause);
+    }
+  }
+
+  /** Get a decoded chunk if it is in the cache, else null. */
+  @Nullable
+  public ByteBuffer getIfPresent(Key key) {
+    ByteBuffer bb = cache.getIfPresent(key);
+    return bb == null ? null : duplicate(bb);
+  }
+
+  /**
+   * Add a decoded chunk to the cache. The buffer must not be modified afterwards.
+   *
+   * @return a duplicate of decoded for the caller to use.
+   */
+  public ByteBuffer put(Key key, ByteBuffer decoded) {
+    cache.put(key, decoded);
+    return duplicate(decoded);
+  }
+
+  private static ByteBuffer duplicate(ByteBuffer bb) {
+    ByteBuffer result = bb.duplicate(); // duplicate() does not preserve byte order
+    result.order(bb.order());
+    result.rewind();
+    return result;
+  }
+
+  /** Remove all entries. Statistics are not reset. */
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /** Number of chunks currently cached. */
+  public long size() {
+    return cache.size();
+  }
+
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  public long getEvictionCount() {
+    return cache.stats().evictionCount();
+  }
+
+  /**
+   * Add stat report (hits, misses, evictions) to formatter.
+   *
+   * @param format add to this
+   */
+  public void showStats(Formatter format) {
+    CacheStats stats = cache.stats();
+    format.format("  hits= %d miss= %d evictions= %d hitRate= %.3f chunks= %d maxBytes= %d%n", stats.hitCount(),
+        stats.missCount(), stats.evictionCount(), stats.hitRate(), cache.size(), maxBytes);
+  }
+
+  /**
+   * Make the key of a chunk.
+   *
+   * @param location file location
+   * @param lastModified last modified time of the file, so that entries from a rewritten file are not used
+   * @param varName full name of the variable
+   * @param filePos position of the (encoded) chunk in the file
+   */
+  public static Key makeKey(String location, long lastModified, String varName, long filePos) {
+    return new Key(location, lastModified, varName, filePos);
+  }
+
+  /** Identifies a chunk of a variable in a file. */
+  public static final class Key {
+    private final String location;
+    private final long lastModified;
+    private final String varName;
+    private final long filePos;
+
+    private Key(String location, long lastModified, String varName, long filePos) {
+      this.location = location;
+      this.lastModified = lastModified;
+      this.varName = varName;
+      this.filePos = filePos;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (o == null || getClass() != o.getClass())
+        return false;
+      Key key = (Key) o;
+      return lastModified == key.lastModified && filePos == key.filePos && location.equals(key.location)
+          && varName.equals(key.varName);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(location, lastModified, varName, filePos);
+    }
+
+    @Override
+    public String toString() {
+      return location + "#" + varName + "@" + filePos;
+    }
+  }
+}
@@ -0,0 +1,671 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.util.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToLongFunction;
+import javax.annotation.concurrent.ThreadSafe;
+import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.time.CalendarDateFormatter;
+import ucar.nc2.util.CancelTask;
+import ucar.unidata.io.RandomAccessFile;
+
+/**
+ * Keep a cache of open FileCacheable objects, like {@link FileCache}, but without locks on the acquire and release
+ * paths, and with limits on the estimated memory used by the open files as well as on their number.
+ * <p>
+ * Each hashKey has a lock-free deque of its idle files: acquire pops one, release pushes it back. The map from
+ * hashKey to deque is a ConcurrentHashMap, so threads working on different files do not contend.
+ * <p>
+ * When either limit is exceeded, a cleanup is run in a background thread, and the calling thread never waits for it.
+ * The cleanup closes idle files down to 90% of the limits. Which files to close is decided as in W-TinyLFU: files
+ * opened since the last cleanup are on probation, and one survives only if its hashKey has been used more often than
+ * that of the least recently used of the other idle files, which is closed in its place. How often each hashKey has
+ * been used is estimated with a small count-min sketch, which is halved periodically so that it forgets old history.
+ * While the cache is over its limits, a newly opened file whose hashKey is used no more often than the last one
+ * closed by the cleanup is not admitted to the cache, nor is any file if the cleanup found them all in use; it is
+ * simply closed by the application when done. This keeps one-off scans of many files from flushing the files that
+ * are used all the time.
+ * <p>
+ * Use it in place of FileCache with {@link ucar.nc2.dataset.NetcdfDatasets#setNetcdfFileCache(FileCacheIF)},
+ * {@link RandomAccessFile#setGlobalFileCache(FileCacheIF)}, or
+ * {@code GribCdmIndex.setGribCollectionCache(FileCacheIF)}.
+ */
+@ThreadSafe
+public class FileCacheStriped implements FileCacheIF {
+  private static final org.slf4j.Logger cacheLog = org.slf4j.LoggerFactory.getLogger("cacheLogger");
+
+  /** Estimate of the memory used by an open file besides its buffer: file handle, iosp, metadata. */
+  public static final long FILE_OVERHEAD = 16 * 1024;
+
+  // close files in the background; daemon, so there is nothing to shut down
+  private static final ExecutorService cleanupExecutor = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "FileCacheStriped-cleanup");
+    t.setDaemon(true);
+    return t;
+  });
+
+  /**
+   * The default weigher: the buffer size of a RandomAccessFile, or the requested buffer size of other files, plus
+   * {@link #FILE_OVERHEAD}.
+   */
+  private static long defaultWeight(FileCacheable ncfile, int bufferSize) {
+    if (ncfile instanceof RandomAccessFile) {
+      bufferSize = ((RandomAccessFile) ncfile).getBufferSize();
+    }
+    return (bufferSize > 0 ? bufferSize : 8092) + FILE_OVERHEAD;
+  }
+
+  private static final int IN_USE = 0, IDLE = 1, CLOSED = 2;
+
+  private final String name;
+  private final int maxFiles;
+  private final long maxWeight;
+  private final ToLongFunction<FileCacheable> weigher;
+
+  private final AtomicBoolean disabled = new AtomicBoolean(false);
+  private final AtomicBoolean cleanupScheduled = new AtomicBoolean(false);
+
+  private final ConcurrentHashMap<Object, Entry> cache = new ConcurrentHashMap<>(); // by hashKey
+  private final ConcurrentHashMap<FileCacheable, CacheFile> files = new ConcurrentHashMap<>(); // all files in the cache
+  private final AtomicInteger fileCount = new AtomicInteger();
+  private final AtomicLong totalWeight = new AtomicLong();
+  private final FrequencySketch sketch;
+  private volatile int admissionThreshold; // set by the cleanup, see admit()
+
+  // stats
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong miss = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong evicted = new AtomicLong();
+  private final AtomicInteger cleanups = new AtomicInteger();
+
+  /**
+   * Constructor, using the default weigher.
+   *
+   * @param name of file cache
+   * @param maxFiles trigger a cleanup if more than this many files are open.
+   * @param maxWeight trigger a cleanup if the open files use more than this many bytes.
+   */
+  public FileCacheStriped(String name, int maxFiles, long maxWeight) {
+    this(name, maxFiles, maxWeight, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param name of file cache
+   * @param maxFiles trigger a cleanup if more than this many files are open.
+   * @param maxWeight trigger a cleanup if the open files use more than this many bytes.
+   * @param weigher estimates the bytes used by an open file; if null, use its buffer size plus
+   *        {@link #FILE_OVERHEAD}.
+   */
+  public FileCacheStriped(String name, int maxFiles, long maxWeight, ToLongFunction<FileCacheable> weigher) {
+    if (maxFiles <= 0 || maxWeight <= 0) {
+      throw new IllegalArgumentException("maxFiles and maxWeight must be > 0");
+    }
+    this.name = name;
+    this.maxFiles = maxFiles;
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+    this.sketch = new FrequencySketch(Math.max(maxFiles, 64));
+  }
+
+  @Override
+  public void enable() {
+    disabled.set(false);
+  }
+
+  /**
+   * Disable the cache, and close all files, even those in use.
+   */
+  @Override
+  public void disable() {
+    disabled.set(true);
+    clearCache(true);
+  }
+
+  @Override
+  public FileCacheable acquire(FileFactory factory, DatasetUrl durl) throws IOException {
+    return acquire(factory, durl.trueurl, durl, -1, null, null);
+  }
+
+  /**
+   * Acquire a FileCacheable from the cache, and lock it so no one else can use it.
+   * If there is no idle one in the cache, open it with the FileFactory, and put it in the cache if it is admitted.
+   * <p/>
+   * App should call FileCacheable.close when done, and the file is then released instead of closed.
+   *
+   * @param factory use this factory to open the file if not in the cache; may not be null
+   * @param hashKey unique key for this file. If null, the location will be used
+   * @param location file location, may also used as the cache name, will be passed to the NetcdfFileFactory
+   * @param buffer_size RandomAccessFile buffer size, if <= 0, use default size
+   * @param cancelTask user can cancel, ok to be null.
+   * @param spiObject passed to the factory if object needs to be recreated
+   * @return FileCacheable corresponding to location.
+   * @throws IOException on error
+   */
+  @Override
+  public FileCacheable acquire(FileFactory factory, Object hashKey, DatasetUrl location, int buffer_size,
+      CancelTask cancelTask, Object spiObject) throws IOException {
+    if (null == hashKey)
+      hashKey = location.trueurl;
+    if (null == hashKey)
+      throw new IllegalArgumentException();
+
+    if (!disabled.get()) {
+      sketch.increment(hashKey);
+      FileCacheable ncfile = acquireCacheOnly(hashKey);
+      if (ncfile != null) {
+        hits.incrementAndGet();
+        return ncfile;
+      }
+    }
+    miss.incrementAndGet();
+
+    FileCacheable ncfile = factory.open(location, buffer_size, cancelTask, spiObject);
+    if (cacheLog.isDebugEnabled())
+      cacheLog.debug("FileCacheStriped " + name + " acquire " + hashKey + " " + ncfile.getLocation());
+
+    // user may have canceled
+    if ((cancelTask != null) && (cancelTask.isCancel())) {
+      ncfile.setFileCache(null);
+      ncfile.close();
+      return null;
+    }
+
+    if (disabled.get() || !admit(hashKey)) {
+      ncfile.setFileCache(null); // so that close() really closes it
+      return ncfile;
+    }
+
+    CacheFile file = new CacheFile(hashKey, ncfile, weigh(ncfile, buffer_size));
+    Entry entry;
+    do {
+      entry = cache.computeIfAbsent(hashKey, Entry::new);
+    } while (!entry.tryAddFile());
+    file.entry = entry;
+    files.put(ncfile, file);
+    fileCount.incrementAndGet();
+    totalWeight.addAndGet(file.weight);
+    ncfile.setFileCache(this);
+
+    if (entry.ejected) { // ejected while we were adding to it
+      file.state.set(CLOSED);
+      remove(file);
+      ncfile.setFileCache(null);
+    }
+    maybeCleanup();
+    return ncfile;
+  }
+
+  // Whether a newly opened file goes in the cache. Always, if there is room.
+  private boolean admit(Object hashKey) {
+    if (!isOverLimit(1.0) || sketch.frequency(hashKey) > admissionThreshold) {
+      return true;
+    }
+    rejected.incrementAndGet();
+    if (cacheLog.isDebugEnabled())
+      cacheLog.debug("FileCacheStriped " + name + " did not admit " + hashKey);
+    return false;
+  }
+
+  private long weigh(FileCacheable ncfile, int bufferSize) {
+    return weigher != null ? weigher.applyAsLong(ncfile) : defaultWeight(ncfile, bufferSize);
+  }
+
+  private FileCacheable acquireCacheOnly(Object hashKey) {
+    Entry entry = cache.get(hashKey);
+    if (entry == null)
+      return null;
+
+    CacheFile want;
+    while ((want = entry.idle.pollFirst()) != null) {
+      if (!want.state.compareAndSet(IDLE, IN_USE)) {
+        continue; // being closed by the cleanup
+      }
+      // check if modified, remove if so
+      if (want.ncfile.getLastModified() != want.lastModified) {
+        if (cacheLog.isDebugEnabled())
+          cacheLog.debug("FileCacheStriped " + name + ": acquire from cache " + hashKey + " was changed; discard");
+        want.state.set(CLOSED);
+        close(want);
+        continue;
+      }
+      try {
+        want.ncfile.reacquire(); // rehydrate
+      } catch (IOException ioe) {
+        if (cacheLog.isDebugEnabled())
+          cacheLog.debug(
+              "FileCacheStriped " + name + " acquire from cache " + hashKey + " failed: " + ioe.getMessage());
+        want.state.set(CLOSED);
+        close(want);
+        continue;
+      }
+      want.probation = false;
+      want.countAccessed.incrementAndGet();
+      return want.ncfile;
+    }
+    return null;
+  }
+
+  /**
+   * Release the file. This unlocks it, and makes it available to the next acquire.
+   * Normally applications need not call this, just close the file as usual.
+   *
+   * @param ncfile release this file.
+   * @return true if file was in cache, false if it was not
+   */
+  @Override
+  public boolean release(FileCacheable ncfile) throws IOException {
+    if (ncfile == null)
+      return false;
+
+    CacheFile file = files.get(ncfile);
+    if (file == null) {
+      if (disabled.get()) {
+        ncfile.setFileCache(null); // prevent infinite loops
+        ncfile.close();
+      }
+      return false;
+    }
+    if (file.state.get() != IN_USE) {
+      cacheLog.warn("FileCacheStriped " + name + " release " + ncfile.getLocation() + " not locked");
+      return true;
+    }
+    file.lastAccessed = System.currentTimeMillis();
+
+    try {
+      ncfile.release();
+    } catch (IOException ioe) {
+      cacheLog.error("FileCacheStriped {} release failed on {} - will remove from cache. Failure due to:", name,
+          ncfile.getLocation(), ioe);
+      file.state.set(CLOSED);
+      close(file);
+      return true;
+    }
+
+    if (disabled.get() || file.entry.ejected) {
+      file.state.set(CLOSED);
+      close(file);
+      return true;
+    }
+    file.state.set(IDLE);
+    file.entry.idle.offerFirst(file); // most recently used first, so the others can be closed
+    // ejected while we were releasing; whoever wins the race closes it
+    if (file.entry.ejected && file.state.compareAndSet(IDLE, CLOSED)) {
+      close(file);
+    }
+    maybeCleanup();
+    return true;
+  }
+
+  /**
+   * Remove all instances of object from the cache. Idle files are closed now, files in use when they are released.
+   *
+   * @param hashKey the object
+   */
+  @Override
+  public void eject(Object hashKey) {
+    Entry entry = cache.remove(hashKey);
+    if (entry == null)
+      return;
+    entry.ejected = true;
+    CacheFile file;
+    while ((file = entry.idle.pollFirst()) != null) {
+      if (file.state.compareAndSet(IDLE, CLOSED)) {
+        close(file);
+      }
+    }
+  }
+
+  /**
+   * Remove all cache entries.
+   *
+   * @param force if true, close them even if they are currently in use.
+   */
+  @Override
+  public void clearCache(boolean force) {
+    for (CacheFile file : files.values()) {
+      if (file.state.compareAndSet(IDLE, CLOSED)) {
+        close(file);
+      } else if (force && file.state.compareAndSet(IN_USE, CLOSED)) {
+        cacheLog.warn("FileCacheStriped " + name + " force close locked file= " + file);
+        close(file);
+      }
+    }
+  }
+
+  // Remove a file whose state has been set to CLOSED from the cache, and close it
+  private void close(CacheFile file) {
+    remove(file);
+    try {
+      file.ncfile.setFileCache(null); // unhook the caching
+      file.ncfile.close();
+    } catch (IOException e) {
+      cacheLog.error("FileCacheStriped " + name + " close failed on " + file.ncfile.getLocation(), e);
+    }
+  }
+
+  private void remove(CacheFile file) {
+    if (files.remove(file.ncfile) == null) {
+      return; // already removed
+    }
+    file.entry.idle.remove(file);
+    fileCount.decrementAndGet();
+    totalWeight.addAndGet(-file.weight);
+    if (file.entry.removeFile()) {
+      cache.remove(file.hashKey, file.entry);
+    }
+  }
+
+  /////////////////////////////////////////////////////////////////////////////////
+  // cleanup
+
+  private boolean isOverLimit(double fraction) {
+    return fileCount.get() > maxFiles * fraction || totalWeight.get() > maxWeight * fraction;
+  }
+
+  private void maybeCleanup() {
+    if (isOverLimit(1.0) && cleanupScheduled.compareAndSet(false, true)) {
+      try {
+        cleanupExecutor.execute(this::cleanup);
+      } catch (RuntimeException e) {
+        cleanupScheduled.set(false);
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Close idle files until the cache is under 90% of its limits. Files on probation compete with the least recently
+   * used of the others, and the one whose hashKey is less frequently used is closed.
+   * Normally this is done in a background thread, you dont need to call.
+   */
+  void cleanup() {
+    int nclosed = 0;
+    try {
+      if (!isOverLimit(0.9))
+        return;
+      cleanups.incrementAndGet();
+
+      // how much to close is fixed now; files added while we work are left to the next cleanup
+      long excessFiles = fileCount.get() - (long) (maxFiles * 0.9);
+      long excessWeight = totalWeight.get() - (long) (maxWeight * 0.9);
+
+      // freeze the values used for sorting, they may be changed by other threads
+      List<Candidate> window = new ArrayList<>();
+      List<Candidate> main = new ArrayList<>();
+      for (CacheFile file : files.values()) {
+        if (file.state.get() == IDLE) {
+          Candidate c = new Candidate(file, sketch.frequency(file.hashKey));
+          (file.probation ? window : main).add(c);
+        } else if (file.probation) {
+          // a new file in use will compete when it is released, don't make room for it now
+          excessFiles--;
+          excessWeight -= file.weight;
+        }
+      }
+      window.sort(Comparator.comparingLong(c -> c.lastAccessed));
+      main.sort(Comparator.comparingLong(c -> c.lastAccessed));
+
+      int threshold = 0;
+      int w = 0, m = 0;
+      while ((excessFiles > 0 || excessWeight > 0) && (w < window.size() || m < main.size())) {
+        Candidate victim;
+        if (w >= window.size()) {
+          victim = main.get(m++);
+        } else if (m >= main.size()) {
+          victim = window.get(w++);
+        } else if (window.get(w).frequency > main.get(m).frequency) {
+          victim = main.get(m++); // the new file is used more often, so it takes the place of the old one
+        } else {
+          victim = window.get(w++);
+        }
+        if (victim.file.state.compareAndSet(IDLE, CLOSED)) {
+          close(victim.file);
+          threshold = victim.frequency;
+          excessFiles--;
+          excessWeight -= victim.file.weight;
+          nclosed++;
+        }
+      }
+      for (Candidate c : window) {
+        c.file.probation = false;
+      }
+      boolean allInUse = excessFiles > 0 || excessWeight > 0;
+      if (isOverLimit(1.0)) {
+        admissionThreshold = Integer.MAX_VALUE; // admit nothing until some are released
+      } else {
+        admissionThreshold = isOverLimit(0.9) ? threshold : 0;
+      }
+      evicted.addAndGet(nclosed);
+
+      if (cacheLog.isDebugEnabled())
+        cacheLog.debug("FileCacheStriped {} cleanup closed={} left={} weight={}", name, nclosed, fileCount.get(),
+            totalWeight.get());
+      if (allInUse)
+        cacheLog.warn("FileCacheStriped " + name + " cleanup couldnt get under the limits due to files in use; files="
+            + fileCount.get() + " weight=" + totalWeight.get());
+
+    } catch (Throwable t) {
+      cacheLog.error("FileCacheStriped " + name + " cleanup failed", t);
+    } finally {
+      cleanupScheduled.set(false);
+    }
+    if (nclosed > 0) {
+      maybeCleanup(); // files were added while we worked
+    }
+  }
+
+  private static class Candidate {
+    final CacheFile file;
+    final int frequency;
+    final long lastAccessed;
+
+    Candidate(CacheFile file, int frequency) {
+      this.file = file;
+      this.frequency = frequency;
+      this.lastAccessed = file.lastAccessed;
+    }
+  }
+
+  /////////////////////////////////////////////////////////////////////////////////
+  // debugging and stats
+
+  boolean isCleanupScheduled() {
+    return cleanupScheduled.get();
+  }
+
+  int getFileCount() {
+    return fileCount.get();
+  }
+
+  long getTotalWeight() {
+    return totalWeight.get();
+  }
+
+  @Override
+  public void resetTracking() {}
+
+  @Override
+  public void showTracking(Formatter format) {}
+
+  @Override
+  public void showCache(Formatter format) {
+    format.format("%nFileCacheStriped %s (maxFiles=%d maxWeight=%d):%n", name, maxFiles, maxWeight);
+    format.format(" isLocked  accesses lastAccess                   location %n");
+    for (String s : showCache()) {
+      format.format("%s%n", s);
+    }
+    showStats(format);
+  }
+
+  @Override
+  public List<String> showCache() {
+    List<CacheFile> allFiles = new ArrayList<>(files.values());
+    List<Candidate> sorted = new ArrayList<>(allFiles.size());
+    for (CacheFile file : allFiles) {
+      sorted.add(new Candidate(file, 0));
+    }
+    sorted.sort(Comparator.comparingLong(c -> c.lastAccessed)); // sort so oldest are on top
+    List<String> result = new ArrayList<>(sorted.size());
+    for (Candidate c : sorted) {
+      result.add(c.file.toString());
+    }
+    return result;
+  }
+
+  @Override
+  public void showStats(Formatter format) {
+    format.format("  hits= %d miss= %d rejected= %d evicted= %d cleanups= %d nfiles= %d weight= %d elems= %d%n",
+        hits.get(), miss.get(), rejected.get(), evicted.get(), cleanups.get(), fileCount.get(), totalWeight.get(),
+        cache.size());
+  }
+
+  /////////////////////////////////////////////////////////////////////////////////
+
+  /** All the files with the same hashKey. */
+  private static class Entry {
+    final Object hashKey;
+    final ConcurrentLinkedDeque<CacheFile> idle = new ConcurrentLinkedDeque<>();
+    final AtomicInteger count = new AtomicInteger(); // number of files, -1 once removed from the map
+    volatile boolean ejected;
+
+    Entry(Object hashKey) {
+      this.hashKey = hashKey;
+    }
+
+    /** @return false if this entry has been removed from the map, so the caller must get a new one. */
+    boolean tryAddFile() {
+      int n;
+      do {
+        n = count.get();
+        if (n < 0)
+          return false;
+      } while (!count.compareAndSet(n, n + 1));
+      return true;
+    }
+
+    /** @return true if this was the last file, and the entry is now dead. */
+    boolean removeFile() {
+      return count.decrementAndGet() == 0 && count.compareAndSet(0, -1);
+    }
+
+    public String toString() {
+      return hashKey + " count=" + count.get();
+    }
+  }
+
+  private class CacheFile {
+    final Object hashKey;
+    final FileCacheable ncfile;
+    final long weight;
+    final long lastModified;
+    final AtomicInteger state = new AtomicInteger(IN_USE);
+    final AtomicInteger countAccessed = new AtomicInteger();
+    volatile Entry entry;
+    volatile long lastAccessed;
+    volatile boolean probation = true;
+
+    CacheFile(Object hashKey, FileCacheable ncfile, long weight) {
+      this.hashKey = hashKey;
+      this.ncfile = ncfile;
+      this.weight = weight;
+      this.lastModified = ncfile.getLastModified();
+      this.lastAccessed = System.currentTimeMillis();
+    }
+
+    public String toString() {
+      return (state.get() == IN_USE) + " " + countAccessed.get() + " "
+          + CalendarDateFormatter.toDateTimeStringISO(lastAccessed) + "   " + ncfile.getLocation();
+    }
+  }
+
+  /**
+   * Estimates how often each hashKey has been used: a count-min sketch of 4 bit counters, 16 to a long. When the
+   * number of increments reaches 10 times the width, all counters are halved, so that old history fades away.
+   */
+  static class FrequencySketch {
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+        0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final AtomicLongArray table;
+    private final int mask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    FrequencySketch(int expectedSize) {
+      int width = Integer.highestOneBit(Math.max(expectedSize, 16) - 1) << 1;
+      this.table = new AtomicLongArray(width);
+      this.mask = width - 1;
+      this.sampleSize = 10 * width;
+    }
+
+    int frequency(Object key) {
+      int hash = spread(key.hashCode());
+      int freq = Integer.MAX_VALUE;
+      for (int i = 0; i < 4; i++) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        int index = (int) (h >>> 32) & mask;
+        int offset = ((int) h & 15) << 2;
+        freq = Math.min(freq, (int) ((table.get(index) >>> offset) & 0xfL));
+      }
+      return freq;
+    }
+
+    void increment(Object key) {
+      int hash = spread(key.hashCode());
+      boolean added = false;
+      for (int i = 0; i < 4; i++) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        added |= incrementAt((int) (h >>> 32) & mask, ((int) h & 15) << 2);
+      }
+      if (added && additions.incrementAndGet() == sampleSize) {
+        reset();
+      }
+    }
+
+    private boolean incrementAt(int index, int offset) {
+      long mask = 0xfL << offset;
+      while (true) {
+        long word = table.get(index);
+        if ((word & mask) == mask)
+          return false; // saturated
+        if (table.compareAndSet(index, word, word + (1L << offset)))
+          return true;
+      }
+    }
+
+    private void reset() {
+      for (int i = 0; i < table.length(); i++) {
+        long word;
+        do {
+          word = table.get(i);
+        } while (!table.compareAndSet(i, word, (word >>> 1) & RESET_MASK));
+      }
+      additions.set(sampleSize / 2);
+    }
+
+    private static int spread(int x) {
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      return (x >>> 16) ^ x;
+    }
+  }
+
+}
@@ -28,15 +28,16 @@ public class Nccopy {
     File outputFile;
 
     @Parameter(names = {"-f", "--format"}, description = "Output file format (DEPRECATED use --outformat). "
-        + "Allowed values = [netcdf3, netcdf4, netcdf4_classic, netcdf3c, netcdf3c64, ncstream]")
+        + "Allowed values = [netcdf3, netcdf4, netcdf4_classic, netcdf3c, netcdf3c64, ncstream, zarr]")
     String formatLegacy = null;
 
     @Parameter(names = {"-outf", "--outformat"}, description = "Output file format. Allowed values = "
-        + "[netcdf3, netcdf4, netcdf4_classic, netcdf3_64bit_offset,  ncstream] (See NetcdfFileFormat enum values)")
+        + "[netcdf3, netcdf4, netcdf4_classic, netcdf3_64bit_offset,  ncstream, zarr] "
+        + "(See NetcdfFileFormat enum values)")
     NetcdfFileFormat format = NetcdfFileFormat.NETCDF3;
 
     @Parameter(names = {"-st", "--strategy"},
-        description = "Chunking strategy. Only used in NetCDF 4. Allowed values = [standard, grib, none]")
+        description = "Chunking strategy. Only used in NetCDF 4 and Zarr. Allowed values = [standard, grib, none]")
     Nc4Chunking.Strategy strategy = Nc4Chunking.Strategy.standard;
 
     @Parameter(names = {"-isLargeFile", "--isLargeFile"},
@@ -128,6 +129,9 @@ public class Nccopy {
         case "ncstream":
           result = NetcdfFileFormat.NCSTREAM;
           break;
+        case "zarr":
+          result = NetcdfFileFormat.ZARR;
+          break;
       }
     }
 
@@ -25,7 +25,7 @@ import ucar.nc2.Variable;
 import ucar.nc2.util.CancelTask;
 
 /**
- * Utility class for copying a NetcdfFile object, or parts of one, to a netcdf-3 or netcdf-4 disk file.
+ * Utility class for copying a NetcdfFile object, or parts of one, to a netcdf-3 or netcdf-4 disk file, or a Zarr store.
  * This handles the entire CDM model (groups, etc) if you are writing to netcdf-4.
  * If copying from an extended model to classic model, Strings are converted to Chars; nested groups are not allowed.
  * <p/>
@@ -51,6 +51,7 @@ public class NetcdfCopier {
   private final NetcdfFile fileIn;
   private final NetcdfFormatWriter.Builder writerb;
   private final boolean extended;
+  private final boolean stringsAsChar; // Zarr has groups and unsigned types, but no variable length Strings
 
   public static NetcdfCopier create(NetcdfFile fileIn, NetcdfFormatWriter.Builder ncwriter) {
     Preconditions.checkNotNull(fileIn);
@@ -62,6 +63,7 @@ public class NetcdfCopier {
     this.fileIn = fileIn;
     this.writerb = writerb;
     this.extended = getOutputFormat().isExtendedModel();
+    this.stringsAsChar = !extended || getOutputFormat() == NetcdfFileFormat.ZARR;
 
     // Try to do some checking
     if (!fileIn.getRootGroup().getGroups().isEmpty() && !extended) {
@@ -225,7 +227,7 @@ public class NetcdfCopier {
       vb = sb;
     } else {
       vb = Variable.builder().setName(oldVar.getShortName()).setDataType(newType);
-      if (!extended && newType == DataType.STRING) {
+      if (stringsAsChar && newType == DataType.STRING) {
         // find maximum length
         Array data = oldVar.read();
         IndexIterator ii = data.getIndexIterator();
@@ -313,7 +315,7 @@ public class NetcdfCopier {
   private void copyAll(NetcdfFormatWriter ncwriter, Variable oldVar, Variable newVar) throws IOException {
     Array data = oldVar.read();
     try {
-      if (!extended && oldVar.getDataType() == DataType.STRING) {
+      if (stringsAsChar && oldVar.getDataType() == DataType.STRING) {
         data = convertDataToChar(newVar, data);
       }
       if (data.getSize() > 0) { // zero when record dimension = 0
@@ -352,7 +354,7 @@ public class NetcdfCopier {
             "Reading chunk " + new Section(chunkOrigin, chunkShape) + " from variable: " + oldVar.getShortName(), -1);
 
         Array data = oldVar.read(chunkOrigin, chunkShape);
-        if (!getOutputFormat().isNetdf4format() && oldVar.getDataType() == DataType.STRING) {
+        if (stringsAsChar && oldVar.getDataType() == DataType.STRING) {
           data = convertDataToChar(newVar, data);
         }
 
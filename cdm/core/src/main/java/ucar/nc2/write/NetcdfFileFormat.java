@@ -122,7 +122,8 @@ public enum NetcdfFileFormat {
   NETCDF4_CLASSIC(4, "netcdf-4 classic"), // psuedo format I think
   NETCDF3_64BIT_DATA(5, "netcdf-5"), // from PnetCDF project
 
-  NCSTREAM(42, "ncstream"); // No assigned version, not part of C library.
+  NCSTREAM(42, "ncstream"), // No assigned version, not part of C library.
+  ZARR(43, "zarr"); // Zarr v2 directory store, written by ucar.nc2.iosp.zarr.ZarrIospWriter in cdm-zarr.
 
   private static final int MAGIC_NUMBER_LEN = 8;
   private static final long MAXHEADERPOS = 50000; // header's gotta be within this range
@@ -157,7 +158,7 @@ public enum NetcdfFileFormat {
   }
 
   public boolean isExtendedModel() {
-    return this == NETCDF4 || this == NCSTREAM;
+    return this == NETCDF4 || this == NCSTREAM || this == ZARR;
   }
 
   /**
@@ -79,6 +79,17 @@ public class NetcdfFormatWriter implements Closeable {
     return builder().setNewFile(true).setFormat(format).setLocation(location).setChunker(chunker);
   }
 
+  /**
+   * Create a new Zarr v2 directory store. Requires cdm-zarr on the classpath.
+   *
+   * @param location name of the store directory; if it exists and is a Zarr store, will overwrite it.
+   * @param chunker chunking and compression to use, or null for default chunking algorithm
+   * @return new NetcdfFormatWriter
+   */
+  public static NetcdfFormatWriter.Builder createNewZarr(String location, Nc4Chunking chunker) {
+    return builder().setNewFile(true).setFormat(NetcdfFileFormat.ZARR).setLocation(location).setChunker(chunker);
+  }
+
   /** Obtain a Builder to set custom options */
   public static Builder builder() {
     return new Builder();
@@ -103,6 +114,7 @@ public class NetcdfFormatWriter implements Closeable {
       return this;
     }
 
+    /** Write with this IOServiceProviderWriter, instead of the one chosen from the format. */
     public Builder setIosp(IOServiceProvider iosp) {
       this.iosp = iosp;
       return this;
@@ -294,7 +306,23 @@ public class NetcdfFormatWriter implements Closeable {
       existingRaf = null;
     }
 
-    if (useJna) {
+    if (builder.iosp instanceof IOServiceProviderWriter) {
+      spiw = (IOServiceProviderWriter) builder.iosp;
+    } else if (format == NetcdfFileFormat.ZARR) {
+      String className = "ucar.nc2.iosp.zarr.ZarrIospWriter";
+      IOServiceProviderWriter spi;
+      try {
+        Class iospClass = this.getClass().getClassLoader().loadClass(className);
+        spi = (IOServiceProviderWriter) iospClass.getConstructor().newInstance();
+
+        Method method = iospClass.getMethod("setChunker", Nc4Chunking.class);
+        method.invoke(spi, chunker);
+      } catch (Throwable e) {
+        throw new IllegalArgumentException(className + " is not available, cdm-zarr must be on the classpath; err= "
+            + e.getMessage());
+      }
+      spiw = spi;
+    } else if (useJna) {
       String className = "ucar.nc2.jni.netcdf.Nc4Iosp";
       IOServiceProviderWriter spi;
       try {
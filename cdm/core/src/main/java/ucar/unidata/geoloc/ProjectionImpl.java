@@ -372,13 +372,30 @@ public abstract class ProjectionImpl implements Projection, java.io.Serializable
       throw new IllegalArgumentException("ProjectionImpl.projToLatLon:" + "from array not same length as to array");
     }
 
-    for (int i = 0; i < from[0].length; i++) {
+    projToLatLon(from, to, 0, from[0].length);
+    return to;
+  }
+
+  /**
+   * Convert a range of points from projection coordinates to lat/lon coordinates, in place in the "to" array.
+   * Subclasses override this, rather than projToLatLon(double[][], double[][]), to convert arrays without
+   * allocating a point per element. The arguments are not checked.
+   *
+   * @param from array of projection coordinates: from[2][n], where
+   *        (from[0][i], from[1][i]) is the (x, y) coordinate
+   *        of the ith point
+   * @param to resulting array of lat/lon coordinates: to[2][n] where
+   *        (to[0][i], to[1][i]) is the (lat, lon) coordinate of
+   *        the ith point
+   * @param start index of the first point to convert
+   * @param end index after the last point to convert
+   */
+  protected void projToLatLon(double[][] from, double[][] to, int start, int end) {
+    for (int i = start; i < end; i++) {
       LatLonPoint endL = projToLatLon(from[0][i], from[1][i]);
       to[0][i] = endL.getLatitude();
       to[1][i] = endL.getLongitude();
     }
-
-    return to;
   }
 
   /**
@@ -511,13 +528,33 @@ public abstract class ProjectionImpl implements Projection, java.io.Serializable
       throw new IllegalArgumentException("ProjectionImpl.latLonToProj:" + "from array not same length as to array");
     }
 
-    for (int i = 0; i < from[0].length; i++) {
+    latLonToProj(from, to, latIndex, lonIndex, 0, from[0].length);
+    return to;
+  }
+
+  /**
+   * Convert a range of points from lat/lon coordinates to projection coordinates, in place in the "to" array.
+   * Subclasses override this, rather than latLonToProj(double[][], double[][], int, int), to convert arrays without
+   * allocating a point per element. The arguments are not checked.
+   *
+   * @param from array of lat/lon coordinates: from[2][n], where
+   *        (from[latIndex][i], from[lonIndex][i]) is the (lat,lon)
+   *        coordinate of the ith point
+   * @param to resulting array of projection coordinates: to[2][n]
+   *        where (to[0][i], to[1][i]) is the (x,y) coordinate of
+   *        the ith point
+   * @param latIndex index of lat coordinate; must be 0 or 1
+   * @param lonIndex index of lon coordinate; must be 0 or 1
+   * @param start index of the first point to convert
+   * @param end index after the last point to convert
+   */
+  protected void latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex, int start, int end) {
+    for (int i = start; i < end; i++) {
       LatLonPoint llpi = LatLonPoint.create(from[latIndex][i], from[lonIndex][i]);
       ProjectionPoint ppi = latLonToProj(llpi);
       to[0][i] = ppi.getX();
       to[1][i] = ppi.getY();
     }
-    return to;
   }
 
   /**
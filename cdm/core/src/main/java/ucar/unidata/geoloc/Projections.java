@@ -4,6 +4,8 @@
  */
 package ucar.unidata.geoloc;
 
+import java.util.Arrays;
+import java.util.stream.IntStream;
 import ucar.unidata.geoloc.projection.LatLonProjection;
 
 /**
@@ -13,6 +15,10 @@ public class Projections {
   private static final int INDEX_LAT = 0;
   private static final int INDEX_LON = 1;
 
+  // arrays at least this long are split into chunks, which are converted on all cores
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+  private static final int CHUNK_SIZE = 1 << 14;
+
   ///////////////////////////////////////////////////////////////////////////////////
   // optimizations for doing double and float arrays
 
@@ -54,12 +60,7 @@ public class Projections {
       throw new IllegalArgumentException("ProjectionImpl.projToLatLon:" + "from array not same length as to array");
     }
 
-    for (int i = 0; i < from[0].length; i++) {
-      LatLonPoint endL = proj.projToLatLon(from[0][i], from[1][i]);
-      to[0][i] = endL.getLatitude();
-      to[1][i] = endL.getLongitude();
-    }
-
+    projToLatLon(proj, from[0], from[1], to[0], to[1]);
     return to;
   }
 
@@ -101,6 +102,15 @@ public class Projections {
       throw new IllegalArgumentException("ProjectionImpl.projToLatLon:" + "from array not same length as to array");
     }
 
+    if (proj instanceof ProjectionImpl) {
+      ((ProjectionImpl) proj).projToLatLon(from, to);
+      for (int i = 0; i < to[0].length; i++) { // as LatLonPoint does
+        to[0][i] = (float) LatLonPoints.latNormal(to[0][i]);
+        to[1][i] = (float) LatLonPoints.lonNormal(to[1][i]);
+      }
+      return to;
+    }
+
     for (int i = 0; i < from[0].length; i++) {
       ProjectionPoint ppi = ProjectionPoint.create(from[0][i], from[1][i]);
       LatLonPoint llpi = proj.projToLatLon(ppi);
@@ -181,12 +191,7 @@ public class Projections {
       throw new IllegalArgumentException("ProjectionImpl.latLonToProj:" + "from array not same length as to array");
     }
 
-    for (int i = 0; i < from[0].length; i++) {
-      LatLonPoint llpi = LatLonPoint.create(from[latIndex][i], from[lonIndex][i]);
-      ProjectionPoint ppi = proj.latLonToProj(llpi);
-      to[0][i] = ppi.getX();
-      to[1][i] = ppi.getY();
-    }
+    latLonToProj(proj, from[latIndex], from[lonIndex], to[0], to[1]);
     return to;
   }
 
@@ -261,6 +266,10 @@ public class Projections {
       throw new IllegalArgumentException("ProjectionImpl.latLonToProj:" + "from array not same length as to array");
     }
 
+    if (proj instanceof ProjectionImpl) {
+      return ((ProjectionImpl) proj).latLonToProj(from, to, latIndex, lonIndex);
+    }
+
     for (int i = 0; i < from[0].length; i++) {
       LatLonPoint llpi = LatLonPoint.create(from[latIndex][i], from[lonIndex][i]);
       ProjectionPoint ppi = proj.latLonToProj(llpi);
@@ -271,4 +280,122 @@ public class Projections {
     return to;
   }
 
+  ///////////////////////////////////////////////////////////////////////////////////
+  // flat arrays, split across cores when large
+
+  /**
+   * Convert projection coordinates to lat/lon coordinates, using the array methods of the projection, which do not
+   * allocate a point per element. Arrays of at least 64K points are converted in chunks on the common ForkJoinPool.
+   * As with LatLonPoint, the latitudes are clamped to [-90, 90] and the longitudes normalized to [-180, 180].
+   *
+   * @param proj the projection, must be thread safe.
+   * @param x x coordinate of each point.
+   * @param y y coordinate of each point, same length as x.
+   * @param lat resulting latitude of each point, same length as x.
+   * @param lon resulting longitude of each point, same length as x.
+   */
+  public static void projToLatLon(Projection proj, double[] x, double[] y, double[] lat, double[] lon) {
+    int n = x.length;
+    if (y.length != n || lat.length != n || lon.length != n) {
+      throw new IllegalArgumentException("Projections.projToLatLon: arrays must all have the same length");
+    }
+    if (n < PARALLEL_THRESHOLD) {
+      projToLatLonChunk(proj, x, y, lat, lon, 0, n);
+      return;
+    }
+    IntStream.range(0, (n + CHUNK_SIZE - 1) / CHUNK_SIZE).parallel().forEach(chunk -> {
+      int start = chunk * CHUNK_SIZE;
+      projToLatLonChunk(proj, x, y, lat, lon, start, Math.min(start + CHUNK_SIZE, n));
+    });
+  }
+
+  /**
+   * Convert lat/lon coordinates to projection coordinates, using the array methods of the projection, which do not
+   * allocate a point per element. Arrays of at least 64K points are converted in chunks on the common ForkJoinPool.
+   *
+   * @param proj the projection, must be thread safe.
+   * @param lat latitude of each point.
+   * @param lon longitude of each point, same length as lat.
+   * @param x resulting x coordinate of each point, same length as lat.
+   * @param y resulting y coordinate of each point, same length as lat.
+   */
+  public static void latLonToProj(Projection proj, double[] lat, double[] lon, double[] x, double[] y) {
+    int n = lat.length;
+    if (lon.length != n || x.length != n || y.length != n) {
+      throw new IllegalArgumentException("Projections.latLonToProj: arrays must all have the same length");
+    }
+    if (n < PARALLEL_THRESHOLD) {
+      latLonToProjChunk(proj, lat, lon, x, y, 0, n);
+      return;
+    }
+    IntStream.range(0, (n + CHUNK_SIZE - 1) / CHUNK_SIZE).parallel().forEach(chunk -> {
+      int start = chunk * CHUNK_SIZE;
+      latLonToProjChunk(proj, lat, lon, x, y, start, Math.min(start + CHUNK_SIZE, n));
+    });
+  }
+
+  /**
+   * Compute the lat/lon coordinates of every point of a regular projection grid, eg for writing 2D lat and lon
+   * variables. Rows are converted on all cores when the grid has at least 64K points.
+   *
+   * @param proj the projection, must be thread safe.
+   * @param x the x coordinates of the grid, length nx.
+   * @param y the y coordinates of the grid, length ny.
+   * @param lat resulting latitude of point (y[i], x[j]) at i * nx + j, length ny * nx.
+   * @param lon resulting longitude of point (y[i], x[j]) at i * nx + j, length ny * nx.
+   */
+  public static void projToLatLonGrid(Projection proj, double[] x, double[] y, double[] lat, double[] lon) {
+    int nx = x.length;
+    int ny = y.length;
+    if (lat.length != nx * ny || lon.length != nx * ny) {
+      throw new IllegalArgumentException("Projections.projToLatLonGrid: lat and lon must have length ny * nx");
+    }
+    IntStream rows = IntStream.range(0, ny);
+    if ((long) nx * ny >= PARALLEL_THRESHOLD) {
+      rows = rows.parallel();
+    }
+    rows.forEach(row -> {
+      double[] yRow = new double[nx];
+      Arrays.fill(yRow, y[row]);
+      double[] latRow = new double[nx];
+      double[] lonRow = new double[nx];
+      projToLatLonChunk(proj, x, yRow, latRow, lonRow, 0, nx);
+      System.arraycopy(latRow, 0, lat, row * nx, nx);
+      System.arraycopy(lonRow, 0, lon, row * nx, nx);
+    });
+  }
+
+  // convert points start (inclusive) to end (exclusive), in place in lat and lon
+  private static void projToLatLonChunk(Projection proj, double[] x, double[] y, double[] lat, double[] lon,
+      int start, int end) {
+    if (proj instanceof ProjectionImpl) {
+      ((ProjectionImpl) proj).projToLatLon(new double[][] {x, y}, new double[][] {lat, lon}, start, end);
+      for (int i = start; i < end; i++) { // as LatLonPoint does
+        lat[i] = LatLonPoints.latNormal(lat[i]);
+        lon[i] = LatLonPoints.lonNormal(lon[i]);
+      }
+      return;
+    }
+    for (int i = start; i < end; i++) {
+      LatLonPoint endL = proj.projToLatLon(x[i], y[i]);
+      lat[i] = endL.getLatitude();
+      lon[i] = endL.getLongitude();
+    }
+  }
+
+  // convert points start (inclusive) to end (exclusive), in place in x and y
+  private static void latLonToProjChunk(Projection proj, double[] lat, double[] lon, double[] x, double[] y,
+      int start, int end) {
+    if (proj instanceof ProjectionImpl) {
+      ((ProjectionImpl) proj).latLonToProj(new double[][] {lat, lon}, new double[][] {x, y}, INDEX_LAT, INDEX_LON,
+          start, end);
+      return;
+    }
+    for (int i = start; i < end; i++) {
+      ProjectionPoint ppi = proj.latLonToProj(LatLonPoint.create(lat[i], lon[i]));
+      x[i] = ppi.getX();
+      y[i] = ppi.getY();
+    }
+  }
+
 }
@@ -628,17 +628,18 @@ public class AlbersEqualArea extends ProjectionImpl {
    *        of the ith point
    * @param latIndex index of latitude in "from"
    * @param lonIndex index of longitude in "from"
-   * @return the "to" array.
+   * @param start index of the first point to convert
+   * @param end index after the last point to convert
    */
-  public double[][] latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex) {
-    int cnt = from[0].length;
+  @Override
+  protected void latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex, int start, int end) {
     double[] fromLatA = from[latIndex];
     double[] fromLonA = from[lonIndex];
     double[] resultXA = to[INDEX_X];
     double[] resultYA = to[INDEX_Y];
     double toX, toY;
 
-    for (int i = 0; i < cnt; i++) {
+    for (int i = start; i < end; i++) {
       double fromLat = fromLatA[i];
       double fromLon = fromLonA[i];
 
@@ -653,7 +654,6 @@ public class AlbersEqualArea extends ProjectionImpl {
       resultXA[i] = toX + falseEasting;
       resultYA[i] = toY + falseNorthing;
     }
-    return to;
   }
 
   /**
@@ -665,17 +665,18 @@ public class AlbersEqualArea extends ProjectionImpl {
    * @param to resulting array of projection coordinates: to[2][n]
    *        where (to[0][i], to[1][i]) is the (x,y) coordinate
    *        of the ith point
-   * @return the "to" array
+   * @param start index of the first point to convert
+   * @param end index after the last point to convert
    */
-  public double[][] projToLatLon(double[][] from, double[][] to) {
-    int cnt = from[0].length;
+  @Override
+  protected void projToLatLon(double[][] from, double[][] to, int start, int end) {
     double[] fromXA = from[INDEX_X];
     double[] fromYA = from[INDEX_Y];
     double[] toLatA = to[INDEX_LAT];
     double[] toLonA = to[INDEX_LON];
     double rrho0 = rho0;
     double toLat, toLon;
-    for (int i = 0; i < cnt; i++) {
+    for (int i = start; i < end; i++) {
       double fromX = fromXA[i] - falseEasting;
       double fromY = fromYA[i] - falseNorthing;
 
@@ -701,7 +702,6 @@ public class AlbersEqualArea extends ProjectionImpl {
       toLatA[i] = toLat;
       toLonA[i] = toLon;
     }
-    return to;
   }
 
 }
@@ -202,9 +202,15 @@ class Gdc_To_Utm_Converter {
 
 
   public double[][] latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex) {
+    latLonToProj(from, to, latIndex, lonIndex, 0, from[0].length);
+    return to;
+  }
+
+  /** Convert the points from start (inclusive) to end (exclusive), in place in the "to" array. */
+  public void latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex, int start, int end) {
     double source_lat, source_lon, s1, c1, tx, s12, rn, al, al2, sm, tn2, cee, poly1, poly2;
 
-    for (int i = 0; i < from[0].length; i++) {
+    for (int i = start; i < end; i++) {
       double longitude = LatLonPoints.lonNormal(from[lonIndex][i], axlon0_deg); // normalize to the central meridian
       source_lat = from[latIndex][i] * RADIANS_PER_DEGREE;
       source_lon = longitude * RADIANS_PER_DEGREE;
@@ -242,8 +248,6 @@ class Gdc_To_Utm_Converter {
       to[0][i] = x * .001;
       to[1][i] = y * .001;
     }
-
-    return to;
   }
 
   public float[][] latLonToProj(float[][] from, float[][] to, int latIndex, int lonIndex) {
@@ -665,17 +665,18 @@ public class LambertConformal extends ProjectionImpl {
    *        the ith point
    * @param latIndex index of lat coordinate; must be 0 or 1
    * @param lonIndex index of lon coordinate; must be 0 or 1
-   * @return the "to" array
+   * @param start index of the first point to convert
+   * @param end index after the last point to convert
    */
-  public double[][] latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex) {
-    int cnt = from[0].length;
+  @Override
+  protected void latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex, int start, int end) {
     double[] fromLatA = from[latIndex];
     double[] fromLonA = from[lonIndex];
     double[] resultXA = to[INDEX_X];
     double[] resultYA = to[INDEX_Y];
     double toX, toY;
 
-    for (int i = 0; i < cnt; i++) {
+    for (int i = start; i < end; i++) {
       double fromLat = fromLatA[i];
       double fromLon = fromLonA[i];
 
@@ -690,7 +691,6 @@ public class LambertConformal extends ProjectionImpl {
       resultXA[i] = toX + falseEasting;
       resultYA[i] = toY + falseNorthing;
     }
-    return to;
   }
 
   /**
@@ -702,16 +702,17 @@ public class LambertConformal extends ProjectionImpl {
    * @param to resulting array of lat/lon coordinates: to[2][n] where
    *        (to[0][i], to[1][i]) is the (lat, lon) coordinate of
    *        the ith point
-   * @return the "to" array
+   * @param start index of the first point to convert
+   * @param end index after the last point to convert
    */
-  public double[][] projToLatLon(double[][] from, double[][] to) {
-    int cnt = from[0].length;
+  @Override
+  protected void projToLatLon(double[][] from, double[][] to, int start, int end) {
     double[] fromXA = from[INDEX_X];
     double[] fromYA = from[INDEX_Y];
     double[] toLatA = to[INDEX_LAT];
     double[] toLonA = to[INDEX_LON];
     double toLat, toLon;
-    for (int i = 0; i < cnt; i++) {
+    for (int i = start; i < end; i++) {
       double fromX = fromXA[i] - falseEasting;
       double fromY = fromYA[i] - falseNorthing;
       double rhop = rho;
@@ -741,7 +742,6 @@ public class LambertConformal extends ProjectionImpl {
       toLatA[i] = toLat;
       toLonA[i] = toLon;
     }
-    return to;
   }
 
   /* ENDGENERATED */
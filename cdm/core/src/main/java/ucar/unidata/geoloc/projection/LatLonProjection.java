@@ -161,8 +161,8 @@ public class LatLonProjection extends ProjectionImpl {
 
     float[] fromX = from[INDEX_X];
     float[] fromY = from[INDEX_Y];
-    to[INDEX_LAT] = fromY;
-    to[INDEX_LON] = fromX;
+    System.arraycopy(fromY, 0, to[INDEX_LAT], 0, fromY.length);
+    System.arraycopy(fromX, 0, to[INDEX_LON], 0, fromX.length);
     return to;
   }
 
@@ -206,15 +206,13 @@ public class LatLonProjection extends ProjectionImpl {
    * @param to resulting array of lat/lon coordinates: to[2][n] where
    *        (to[0][i], to[1][i]) is the (lat, lon) coordinate of
    *        the ith point
-   * @return the "to" array
+   * @param start index of the first point to convert
+   * @param end index after the last point to convert
    */
-  public double[][] projToLatLon(double[][] from, double[][] to) {
-
-    double[] fromX = from[INDEX_X];
-    double[] fromY = from[INDEX_Y];
-    to[INDEX_LAT] = fromY;
-    to[INDEX_LON] = fromX;
-    return to;
+  @Override
+  protected void projToLatLon(double[][] from, double[][] to, int start, int end) {
+    System.arraycopy(from[INDEX_Y], start, to[INDEX_LAT], start, end - start);
+    System.arraycopy(from[INDEX_X], start, to[INDEX_LON], start, end - start);
   }
 
   /**
@@ -228,22 +226,22 @@ public class LatLonProjection extends ProjectionImpl {
    *        the ith point
    * @param latIndex index of lat coordinate; must be 0 or 1
    * @param lonIndex index of lon coordinate; must be 0 or 1
-   * @return the "to" array
+   * @param start index of the first point to convert
+   * @param end index after the last point to convert
    */
-  public double[][] latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex) {
-    int cnt = from[0].length;
+  @Override
+  protected void latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex, int start, int end) {
     double[] toX = to[INDEX_X];
     double[] toY = to[INDEX_Y];
     double[] fromLat = from[latIndex];
     double[] fromLon = from[lonIndex];
     double lat, lon;
-    for (int i = 0; i < cnt; i++) {
+    for (int i = start; i < end; i++) {
       lat = fromLat[i];
       lon = centerLon + Math.IEEEremainder(fromLon[i] - centerLon, 360.0);
       toX[i] = lon;
       toY[i] = lat;
     }
-    return to;
   }
 
 
@@ -316,5 +316,47 @@ public class Mercator extends ProjectionImpl {
     return result;
   }
 
+  @Override
+  protected void latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex, int start, int end) {
+    double[] fromLatA = from[latIndex];
+    double[] fromLonA = from[lonIndex];
+    double[] resultXA = to[INDEX_X];
+    double[] resultYA = to[INDEX_Y];
+    double toX, toY;
+
+    for (int i = start; i < end; i++) {
+      double fromLat = fromLatA[i];
+      double fromLon = fromLonA[i];
+
+      // infinite projection
+      if ((Math.abs(90.0 - Math.abs(fromLat))) < TOLERANCE) {
+        toX = Double.POSITIVE_INFINITY;
+        toY = Double.POSITIVE_INFINITY;
+      } else {
+        toX = A * Math.toRadians(LatLonPoints.range180(fromLon - this.lon0));
+        toY = A * SpecialMathFunction.atanh(Math.sin(Math.toRadians(fromLat)));
+      }
+
+      resultXA[i] = toX + falseEasting;
+      resultYA[i] = toY + falseNorthing;
+    }
+  }
+
+  @Override
+  protected void projToLatLon(double[][] from, double[][] to, int start, int end) {
+    double[] fromXA = from[INDEX_X];
+    double[] fromYA = from[INDEX_Y];
+    double[] toLatA = to[INDEX_LAT];
+    double[] toLonA = to[INDEX_LON];
+
+    for (int i = start; i < end; i++) {
+      double fromX = fromXA[i] - falseEasting;
+      double fromY = fromYA[i] - falseNorthing;
+
+      toLonA[i] = Math.toDegrees(fromX / A) + lon0;
+      toLatA[i] = Math.toDegrees(Math.PI / 2 - 2 * Math.atan(Math.exp(-fromY / A)));
+    }
+  }
+
 }
 
@@ -204,6 +204,71 @@ public class RotatedPole extends ProjectionImpl {
     }
   }
 
+  @Override
+  protected void latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex, int start, int end) {
+    double[] fromLatA = from[latIndex];
+    double[] fromLonA = from[lonIndex];
+    double[] resultXA = to[INDEX_X];
+    double[] resultYA = to[INDEX_Y];
+    double z00 = rotZ[0][0], z01 = rotZ[0][1], z10 = rotZ[1][0], z11 = rotZ[1][1];
+    double y00 = rotY[0][0], y02 = rotY[0][2], y20 = rotY[2][0], y22 = rotY[2][2];
+
+    for (int i = start; i < end; i++) {
+      double lonRad = Math.toRadians(fromLonA[i]);
+      double latRad = Math.toRadians(fromLatA[i]);
+
+      // same as latLonToProj(LatLonPoint, ProjectionPointImpl), without the intermediate arrays
+      double cosLat = Math.cos(latRad);
+      double p0x = cosLat * Math.cos(lonRad);
+      double p0y = cosLat * Math.sin(lonRad);
+      double p0z = Math.sin(latRad);
+
+      double p1x = z00 * p0x + z01 * p0y;
+      double p1y = z10 * p0x + z11 * p0y;
+
+      double p2x = y00 * p1x + y02 * p0z;
+      double p2z = y20 * p1x + y22 * p0z;
+
+      resultXA[i] = LatLonPoints.range180(Math.atan2(p1y, p2x) * DEG_PER_RAD);
+      resultYA[i] = Math.asin(p2z) * DEG_PER_RAD;
+    }
+  }
+
+  @Override
+  protected void projToLatLon(double[][] from, double[][] to, int start, int end) {
+    double[] fromXA = from[INDEX_X];
+    double[] fromYA = from[INDEX_Y];
+    double[] toLatA = to[INDEX_LAT];
+    double[] toLonA = to[INDEX_LON];
+    double z00 = rotZ[0][0], z01 = rotZ[0][1], z10 = rotZ[1][0], z11 = rotZ[1][1];
+    double y00 = rotY[0][0], y02 = rotY[0][2], y20 = rotY[2][0], y22 = rotY[2][2];
+
+    for (int i = start; i < end; i++) {
+      double lonR = LatLonPoints.range180(fromXA[i]);
+      double latR = fromYA[i];
+      if (Math.abs(latR) > 90.) {
+        throw new IllegalArgumentException("ProjectionPoint y must be in range [-90,90].");
+      }
+
+      // same as projToLatLon(ProjectionPoint, LatLonPointImpl), without the intermediate arrays
+      double lonRRad = Math.toRadians(lonR);
+      double latRRad = Math.toRadians(latR);
+      double cosLat = Math.cos(latRRad);
+      double p0x = cosLat * Math.cos(lonRRad);
+      double p0y = cosLat * Math.sin(lonRRad);
+      double p0z = Math.sin(latRRad);
+
+      double p1x = y00 * p0x + y20 * p0z;
+      double p1z = y02 * p0x + y22 * p0z;
+
+      double p2x = z00 * p1x + z10 * p0y;
+      double p2y = z01 * p1x + z11 * p0y;
+
+      toLonA[i] = Math.atan2(p2y, p2x) * DEG_PER_RAD;
+      toLatA[i] = Math.asin(p1z) * DEG_PER_RAD;
+    }
+  }
+
   /**
    *
    */
@@ -238,18 +238,9 @@ public class UtmProjection extends ProjectionImpl {
     return convert2xy.latLonToProj(fromLat, fromLon, result);
   }
 
-  public double[][] latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex) {
-    if ((from == null) || (from.length != 2)) {
-      throw new IllegalArgumentException("ProjectionImpl.latLonToProj:null array argument or wrong dimension (from)");
-    }
-    if ((to == null) || (to.length != 2)) {
-      throw new IllegalArgumentException("ProjectionImpl.latLonToProj:null array argument or wrong dimension (to)");
-    }
-    if (from[0].length != to[0].length) {
-      throw new IllegalArgumentException("ProjectionImpl.latLonToProj:from array not same length as to array");
-    }
-
-    return convert2xy.latLonToProj(from, to, latIndex, lonIndex);
+  @Override
+  protected void latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex, int start, int end) {
+    convert2xy.latLonToProj(from, to, latIndex, lonIndex, start, end);
   }
 
   public float[][] latLonToProj(float[][] from, float[][] to, int latIndex, int lonIndex) {
@@ -305,19 +296,9 @@ public class UtmProjection extends ProjectionImpl {
     return convert2latlon.projToLatLon(from, to);
   }
 
-  public double[][] projToLatLon(double[][] from, double[][] to) {
-    if ((from == null) || (from.length != 2)) {
-      throw new IllegalArgumentException("ProjectionImpl.projToLatLon:null array argument or wrong dimension (from)");
-    }
-    if ((to == null) || (to.length != 2)) {
-      throw new IllegalArgumentException("ProjectionImpl.projToLatLon:null array argument or wrong dimension (to)");
-    }
-
-    if (from[0].length != to[0].length) {
-      throw new IllegalArgumentException("ProjectionImpl.projToLatLon:from array not same length as to array");
-    }
-
-    return convert2latlon.projToLatLon(from, to);
+  @Override
+  protected void projToLatLon(double[][] from, double[][] to, int start, int end) {
+    convert2latlon.projToLatLon(from, to, start, end);
   }
 
 }
@@ -320,13 +320,18 @@ class Utm_To_Gdc_Converter {
    * @return _more_
    */
   public double[][] projToLatLon(double[][] from, double[][] to) {
+    projToLatLon(from, to, 0, from[0].length);
+    return to;
+  }
 
+  /** Convert the points from start (inclusive) to end (exclusive), in place in the "to" array. */
+  public void projToLatLon(double[][] from, double[][] to, int start, int end) {
     double source_x, source_y, u, su, cu, su2, temp, phi1;
     double sp, sp2, cp, cp2, tp, tp2, eta2, top, rn, b3, b4, b5, b6, d1, d2;
 
     double xlon0 = (6.0 * ((double) zone) - 183.0) / DEGREES_PER_RADIAN;
 
-    for (int i = 0; i < from[0].length; i++) {
+    for (int i = start; i < end; i++) {
       source_x = from[0][i] * 1000.0; // wants meters
       source_x = (source_x - 500000.0) / .9996;
 
@@ -375,8 +380,6 @@ class Utm_To_Gdc_Converter {
       to[0][i] = (latitude * DEGREES_PER_RADIAN);
       to[1][i] = (longitude * DEGREES_PER_RADIAN);
     }
-
-    return to;
   }
 
 }
@@ -12,7 +12,7 @@ import java.nio.MappedByteBuffer;
  * Use NIO MappedByteBuffer to implement a RandomAccessFile.
  * Limited to 2G size. Not currently used - NOT UP TO DATE DO NOT USE
  * 
- * @deprecated not part of public API.
+ * @deprecated not part of public API, use MappedRandomAccessFile.
  */
 @Deprecated
 public class MMapRandomAccessFile extends RandomAccessFile {
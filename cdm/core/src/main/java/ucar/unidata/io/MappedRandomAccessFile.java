@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import ucar.unidata.io.spi.RandomAccessFileProvider;
+
+/**
+ * A read-only RandomAccessFile backed by memory mapped segments of a local file, so that reads are served from the
+ * operating system's page cache without a system call per buffer refill.
+ * <p>
+ * Files larger than 2 GB are mapped as a sequence of segments of at most 1 GB each. The bulk array reads
+ * (readFloat(float[], int, int) etc) decode straight from the mapping, and {@link #getByteBuffer(long, int)}
+ * returns views of it, without copying, that may be handed to LayoutBB.Chunk consumers.
+ * Single value reads still go through the read buffer, which is refilled by copying from the mapping.
+ * <p>
+ * Open a file with the "mmap:" prefix, eg "mmap:/data/archive/file.nc", or use it for all local files with
+ * {@link #setMapLocalFiles(boolean)}. The mapping is released when the object is garbage collected, not when it
+ * is closed; on Windows the file can't be deleted until then.
+ */
+public class MappedRandomAccessFile extends RandomAccessFile {
+  public static final String PREFIX = "mmap:";
+
+  static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+  private static final int BUFFER_SIZE = 4096;
+
+  private static volatile boolean mapLocalFiles;
+
+  /** If true, NetcdfFiles opens all (uncompressed) local files with a MappedRandomAccessFile. Default false. */
+  public static void setMapLocalFiles(boolean b) {
+    mapLocalFiles = b;
+  }
+
+  public static boolean getMapLocalFiles() {
+    return mapLocalFiles;
+  }
+
+  ////////////////////////////////////////////////////////////////
+  private final long fileLength;
+  private final long segmentSize;
+  private MappedByteBuffer[] segments;
+
+  /**
+   * Map a local file, read-only.
+   *
+   * @param location path of the file, optionally with the "mmap:" or "file:" prefix.
+   * @throws IOException if the file cannot be opened or mapped.
+   */
+  public MappedRandomAccessFile(String location) throws IOException {
+    this(location, DEFAULT_SEGMENT_SIZE);
+  }
+
+  MappedRandomAccessFile(String location, long segmentSize) throws IOException {
+    super(stripPrefix(location), "r", BUFFER_SIZE);
+    this.segmentSize = segmentSize;
+    try {
+      FileChannel channel = file.getChannel();
+      this.fileLength = channel.size();
+      int nsegments = (int) ((fileLength + segmentSize - 1) / segmentSize);
+      this.segments = new MappedByteBuffer[nsegments];
+      for (int i = 0; i < nsegments; i++) {
+        long start = i * segmentSize;
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, fileLength - start));
+      }
+    } catch (IOException | RuntimeException e) {
+      super.close();
+      throw e;
+    }
+  }
+
+  private static String stripPrefix(String location) {
+    if (location.startsWith(PREFIX)) {
+      location = location.substring(PREFIX.length());
+    }
+    if (location.startsWith("file:")) {
+      location = location.substring(5);
+    }
+    return location;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    super.close();
+    if (file == null) { // not just released to a cache
+      segments = null;
+    }
+  }
+
+  @Override
+  public long length() {
+    return fileLength;
+  }
+
+  @Override
+  public void setBufferSize(int bufferSize) {
+    // single value reads are served from the mapping, so a larger buffer gains nothing
+  }
+
+  /**
+   * Get a read-only view of the bytes [pos, pos + nbytes), in this file's current byte order.
+   * No bytes are copied unless the range crosses a segment boundary.
+   * The view does not change the file position, and may be used after the file is closed.
+   *
+   * @param pos starting position in the file
+   * @param nbytes number of bytes
+   * @return buffer with position 0 and remaining() == nbytes
+   * @throws EOFException if the range extends past the end of the file
+   */
+  public ByteBuffer getByteBuffer(long pos, int nbytes) throws IOException {
+    if (pos < 0 || nbytes < 0 || pos + nbytes > fileLength) {
+      throw new EOFException("Reading " + location + " at " + pos + " nbytes = " + nbytes + " file length = "
+          + fileLength);
+    }
+    ByteOrder order = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+    MappedByteBuffer[] segs = checkOpen();
+    if (nbytes == 0) { // there may be no segment at pos, eg an empty file
+      return ByteBuffer.allocate(0).asReadOnlyBuffer().order(order);
+    }
+    int segno = (int) (pos / segmentSize);
+    int offset = (int) (pos - segno * segmentSize);
+    if (offset + nbytes <= segs[segno].capacity()) {
+      return slice(segs[segno], offset, nbytes).order(order);
+    }
+
+    byte[] copy = new byte[nbytes];
+    copyFrom(segs, pos, copy, 0, nbytes);
+    return ByteBuffer.wrap(copy).asReadOnlyBuffer().order(order);
+  }
+
+  /** Bulk array reads take views of the mapping directly, except for an element that crosses a segment boundary. */
+  @Override
+  protected ByteBuffer nextElements(int elemSize, int nelems) throws IOException {
+    long remaining = fileLength - filePosition;
+    if (remaining < elemSize) {
+      throw new EOFException("Reading " + location + " at " + filePosition + " file length = " + fileLength);
+    }
+    MappedByteBuffer[] segs = checkOpen();
+    int segno = (int) (filePosition / segmentSize);
+    int offset = (int) (filePosition - segno * segmentSize);
+    long count = Math.min(nelems, (segs[segno].capacity() - offset) / elemSize);
+    if (count == 0) {
+      return super.nextElements(elemSize, 1);
+    }
+    int nbytes = (int) count * elemSize;
+    filePosition += nbytes;
+    return slice(segs[segno], offset, nbytes).order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /** Buffer refills, and large readBytes(), copy from the mapping instead of reading the file. */
+  @Override
+  protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    MappedByteBuffer[] segs = segments;
+    if (segs == null) {
+      return -1;
+    }
+    if (pos >= fileLength) {
+      return -1;
+    }
+    int n = (int) Math.min(len, fileLength - pos);
+    copyFrom(segs, pos, b, offset, n);
+    return n;
+  }
+
+  private void copyFrom(MappedByteBuffer[] segs, long pos, byte[] b, int offset, int len) {
+    while (len > 0) {
+      int segno = (int) (pos / segmentSize);
+      int segOffset = (int) (pos - segno * segmentSize);
+      int n = Math.min(len, segs[segno].capacity() - segOffset);
+      ByteBuffer view = segs[segno].duplicate();
+      view.position(segOffset);
+      view.get(b, offset, n);
+      pos += n;
+      offset += n;
+      len -= n;
+    }
+  }
+
+  private static ByteBuffer slice(MappedByteBuffer segment, int offset, int nbytes) {
+    ByteBuffer view = segment.duplicate();
+    view.position(offset);
+    view.limit(offset + nbytes);
+    return view.slice();
+  }
+
+  private MappedByteBuffer[] checkOpen() throws IOException {
+    MappedByteBuffer[] segs = segments;
+    if (segs == null) {
+      throw new IOException("File is closed: " + location);
+    }
+    return segs;
+  }
+
+  /** Not allowed, this file is read-only. */
+  @Override
+  public void write(int b) throws IOException {
+    throw new IOException("MappedRandomAccessFile is read-only: " + location);
+  }
+
+  /** Not allowed, this file is read-only. */
+  @Override
+  public void writeBytes(byte[] b, int off, int len) throws IOException {
+    throw new IOException("MappedRandomAccessFile is read-only: " + location);
+  }
+
+  /**
+   * Hook for service provider interface RandomAccessFileProvider.
+   * Owns locations starting with "mmap:", and all other local files if {@link #setMapLocalFiles(boolean)} is true.
+   */
+  public static class Provider implements RandomAccessFileProvider {
+    private static final String[] COMPRESSED_SUFFIXES = {".Z", ".zip", ".gzip", ".gz", ".bz2"};
+
+    @Override
+    public boolean isOwnerOf(String location) {
+      if (location.startsWith(PREFIX)) {
+        return true;
+      }
+      if (!mapLocalFiles) {
+        return false;
+      }
+      String path = stripPrefix(location);
+      if (path.contains("://") || path.indexOf(':') > 1) {
+        return false; // a remote or virtual location (a single letter is a Windows drive)
+      }
+      // compressed files are uncompressed to the disk cache by NetcdfFiles, then opened as a plain file
+      for (String suffix : COMPRESSED_SUFFIXES) {
+        if (path.endsWith(suffix)) {
+          return false;
+        }
+      }
+      return new File(path).isFile();
+    }
+
+    @Override
+    public RandomAccessFile open(String location) throws IOException {
+      return new MappedRandomAccessFile(location);
+    }
+
+    @Override
+    public RandomAccessFile open(String location, int bufferSize) throws IOException {
+      return new MappedRandomAccessFile(location);
+    }
+  }
+}
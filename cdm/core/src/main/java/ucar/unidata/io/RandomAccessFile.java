@@ -18,6 +18,7 @@ import ucar.nc2.util.cache.FileFactory;
 import ucar.unidata.util.StringUtil2;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.WritableByteChannel;
 import java.util.*;
@@ -65,6 +66,8 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
   public static final int LITTLE_ENDIAN = 1;
 
   protected static final int defaultBufferSize = 8092; // The default buffer size, in bytes.
+  // Largest scratch array used by the bulk array reads when bypassing the buffer, in bytes.
+  private static final int BULK_READ_SIZE = 1024 * 1024;
 
   ///////////////////////////////////////////////////////////////////////
   // debug leaks - keep track of open files
@@ -1124,8 +1127,12 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readShort(short[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readShort();
+    int done = 0;
+    while (done < n) {
+      ByteBuffer bb = nextElements(2, n - done);
+      int count = bb.remaining() / 2;
+      bb.asShortBuffer().get(pa, start + done, count);
+      done += count;
     }
   }
 
@@ -1283,8 +1290,12 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readInt(int[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readInt();
+    int done = 0;
+    while (done < n) {
+      ByteBuffer bb = nextElements(4, n - done);
+      int count = bb.remaining() / 4;
+      bb.asIntBuffer().get(pa, start + done, count);
+      done += count;
     }
   }
 
@@ -1357,8 +1368,12 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readLong(long[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readLong();
+    int done = 0;
+    while (done < n) {
+      ByteBuffer bb = nextElements(8, n - done);
+      int count = bb.remaining() / 8;
+      bb.asLongBuffer().get(pa, start + done, count);
+      done += count;
     }
   }
 
@@ -1394,8 +1409,12 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readFloat(float[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = Float.intBitsToFloat(readInt());
+    int done = 0;
+    while (done < n) {
+      ByteBuffer bb = nextElements(4, n - done);
+      int count = bb.remaining() / 4;
+      bb.asFloatBuffer().get(pa, start + done, count);
+      done += count;
     }
   }
 
@@ -1431,9 +1450,61 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readDouble(double[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = Double.longBitsToDouble(readLong());
+    int done = 0;
+    while (done < n) {
+      ByteBuffer bb = nextElements(8, n - done);
+      int count = bb.remaining() / 8;
+      bb.asDoubleBuffer().get(pa, start + done, count);
+      done += count;
+    }
+  }
+
+  /**
+   * Used by the bulk array reads: return the bytes of as many of the next nelems elements as can be had in one step,
+   * in a ByteBuffer with this file's byte order, and advance the file position past them.
+   * At least one element is always returned.
+   * <p>
+   * Elements that are already in the buffer are returned as a view of it, without copying. Reads that are larger
+   * than the buffer are read directly from the file into a scratch array, up to BULK_READ_SIZE bytes at a time,
+   * the same way that readBytes() does. Only an element that straddles the end of the buffer is read on its own.
+   * Subclasses that hold the file in memory may instead return views of it.
+   *
+   * @param elemSize size of each element in bytes
+   * @param nelems number of elements still wanted, must be &gt; 0
+   * @return buffer whose remaining() is a positive multiple of elemSize
+   * @throws EOFException if the end of the file is reached before the first element is read
+   * @throws IOException on read error
+   */
+  protected ByteBuffer nextElements(int elemSize, int nelems) throws IOException {
+    ByteOrder order = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+    long wantBytes = (long) nelems * elemSize;
+
+    if (buffer != null) {
+      int count = (int) Math.min(nelems, (dataEnd - filePosition) / elemSize);
+      if (count > 0) {
+        int pos = (int) (filePosition - bufferStart);
+        filePosition += (long) count * elemSize;
+        return ByteBuffer.wrap(buffer, pos, count * elemSize).order(order);
+      }
+
+      // nothing left in the buffer, and the rest fits in it: refill, as read() would
+      if (filePosition >= dataEnd && wantBytes <= buffer.length) {
+        seek(filePosition);
+        if (endOfFile) {
+          throw new EOFException("Reading " + location + " at " + filePosition + " file length = " + length());
+        }
+        return nextElements(elemSize, nelems);
+      }
+    }
+
+    // large reads bypass the buffer; otherwise only the single element across the end of the buffer is copied
+    int nbytes = elemSize;
+    if (buffer == null || wantBytes > buffer.length) {
+      nbytes = (int) Math.min(wantBytes, BULK_READ_SIZE / elemSize * elemSize);
     }
+    byte[] scratch = new byte[nbytes];
+    readFully(scratch);
+    return ByteBuffer.wrap(scratch).order(order);
   }
 
   /**
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.nc2.util.DiskCache2;
+
+/**
+ * A local disk tier for the read cache of {@link RemoteRandomAccessFile}, so that blocks of remote files survive
+ * restarts of the JVM, and are shared by all the processes that use the same directory.
+ * <p>
+ * Blocks are stored in the "remoteBlocks" directory under the root of a DiskCache2, one directory per version of a
+ * remote file, named from a hash of its URL, ETag or Last-Modified time, length and block size. So a remote file
+ * that changes is cached afresh, and remote files whose version is unknown are not cached on disk.
+ * <p>
+ * Each block is written to a temporary file and then renamed, so that other processes never see a partial block.
+ * When the total size of the blocks exceeds the maximum, the least recently used blocks are deleted, down to 90%
+ * of the maximum. Temporary files are left alone, unless they are old enough to have been abandoned. Blocks may
+ * also be deleted by the DiskCache2 scour, or by other processes; a block that disappears is simply read again from
+ * the remote file.
+ * <p>
+ * Enable with {@link RemoteRandomAccessFile#setDiskCache(RemoteBlockDiskCache)}.
+ */
+public class RemoteBlockDiskCache {
+  private static final Logger logger = LoggerFactory.getLogger(RemoteBlockDiskCache.class);
+  private static final String DIRECTORY = "remoteBlocks";
+  private static final String BLOCK_SUFFIX = ".blk";
+  private static final String TEMP_SUFFIX = ".tmp";
+  // a temporary file older than this was left by a process that failed while writing it
+  private static final long TEMP_FILE_TIMEOUT = TimeUnit.HOURS.toMillis(1);
+
+  private final Path root;
+  private final long maxSize;
+  private final AtomicLong estimatedSize = new AtomicLong(-1); // -1 until the directory is scanned
+
+  /**
+   * @param diskCache the blocks go in the "remoteBlocks" directory under its root.
+   * @param maxSize the most bytes of blocks to keep.
+   */
+  public RemoteBlockDiskCache(DiskCache2 diskCache, long maxSize) {
+    this.root = new File(diskCache.getRootDirectory(), DIRECTORY).toPath();
+    this.maxSize = maxSize;
+  }
+
+  public Path getRootDirectory() {
+    return root;
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Get the cached blocks of one version of a remote file.
+   *
+   * @param url location of the remote file
+   * @param version its ETag or Last-Modified time, or null if not known
+   * @param length its length in bytes
+   * @param blockSize size of the blocks
+   * @return the blocks, or null if the version is not known.
+   */
+  @Nullable
+  FileBlocks getFileBlocks(String url, @Nullable String version, long length, int blockSize) {
+    if (version == null || version.isEmpty()) {
+      return null;
+    }
+    String key = url + '\n' + version + '\n' + length + '\n' + blockSize;
+    String name = Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString();
+    return new FileBlocks(root.resolve(name));
+  }
+
+  /** The cached blocks of one version of a remote file. */
+  class FileBlocks {
+    private final Path dir;
+
+    private FileBlocks(Path dir) {
+      this.dir = dir;
+    }
+
+    /**
+     * Read a block, if it is in the cache.
+     *
+     * @param blockNumber which block
+     * @param length its expected length
+     * @return the block, or null if it is not in the cache.
+     */
+    @Nullable
+    byte[] get(long blockNumber, int length) {
+      Path path = dir.resolve(blockNumber + BLOCK_SUFFIX);
+      try {
+        byte[] block = Files.readAllBytes(path);
+        if (block.length != length) { // not from this file, don't trust it
+          Files.deleteIfExists(path);
+          return null;
+        }
+        // the last modified time is used to find the least recently used blocks
+        path.toFile().setLastModified(System.currentTimeMillis());
+        return block;
+      } catch (NoSuchFileException e) {
+        return null;
+      } catch (IOException e) {
+        logger.debug("Failed to read cached block {}", path, e);
+        return null;
+      }
+    }
+
+    /**
+     * Check if a block is in the cache, without reading it or marking it as used.
+     *
+     * @param blockNumber which block
+     * @param length its expected length
+     * @return true if it is in the cache.
+     */
+    boolean contains(long blockNumber, int length) {
+      try {
+        return Files.size(dir.resolve(blockNumber + BLOCK_SUFFIX)) == length;
+      } catch (IOException e) {
+        return false;
+      }
+    }
+
+    /** Add a block to the cache. Failures are logged and otherwise ignored. */
+    void put(long blockNumber, byte[] block) {
+      Path path = dir.resolve(blockNumber + BLOCK_SUFFIX);
+      Path temp = null;
+      try {
+        Files.createDirectories(dir);
+        temp = Files.createTempFile(dir, "block", TEMP_SUFFIX);
+        Files.write(temp, block);
+        try {
+          Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        temp = null;
+      } catch (IOException e) {
+        logger.debug("Failed to cache block {}", path, e);
+        return;
+      } finally {
+        if (temp != null) {
+          try {
+            Files.deleteIfExists(temp);
+          } catch (IOException e) {
+            // ignore
+          }
+        }
+      }
+
+      long size = estimatedSize.get();
+      if (size < 0 || estimatedSize.addAndGet(block.length) > maxSize) {
+        evict();
+      }
+    }
+  }
+
+  /**
+   * Scan the cache, and if it is larger than the maximum, delete the least recently used blocks down to 90% of the
+   * maximum. Other processes may be adding and deleting blocks at the same time, so the size is only an estimate.
+   */
+  synchronized void evict() {
+    List<CachedBlock> files = new ArrayList<>();
+    long total = 0;
+    long abandoned = System.currentTimeMillis() - TEMP_FILE_TIMEOUT;
+    try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root)) {
+      for (Path dir : dirs) {
+        File[] blocks = dir.toFile().listFiles();
+        if (blocks == null) {
+          continue;
+        }
+        for (File block : blocks) {
+          if (!block.getName().endsWith(BLOCK_SUFFIX)) {
+            // probably being written by put(), here or in another process
+            if (block.getName().endsWith(TEMP_SUFFIX) && block.lastModified() < abandoned) {
+              block.delete();
+            }
+            continue;
+          }
+          CachedBlock cached = new CachedBlock(block);
+          files.add(cached);
+          total += cached.length;
+        }
+      }
+    } catch (NoSuchFileException e) {
+      estimatedSize.set(0);
+      return;
+    } catch (IOException e) {
+      logger.warn("Failed to scan remote block cache {}", root, e);
+      return;
+    }
+
+    if (total > maxSize) {
+      long target = maxSize / 10 * 9;
+      files.sort(Comparator.comparingLong(cached -> cached.lastModified));
+      for (CachedBlock cached : files) {
+        if (total <= target) {
+          break;
+        }
+        if (cached.file.delete()) {
+          total -= cached.length;
+        }
+      }
+      // remove the directories of files that have no blocks left
+      Set<File> dirs = new HashSet<>();
+      for (CachedBlock cached : files) {
+        dirs.add(cached.file.getParentFile());
+      }
+      for (File dir : dirs) {
+        String[] left = dir.list();
+        if (left != null && left.length == 0) {
+          dir.delete();
+        }
+      }
+    }
+    estimatedSize.set(total);
+  }
+
+  private static class CachedBlock {
+    final File file;
+    final long length;
+    final long lastModified;
+
+    CachedBlock(File file) {
+      this.file = file;
+      this.length = file.length();
+      this.lastModified = file.lastModified();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "RemoteBlockDiskCache{root=" + root + ", maxSize=" + maxSize + '}';
+  }
+}
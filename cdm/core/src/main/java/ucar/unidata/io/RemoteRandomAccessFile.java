@@ -8,16 +8,45 @@ package ucar.unidata.io;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** An abstract superclass for remote RandomAccessFile */
+/**
+ * An abstract superclass for remote RandomAccessFile.
+ * <p>
+ * Besides the usual sequential reads, {@link #readRanges(List)} reads many ranges of the file at once: nearby ranges
+ * are merged into one remote request, and the requests are made concurrently.
+ * <p>
+ * When the read cache is enabled, a reader whose reads each continue where the last one ended is detected, and the
+ * following cache blocks are read ahead in the background. The readahead starts at one block, and doubles with each
+ * further sequential read, up to 4 MB or a quarter of the cache, so a streaming reader makes a few large requests
+ * while a random reader only reads the blocks it needs. {@link #getReadCacheStats()} reports how well this works.
+ * <p>
+ * The read cache may have a second tier on local disk, shared by all the remote files and by other processes, see
+ * {@link #setDiskCache(RemoteBlockDiskCache)}. It is only used for remote files whose version, eg their ETag, is
+ * known.
+ */
 // not immutable because RandomAccessFile is not immutable.
 public abstract class RemoteRandomAccessFile extends ucar.unidata.io.RandomAccessFile implements ReadableRemoteFile {
   private static final Logger logger = LoggerFactory.getLogger(RemoteRandomAccessFile.class);
@@ -30,12 +59,75 @@ public abstract class RemoteRandomAccessFile extends ucar.unidata.io.RandomAcces
   protected static final int defaultRemoteFileTimeout = 10 * 1000;
   // default cache time to live in milliseconds
   private static final long defaultReadCacheTimeToLive = 30 * 1000;
+  // largest remote request made when merging ranges; longer ranges are split into requests of this size
+  protected static final int maxCoalescedReadSize = 8 * 1024 * 1024;
+  // most remote requests that one readRanges call has in flight
+  protected static final int maxConcurrentRemoteReads = 8;
+  // most bytes read ahead of a sequential reader
+  protected static final int maxReadaheadSize = 4 * 1024 * 1024;
+
+  private static volatile boolean readaheadEnabled = true;
+
+  /** Enable or disable reading ahead of sequential readers, for files opened after this call. Default true. */
+  public static void setReadaheadEnabled(boolean enabled) {
+    readaheadEnabled = enabled;
+  }
+
+  private static volatile RemoteBlockDiskCache diskCache;
+
+  /**
+   * Set the disk tier of the read cache, for remote files opened after this call.
+   *
+   * @param cache the disk cache, or null (the default) to only cache blocks in memory.
+   */
+  public static void setDiskCache(@Nullable RemoteBlockDiskCache cache) {
+    diskCache = cache;
+  }
+
+  @Nullable
+  public static RemoteBlockDiskCache getDiskCache() {
+    return diskCache;
+  }
+
+  private static ExecutorService remoteReadExecutor;
+
+  private static synchronized ExecutorService getRemoteReadExecutor() {
+    if (remoteReadExecutor == null) {
+      remoteReadExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "remote-read");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return remoteReadExecutor;
+  }
 
   protected final String url;
   private final boolean readCacheEnabled;
   private final int readCacheBlockSize;
   private final LoadingCache<Long, byte[]> readCache;
 
+  // readahead, only used by the thread reading the file
+  private final int maxReadaheadBlocks; // 0 if there is no readahead
+  private long lastReadEnd; // the reader is sequential if it continues from here
+  private int readaheadBlocks; // size of the next readahead, 0 while access is random
+  private long readaheadEnd; // first block after those already read ahead
+  // blocks being read ahead, which a reader waits for rather than reading them again
+  private final ConcurrentHashMap<Long, CompletableFuture<Void>> readingAhead = new ConcurrentHashMap<>();
+  // blocks read ahead that have not been used yet
+  private final Set<Long> readAheadUnused = ConcurrentHashMap.newKeySet();
+
+  // disk tier of the read cache
+  private final RemoteBlockDiskCache blockDiskCache; // null if there is none
+  private volatile RemoteBlockDiskCache.FileBlocks diskBlocks; // null if not used for this file
+  private volatile boolean diskBlocksFound;
+
+  private final AtomicLong cacheHits = new AtomicLong();
+  private final AtomicLong diskCacheHits = new AtomicLong();
+  private final AtomicLong cacheMisses = new AtomicLong();
+  private final AtomicLong blocksReadAhead = new AtomicLong();
+  private final AtomicLong blocksReadAheadUsed = new AtomicLong();
+
   protected RemoteRandomAccessFile(String url, int bufferSize, long maxRemoteCacheSize) {
     super(bufferSize);
 
@@ -56,10 +148,16 @@ public abstract class RemoteRandomAccessFile extends ucar.unidata.io.RandomAcces
       long numberOfCacheBlocks = (maxRemoteCacheSize / readCacheBlockSize) + 1;
       this.readCache = initCache(numberOfCacheBlocks, Duration.ofMillis(defaultReadCacheTimeToLive));
       readCacheEnabled = true;
+      // don't read ahead so far that the blocks are evicted before they are used
+      this.maxReadaheadBlocks =
+          readaheadEnabled ? (int) Math.min(maxReadaheadSize / readCacheBlockSize, numberOfCacheBlocks / 4) : 0;
+      this.blockDiskCache = diskCache;
     } else {
       this.readCacheBlockSize = -1;
       readCacheEnabled = false;
       readCache = null;
+      this.maxReadaheadBlocks = 0;
+      this.blockDiskCache = null;
     }
   }
 
@@ -93,7 +191,272 @@ public abstract class RemoteRandomAccessFile extends ucar.unidata.io.RandomAcces
    */
   @Override
   protected int read_(long pos, byte[] buff, int offset, int len) throws IOException {
-    return readCacheEnabled ? readFromCache(pos, buff, offset, len) : readRemote(pos, buff, offset, len);
+    if (!readCacheEnabled) {
+      return readRemote(pos, buff, offset, len);
+    }
+    int n;
+    if (len > 2 * readCacheBlockSize && pos < length()) {
+      // spans several cache blocks: fetch the missing ones together, instead of one at a time
+      n = Math.toIntExact(Math.min(len, length() - pos));
+      byte[] data = readRanges(Collections.singletonList(new ByteRange(pos, n))).get(0);
+      System.arraycopy(data, 0, buff, offset, n);
+    } else {
+      n = readFromCache(pos, buff, offset, len);
+    }
+    if (maxReadaheadBlocks > 0 && n > 0) {
+      readAhead((pos + n - 1) / readCacheBlockSize, pos == lastReadEnd);
+      lastReadEnd = pos + n;
+    }
+    return n;
+  }
+
+  /** A range of bytes in the file, for {@link #readRanges(List)}. */
+  public static final class ByteRange {
+    private final long offset;
+    private final int length;
+
+    /**
+     * @param offset position of the first byte in the file
+     * @param length number of bytes, at least zero
+     */
+    public ByteRange(long offset, int length) {
+      if (offset < 0 || length < 0) {
+        throw new IllegalArgumentException("Invalid byte range: offset = " + offset + " length = " + length);
+      }
+      this.offset = offset;
+      this.length = length;
+    }
+
+    public long getOffset() {
+      return offset;
+    }
+
+    public int getLength() {
+      return length;
+    }
+
+    @Override
+    public String toString() {
+      return offset + ":" + length;
+    }
+  }
+
+  /**
+   * Read several ranges of the file. This does not use or move the file pointer, so it may be used while walking the
+   * file, eg by an IOSP that knows the positions of all the chunks it needs.
+   * <p>
+   * The ranges are sorted, and those separated by less than a buffer are merged into a single remote request of
+   * at most 8 MB; up to 8 requests are then made concurrently. If the read cache is enabled, blocks already in it
+   * are not read again, and the blocks that are read are added to it.
+   *
+   * @param ranges the ranges to read, in any order, and possibly overlapping.
+   * @return the bytes of each range, in the same order as ranges.
+   * @throws EOFException if a range extends past the end of the file
+   * @throws IOException on a read error
+   */
+  public List<byte[]> readRanges(List<ByteRange> ranges) throws IOException {
+    long fileLength = length();
+    List<ByteRange> sorted = new ArrayList<>(ranges);
+    sorted.sort(Comparator.comparingLong(ByteRange::getOffset));
+    for (ByteRange range : sorted) {
+      if (range.offset + range.length > fileLength) {
+        throw new EOFException("Reading " + location + " at " + range + " file length = " + fileLength);
+      }
+    }
+
+    // merge the ranges into runs of contiguous bytes, aligned to the cache blocks so that they can be cached
+    int gap = readCacheEnabled ? readCacheBlockSize : buffer.length;
+    List<Run> runs = new ArrayList<>();
+    Run run = null;
+    for (ByteRange range : sorted) {
+      if (range.length == 0) {
+        continue;
+      }
+      long start = range.offset;
+      long end = range.offset + range.length;
+      if (readCacheEnabled) {
+        start = (start / readCacheBlockSize) * readCacheBlockSize;
+        end = Math.min(fileLength, ((end + readCacheBlockSize - 1) / readCacheBlockSize) * readCacheBlockSize);
+      }
+      // overlapping ranges always share a run, so that each range lies within a single run
+      if (run != null && (start < run.end
+          || (start <= run.end + gap && Math.max(end, run.end) - run.start <= maxCoalescedReadSize))) {
+        run.end = Math.max(end, run.end);
+      } else {
+        run = new Run(start, end);
+        runs.add(run);
+      }
+    }
+
+    // the remote requests, which each fill part of a run
+    List<Request> requests = new ArrayList<>();
+    for (Run r : runs) {
+      r.data = new byte[Math.toIntExact(r.end - r.start)];
+      if (readCacheEnabled) {
+        long missingStart = -1;
+        for (long blockStart = r.start; blockStart < r.end; blockStart += readCacheBlockSize) {
+          byte[] block = readCache.getIfPresent(blockStart / readCacheBlockSize);
+          if (block != null) {
+            cacheHits.incrementAndGet();
+          } else {
+            block = readDiskBlock(blockStart / readCacheBlockSize);
+          }
+          if (block != null) {
+            if (readAheadUnused.remove(blockStart / readCacheBlockSize)) {
+              blocksReadAheadUsed.incrementAndGet();
+            }
+            System.arraycopy(block, 0, r.data, (int) (blockStart - r.start), block.length);
+            if (missingStart >= 0) {
+              addRequests(requests, r, missingStart, blockStart);
+              missingStart = -1;
+            }
+          } else {
+            cacheMisses.incrementAndGet();
+            r.missingBlocks.add(blockStart);
+            if (missingStart < 0) {
+              missingStart = blockStart;
+            }
+          }
+        }
+        if (missingStart >= 0) {
+          addRequests(requests, r, missingStart, r.end);
+        }
+      } else {
+        addRequests(requests, r, r.start, r.end);
+      }
+    }
+    readRequests(requests);
+
+    if (readCacheEnabled) {
+      for (Run r : runs) {
+        for (long blockStart : r.missingBlocks) {
+          int blockLength = (int) Math.min(readCacheBlockSize, r.end - blockStart);
+          byte[] block = new byte[blockLength];
+          System.arraycopy(r.data, (int) (blockStart - r.start), block, 0, blockLength);
+          readCache.put(blockStart / readCacheBlockSize, block);
+          writeDiskBlock(blockStart / readCacheBlockSize, block);
+        }
+      }
+    }
+
+    // copy each range out of its run
+    List<byte[]> result = new ArrayList<>(ranges.size());
+    for (ByteRange range : ranges) {
+      byte[] bytes = new byte[range.length];
+      if (range.length > 0) {
+        Run r = findRun(runs, range.offset);
+        System.arraycopy(r.data, (int) (range.offset - r.start), bytes, 0, range.length);
+      }
+      result.add(bytes);
+    }
+    return result;
+  }
+
+  /** Contiguous bytes of the file that are read together. */
+  private static class Run {
+    final long start;
+    long end;
+    byte[] data;
+    final List<Long> missingBlocks = new ArrayList<>(); // start of the cache blocks that are read
+
+    Run(long start, long end) {
+      this.start = start;
+      this.end = end;
+    }
+  }
+
+  /** One remote request, for part of a run. */
+  private static class Request {
+    final Run run;
+    final long start;
+    final long end;
+
+    Request(Run run, long start, long end) {
+      this.run = run;
+      this.start = start;
+      this.end = end;
+    }
+  }
+
+  private static void addRequests(List<Request> requests, Run run, long start, long end) {
+    for (long pos = start; pos < end; pos += maxCoalescedReadSize) {
+      requests.add(new Request(run, pos, Math.min(end, pos + maxCoalescedReadSize)));
+    }
+  }
+
+  private static Run findRun(List<Run> runs, long pos) {
+    int low = 0;
+    int high = runs.size() - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (runs.get(mid).start <= pos) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return runs.get(low);
+  }
+
+  private void readRequests(List<Request> requests) throws IOException {
+    if (requests.isEmpty()) {
+      return;
+    }
+    if (requests.size() == 1) {
+      readRequest(requests.get(0));
+      return;
+    }
+
+    Deque<Future<?>> pending = new ArrayDeque<>(); // requests in flight
+    try {
+      for (Request request : requests) {
+        while (pending.size() >= maxConcurrentRemoteReads) {
+          await(pending.removeFirst());
+        }
+        pending.addLast(getRemoteReadExecutor().submit(() -> {
+          readRequest(request);
+          return null;
+        }));
+      }
+      while (!pending.isEmpty()) {
+        await(pending.removeFirst());
+      }
+    } finally {
+      for (Future<?> future : pending) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private void readRequest(Request request) throws IOException {
+    int offset = (int) (request.start - request.run.start);
+    int len = (int) (request.end - request.start);
+    int done = 0;
+    while (done < len) {
+      int n = readRemote(request.start + done, request.run.data, offset + done, len - done);
+      if (n <= 0) {
+        throw new EOFException("Reading " + location + " at " + (request.start + done) + " got no bytes");
+      }
+      done += n;
+    }
+  }
+
+  private static void await(Future<?> future) throws IOException {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading remote file", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw new IOException(cause);
+    }
   }
 
   /**
@@ -127,9 +490,7 @@ public abstract class RemoteRandomAccessFile extends ucar.unidata.io.RandomAcces
     if ((totalBytesRead < len) && (firstCacheBlockNumber != lastCacheBlockNumber)) {
       // Now fill the buffer using whole cache blocks, up until the last cache block (as reading from the last cache
       // block might be a partial read).
-      // LOOK: might benefit from concurrency? Need to see how often we end up inside this while statement.
-      // Initial testing shows this only happens for small readCacheBlockSize (which is equal to the read buffer size)
-      // when reading netCDF-4 files, but I think might depend on the specific IOSP in use.
+      // Reads of more than two cache blocks are made concurrently by readRanges(), see read_().
       long currentCacheBlockNumber = firstCacheBlockNumber + 1;
       while (currentCacheBlockNumber < lastCacheBlockNumber) {
         totalBytesRead += readCacheBlockFull(currentCacheBlockNumber, currentOffsetIntoBuffer, buff);
@@ -154,12 +515,7 @@ public abstract class RemoteRandomAccessFile extends ucar.unidata.io.RandomAcces
     long cacheBlockNumber = pos / readCacheBlockSize;
 
     // read in the cache block
-    byte[] src;
-    try {
-      src = readCache.get(cacheBlockNumber);
-    } catch (ExecutionException ee) {
-      throw new IOException("Error obtaining data from the remote data read cache.", ee);
-    }
+    byte[] src = getCacheBlock(cacheBlockNumber);
 
     // Careful - we are doing a partial read from the cache block. The pos in the file is some offset into the cache
     // block, so let's start by calculating the pos of the first block
@@ -212,16 +568,245 @@ public abstract class RemoteRandomAccessFile extends ucar.unidata.io.RandomAcces
   }
 
   private int readCacheBlockFull(long cacheBlockNumber, int positionInBuffer, byte[] buff) throws IOException {
-    byte[] src;
-    try {
-      src = readCache.get(cacheBlockNumber);
-    } catch (ExecutionException ee) {
-      throw new IOException("Error obtaining data from the remote data read cache.", ee);
-    }
+    byte[] src = getCacheBlock(cacheBlockNumber);
     System.arraycopy(src, 0, buff, positionInBuffer, readCacheBlockSize);
     return readCacheBlockSize;
   }
 
+  /** Get a block from the cache, reading it if needed, and read ahead if the reader is sequential. */
+  private byte[] getCacheBlock(long cacheBlockNumber) throws IOException {
+    byte[] block = readCache.getIfPresent(cacheBlockNumber);
+    if (block == null) {
+      CompletableFuture<Void> pending = readingAhead.get(cacheBlockNumber);
+      if (pending != null) {
+        try {
+          pending.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while reading remote file", e);
+        } catch (ExecutionException e) {
+          // read it again below
+        }
+      }
+      // look again, since a readahead may have finished after the first look
+      block = readCache.getIfPresent(cacheBlockNumber);
+      if (block != null) {
+        cacheHits.incrementAndGet();
+      } else {
+        block = readDiskBlock(cacheBlockNumber);
+      }
+    } else {
+      cacheHits.incrementAndGet();
+    }
+
+    if (block != null) {
+      if (readAheadUnused.remove(cacheBlockNumber)) {
+        blocksReadAheadUsed.incrementAndGet();
+      }
+    } else {
+      cacheMisses.incrementAndGet();
+      try {
+        block = readCache.get(cacheBlockNumber);
+      } catch (ExecutionException ee) {
+        throw new IOException("Error obtaining data from the remote data read cache.", ee);
+      }
+    }
+
+    return block;
+  }
+
+  /**
+   * After a read that ended in cacheBlockNumber, start reading the blocks after it if the reader is sequential.
+   * Each sequential read doubles the readahead, and a random one stops it.
+   */
+  private void readAhead(long cacheBlockNumber, boolean sequential) throws IOException {
+    if (!sequential) {
+      readaheadBlocks = 0;
+      readaheadEnd = cacheBlockNumber + 1;
+      return;
+    }
+    readaheadBlocks = Math.min(Math.max(1, 2 * readaheadBlocks), maxReadaheadBlocks);
+
+    long start = Math.max(readaheadEnd, cacheBlockNumber + 1);
+    if (start - (cacheBlockNumber + 1) > readaheadBlocks / 2) {
+      return; // still well ahead of the reader; wait so that the next request is larger
+    }
+    long numberOfBlocks = (length() + readCacheBlockSize - 1) / readCacheBlockSize;
+    long end = Math.min(cacheBlockNumber + 1 + readaheadBlocks, numberOfBlocks);
+    // skip blocks that are still cached; those on disk are read, and counted, only if the reader gets to them
+    while (start < end && (readCache.getIfPresent(start) != null || hasDiskBlock(start))) {
+      start++;
+    }
+    if (start >= end) {
+      return;
+    }
+    readaheadEnd = end;
+
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    for (long block = start; block < end; block++) {
+      readingAhead.put(block, done);
+    }
+    long firstBlock = start;
+    getRemoteReadExecutor().execute(() -> {
+      try {
+        readBlocks(firstBlock, end);
+        done.complete(null);
+      } catch (Throwable t) {
+        logger.debug("Reading ahead in {} failed", location, t);
+        done.completeExceptionally(t);
+      } finally {
+        for (long block = firstBlock; block < end; block++) {
+          readingAhead.remove(block);
+        }
+      }
+    });
+  }
+
+  /** Read the cache blocks [firstBlock, endBlock) with one remote request, and add them to the cache. */
+  private void readBlocks(long firstBlock, long endBlock) throws IOException {
+    long start = firstBlock * readCacheBlockSize;
+    int len = Math.toIntExact(Math.min(endBlock * readCacheBlockSize, length()) - start);
+    byte[] data = new byte[len];
+    int done = 0;
+    while (done < len) {
+      int n = readRemote(start + done, data, done, len - done);
+      if (n <= 0) {
+        throw new EOFException("Reading " + location + " at " + (start + done) + " got no bytes");
+      }
+      done += n;
+    }
+    for (long block = firstBlock; block < endBlock; block++) {
+      int from = (int) ((block - firstBlock) * readCacheBlockSize);
+      byte[] bytes = new byte[Math.min(readCacheBlockSize, len - from)];
+      System.arraycopy(data, from, bytes, 0, bytes.length);
+      // mark the block as read ahead before another reader can find it in the cache
+      readAheadUnused.add(block);
+      blocksReadAhead.incrementAndGet();
+      readCache.put(block, bytes);
+      writeDiskBlock(block, bytes);
+    }
+  }
+
+  @Nullable
+  private RemoteBlockDiskCache.FileBlocks getDiskBlocks() throws IOException {
+    if (blockDiskCache == null) {
+      return null;
+    }
+    if (!diskBlocksFound) {
+      diskBlocks = blockDiskCache.getFileBlocks(url, getRemoteVersion(), length(), readCacheBlockSize);
+      diskBlocksFound = true;
+    }
+    return diskBlocks;
+  }
+
+  /** Read a block from the disk cache, if it is there, and add it to the memory cache. */
+  @Nullable
+  private byte[] readDiskBlock(long cacheBlockNumber) throws IOException {
+    RemoteBlockDiskCache.FileBlocks blocks = getDiskBlocks();
+    if (blocks == null) {
+      return null;
+    }
+    byte[] block = blocks.get(cacheBlockNumber, blockLength(cacheBlockNumber));
+    if (block != null) {
+      diskCacheHits.incrementAndGet();
+      readCache.put(cacheBlockNumber, block);
+    }
+    return block;
+  }
+
+  private boolean hasDiskBlock(long cacheBlockNumber) throws IOException {
+    RemoteBlockDiskCache.FileBlocks blocks = getDiskBlocks();
+    return blocks != null && blocks.contains(cacheBlockNumber, blockLength(cacheBlockNumber));
+  }
+
+  private int blockLength(long cacheBlockNumber) throws IOException {
+    return (int) Math.min(readCacheBlockSize, length() - cacheBlockNumber * readCacheBlockSize);
+  }
+
+  private void writeDiskBlock(long cacheBlockNumber, byte[] block) throws IOException {
+    RemoteBlockDiskCache.FileBlocks blocks = getDiskBlocks();
+    if (blocks != null) {
+      blocks.put(cacheBlockNumber, block);
+    }
+  }
+
+  /**
+   * An identifier of the current contents of the remote file, such as its ETag, used to check that blocks in the disk
+   * cache are still valid.
+   *
+   * @return the identifier, or null if not known, in which case the disk cache is not used for this file.
+   */
+  @Nullable
+  protected String getRemoteVersion() {
+    return null;
+  }
+
+  /** How well the read cache of a RemoteRandomAccessFile has served its reads. */
+  public static final class ReadCacheStats {
+    private final long hits;
+    private final long diskHits;
+    private final long misses;
+    private final long readAhead;
+    private final long readAheadUsed;
+
+    ReadCacheStats(long hits, long diskHits, long misses, long readAhead, long readAheadUsed) {
+      this.hits = hits;
+      this.diskHits = diskHits;
+      this.misses = misses;
+      this.readAhead = readAhead;
+      this.readAheadUsed = readAheadUsed;
+    }
+
+    /** Number of cache blocks that were needed and found in memory, including those read ahead. */
+    public long getHits() {
+      return hits;
+    }
+
+    /** Number of cache blocks that were needed and found in the disk cache. */
+    public long getDiskHits() {
+      return diskHits;
+    }
+
+    /** Number of cache blocks that were needed and had to be read from the remote file. */
+    public long getMisses() {
+      return misses;
+    }
+
+    /** Number of cache blocks read ahead. */
+    public long getReadAhead() {
+      return readAhead;
+    }
+
+    /** Number of cache blocks read ahead that were then needed. */
+    public long getReadAheadUsed() {
+      return readAheadUsed;
+    }
+
+    /** Fraction of the needed blocks that were found in memory or on disk, or 0 if none were needed. */
+    public double hitRate() {
+      long total = hits + diskHits + misses;
+      return total == 0 ? 0 : (double) (hits + diskHits) / total;
+    }
+
+    /** Fraction of the blocks read ahead that have not been needed (so far), or 0 if none were read ahead. */
+    public double readAheadWaste() {
+      return readAhead == 0 ? 0 : (double) (readAhead - readAheadUsed) / readAhead;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "hits=%d diskHits=%d misses=%d hitRate=%.3f readAhead=%d readAheadUsed=%d readAheadWaste=%.3f", hits,
+          diskHits, misses, hitRate(), readAhead, readAheadUsed, readAheadWaste());
+    }
+  }
+
+  /** Get the counts of blocks found in and read into the read cache, since this file was opened. */
+  public ReadCacheStats getReadCacheStats() {
+    return new ReadCacheStats(cacheHits.get(), diskCacheHits.get(), cacheMisses.get(), blocksReadAhead.get(),
+        blocksReadAheadUsed.get());
+  }
+
   /**
    * read a readCacheBlockSize chunk of the remote file
    */
@@ -234,6 +819,7 @@ public abstract class RemoteRandomAccessFile extends ucar.unidata.io.RandomAcces
     byte[] buffer = new byte[bytes];
 
     readRemote(position, buffer, 0, bytes);
+    writeDiskBlock(cacheBlockNumber, buffer);
     return buffer;
   }
 
@@ -250,13 +836,26 @@ public abstract class RemoteRandomAccessFile extends ucar.unidata.io.RandomAcces
 
   @Override
   public void close() throws IOException {
+    // let any readahead finish before the remote resources are closed
+    for (CompletableFuture<Void> pending : readingAhead.values()) {
+      try {
+        pending.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (ExecutionException e) {
+        // only reading ahead
+      }
+    }
     closeRemote();
     super.close();
     // clean out the cache when closing the Remote Random Access File
     if (readCache != null) {
       readCache.invalidateAll();
+      readAheadUnused.clear();
       if (debugAccess) {
         logger.info(readCache.stats().toString());
+        logger.info("{} read cache: {}", location, getReadCacheStats());
       }
     }
   }
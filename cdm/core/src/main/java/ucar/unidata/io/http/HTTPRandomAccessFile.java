@@ -46,6 +46,7 @@ public final class HTTPRandomAccessFile extends RemoteRandomAccessFile {
 
   private HTTPSession session;
   private long total_length;
+  private String version; // ETag or Last-Modified, may be null
 
   public HTTPRandomAccessFile(String url) throws IOException {
     this(url, httpBufferSize, httpMaxCacheSize);
@@ -78,6 +79,9 @@ public final class HTTPRandomAccessFile extends RemoteRandomAccessFile {
         }
       }
 
+      this.version = method.getResponseHeaderValue("ETag")
+          .orElse(method.getResponseHeaderValue("Last-Modified").orElse(null));
+
       try {
         this.total_length = method.getResponseHeaderValue("Content-Length").map(Long::parseLong)
             .orElseThrow(() -> new IOException("Server does not support Content-Length"));
@@ -229,6 +233,12 @@ public final class HTTPRandomAccessFile extends RemoteRandomAccessFile {
     return 0;
   }
 
+  /** The ETag of the remote file, or else its Last-Modified header, as returned by the server. */
+  @Override
+  protected String getRemoteVersion() {
+    return version;
+  }
+
   /**
    * Hook into service provider interface for RandomAccessFileProvider.
    */
@@ -16,6 +16,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
 
 public class TestFilters {
 
@@ -98,6 +99,64 @@ public class TestFilters {
     assertThat(decoded).isEqualTo(input);
   }
 
+  @Test
+  public void testBlosc() throws IOException {
+    String[] cnames = {"blosclz", "lz4", "lz4hc", "zlib"};
+    int[] codes = {0, 1, 1, 3}; // as recorded in the frame header
+    for (int i = 0; i < cnames.length; i++) {
+      for (int shuffle : new int[] {0, 1, 2}) {
+        Filter filter = new Blosc(bloscProps(cnames[i], shuffle));
+        byte[] encoded = filter.encode(decoded_data);
+        assertThat((encoded[2] & 0xe0) >> 5).isEqualTo(codes[i]);
+        assertThat(encoded.length).isLessThan(decoded_data.length);
+        assertThat(filter.decode(encoded)).isEqualTo(decoded_data);
+      }
+    }
+  }
+
+  @Test
+  public void testBloscEncodeUnsupported() {
+    for (String cname : new String[] {"zstd", "snappy"}) {
+      Filter filter = new Blosc(bloscProps(cname, 1));
+      assertThrows(IOException.class, () -> filter.encode(decoded_data));
+    }
+  }
+
+  @Test
+  public void testBloscZstd() throws IOException {
+    // raw_data compressed in the c-blosc layout: zstd, byte shuffled, 3 blocks of 65536 bytes, not split
+    byte[] encoded = readAsByteArray("blosc_zstd");
+    assertThat((encoded[2] & 0xe0) >> 5).isEqualTo(4);
+    Filter filter = new Blosc(new HashMap<>());
+    assertThat(filter.decode(encoded)).isEqualTo(decoded_data);
+  }
+
+  private static Map<String, Object> bloscProps(String cname, int shuffle) {
+    Map<String, Object> props = new HashMap<>();
+    props.put("id", "blosc");
+    props.put("cname", cname);
+    props.put("clevel", 5);
+    props.put("shuffle", shuffle);
+    props.put("blocksize", 16000); // multiple blocks with a leftover block
+    props.put(Filters.Keys.ELEM_SIZE, 4);
+    return props;
+  }
+
+  @Test
+  public void testBloscDecode() throws IOException {
+    Filter filter = new Blosc(new HashMap<>());
+    // a frame with one blosclz block: literals "abc", then a match of length 5 at distance 3, then literal "z"
+    byte[] frame = {2, 1, 0x10, 1, 9, 0, 0, 0, 9, 0, 0, 0, 32, 0, 0, 0, // header
+        20, 0, 0, 0, // block start
+        8, 0, 0, 0, // compressed size
+        2, 'a', 'b', 'c', 3 << 5, 2, 0, 'z'};
+    assertThat(new String(filter.decode(frame), StandardCharsets.UTF_8)).isEqualTo("abcabcabz");
+
+    // an uncompressed (memcpyed) frame
+    byte[] memcpyed = {2, 1, 0x12, 1, 3, 0, 0, 0, 3, 0, 0, 0, 19, 0, 0, 0, 'x', 'y', 'z'};
+    assertThat(new String(filter.decode(memcpyed), StandardCharsets.UTF_8)).isEqualTo("xyz");
+  }
+
   private void testEncodeDecode(Filter filter, String filename) throws IOException {
     // test encode
     byte[] out = filter.encode(decoded_data);
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.internal.iosp.netcdf3;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.IndexIterator;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Structure;
+import ucar.nc2.Variable;
+import ucar.nc2.iosp.IospHelper;
+import ucar.nc2.iosp.LayoutRegularSegmented;
+import ucar.nc2.write.NetcdfFormatWriter;
+import ucar.unidata.io.MappedRandomAccessFile;
+import ucar.unidata.io.RandomAccessFile;
+
+/**
+ * Test N3RecordReader reads the same data as reading one record at a time with LayoutRegularSegmented,
+ * and NetcdfFile.readRecords() the same data as Variable.read()
+ */
+public class TestN3RecordReader {
+  private static final int NRECS = 300;
+  private static final String[] VARS = {"b", "s", "i", "f", "d", "c", "big"};
+  private static final String[] SECTIONS = {null, "0:299:7,:,:", "10:250,1:2,0:3:2", "299,:,:", "5:5,2,3"};
+
+  @ClassRule
+  public static final TemporaryFolder tempFolder = new TemporaryFolder();
+  private static String filename;
+
+  @BeforeClass
+  public static void writeFile() throws IOException, InvalidRangeException {
+    filename = tempFolder.newFile("records.nc").getPath();
+    NetcdfFormatWriter.Builder writerb = NetcdfFormatWriter.createNewNetcdf3(filename).setFill(false);
+    writerb.addUnlimitedDimension("time");
+    writerb.addDimension("y", 3);
+    writerb.addDimension("x", 4);
+    writerb.addDimension("n", 70000);
+    writerb.addVariable("b", DataType.BYTE, "time y x");
+    writerb.addVariable("s", DataType.SHORT, "time y x");
+    writerb.addVariable("i", DataType.INT, "time y x");
+    writerb.addVariable("f", DataType.FLOAT, "time y x");
+    writerb.addVariable("d", DataType.DOUBLE, "time y x");
+    writerb.addVariable("c", DataType.CHAR, "time y x");
+    writerb.addVariable("big", DataType.INT, "time n"); // makes the gaps between records larger than MAX_GAP
+
+    try (NetcdfFormatWriter writer = writerb.build()) {
+      for (String name : VARS) {
+        Variable v = writer.findVariable(name);
+        int[] shape = v.getShape();
+        shape[0] = NRECS;
+        Array data = Array.factory(v.getDataType(), shape);
+        IndexIterator ii = data.getIndexIterator();
+        int count = 0;
+        while (ii.hasNext()) {
+          ii.setIntNext(v.getDataType() == DataType.CHAR ? 'a' + count % 26 : count % 1000);
+          count++;
+        }
+        writer.write(v, data);
+      }
+    }
+  }
+
+  @Test
+  public void testSameAsSegmentedLayout() throws Exception {
+    try (NetcdfFile ncfile = NetcdfFiles.open(filename)) {
+      checkSame(ncfile);
+    }
+  }
+
+  @Test
+  public void testSameWithRecordCache() throws Exception {
+    try (NetcdfFile ncfile = NetcdfFiles.open(filename)) {
+      assertThat(ncfile.sendIospMessage(new N3iospNew.RecordCache(1024 * 1024))).isEqualTo(Boolean.TRUE);
+      checkSame(ncfile);
+      // read again from the cache
+      checkSame(ncfile);
+    }
+  }
+
+  @Test
+  public void testSameWhenMapped() throws Exception {
+    try (NetcdfFile ncfile = NetcdfFiles.open(MappedRandomAccessFile.PREFIX + filename)) {
+      checkSame(ncfile);
+    }
+  }
+
+  @Test
+  public void testRecordCacheReadsRecordsOnce() throws Exception {
+    try (NetcdfFile ncfile = NetcdfFiles.open(filename)) {
+      ncfile.sendIospMessage(new N3iospNew.RecordCache(64 * 1024 * 1024));
+      N3iospNew iosp = (N3iospNew) ncfile.getIosp();
+      Section section = new Section("0:9,:,:");
+
+      RandomAccessFile.setDebugAccess(true);
+      try {
+        ncfile.findVariable("f").read(section);
+        int nseeks = RandomAccessFile.getDebugNseeks();
+        ncfile.findVariable("d").read(section);
+        ncfile.findVariable("i").read(section);
+        assertThat(RandomAccessFile.getDebugNseeks()).isEqualTo(nseeks);
+      } finally {
+        RandomAccessFile.setDebugAccess(false);
+      }
+      assertThat(iosp.recordReader.getRecordCacheSize()).isEqualTo(64 * 1024 * 1024);
+    }
+  }
+
+  @Test
+  public void testReadRecordsSameAsRead() throws Exception {
+    try (NetcdfFile ncfile = NetcdfFiles.open(filename)) {
+      List<Variable> vars = new ArrayList<>();
+      for (String name : VARS)
+        vars.add(ncfile.findVariable(name));
+      vars.add(ncfile.findVariable("f")); // twice
+
+      for (String spec : new String[] {"0:299", "17:200:9", "299", ":"}) {
+        List<Array> got = ncfile.readRecords(vars, new Section(spec));
+        assertThat(got).hasSize(vars.size());
+        for (int k = 0; k < vars.size(); k++) {
+          Variable v = vars.get(k);
+          Array want = v.read(IospHelper.makeRecordSection(v.getShape(), new Section(spec)));
+          assertWithMessage(v.getShortName() + " " + spec).that(got.get(k).getShape()).isEqualTo(want.getShape());
+          assertWithMessage(v.getShortName() + " " + spec).that(got.get(k).getStorage()).isEqualTo(want.getStorage());
+        }
+      }
+
+      List<Array> all = ncfile.readRecords(vars, null);
+      assertThat(all.get(0).getShape()).isEqualTo(new int[] {NRECS, 3, 4});
+    }
+  }
+
+  @Test
+  public void testReadRecordStructureMembers() throws Exception {
+    try (NetcdfFile ncfile = NetcdfFiles.open(filename, -1, null, NetcdfFile.IOSP_MESSAGE_ADD_RECORD_STRUCTURE)) {
+      Structure record = (Structure) ncfile.findVariable("record");
+      assertThat(record).isNotNull();
+      List<Variable> members = new ArrayList<>();
+      members.add(record.findVariable("d"));
+      members.add(record.findVariable("c"));
+      members.add(ncfile.findVariable("s")); // not a member
+
+      Section records = new Section("3:40:3");
+      List<Array> got = ncfile.readRecords(members, records);
+      for (int k = 0; k < members.size(); k++) {
+        Variable v = ncfile.findVariable(members.get(k).getShortName());
+        Array want = v.read(IospHelper.makeRecordSection(v.getShape(), records));
+        assertWithMessage(v.getShortName()).that(got.get(k).getShape()).isEqualTo(want.getShape());
+        assertWithMessage(v.getShortName()).that(got.get(k).getStorage()).isEqualTo(want.getStorage());
+      }
+    }
+  }
+
+  @Test(expected = InvalidRangeException.class)
+  public void testRecordSectionTooLarge() throws InvalidRangeException {
+    IospHelper.makeRecordSection(new int[] {10}, new Section("0:9,1"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeCacheSize() {
+    new N3iospNew.RecordCache(-1);
+  }
+
+  private static void checkSame(NetcdfFile ncfile) throws Exception {
+    N3iospNew iosp = (N3iospNew) ncfile.getIosp();
+    try (RandomAccessFile raf = RandomAccessFile.acquire(filename)) {
+      raf.order(RandomAccessFile.BIG_ENDIAN);
+      for (String name : VARS) {
+        Variable v = ncfile.findVariable(name);
+        for (String spec : SECTIONS) {
+          Section section = spec == null ? v.getShapeAsSection() : wantSection(v, spec);
+          Array got = v.read(section);
+
+          N3headerNew.Vinfo vinfo = (N3headerNew.Vinfo) v.getSPobject();
+          LayoutRegularSegmented layout = new LayoutRegularSegmented(vinfo.begin, v.getElementSize(),
+              iosp.header.recsize, v.getShape(), section);
+          Object want = IospHelper.readDataFill(raf, layout, v.getDataType(), null, -1);
+
+          assertWithMessage(name + " " + spec).that(got.getShape()).isEqualTo(section.getShape());
+          assertWithMessage(name + " " + spec).that(got.getStorage()).isEqualTo(want);
+        }
+      }
+    }
+  }
+
+  // the "big" variable has a different inner shape
+  private static Section wantSection(Variable v, String spec) throws InvalidRangeException {
+    if (v.getRank() == 3)
+      return Section.fill(new Section(spec), v.getShape());
+    String time = spec.substring(0, spec.indexOf(','));
+    return Section.fill(new Section(time + ",100:69000:1000"), v.getShape());
+  }
+}
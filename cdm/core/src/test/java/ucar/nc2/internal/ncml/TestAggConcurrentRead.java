@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.internal.ncml;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.ncml.TestNcmlRead;
+import ucar.unidata.util.test.TestDir;
+
+/** Test sections of outer dimension aggregations read on the executor are the same as read serially */
+public class TestAggConcurrentRead {
+  private static final String[] FILES = {"aggExisting.xml", "aggSynthetic.xml"};
+
+  private ExecutorService pool;
+
+  @After
+  public void resetExecutor() {
+    Variable.permitCaching = true;
+    Aggregation.setExecutor(null);
+    Aggregation.setMaxConcurrentReads(4);
+    if (pool != null)
+      pool.shutdownNow();
+  }
+
+  @Test
+  public void testSameAsSerial() throws IOException, InvalidRangeException {
+    pool = Executors.newFixedThreadPool(3);
+    // small variables, eg T in aggSynthetic.xml, are otherwise read whole and sectioned in memory
+    Variable.permitCaching = false;
+    for (String name : FILES) {
+      String filename = "file:./" + TestNcmlRead.topDir + name;
+      Map<String, Array> want = new LinkedHashMap<>();
+      try (NetcdfFile ncfile = NcmlReader.readNcml(filename, null, null).build()) {
+        for (Map.Entry<String, Section> entry : makeSections(ncfile).entrySet())
+          want.put(entry.getKey(), ncfile.findVariable(entry.getKey().split(" ")[0]).read(entry.getValue()));
+      }
+      assertThat(want).isNotEmpty();
+
+      Aggregation.setExecutor(pool);
+      Aggregation.setMaxConcurrentReads(2);
+      try (NetcdfFile ncfile = NcmlReader.readNcml(filename, null, null).build()) {
+        for (Map.Entry<String, Section> entry : makeSections(ncfile).entrySet()) {
+          Array got = ncfile.findVariable(entry.getKey().split(" ")[0]).read(entry.getValue());
+          Array expected = want.get(entry.getKey());
+          String msg = name + " " + entry.getKey();
+          assertWithMessage(msg).that(got.getShape()).isEqualTo(expected.getShape());
+          assertWithMessage(msg).that(got.get1DJavaArray(DataType.DOUBLE))
+              .isEqualTo(expected.get1DJavaArray(DataType.DOUBLE));
+        }
+      } finally {
+        Aggregation.setExecutor(null);
+      }
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testNestedOnSingleThread() throws IOException, InvalidRangeException {
+    // a joinNew of a joinExisting: the nested aggregation is read by a task that holds the only thread
+    String filename = "file:./" + TestDir.cdmLocalTestDataDir + "testNested.ncml";
+    Variable.permitCaching = false;
+    Array want;
+    try (NetcdfFile ncfile = NcmlReader.readNcml(filename, null, null).build()) {
+      want = ncfile.findVariable("T").read(new Section("0,1:50,:,:"));
+    }
+
+    pool = Executors.newFixedThreadPool(1);
+    Aggregation.setExecutor(pool);
+    try (NetcdfFile ncfile = NcmlReader.readNcml(filename, null, null).build()) {
+      Array got = ncfile.findVariable("T").read(new Section("0,1:50,:,:"));
+      assertThat(got.getShape()).isEqualTo(want.getShape());
+      assertThat(got.get1DJavaArray(DataType.DOUBLE)).isEqualTo(want.get1DJavaArray(DataType.DOUBLE));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadMaxConcurrentReads() {
+    Aggregation.setMaxConcurrentReads(0);
+  }
+
+  // sections of the numeric variables that use the aggregation dimension, keyed by "name section"
+  private static Map<String, Section> makeSections(NetcdfFile ncfile) throws InvalidRangeException {
+    Map<String, Section> result = new LinkedHashMap<>();
+    for (Variable v : ncfile.getVariables()) {
+      if (v.getRank() < 2 || !v.getDataType().isNumeric() || !v.getDimension(0).getShortName().equals("time"))
+        continue;
+      int n = v.getShape(0);
+      List<Range> joins = new ArrayList<>();
+      joins.add(new Range(0, n - 1, 2));
+      joins.add(new Range(1, n - 2));
+      joins.add(new Range(n - 2, n - 1));
+      for (Range join : joins) {
+        Section.Builder sb = Section.builder().appendRange(join);
+        for (int d = 1; d < v.getRank(); d++)
+          sb.appendRange(0, v.getShape(d) - 1, d);
+        Section section = sb.build();
+        result.put(v.getFullNameEscaped() + " " + section, section);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.internal.ncml;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.DataType;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.ncml.TestNcmlRead;
+import ucar.nc2.util.DiskCache2;
+
+/** Test that a joinExisting aggregation uses its persisted index when reopened, and when a file is added. */
+public class TestAggExistingPersist {
+  @Rule
+  public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private File dataDir;
+  private String location;
+  private File indexFile;
+
+  @Before
+  public void setup() throws IOException {
+    dataDir = tempFolder.newFolder("data");
+    // named so that the scan sorts them in time order, and the first is the typical dataset
+    copy("jan.nc", "time1.nc");
+    copy("feb.nc", "time2.nc");
+    location = new File(tempFolder.getRoot(), "aggExistingPersist.ncml").getAbsolutePath();
+
+    DiskCache2 cache = new DiskCache2(tempFolder.newFolder("cache").getAbsolutePath(), false, 0, 0);
+    Aggregation.setPersistenceCache(cache);
+    indexFile = cache.getCacheFile(location + AggregationIndex.SUFFIX);
+  }
+
+  @After
+  public void cleanup() {
+    Aggregation.setPersistenceCache(null);
+  }
+
+  @Test
+  public void testIndexIsUsed() throws IOException {
+    AggregationExisting.countCacheUse = 0;
+    double[] time = readTime(59);
+    assertThat(AggregationExisting.countCacheUse).isEqualTo(0);
+    assertThat(indexFile.exists()).isTrue();
+    assertThat(AggregationIndex.read(indexFile).size()).isEqualTo(2);
+
+    // spoil the second file without changing its size or date, so that it can't be reopened
+    spoil(new File(dataDir, "time2.nc"));
+
+    AggregationExisting.countCacheUse = 0;
+    assertThat(readTime(59)).isEqualTo(time);
+    assertThat(AggregationExisting.countCacheUse).isGreaterThan(0);
+  }
+
+  @Test
+  public void testFileAdded() throws IOException {
+    double[] time = readTime(59);
+    byte[] index = Files.readAllBytes(indexFile.toPath());
+
+    copy("feb.nc", "time3.nc");
+    spoil(new File(dataDir, "time2.nc"));
+
+    AggregationExisting.countCacheUse = 0;
+    double[] added = readTime(87);
+    assertThat(AggregationExisting.countCacheUse).isGreaterThan(0);
+    assertThat(Arrays.copyOf(added, 59)).isEqualTo(time);
+    assertThat(Arrays.copyOfRange(added, 59, 87)).isEqualTo(Arrays.copyOfRange(time, 31, 59));
+
+    // one record was appended to the index
+    byte[] appended = Files.readAllBytes(indexFile.toPath());
+    assertThat(appended.length).isGreaterThan(index.length);
+    assertThat(appended.length).isLessThan(2 * index.length);
+    assertThat(Arrays.copyOf(appended, index.length)).isEqualTo(index);
+    assertThat(AggregationIndex.read(indexFile).size()).isEqualTo(3);
+  }
+
+  private double[] readTime(int ntimes) throws IOException {
+    String ncml = "<?xml version='1.0' encoding='UTF-8'?>\n" // leavit
+        + "<netcdf xmlns='http://www.unidata.ucar.edu/namespaces/netcdf/ncml-2.2'>\n" // leavit
+        + "  <aggregation dimName='time' type='joinExisting'>\n" // leavit
+        + "    <scan location='" + dataDir.getAbsolutePath() + "/' suffix='.nc' subdirs='false'/>\n" // leavit
+        + "  </aggregation>\n" // leavit
+        + "</netcdf>"; // leavit
+
+    try (NetcdfFile ncfile = NcmlReader.readNcml(new StringReader(ncml), location, null).build()) {
+      Variable time = ncfile.findVariable("time");
+      assertThat(time).isNotNull();
+      assertThat(time.getSize()).isEqualTo(ntimes);
+      return (double[]) time.read().get1DJavaArray(DataType.DOUBLE);
+    }
+  }
+
+  private void copy(String from, String to) throws IOException {
+    Files.copy(new File(TestNcmlRead.topDir + "nc/" + from).toPath(), new File(dataDir, to).toPath());
+  }
+
+  private static void spoil(File file) throws IOException {
+    long lastModified = file.lastModified();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.write(new byte[4]); // not a netCDF file any more
+    }
+    assertThat(file.setLastModified(lastModified)).isTrue();
+  }
+}
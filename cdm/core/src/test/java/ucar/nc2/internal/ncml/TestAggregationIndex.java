@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.internal.ncml;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+
+/** Test AggregationIndex saves and restores its entries, and appends changes */
+public class TestAggregationIndex {
+  @Rule
+  public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    File file = new File(tempFolder.getRoot(), "agg.xml" + AggregationIndex.SUFFIX);
+    AggregationIndex index = AggregationIndex.read(file);
+    assertThat(index.size()).isEqualTo(0);
+    for (int i = 0; i < 10; i++)
+      index.put("file" + i, makeEntry(i));
+    index.write(file);
+    assertThat(index.isDirty()).isFalse();
+
+    AggregationIndex read = AggregationIndex.read(file);
+    assertThat(read.size()).isEqualTo(10);
+    assertThat(read.isDirty()).isFalse();
+    AggregationIndex.Entry entry = read.find("file3", 3000, 3);
+    assertThat(entry.ncoord).isEqualTo(4);
+    assertThat(entry.cached.get("time").get1DJavaArray(DataType.DOUBLE)).isEqualTo(new double[] {3, 3.5, 4, 4.5});
+    assertThat(entry.cached.get("time").getDataType()).isEqualTo(DataType.DOUBLE);
+    assertThat(entry.cached.get("label").getObject(0)).isEqualTo("run3");
+    assertThat(entry.cached.get("count").getDataType()).isEqualTo(DataType.SHORT);
+
+    // the file changed
+    assertThat(read.find("file3", 3001, 3)).isNull();
+    assertThat(read.find("file3", 3000, 4)).isNull();
+    assertThat(read.find("file10", 10000, 10)).isNull();
+  }
+
+  @Test
+  public void testAppendChanges() throws IOException {
+    File file = new File(tempFolder.getRoot(), "agg.xml" + AggregationIndex.SUFFIX);
+    AggregationIndex index = AggregationIndex.read(file);
+    List<String> paths = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      index.put("file" + i, makeEntry(i));
+      paths.add("file" + i);
+    }
+    index.write(file);
+    long length = file.length();
+
+    // nothing changed
+    index = AggregationIndex.read(file);
+    for (int i = 0; i < 100; i++)
+      index.put("file" + i, makeEntry(i));
+    index.retainAll(paths);
+    assertThat(index.isDirty()).isFalse();
+
+    // a file appears, one disappears
+    index.put("file100", makeEntry(100));
+    paths.add("file100");
+    paths.remove("file0");
+    index.retainAll(paths);
+    index.write(file);
+    assertThat(file.length()).isGreaterThan(length);
+    assertThat(file.length()).isLessThan(length + 200); // appended, not rewritten
+
+    AggregationIndex read = AggregationIndex.read(file);
+    assertThat(read.size()).isEqualTo(100);
+    assertThat(read.find("file0", 0, 0)).isNull();
+    assertThat(read.find("file100", 100000, 100)).isNotNull();
+  }
+
+  @Test
+  public void testTruncated() throws IOException {
+    File file = new File(tempFolder.getRoot(), "agg.xml" + AggregationIndex.SUFFIX);
+    AggregationIndex index = AggregationIndex.read(file);
+    for (int i = 0; i < 5; i++)
+      index.put("file" + i, makeEntry(i));
+    index.write(file);
+
+    // as if the last record was partly written
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(raf.length() - 3);
+    }
+    AggregationIndex read = AggregationIndex.read(file);
+    assertThat(read.size()).isEqualTo(4);
+    assertThat(read.isDirty()).isTrue();
+    read.write(file);
+    assertThat(AggregationIndex.read(file).size()).isEqualTo(4);
+
+    // not an index at all
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(0);
+      raf.writeInt(1234);
+    }
+    assertThat(AggregationIndex.read(file).size()).isEqualTo(0);
+  }
+
+  private static AggregationIndex.Entry makeEntry(int i) {
+    Map<String, Array> cached = new LinkedHashMap<>();
+    cached.put("time", Array.makeArray(DataType.DOUBLE, 4, i, 0.5));
+    Array label = Array.factory(DataType.STRING, new int[] {1});
+    label.setObject(0, "run" + i);
+    cached.put("label", label);
+    cached.put("count", Array.makeArray(DataType.SHORT, 2, i, 1));
+    return new AggregationIndex.Entry(1000L * i, i, 4, cached);
+  }
+}
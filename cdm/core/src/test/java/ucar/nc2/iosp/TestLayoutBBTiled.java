@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Test;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+
+/** Compare serial and parallel chunk decoding in LayoutBBTiled. */
+public class TestLayoutBBTiled {
+  private static final int[] shape = {10, 12};
+  private static final int[] chunkSize = {4, 5};
+
+  private static int value(int row, int col) {
+    return row * 100 + col;
+  }
+
+  // chunks that "decode" by computing their values, as a filter would
+  private static class TestChunk implements LayoutBBTiled.DecodableDataChunk {
+    final int[] offset;
+    final boolean fail;
+
+    TestChunk(int[] offset) {
+      this(offset, false);
+    }
+
+    TestChunk(int[] offset, boolean fail) {
+      this.offset = offset;
+      this.fail = fail;
+    }
+
+    @Override
+    public int[] getOffset() {
+      return offset;
+    }
+
+    @Override
+    public byte[] readRaw() {
+      return new byte[] {(byte) offset[0], (byte) offset[1]};
+    }
+
+    @Override
+    public ByteBuffer decode(byte[] raw) throws IOException {
+      if (fail) {
+        throw new IOException("bad chunk");
+      }
+      ByteBuffer bb = ByteBuffer.allocate(chunkSize[0] * chunkSize[1] * 4);
+      for (int i = 0; i < chunkSize[0]; i++) {
+        for (int j = 0; j < chunkSize[1]; j++) {
+          bb.putInt(value(raw[0] + i, raw[1] + j));
+        }
+      }
+      bb.flip();
+      return bb;
+    }
+  }
+
+  private static LayoutBBTiled.DataChunkIterator makeChunks() {
+    List<LayoutBBTiled.DataChunk> chunks = new ArrayList<>();
+    for (int row = 0; row < shape[0]; row += chunkSize[0]) {
+      for (int col = 0; col < shape[1]; col += chunkSize[1]) {
+        chunks.add(new TestChunk(new int[] {row, col}));
+      }
+    }
+    Iterator<LayoutBBTiled.DataChunk> iter = chunks.iterator();
+    return new LayoutBBTiled.DataChunkIterator() {
+      public boolean hasNext() {
+        return iter.hasNext();
+      }
+
+      public LayoutBBTiled.DataChunk next() {
+        return iter.next();
+      }
+    };
+  }
+
+  private static int[] read(Section want, int parallelism) {
+    LayoutBB layout =
+        new LayoutBBTiled(makeChunks(), chunkSize, 4, want, ChunkDecodeParallelism.of(parallelism));
+    return (int[]) IospHelper.readDataFill(layout, DataType.INT, -1);
+  }
+
+  @Test
+  public void testParallelMatchesSerial() throws InvalidRangeException {
+    for (String spec : new String[] {"0:9,0:11", "3:7,2:10", "5,0:11", "0:9,6", "1:8:3,0:11:2"}) {
+      Section want = new Section(spec);
+      int[] serial = read(want, 1);
+      for (int parallelism : new int[] {2, 4, 16}) {
+        assertThat(read(want, parallelism)).isEqualTo(serial);
+      }
+
+      // check the values themselves
+      int count = 0;
+      for (int row : want.getRange(0)) {
+        for (int col : want.getRange(1)) {
+          assertThat(serial[count++]).isEqualTo(value(row, col));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDecodeFailure() throws InvalidRangeException {
+    for (int parallelism : new int[] {1, 4}) {
+      LayoutBBTiled.DataChunkIterator bad = new LayoutBBTiled.DataChunkIterator() {
+        boolean done;
+
+        public boolean hasNext() {
+          return !done;
+        }
+
+        public LayoutBBTiled.DataChunk next() {
+          done = true;
+          return new TestChunk(new int[] {0, 0}, true);
+        }
+      };
+      LayoutBB layout = new LayoutBBTiled(bad, chunkSize, 4, new Section("0:2,0:2"),
+          ChunkDecodeParallelism.of(parallelism));
+      IllegalStateException e = assertThrows(IllegalStateException.class, layout::hasNext);
+      assertThat(e).hasCauseThat().hasMessageThat().isEqualTo("bad chunk");
+    }
+  }
+
+  @Test
+  public void testIteratorFailure() throws InvalidRangeException {
+    for (int parallelism : new int[] {1, 4}) {
+      LayoutBBTiled.DataChunkIterator bad = new LayoutBBTiled.DataChunkIterator() {
+        public boolean hasNext() {
+          return true;
+        }
+
+        public LayoutBBTiled.DataChunk next() throws IOException {
+          throw new IOException("bad index");
+        }
+      };
+      LayoutBB layout = new LayoutBBTiled(bad, chunkSize, 4, new Section("0:2,0:2"),
+          ChunkDecodeParallelism.of(parallelism));
+      IllegalStateException e = assertThrows(IllegalStateException.class, layout::hasNext);
+      assertThat(e).hasCauseThat().hasMessageThat().isEqualTo("bad index");
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Random;
+import org.junit.Test;
+import ucar.ma2.ArrayDouble;
+
+/** Test CurvilinearGridIndex finds the same cells as testing every cell */
+public class TestCurvilinearGridIndex {
+  private static final int NROWS = 60;
+  private static final int NCOLS = 90;
+
+  private final ArrayDouble.D2 latEdge = new ArrayDouble.D2(NROWS + 1, NCOLS + 1);
+  private final ArrayDouble.D2 lonEdge = new ArrayDouble.D2(NROWS + 1, NCOLS + 1);
+
+  public TestCurvilinearGridIndex() {
+    // a rotated, curved grid, like an ocean model
+    for (int row = 0; row <= NROWS; row++) {
+      for (int col = 0; col <= NCOLS; col++) {
+        double u = col * 0.1;
+        double v = row * 0.1;
+        latEdge.set(row, col, 40 + 0.8 * v + 0.3 * u + 0.02 * u * u);
+        lonEdge.set(row, col, -70 + 0.9 * u - 0.4 * v + 0.01 * v * v);
+      }
+    }
+  }
+
+  @Test
+  public void testSameAsExhaustive() {
+    CurvilinearGridIndex index = new CurvilinearGridIndex(latEdge, lonEdge);
+    assertThat(index.getNrows()).isEqualTo(NROWS);
+    assertThat(index.getNcols()).isEqualTo(NCOLS);
+
+    Random random = new Random(17);
+    int nfound = 0;
+    for (int i = 0; i < 5000; i++) {
+      double lat = 39 + 10 * random.nextDouble();
+      double lon = -73 + 12 * random.nextDouble();
+      int want = findExhaustive(lat, lon);
+      assertThat(index.findCell(lat, lon)).isEqualTo(want);
+      if (want >= 0)
+        nfound++;
+    }
+    assertThat(nfound).isGreaterThan(1000);
+  }
+
+  @Test
+  public void testCellCenters() {
+    CurvilinearGridIndex index = new CurvilinearGridIndex(latEdge, lonEdge);
+    int[] rectIndex = new int[2];
+    for (int row = 0; row < NROWS; row++) {
+      for (int col = 0; col < NCOLS; col++) {
+        double lat = (latEdge.get(row, col) + latEdge.get(row + 1, col + 1)) / 2;
+        double lon = (lonEdge.get(row, col) + lonEdge.get(row + 1, col + 1)) / 2;
+        assertThat(index.findCell(lat, lon, rectIndex)).isTrue();
+        assertThat(rectIndex).isEqualTo(new int[] {row, col});
+      }
+    }
+  }
+
+  @Test
+  public void testBatch() {
+    CurvilinearGridIndex index = new CurvilinearGridIndex(latEdge, lonEdge);
+    double[] lats = {45.0, 0.0, Double.NaN, latEdge.get(3, 4) * 0.5 + latEdge.get(4, 5) * 0.5};
+    double[] lons = {-67.0, 0.0, -67.0, lonEdge.get(3, 4) * 0.5 + lonEdge.get(4, 5) * 0.5};
+    int[] result = new int[lats.length];
+    int nfound = index.findCells(lats, lons, result);
+
+    assertThat(result[0]).isEqualTo(findExhaustive(45.0, -67.0));
+    assertThat(result[1]).isEqualTo(-1);
+    assertThat(result[2]).isEqualTo(-1);
+    assertThat(result[3]).isEqualTo(3 * NCOLS + 4);
+    assertThat(nfound).isEqualTo(result[0] >= 0 ? 2 : 1);
+  }
+
+  @Test
+  public void testMissingCellsNotFound() {
+    latEdge.set(10, 20, Double.NaN);
+    CurvilinearGridIndex index = new CurvilinearGridIndex(latEdge, lonEdge);
+    // cell (10, 20) and its neighbors share the missing corner
+    double lat = (latEdge.get(10, 21) + latEdge.get(11, 20)) / 2;
+    double lon = (lonEdge.get(10, 21) + lonEdge.get(11, 20)) / 2;
+    assertThat(index.findCell(lat, lon)).isEqualTo(-1);
+
+    double lat2 = (latEdge.get(30, 30) + latEdge.get(31, 31)) / 2;
+    double lon2 = (lonEdge.get(30, 30) + lonEdge.get(31, 31)) / 2;
+    assertThat(index.findCell(lat2, lon2)).isEqualTo(30 * NCOLS + 30);
+  }
+
+  // the first cell in row major order that contains the point
+  private int findExhaustive(double lat, double lon) {
+    for (int row = 0; row < NROWS; row++) {
+      for (int col = 0; col < NCOLS; col++) {
+        if (contains(row, col, lat, lon))
+          return row * NCOLS + col;
+      }
+    }
+    return -1;
+  }
+
+  private boolean contains(int row, int col, double lat, double lon) {
+    double[] xs = {lonEdge.get(row, col), lonEdge.get(row, col + 1), lonEdge.get(row + 1, col + 1),
+        lonEdge.get(row + 1, col)};
+    double[] ys = {latEdge.get(row, col), latEdge.get(row, col + 1), latEdge.get(row + 1, col + 1),
+        latEdge.get(row + 1, col)};
+    boolean sign = false;
+    for (int i = 0; i < 4; i++) {
+      int j = (i + 1) % 4;
+      double det = xs[j] * lat - ys[j] * lon - xs[i] * lat + ys[i] * lon + xs[i] * ys[j] - ys[i] * xs[j];
+      if (i == 0)
+        sign = det > 0;
+      else if (sign != det > 0)
+        return false;
+    }
+    return true;
+  }
+}
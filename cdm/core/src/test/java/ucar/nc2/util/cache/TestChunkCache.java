@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.util.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Formatter;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class TestChunkCache {
+
+  private static ByteBuffer makeChunk(int nbytes, ByteOrder order) {
+    ByteBuffer bb = ByteBuffer.allocate(nbytes).order(order);
+    while (bb.remaining() >= 4) {
+      bb.putInt(bb.position());
+    }
+    bb.flip();
+    return bb;
+  }
+
+  @Test
+  public void shouldDecodeOnceAndHit() throws IOException {
+    ChunkCache cache = new ChunkCache(1024 * 1024);
+    AtomicInteger decodes = new AtomicInteger();
+    ChunkCache.Key key = ChunkCache.makeKey("file.nc", 1L, "var", 4096);
+
+    for (int i = 0; i < 5; i++) {
+      ByteBuffer bb = cache.get(key, () -> {
+        decodes.incrementAndGet();
+        return makeChunk(400, ByteOrder.LITTLE_ENDIAN);
+      });
+      assertThat(bb.order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+      assertThat(bb.position()).isEqualTo(0);
+      assertThat(bb.getInt(8)).isEqualTo(8);
+      bb.position(100); // callers may move their duplicate, the cached buffer is not affected
+    }
+    assertThat(decodes.get()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+    assertThat(cache.getHitCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void shouldDistinguishKeys() throws IOException {
+    ChunkCache cache = new ChunkCache(1024 * 1024);
+    cache.put(ChunkCache.makeKey("file.nc", 1L, "var", 0), makeChunk(40, ByteOrder.BIG_ENDIAN));
+
+    assertThat(cache.getIfPresent(ChunkCache.makeKey("file.nc", 1L, "var", 0))).isNotNull();
+    assertThat(cache.getIfPresent(ChunkCache.makeKey("file.nc", 2L, "var", 0))).isNull();
+    assertThat(cache.getIfPresent(ChunkCache.makeKey("file.nc", 1L, "other", 0))).isNull();
+    assertThat(cache.getIfPresent(ChunkCache.makeKey("file.nc", 1L, "var", 40))).isNull();
+    assertThat(cache.getIfPresent(ChunkCache.makeKey("other.nc", 1L, "var", 0))).isNull();
+  }
+
+  @Test
+  public void shouldEvictByWeight() {
+    ChunkCache cache = new ChunkCache(100 * 1000);
+    for (int i = 0; i < 100; i++) {
+      cache.put(ChunkCache.makeKey("file.nc", 1L, "var", i * 10000L), makeChunk(10000, ByteOrder.BIG_ENDIAN));
+    }
+    assertThat(cache.size()).isLessThan(10L);
+    assertThat(cache.getEvictionCount()).isGreaterThan(90L);
+    // most recently added is still present
+    assertThat(cache.getIfPresent(ChunkCache.makeKey("file.nc", 1L, "var", 990000L))).isNotNull();
+
+    Formatter f = new Formatter();
+    cache.showStats(f);
+    assertThat(f.toString()).contains("evictions=");
+  }
+
+  @Test
+  public void shouldPropagateDecodeFailure() {
+    ChunkCache cache = new ChunkCache(1024);
+    try {
+      cache.get(ChunkCache.makeKey("file.nc", 1L, "var", 0), () -> {
+        throw new IOException("corrupt chunk");
+      });
+    } catch (IOException e) {
+      assertThat(e).hasMessageThat().isEqualTo("corrupt chunk");
+      assertThat(cache.size()).isEqualTo(0);
+      return;
+    }
+    throw new AssertionError("expected IOException");
+  }
+}
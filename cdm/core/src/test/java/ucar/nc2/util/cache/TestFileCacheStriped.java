@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.util.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.util.CancelTask;
+
+/** Test FileCacheStriped with files that only pretend to be open. */
+public class TestFileCacheStriped {
+  private static final long WEIGHT = 1000;
+
+  private static class MockFile implements FileCacheable {
+    final String location;
+    FileCacheIF cache;
+    boolean closed;
+
+    MockFile(String location) {
+      this.location = location;
+    }
+
+    @Override
+    public String getLocation() {
+      return location;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      if (cache != null) {
+        if (cache.release(this))
+          return;
+      }
+      closed = true;
+    }
+
+    @Override
+    public long getLastModified() {
+      return 0;
+    }
+
+    @Override
+    public synchronized void setFileCache(FileCacheIF fileCache) {
+      this.cache = fileCache;
+    }
+
+    @Override
+    public void release() {}
+
+    @Override
+    public void reacquire() {}
+  }
+
+  private static class MockFactory implements FileFactory {
+    final AtomicInteger opened = new AtomicInteger();
+
+    @Override
+    public FileCacheable open(DatasetUrl durl, int buffer_size, CancelTask cancelTask, Object iospMessage) {
+      opened.incrementAndGet();
+      return new MockFile(durl.getTrueurl());
+    }
+  }
+
+  private static FileCacheStriped makeCache(int maxFiles) {
+    return new FileCacheStriped("test", maxFiles, maxFiles * WEIGHT, f -> WEIGHT);
+  }
+
+  private static MockFile acquire(FileCacheIF cache, FileFactory factory, String location) throws IOException {
+    return (MockFile) cache.acquire(factory, DatasetUrl.create(null, location));
+  }
+
+  private static void waitForCleanup(FileCacheStriped cache, int maxFiles) throws InterruptedException {
+    for (int i = 0; i < 500 && (cache.isCleanupScheduled() || cache.getFileCount() > maxFiles); i++) {
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  public void testReleasedFileIsReused() throws IOException {
+    FileCacheStriped cache = makeCache(10);
+    MockFactory factory = new MockFactory();
+
+    MockFile first = acquire(cache, factory, "file1");
+    MockFile second = acquire(cache, factory, "file1");
+    assertThat(second).isNotSameInstanceAs(first); // the first is in use
+    first.close();
+    second.close();
+    assertThat(first.closed).isFalse();
+
+    MockFile again = acquire(cache, factory, "file1");
+    assertThat(again == first || again == second).isTrue();
+    assertThat(factory.opened.get()).isEqualTo(2);
+    assertThat(cache.getFileCount()).isEqualTo(2);
+    assertThat(cache.getTotalWeight()).isEqualTo(2 * WEIGHT);
+    again.close();
+
+    cache.clearCache(false);
+    assertThat(first.closed).isTrue();
+    assertThat(second.closed).isTrue();
+    assertThat(cache.getFileCount()).isEqualTo(0);
+    assertThat(cache.getTotalWeight()).isEqualTo(0);
+  }
+
+  @Test
+  public void testEject() throws IOException {
+    FileCacheStriped cache = makeCache(10);
+    MockFactory factory = new MockFactory();
+
+    MockFile idle = acquire(cache, factory, "file1");
+    MockFile inUse = acquire(cache, factory, "file1");
+    idle.close();
+
+    cache.eject("file1");
+    assertThat(idle.closed).isTrue();
+    assertThat(inUse.closed).isFalse();
+    inUse.close();
+    assertThat(inUse.closed).isTrue();
+    assertThat(cache.getFileCount()).isEqualTo(0);
+
+    assertThat(acquire(cache, factory, "file1")).isNotSameInstanceAs(idle);
+  }
+
+  @Test
+  public void testCleanupKeepsUnderLimit() throws Exception {
+    int maxFiles = 20;
+    FileCacheStriped cache = makeCache(maxFiles);
+    MockFactory factory = new MockFactory();
+
+    List<MockFile> all = new ArrayList<>();
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < 50; i++) {
+        MockFile file = acquire(cache, factory, "file" + i);
+        all.add(file);
+        file.close();
+      }
+    }
+    waitForCleanup(cache, maxFiles);
+    assertThat(cache.getFileCount()).isAtMost(maxFiles);
+    assertThat(cache.getTotalWeight()).isAtMost(maxFiles * WEIGHT);
+
+    // every file is either still in the cache, or closed
+    int open = 0;
+    for (MockFile file : new HashSet<>(all)) {
+      if (!file.closed) {
+        open++;
+      }
+    }
+    assertThat(open).isEqualTo(cache.getFileCount());
+  }
+
+  @Test
+  public void testFrequentFilesSurviveScan() throws Exception {
+    int maxFiles = 20;
+    FileCacheStriped cache = makeCache(maxFiles);
+    MockFactory factory = new MockFactory();
+
+    // a few files used all the time
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < 5; i++) {
+        acquire(cache, factory, "hot" + i).close();
+      }
+    }
+    int opened = factory.opened.get();
+
+    // a scan of many files used once
+    for (int i = 0; i < 200; i++) {
+      acquire(cache, factory, "cold" + i).close();
+      if (i % 20 == 0) {
+        waitForCleanup(cache, maxFiles);
+      }
+    }
+    waitForCleanup(cache, maxFiles);
+
+    for (int i = 0; i < 5; i++) {
+      acquire(cache, factory, "hot" + i).close();
+    }
+    assertThat(factory.opened.get()).isEqualTo(opened + 200);
+  }
+
+  @Test
+  public void testNotAdmittedWhileFull() throws Exception {
+    int maxFiles = 2;
+    FileCacheStriped cache = makeCache(maxFiles);
+    MockFactory factory = new MockFactory();
+
+    // all in use, so the cleanup cannot get under the limits
+    List<MockFile> inUse = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      inUse.add(acquire(cache, factory, "file" + i));
+    }
+    waitForCleanup(cache, 3);
+
+    MockFile notAdmitted = acquire(cache, factory, "other");
+    assertThat(notAdmitted.cache).isNull();
+    notAdmitted.close();
+    assertThat(notAdmitted.closed).isTrue();
+    assertThat(cache.getFileCount()).isEqualTo(3);
+
+    for (MockFile file : inUse) {
+      file.close();
+    }
+    waitForCleanup(cache, maxFiles);
+    assertThat(cache.getFileCount()).isAtMost(maxFiles);
+
+    MockFile admitted = acquire(cache, factory, "another");
+    assertThat(admitted.cache).isSameInstanceAs(cache);
+    admitted.close();
+    assertThat(admitted.closed).isFalse();
+  }
+
+  @Test
+  public void testConcurrentAcquire() throws Exception {
+    int maxFiles = 50;
+    FileCacheStriped cache = makeCache(maxFiles);
+    MockFactory factory = new MockFactory();
+    Set<MockFile> inUse = java.util.concurrent.ConcurrentHashMap.newKeySet();
+    AtomicInteger errors = new AtomicInteger();
+
+    ExecutorService pool = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 16; t++) {
+        final int seed = t;
+        futures.add(pool.submit(() -> {
+          for (int i = 0; i < 2000; i++) {
+            try {
+              MockFile file = acquire(cache, factory, "file" + ((i * 7 + seed) % 80));
+              if (!inUse.add(file) || file.closed) {
+                errors.incrementAndGet(); // two threads have the same file, or it was closed under us
+              }
+              inUse.remove(file);
+              file.close();
+            } catch (IOException e) {
+              errors.incrementAndGet();
+            }
+          }
+        }));
+      }
+      for (Future<?> f : futures) {
+        f.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    assertThat(errors.get()).isEqualTo(0);
+    waitForCleanup(cache, maxFiles);
+    assertThat(cache.getFileCount()).isAtMost(maxFiles);
+  }
+}
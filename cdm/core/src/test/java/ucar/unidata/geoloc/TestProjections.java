@@ -18,6 +18,7 @@ import ucar.unidata.geoloc.projection.sat.MSGnavigation;
 import ucar.unidata.geoloc.projection.proj4.AlbersEqualAreaEllipse;
 import ucar.unidata.geoloc.projection.proj4.LambertConformalConicEllipse;
 import java.lang.invoke.MethodHandles;
+import java.util.Random;
 
 /**
  * test methods projections have in common
@@ -503,4 +504,59 @@ public class TestProjections {
     logger.debug(" latLonToProj " + lpt + " -> " + computedProjectionPoint);
   }
 
+  // the flat array methods, large enough to be split across cores, give the same answer as one point at a time
+  @Test
+  public void testArraysSameAsPoints() {
+    Projection[] projs = {new Mercator(-100, 20), new RotatedPole(37.5, 177.5), new LambertConformal(25, -95, 25, 25),
+        new Stereographic(90, -105, 0.93), new LatLonProjection()};
+    Random random = new Random(47);
+    int n = 100000;
+    for (Projection proj : projs) {
+      double[] lat = new double[n];
+      double[] lon = new double[n];
+      for (int i = 0; i < n; i++) {
+        lat[i] = -80 + 160 * random.nextDouble();
+        lon[i] = -179 + 358 * random.nextDouble();
+      }
+      double[] x = new double[n];
+      double[] y = new double[n];
+      Projections.latLonToProj(proj, lat, lon, x, y);
+
+      double[] lat2 = new double[n];
+      double[] lon2 = new double[n];
+      Projections.projToLatLon(proj, x, y, lat2, lon2);
+
+      for (int i = 0; i < n; i += 101) {
+        ProjectionPoint pp = proj.latLonToProj(LatLonPoint.create(lat[i], lon[i]));
+        assertThat(x[i]).isWithin(1.0e-9).of(pp.getX());
+        assertThat(y[i]).isWithin(1.0e-9).of(pp.getY());
+        LatLonPoint ll = proj.projToLatLon(pp);
+        assertThat(lat2[i]).isWithin(1.0e-9).of(ll.getLatitude());
+        assertThat(lon2[i]).isWithin(1.0e-9).of(ll.getLongitude());
+      }
+    }
+  }
+
+  @Test
+  public void testLatLonGrid() {
+    Projection proj = new LambertConformal(25, -95, 25, 25);
+    double[] x = new double[400];
+    double[] y = new double[300];
+    for (int j = 0; j < x.length; j++)
+      x[j] = -2000 + 10 * j;
+    for (int i = 0; i < y.length; i++)
+      y[i] = -1500 + 10 * i;
+    double[] lat = new double[x.length * y.length];
+    double[] lon = new double[x.length * y.length];
+    Projections.projToLatLonGrid(proj, x, y, lat, lon);
+
+    for (int i = 0; i < y.length; i += 7) {
+      for (int j = 0; j < x.length; j += 11) {
+        LatLonPoint ll = proj.projToLatLon(ProjectionPoint.create(x[j], y[i]));
+        assertThat(lat[i * x.length + j]).isWithin(1.0e-9).of(ll.getLatitude());
+        assertThat(lon[i * x.length + j]).isWithin(1.0e-9).of(ll.getLongitude());
+      }
+    }
+  }
+
 }
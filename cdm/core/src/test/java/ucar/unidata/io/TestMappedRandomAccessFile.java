@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+
+/** Test MappedRandomAccessFile against RandomAccessFile, with small segments so that reads cross them. */
+public class TestMappedRandomAccessFile {
+
+  @ClassRule
+  public static final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static final int SEGMENT_SIZE = 100;
+  private static final int N = 1000;
+  private static final int OFFSET = 3;
+
+  private static String location;
+  private static byte[] contents;
+
+  @BeforeClass
+  public static void writeFile() throws IOException {
+    ByteBuffer bb = ByteBuffer.allocate(OFFSET + 8 * N);
+    bb.position(OFFSET);
+    for (int i = 0; i < N; i++) {
+      bb.putDouble(i * 0.25 - 11);
+    }
+    contents = bb.array();
+    location = tempFolder.newFile().getAbsolutePath();
+    try (RandomAccessFile out = new RandomAccessFile(location, "rw")) {
+      out.write(contents);
+    }
+  }
+
+  @Test
+  public void testReadArrays() throws IOException {
+    for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+      ByteBuffer expected = ByteBuffer.wrap(contents).order(order);
+      try (MappedRandomAccessFile raf = new MappedRandomAccessFile(location, SEGMENT_SIZE)) {
+        raf.order(order);
+        assertThat(raf.length()).isEqualTo(contents.length);
+
+        raf.seek(OFFSET);
+        double[] doubles = new double[N];
+        raf.readDouble(doubles, 0, N);
+        assertThat(raf.getFilePointer()).isEqualTo(contents.length);
+        raf.seek(OFFSET);
+        float[] floats = new float[2 * N];
+        raf.readFloat(floats, 0, 2 * N);
+        raf.seek(OFFSET);
+        short[] shorts = new short[4 * N];
+        raf.readShort(shorts, 0, 4 * N);
+
+        for (int i = 0; i < N; i++) {
+          int at = OFFSET + 8 * i;
+          assertThat(doubles[i]).isEqualTo(expected.getDouble(at));
+          assertThat(floats[2 * i + 1]).isEqualTo(expected.getFloat(at + 4));
+          assertThat(shorts[4 * i]).isEqualTo(expected.getShort(at));
+        }
+
+        // single values go through the buffer
+        raf.seek(OFFSET + 8 * 12);
+        assertThat(raf.readDouble()).isEqualTo(expected.getDouble(OFFSET + 8 * 12));
+        assertThat(raf.readInt()).isEqualTo(expected.getInt(OFFSET + 8 * 13));
+        long[] longs = new long[20];
+        raf.readLong(longs, 0, 20);
+        assertThat(longs[19]).isEqualTo(expected.getLong(OFFSET + 8 * 13 + 4 + 8 * 19));
+        assertThat(raf.readByte()).isEqualTo(contents[OFFSET + 8 * 13 + 4 + 8 * 20]);
+      }
+    }
+  }
+
+  @Test
+  public void testReadBytes() throws IOException {
+    try (MappedRandomAccessFile raf = new MappedRandomAccessFile(location, SEGMENT_SIZE)) {
+      byte[] all = new byte[contents.length];
+      raf.readFully(all);
+      assertThat(all).isEqualTo(contents);
+
+      raf.seek(contents.length - 5);
+      byte[] past = new byte[10];
+      assertThat(raf.read(past)).isEqualTo(5);
+      assertThat(raf.read()).isEqualTo(-1);
+      raf.seek(contents.length - 5);
+      Assert.assertThrows(EOFException.class, () -> raf.readFully(past));
+    }
+  }
+
+  @Test
+  public void testGetByteBuffer() throws IOException {
+    try (MappedRandomAccessFile raf = new MappedRandomAccessFile("mmap:" + location, SEGMENT_SIZE)) {
+      raf.order(ByteOrder.LITTLE_ENDIAN);
+      // within a segment, and across several
+      for (int[] range : new int[][] {{110, 50}, {50, 400}, {0, contents.length}}) {
+        ByteBuffer bb = raf.getByteBuffer(range[0], range[1]);
+        assertThat(bb.isReadOnly()).isTrue();
+        assertThat(bb.order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+        assertThat(bb.remaining()).isEqualTo(range[1]);
+        for (int i = 0; i < range[1]; i++) {
+          assertThat(bb.get(i)).isEqualTo(contents[range[0] + i]);
+        }
+      }
+      assertThat(raf.getFilePointer()).isEqualTo(0);
+      Assert.assertThrows(EOFException.class, () -> raf.getByteBuffer(contents.length - 1, 2));
+      assertThat(raf.getByteBuffer(contents.length, 0).remaining()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void testEmptyFile() throws IOException {
+    String empty = tempFolder.newFile().getAbsolutePath();
+    try (MappedRandomAccessFile raf = new MappedRandomAccessFile(empty)) {
+      assertThat(raf.length()).isEqualTo(0);
+      assertThat(raf.getByteBuffer(0, 0).remaining()).isEqualTo(0);
+      Assert.assertThrows(EOFException.class, () -> raf.getByteBuffer(0, 1));
+    }
+  }
+
+  @Test
+  public void testReadOnly() throws IOException {
+    try (MappedRandomAccessFile raf = new MappedRandomAccessFile(location)) {
+      Assert.assertThrows(IOException.class, () -> raf.write(1));
+      Assert.assertThrows(IOException.class, () -> raf.write(new byte[4]));
+    }
+  }
+
+  @Test
+  public void testOpenNetcdfFile() throws IOException {
+    String filename = "src/test/data/example1.nc";
+    try (NetcdfFile expected = NetcdfFiles.open(filename);
+        NetcdfFile mapped = NetcdfFiles.open(MappedRandomAccessFile.PREFIX + filename)) {
+      for (Variable v : expected.getVariables()) {
+        Array want = v.read();
+        Array got = mapped.findVariable(v.getFullNameEscaped()).read();
+        assertThat(got.getShape()).isEqualTo(want.getShape());
+        assertThat(got.copyTo1DJavaArray()).isEqualTo(want.copyTo1DJavaArray());
+      }
+    }
+  }
+
+  @Test
+  public void testMapLocalFiles() throws IOException {
+    try (RandomAccessFile raf = NetcdfFiles.getRaf(location, -1)) {
+      assertThat(raf).isNotInstanceOf(MappedRandomAccessFile.class);
+    }
+    MappedRandomAccessFile.setMapLocalFiles(true);
+    try (RandomAccessFile raf = NetcdfFiles.getRaf(location, -1)) {
+      assertThat(raf).isInstanceOf(MappedRandomAccessFile.class);
+      assertThat(raf.getLocation()).isEqualTo(location);
+    } finally {
+      MappedRandomAccessFile.setMapLocalFiles(false);
+    }
+  }
+}
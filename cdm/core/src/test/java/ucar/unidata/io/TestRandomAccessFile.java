@@ -795,6 +795,74 @@ public class TestRandomAccessFile {
     tempFile.close();
   }
 
+  ///////////////////////////
+  // Test bulk array reads that span many buffers, and reads larger than the buffer
+  @Test
+  public void testReadArraysAcrossBuffers() throws IOException {
+    readArraysAcrossBuffers(ByteOrder.LITTLE_ENDIAN);
+    readArraysAcrossBuffers(ByteOrder.BIG_ENDIAN);
+  }
+
+  private void readArraysAcrossBuffers(ByteOrder bo) throws IOException {
+    // larger than the scratch array used for reads that bypass the buffer, with an odd offset and buffer size
+    int n = 300 * 1000;
+    int offset = 3;
+    ByteBuffer expected = ByteBuffer.allocate(offset + 8 * n).order(bo);
+    expected.position(offset);
+    for (int i = 0; i < n; i++) {
+      expected.putDouble(i * 1.5 - 7);
+    }
+    String location = tempFolder.newFile().getAbsolutePath();
+    try (RandomAccessFile out = new RandomAccessFile(location, "rw")) {
+      out.write(expected.array());
+    }
+
+    for (int bufferSize : new int[] {TEST_BUFFER_SIZE, 1001, 8092}) {
+      try (RandomAccessFile raf = new RandomAccessFile(location, "r", bufferSize)) {
+        raf.order(bo);
+        // small reads go through the buffer, the last is much larger than the buffer
+        for (int count : new int[] {1, 5, 100, n - 106}) {
+          long pos = raf.getFilePointer() == 0 ? offset : raf.getFilePointer();
+          raf.seek(pos);
+          double[] doubles = new double[count + 1];
+          raf.readDouble(doubles, 1, count);
+          raf.seek(pos);
+          long[] longs = new long[count];
+          raf.readLong(longs, 0, count);
+          raf.seek(pos);
+          float[] floats = new float[2 * count];
+          raf.readFloat(floats, 0, 2 * count);
+          raf.seek(pos);
+          int[] ints = new int[2 * count];
+          raf.readInt(ints, 0, 2 * count);
+          raf.seek(pos);
+          short[] shorts = new short[4 * count];
+          raf.readShort(shorts, 0, 4 * count);
+          assertThat(raf.getFilePointer()).isEqualTo(pos + 8L * count);
+
+          for (int i = 0; i < count; i++) {
+            int at = (int) pos + 8 * i;
+            assertThat(doubles[i + 1]).isEqualTo(expected.getDouble(at));
+            assertThat(longs[i]).isEqualTo(expected.getLong(at));
+            assertThat(floats[2 * i]).isEqualTo(expected.getFloat(at));
+            assertThat(ints[2 * i + 1]).isEqualTo(expected.getInt(at + 4));
+            assertThat(shorts[4 * i + 3]).isEqualTo(expected.getShort(at + 6));
+          }
+        }
+        assertThat(raf.getFilePointer()).isEqualTo(raf.length());
+      }
+    }
+  }
+
+  @Test
+  public void testReadArrayPastEndOfFile() throws IOException {
+    testFile.order(ByteOrder.BIG_ENDIAN);
+    testFile.seek(TEST_FILE_LENGTH - 6);
+    int[] outInt = new int[2];
+    Assert.assertThrows(EOFException.class, () -> testFile.readInt(outInt, 0, 2));
+    assertThat(outInt[0]).isEqualTo(ByteBuffer.wrap(UTF8_BYTES, (int) TEST_FILE_LENGTH - 6, 4).getInt());
+  }
+
   ///////////////////////////
   // Test read and write UTF-16
   @Test
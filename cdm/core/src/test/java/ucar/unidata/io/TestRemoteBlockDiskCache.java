@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.nc2.util.DiskCache2;
+import ucar.unidata.io.TestRemoteRandomAccessFileRanges.MemoryRemoteFile;
+
+/** Test the disk tier of the RemoteRandomAccessFile read cache. */
+public class TestRemoteBlockDiskCache {
+  private static final int BUFFER_SIZE = 1024;
+  private static final long MEMORY_CACHE_SIZE = 1000 * BUFFER_SIZE;
+
+  @Rule
+  public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private DiskCache2 diskCache2;
+
+  /** A remote file with a known version. */
+  private static class VersionedRemoteFile extends MemoryRemoteFile {
+    private final String version;
+
+    VersionedRemoteFile(byte[] contents, String version) {
+      super(contents, MEMORY_CACHE_SIZE);
+      this.version = version;
+    }
+
+    @Override
+    protected String getRemoteVersion() {
+      return version;
+    }
+  }
+
+  @Before
+  public void setDiskCache() throws IOException {
+    diskCache2 = new DiskCache2(tempFolder.newFolder().getAbsolutePath(), false, 0, 0);
+  }
+
+  @After
+  public void clearDiskCache() {
+    RemoteRandomAccessFile.setDiskCache(null);
+  }
+
+  private static byte[] readAll(RandomAccessFile raf) throws IOException {
+    byte[] all = new byte[(int) raf.length()];
+    raf.seek(0);
+    raf.readFully(all);
+    return all;
+  }
+
+  private long cachedBytes(RemoteBlockDiskCache cache) throws IOException {
+    if (!Files.exists(cache.getRootDirectory())) {
+      return 0;
+    }
+    try (Stream<Path> paths = Files.walk(cache.getRootDirectory())) {
+      return paths.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+    }
+  }
+
+  @Test
+  public void testBlocksSurviveReopen() throws IOException {
+    byte[] contents = TestRemoteRandomAccessFileRanges.makeContents();
+    RemoteBlockDiskCache cache = new RemoteBlockDiskCache(diskCache2, 10 * contents.length);
+    RemoteRandomAccessFile.setDiskCache(cache);
+
+    try (MemoryRemoteFile raf = new VersionedRemoteFile(contents, "\"etag1\"")) {
+      assertThat(readAll(raf)).isEqualTo(contents);
+      assertThat(raf.requests.get()).isGreaterThan(0);
+    }
+    assertThat(cachedBytes(cache)).isEqualTo(contents.length);
+
+    // as if in a new JVM: nothing in memory, everything on disk
+    try (MemoryRemoteFile raf = new VersionedRemoteFile(contents, "\"etag1\"")) {
+      assertThat(readAll(raf)).isEqualTo(contents);
+      raf.seek(contents.length - 5);
+      assertThat(raf.readByte()).isEqualTo(contents[contents.length - 5]);
+      assertThat(raf.requests.get()).isEqualTo(0);
+      assertThat(raf.getReadCacheStats().getDiskHits()).isGreaterThan(0);
+    }
+  }
+
+  @Test
+  public void testChangedFileIsReadAgain() throws IOException {
+    byte[] contents = TestRemoteRandomAccessFileRanges.makeContents();
+    RemoteRandomAccessFile.setDiskCache(new RemoteBlockDiskCache(diskCache2, 10 * contents.length));
+
+    try (MemoryRemoteFile raf = new VersionedRemoteFile(contents, "\"etag1\"")) {
+      readAll(raf);
+    }
+    byte[] changed = contents.clone();
+    changed[5000]++;
+    try (MemoryRemoteFile raf = new VersionedRemoteFile(changed, "\"etag2\"")) {
+      assertThat(readAll(raf)).isEqualTo(changed);
+      assertThat(raf.requests.get()).isGreaterThan(0);
+      assertThat(raf.getReadCacheStats().getDiskHits()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void testUnknownVersionIsNotCached() throws IOException {
+    byte[] contents = TestRemoteRandomAccessFileRanges.makeContents();
+    RemoteBlockDiskCache cache = new RemoteBlockDiskCache(diskCache2, 10 * contents.length);
+    RemoteRandomAccessFile.setDiskCache(cache);
+
+    try (MemoryRemoteFile raf = new MemoryRemoteFile(contents, MEMORY_CACHE_SIZE)) {
+      assertThat(readAll(raf)).isEqualTo(contents);
+    }
+    assertThat(cachedBytes(cache)).isEqualTo(0);
+  }
+
+  @Test
+  public void testSizeIsBounded() throws IOException {
+    byte[] contents = TestRemoteRandomAccessFileRanges.makeContents();
+    long maxSize = 20 * BUFFER_SIZE;
+    RemoteBlockDiskCache cache = new RemoteBlockDiskCache(diskCache2, maxSize);
+    RemoteRandomAccessFile.setDiskCache(cache);
+
+    try (MemoryRemoteFile raf = new VersionedRemoteFile(contents, "\"etag1\"")) {
+      assertThat(readAll(raf)).isEqualTo(contents);
+    }
+    assertThat(cachedBytes(cache)).isAtMost(maxSize);
+
+    // whatever is left is still good
+    try (MemoryRemoteFile raf = new VersionedRemoteFile(contents, "\"etag1\"")) {
+      assertThat(readAll(raf)).isEqualTo(contents);
+      assertThat(raf.getReadCacheStats().getDiskHits()).isGreaterThan(0);
+    }
+  }
+
+  @Test
+  public void testReadaheadDoesNotReadDisk() throws IOException {
+    byte[] contents = TestRemoteRandomAccessFileRanges.makeContents();
+    RemoteRandomAccessFile.setDiskCache(new RemoteBlockDiskCache(diskCache2, 10 * contents.length));
+    try (MemoryRemoteFile raf = new VersionedRemoteFile(contents, "\"etag1\"")) {
+      readAll(raf);
+    }
+
+    // only the blocks that are read count as disk hits, not the ones readahead finds on disk
+    try (MemoryRemoteFile raf = new VersionedRemoteFile(contents, "\"etag1\"")) {
+      byte[] buff = new byte[BUFFER_SIZE];
+      for (int i = 0; i < 8; i++) {
+        raf.readFully(buff);
+      }
+      assertThat(raf.requests.get()).isEqualTo(0);
+      assertThat(raf.getReadCacheStats().getDiskHits()).isEqualTo(8);
+    }
+  }
+
+  @Test
+  public void testEvictKeepsTemporaryFiles() throws IOException {
+    byte[] contents = TestRemoteRandomAccessFileRanges.makeContents();
+    RemoteBlockDiskCache cache = new RemoteBlockDiskCache(diskCache2, 20 * BUFFER_SIZE);
+    RemoteRandomAccessFile.setDiskCache(cache);
+    try (MemoryRemoteFile raf = new VersionedRemoteFile(contents, "\"etag1\"")) {
+      readAll(raf);
+    }
+
+    // a block being written, and one left behind long ago
+    File[] dirs = cache.getRootDirectory().toFile().listFiles();
+    assertThat(dirs).hasLength(1);
+    File writing = File.createTempFile("block", ".tmp", dirs[0]);
+    File abandoned = File.createTempFile("block", ".tmp", dirs[0]);
+    assertThat(abandoned.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1))).isTrue();
+
+    cache.evict();
+    assertThat(writing.exists()).isTrue();
+    assertThat(abandoned.exists()).isFalse();
+  }
+}
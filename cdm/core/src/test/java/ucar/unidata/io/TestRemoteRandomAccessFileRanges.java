@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Test RemoteRandomAccessFile.readRanges against a remote file held in memory. */
+public class TestRemoteRandomAccessFileRanges {
+  private static final int BUFFER_SIZE = 1024;
+  private static final int LENGTH = 100 * BUFFER_SIZE + 17;
+
+  /** Counts the remote requests, and the most that are in flight at once. */
+  static class MemoryRemoteFile extends RemoteRandomAccessFile {
+    final byte[] contents;
+    final AtomicInteger requests = new AtomicInteger();
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+
+    MemoryRemoteFile(byte[] contents, long maxCacheSize) {
+      super("memory://test", BUFFER_SIZE, maxCacheSize);
+      this.contents = contents;
+    }
+
+    @Override
+    public int readRemote(long pos, byte[] buff, int offset, int len) throws IOException {
+      requests.incrementAndGet();
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(5);
+        int n = (int) Math.min(len, contents.length - pos);
+        System.arraycopy(contents, (int) pos, buff, offset, n);
+        return n;
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      } finally {
+        inFlight.decrementAndGet();
+      }
+    }
+
+    @Override
+    public long length() {
+      return contents.length;
+    }
+
+    @Override
+    public void closeRemote() {}
+  }
+
+  static byte[] makeContents() {
+    byte[] contents = new byte[LENGTH];
+    for (int i = 0; i < LENGTH; i++) {
+      contents[i] = (byte) (i * 31 + i / 256);
+    }
+    return contents;
+  }
+
+  private static void checkRanges(byte[] contents, List<RemoteRandomAccessFile.ByteRange> ranges, List<byte[]> got) {
+    assertThat(got).hasSize(ranges.size());
+    for (int i = 0; i < ranges.size(); i++) {
+      int offset = (int) ranges.get(i).getOffset();
+      byte[] want = Arrays.copyOfRange(contents, offset, offset + ranges.get(i).getLength());
+      assertThat(got.get(i)).isEqualTo(want);
+    }
+  }
+
+  @Test
+  public void testNearbyRangesAreMerged() throws IOException {
+    byte[] contents = makeContents();
+    // out of order, overlapping, and empty ranges, all within a few buffers of each other
+    List<RemoteRandomAccessFile.ByteRange> ranges = Arrays.asList(new RemoteRandomAccessFile.ByteRange(3000, 500),
+        new RemoteRandomAccessFile.ByteRange(10, 100), new RemoteRandomAccessFile.ByteRange(50, 2000),
+        new RemoteRandomAccessFile.ByteRange(4000, 0), new RemoteRandomAccessFile.ByteRange(3200, 100));
+    try (MemoryRemoteFile raf = new MemoryRemoteFile(contents, 0)) {
+      checkRanges(contents, ranges, raf.readRanges(ranges));
+      assertThat(raf.requests.get()).isEqualTo(1);
+      assertThat(raf.getFilePointer()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void testDistantRangesAreConcurrent() throws IOException {
+    byte[] contents = makeContents();
+    List<RemoteRandomAccessFile.ByteRange> ranges = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      ranges.add(new RemoteRandomAccessFile.ByteRange(i * 5 * BUFFER_SIZE + i, 100 + i));
+    }
+    try (MemoryRemoteFile raf = new MemoryRemoteFile(contents, 0)) {
+      checkRanges(contents, ranges, raf.readRanges(ranges));
+      assertThat(raf.requests.get()).isEqualTo(20);
+      assertThat(raf.maxInFlight.get()).isGreaterThan(1);
+      assertThat(raf.maxInFlight.get()).isAtMost(RemoteRandomAccessFile.maxConcurrentRemoteReads);
+    }
+  }
+
+  @Test
+  public void testRangesFillCache() throws IOException {
+    byte[] contents = makeContents();
+    List<RemoteRandomAccessFile.ByteRange> ranges = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      ranges.add(new RemoteRandomAccessFile.ByteRange(i * 10 * BUFFER_SIZE + 5, 3 * BUFFER_SIZE));
+    }
+    // the last, short, block of the file
+    ranges.add(new RemoteRandomAccessFile.ByteRange(LENGTH - 10, 10));
+    try (MemoryRemoteFile raf = new MemoryRemoteFile(contents, 1000 * BUFFER_SIZE)) {
+      checkRanges(contents, ranges, raf.readRanges(ranges));
+      int requests = raf.requests.get();
+      assertThat(requests).isEqualTo(11);
+
+      // all from the cache
+      checkRanges(contents, ranges, raf.readRanges(ranges));
+      for (RemoteRandomAccessFile.ByteRange range : ranges) {
+        byte[] bytes = new byte[range.getLength()];
+        raf.seek(range.getOffset());
+        raf.readFully(bytes);
+      }
+      assertThat(raf.requests.get()).isEqualTo(requests);
+    }
+  }
+
+  @Test
+  public void testLargeRead() throws IOException {
+    byte[] contents = makeContents();
+    try (MemoryRemoteFile raf = new MemoryRemoteFile(contents, 1000 * BUFFER_SIZE)) {
+      // part of the range is already cached
+      raf.seek(20 * BUFFER_SIZE);
+      raf.readByte();
+      int requests = raf.requests.get();
+
+      byte[] all = new byte[LENGTH - 100];
+      raf.seek(100);
+      raf.readFully(all);
+      assertThat(all).isEqualTo(Arrays.copyOfRange(contents, 100, LENGTH));
+      // a few merged requests around the cached block, rather than one per block
+      assertThat(raf.requests.get() - requests).isLessThan(10);
+    }
+  }
+
+  @Test
+  public void testPastEndOfFile() throws IOException {
+    try (MemoryRemoteFile raf = new MemoryRemoteFile(makeContents(), 0)) {
+      Assert.assertThrows(EOFException.class,
+          () -> raf.readRanges(Collections.singletonList(new RemoteRandomAccessFile.ByteRange(LENGTH - 10, 11))));
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Test;
+import ucar.unidata.io.TestRemoteRandomAccessFileRanges.MemoryRemoteFile;
+
+/** Test that RemoteRandomAccessFile reads ahead of sequential readers, and only of them. */
+public class TestRemoteRandomAccessFileReadahead {
+  private static final int BUFFER_SIZE = 1024;
+  private static final int NBLOCKS = 101; // the last one is short
+  private static final long CACHE_SIZE = 1000 * BUFFER_SIZE;
+
+  private static byte[] readSequentially(RandomAccessFile raf) throws IOException {
+    byte[] all = new byte[(int) raf.length()];
+    raf.seek(0);
+    for (int pos = 0; pos < all.length; pos += 100) {
+      byte[] part = new byte[Math.min(100, all.length - pos)];
+      raf.readFully(part);
+      System.arraycopy(part, 0, all, pos, part.length);
+    }
+    return all;
+  }
+
+  @Test
+  public void testSequential() throws IOException {
+    byte[] contents = TestRemoteRandomAccessFileRanges.makeContents();
+    try (MemoryRemoteFile raf = new MemoryRemoteFile(contents, CACHE_SIZE)) {
+      assertThat(readSequentially(raf)).isEqualTo(contents);
+
+      RemoteRandomAccessFile.ReadCacheStats stats = raf.getReadCacheStats();
+      assertThat(stats.getReadAhead()).isGreaterThan(NBLOCKS / 2);
+      assertThat(stats.getReadAheadUsed()).isEqualTo(stats.getReadAhead());
+      assertThat(stats.readAheadWaste()).isEqualTo(0.0);
+      assertThat(stats.hitRate()).isGreaterThan(0.5);
+      // the readahead requests grow, so there are far fewer requests than blocks
+      assertThat(raf.requests.get()).isLessThan(NBLOCKS / 4);
+    }
+  }
+
+  @Test
+  public void testRandom() throws IOException {
+    byte[] contents = TestRemoteRandomAccessFileRanges.makeContents();
+    try (MemoryRemoteFile raf = new MemoryRemoteFile(contents, CACHE_SIZE)) {
+      for (int block : new int[] {50, 10, 70, 30, 90, 20}) {
+        raf.seek(block * BUFFER_SIZE + 7);
+        assertThat(raf.readByte()).isEqualTo(contents[block * BUFFER_SIZE + 7]);
+      }
+      RemoteRandomAccessFile.ReadCacheStats stats = raf.getReadCacheStats();
+      assertThat(stats.getReadAhead()).isEqualTo(0);
+      assertThat(stats.getMisses()).isEqualTo(raf.requests.get());
+      assertThat(raf.requests.get()).isAtMost(12);
+    }
+  }
+
+  @Test
+  public void testDisabled() throws IOException {
+    byte[] contents = TestRemoteRandomAccessFileRanges.makeContents();
+    RemoteRandomAccessFile.setReadaheadEnabled(false);
+    try (MemoryRemoteFile raf = new MemoryRemoteFile(contents, CACHE_SIZE)) {
+      assertThat(readSequentially(raf)).isEqualTo(contents);
+      assertThat(raf.getReadCacheStats().getReadAhead()).isEqualTo(0);
+      assertThat(raf.requests.get()).isEqualTo(NBLOCKS);
+    } finally {
+      RemoteRandomAccessFile.setReadaheadEnabled(true);
+    }
+  }
+
+  @Test
+  public void testSequentialAfterRandom() throws IOException {
+    byte[] contents = TestRemoteRandomAccessFileRanges.makeContents();
+    try (MemoryRemoteFile raf = new MemoryRemoteFile(contents, CACHE_SIZE)) {
+      raf.seek(80 * BUFFER_SIZE);
+      raf.readByte();
+      assertThat(readSequentially(raf)).isEqualTo(contents);
+      assertThat(Arrays.copyOfRange(readSequentially(raf), 0, 10)).isEqualTo(Arrays.copyOfRange(contents, 0, 10));
+      assertThat(raf.getReadCacheStats().getReadAhead()).isGreaterThan(0);
+    }
+  }
+}
@@ -129,6 +129,11 @@ public final class S3RandomAccessFile extends RemoteRandomAccessFile implements
     return objectHeadResponse.lastModified().toEpochMilli();
   }
 
+  @Override
+  protected String getRemoteVersion() {
+    return objectHeadResponse.eTag();
+  }
+
   @Override
   public String getLocation() {
     return uri.toString();
@@ -5,6 +5,7 @@
 
 package ucar.nc2.iosp.zarr;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import ucar.nc2.Attribute;
 import ucar.nc2.Dimension;
@@ -17,10 +18,13 @@ import ucar.unidata.io.zarr.RandomAccessDirectoryItem;
 
 import java.io.IOException;
 import java.nio.ByteOrder;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
- * Class to read Zarr metadata from a RandomAccessDirectory and map it to a CDM Object
+ * Class to read Zarr metadata from a RandomAccessDirectory and map it to a CDM Object.
+ * If the store has consolidated metadata (.zmetadata), the whole header is read from it, without listing the store.
+ * Chunks are found by name when they are read.
  */
 public class ZarrHeader {
 
@@ -43,9 +47,7 @@ public class ZarrHeader {
   private class DelayedVarMaker {
     private RandomAccessDirectoryItem var;
     private ZArray zarray;
-    private Map<Integer, Long> initializedChunks; // track any uninitialized chunks for var
     private List<Attribute> attrs; // list of variable attributes
-    private long dataOffset; // byte position where data starts
 
     void setAttrs(List<Attribute> attrs) {
       this.attrs = attrs;
@@ -54,8 +56,6 @@ public class ZarrHeader {
     void setVar(RandomAccessDirectoryItem var) {
       this.var = var;
       this.attrs = null;
-      this.initializedChunks = new HashMap<>();
-      this.dataOffset = -1;
       if (var != null) {
         try {
           // get RandomAccessFile for JSON parsing and read metadata
@@ -85,17 +85,11 @@ public class ZarrHeader {
       if (var == null) {
         return;
       }
-      // get index of chunks
-      int index = getChunkIndex(item, this.zarray);
-      if (index < 0) { // not data files, skip rest of var
+      // chunks are found by name when read, but check that this is one
+      if (!isChunkFile(item, this.zarray)) { // not data files, skip rest of var
         ZarrIosp.logger.error(new ZarrFormatException().getMessage());
         this.var = null; // skip rest of var is unrecognized files found
       }
-      this.initializedChunks.put(index, item.length());
-      // if data offset is uninitialized, set here
-      if (this.dataOffset < 0) {
-        this.dataOffset = item.startIndex();
-      }
     }
 
     void makeVar() {
@@ -103,7 +97,7 @@ public class ZarrHeader {
         return; // do nothing if no variable is in progress
       }
       try {
-        makeVariable(var, dataOffset, zarray, initializedChunks, attrs);
+        makeVariable(ZarrUtils.trimLocation(var.getLocation()), zarray, attrs);
       } catch (ZarrFormatException ex) {
         ZarrIosp.logger.error(ex.getMessage());
       }
@@ -117,6 +111,79 @@ public class ZarrHeader {
    * @throws IOException
    */
   public void read() throws IOException {
+    JsonNode consolidated = readConsolidatedMetadata();
+    if (consolidated != null) {
+      readConsolidated(consolidated);
+    } else {
+      readDirectory();
+    }
+  }
+
+  /**
+   * @return the "metadata" object of .zmetadata, or null if there is none or it is not valid
+   */
+  private JsonNode readConsolidatedMetadata() throws IOException {
+    byte[] bytes = this.rootRaf.readItem(ZarrKeys.ZMETADATA);
+    if (bytes == null) {
+      return null;
+    }
+    try {
+      JsonNode root = objectMapper.readTree(bytes);
+      JsonNode metadata = root.path(ZarrKeys.METADATA);
+      if (root.path(ZarrKeys.CONSOLIDATED_FORMAT).asInt() != 1 || !metadata.isObject()) {
+        ZarrIosp.logger.warn("Ignoring unrecognized consolidated metadata in {}", this.rootLocation);
+        return null;
+      }
+      return metadata;
+    } catch (IOException ex) {
+      ZarrIosp.logger.warn("Ignoring invalid consolidated metadata in {}: {}", this.rootLocation, ex.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Create CDM objects from consolidated metadata, whose keys are the paths of the metadata files within the store
+   */
+  private void readConsolidated(JsonNode metadata) {
+    List<String> groups = new ArrayList<>();
+    List<String> arrays = new ArrayList<>();
+    Iterator<String> keys = metadata.fieldNames();
+    while (keys.hasNext()) {
+      String key = keys.next();
+      if (key.equals(ZarrKeys.ZGROUP) || key.endsWith('/' + ZarrKeys.ZGROUP)) {
+        groups.add(key);
+      } else if (key.endsWith('/' + ZarrKeys.ZARRAY)) {
+        arrays.add(key);
+      }
+    }
+    // a group's path is longer than its parent's, so parent groups are made first
+    groups.sort(Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder()));
+    Collections.sort(arrays);
+
+    for (String key : groups) {
+      List<Attribute> attrs = makeAttributes(metadata.get(replaceFileName(key, ZarrKeys.ZATTRS)));
+      makeGroup(this.rootLocation + '/' + key, attrs);
+    }
+    for (String key : arrays) {
+      try {
+        ZArray zarray = objectMapper.treeToValue(metadata.get(key), ZArray.class);
+        List<Attribute> attrs = makeAttributes(metadata.get(replaceFileName(key, ZarrKeys.ZATTRS)));
+        makeVariable(this.rootLocation + '/' + key, zarray, attrs);
+      } catch (IOException | ClassCastException ex) {
+        // skip var if metadata invalid
+        ZarrIosp.logger.error(new ZarrFormatException(ex.getMessage()).getMessage());
+      }
+    }
+  }
+
+  private static String replaceFileName(String key, String fileName) {
+    return key.substring(0, key.lastIndexOf('.')) + fileName;
+  }
+
+  /**
+   * Create CDM objects by listing all files of the store
+   */
+  private void readDirectory() throws IOException {
     List<RandomAccessDirectoryItem> items = this.rootRaf.getFilesInPath(this.rootLocation);
     DelayedVarMaker delayedVarMaker = new DelayedVarMaker();
 
@@ -125,7 +192,7 @@ public class ZarrHeader {
     for (RandomAccessDirectoryItem item : items) {
       String filepath = ZarrUtils.trimLocation(item.getLocation());
       if (filepath.endsWith(ZarrKeys.ZATTRS)) { // attributes
-        List<Attribute> attrs = makeAttributes(item);
+        List<Attribute> attrs = readAttributes(item);
         // assign attrs to either variable or group
         if (delayedVarMaker.myAttrs(item)) {
           delayedVarMaker.setAttrs(attrs);
@@ -137,7 +204,8 @@ public class ZarrHeader {
       } else if (filepath.endsWith(ZarrKeys.ZGROUP)) { // groups
         // build any vars in progress
         delayedVarMaker.makeVar();
-        makeGroup(item, grp_attrs); // .zattrs will always be processed before .zgroup, so we can make group immediately
+        // .zattrs will always be processed before .zgroup, so we can make group immediately
+        makeGroup(ZarrUtils.trimLocation(item.getLocation()), grp_attrs);
         grp_attrs = null; // reset
       } else if (filepath.endsWith(ZarrKeys.ZARRAY)) { // variables
         // build any vars in progress
@@ -152,10 +220,9 @@ public class ZarrHeader {
     delayedVarMaker.makeVar();
   }
 
-  private void makeGroup(RandomAccessDirectoryItem item, List<Attribute> attrs) {
+  private void makeGroup(String location, List<Attribute> attrs) {
     // make new Group
     Group.Builder group = Group.builder();
-    String location = ZarrUtils.trimLocation(item.getLocation());
     if (location.equals(this.rootLocation + '/' + ZarrKeys.ZGROUP)) {
       group = this.rootGroup;
     }
@@ -179,11 +246,9 @@ public class ZarrHeader {
     }
   }
 
-  private void makeVariable(RandomAccessDirectoryItem item, long dataOffset, ZArray zarray,
-      Map<Integer, Long> initializedChunks, List<Attribute> attrs) throws ZarrFormatException {
+  private void makeVariable(String location, ZArray zarray, List<Attribute> attrs) throws ZarrFormatException {
     // make new Variable
     Variable.Builder var = Variable.builder();
-    String location = ZarrUtils.trimLocation(item.getLocation());
 
     // set var name
     var.setName(ZarrUtils.getObjectNameFromPath(location));
@@ -211,8 +276,10 @@ public class ZarrHeader {
     }
 
     // create VInfo
+    String path =
+        Paths.get(this.rootLocation).relativize(Paths.get(location).getParent()).toString().replace("\\", "/");
     VInfo vinfo = new VInfo(chunks, zarray.getFillValue(), zarray.getCompressor(), zarray.getByteOrder(),
-        zarray.getOrder(), zarray.getSeparator(), zarray.getFilters(), dataOffset, initializedChunks);
+        zarray.getOrder(), zarray.getSeparator(), zarray.getFilters(), path);
     var.setSPobject(vinfo);
 
     // add current attributes, if any exist
@@ -225,63 +292,54 @@ public class ZarrHeader {
     parentGroup.addVariable(var);
   }
 
-  private List<Attribute> makeAttributes(RandomAccessDirectoryItem item) {
+  private List<Attribute> readAttributes(RandomAccessDirectoryItem item) {
     // get RandomAccessFile for JSON parsing
     try (RandomAccessFile raf = item.getOrOpenRaf()) {
       // read attributes from file
       raf.seek(0);
-      Map<String, Object> attrMap = objectMapper.readValue(raf, HashMap.class);
-
-      // create Attribute objects
-      List<Attribute> attrs = new ArrayList<>();
-      attrMap.keySet().forEach(key -> {
-        Attribute.Builder attr = Attribute.builder(key);
-        Object val = attrMap.get(key);
-        if (val instanceof Collection<?>) {
-          attr.setValues(Arrays.asList(((Collection) val).toArray()), false);
-        } else if (val instanceof Number) {
-          attr.setNumericValue((Number) val, false);
-        } else {
-          attr.setStringValue((String) val);
-        }
-        attrs.add(attr.build());
-      });
-      return attrs;
+      return makeAttributes(objectMapper.readValue(raf, HashMap.class));
     } catch (IOException ioe) {
       ZarrIosp.logger.error(new ZarrFormatException().getMessage());
     }
     return null;
   }
 
+  private List<Attribute> makeAttributes(JsonNode node) {
+    if (node == null || !node.isObject()) {
+      return null;
+    }
+    return makeAttributes(objectMapper.convertValue(node, HashMap.class));
+  }
+
+  private List<Attribute> makeAttributes(Map<String, Object> attrMap) {
+    // create Attribute objects
+    List<Attribute> attrs = new ArrayList<>();
+    attrMap.keySet().forEach(key -> {
+      Attribute.Builder attr = Attribute.builder(key);
+      Object val = attrMap.get(key);
+      if (val instanceof Collection<?>) {
+        attr.setValues(Arrays.asList(((Collection) val).toArray()), false);
+      } else if (val instanceof Number) {
+        attr.setNumericValue((Number) val, false);
+      } else {
+        attr.setStringValue((String) val);
+      }
+      attrs.add(attr.build());
+    });
+    return attrs;
+  }
+
   /**
-   * Get chunk number from file name
+   * Check that a file name is a chunk index, e.g. 0.1.2
    */
-  private static int getChunkIndex(RandomAccessDirectoryItem item, ZArray zarray) {
+  private static boolean isChunkFile(RandomAccessDirectoryItem item, ZArray zarray) {
     String fileName = ZarrUtils.getDataFileName(item.getLocation());
-    // return -1 if filename can't be resolved
     if (fileName.isEmpty()) {
-      return -1;
+      return false;
     }
-
     int nDims = zarray.getShape().length;
-    // verify is data file, else return -1
     String pattern = String.format("([0-9]+%c){%d}[0-9]+", zarray.getSeparator().charAt(0), nDims - 1);
-    if (!fileName.matches(pattern)) {
-      return -1;
-    }
-
-    // split by dimension separator and convert to ints
-    String[] dims = fileName.split(String.format("\\%c", zarray.getSeparator().charAt(0)));
-    int[] subs = Arrays.stream(dims).mapToInt(dim -> Integer.parseInt(dim)).toArray();
-
-    // get number of chunks in each dimension
-    int[] nChunks = new int[nDims];
-    int[] shape = zarray.getShape();
-    int[] chunkSize = zarray.getChunks();
-    for (int i = 0; i < nDims; i++) {
-      nChunks[i] = (int) Math.ceil(shape[i] / chunkSize[i]);
-    }
-    return ZarrUtils.subscriptsToIndex(subs, nChunks);
+    return fileName.matches(pattern);
   }
 
   /**
@@ -306,11 +364,10 @@ public class ZarrHeader {
     private final ZArray.Order order;
     private final String separator;
     private final List<Filter> filters;
-    private final long offset;
-    private final Map<Integer, Long> initializedChunks;
+    private final String path; // path of the variable within the store
 
     VInfo(int[] chunks, Object fillValue, Filter compressor, ByteOrder byteOrder, ZArray.Order order, String separator,
-        List<Filter> filters, long offset, Map<Integer, Long> initializedChunks) {
+        List<Filter> filters, String path) {
       this.chunks = chunks;
       this.fillValue = fillValue;
       this.byteOrder = byteOrder;
@@ -318,8 +375,7 @@ public class ZarrHeader {
       this.order = order;
       this.separator = separator;
       this.filters = filters;
-      this.offset = offset;
-      this.initializedChunks = initializedChunks;
+      this.path = path;
     }
 
     public int[] getChunks() {
@@ -350,12 +406,32 @@ public class ZarrHeader {
       return this.filters;
     }
 
-    public long getOffset() {
-      return this.offset;
+    /**
+     * @return path of the variable within the store, e.g. "group/var"
+     */
+    public String getPath() {
+      return this.path;
     }
 
-    public Map<Integer, Long> getInitializedChunks() {
-      return this.initializedChunks;
+    /**
+     * @param index chunk index in each dimension
+     * @return path of the chunk within the store, e.g. "group/var/0.1"
+     */
+    public String getChunkPath(int[] index) {
+      StringBuilder sb = new StringBuilder(this.path);
+      if (sb.length() > 0) {
+        sb.append('/');
+      }
+      if (index.length == 0) {
+        return sb.append('0').toString();
+      }
+      for (int i = 0; i < index.length; i++) {
+        if (i > 0) {
+          sb.append(this.separator);
+        }
+        sb.append(index[i]);
+      }
+      return sb.toString();
     }
 
   }
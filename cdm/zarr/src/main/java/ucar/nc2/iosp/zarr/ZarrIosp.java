@@ -32,6 +32,7 @@ public class ZarrIosp extends AbstractIOServiceProvider {
   private static final String fileTypeDescription = "Zarr v2 formatted dataset";
 
   private ZarrHeader header;
+  private ChunkDecodeParallelism chunkDecodeParallelism; // null means use the global setting
 
   @Override
   public boolean isValidFile(RandomAccessFile raf) {
@@ -63,6 +64,15 @@ public class ZarrIosp extends AbstractIOServiceProvider {
   @Override
   public void buildFinish(NetcdfFile ncfile) {} // NO-OP
 
+  @Override
+  public Object sendIospMessage(Object message) {
+    if (message instanceof ChunkDecodeParallelism) {
+      chunkDecodeParallelism = (ChunkDecodeParallelism) message;
+      return Boolean.TRUE;
+    }
+    return super.sendIospMessage(message);
+  }
+
   @Override
   public Array readData(Variable v2, Section section) {
     // find variable in RAF
@@ -73,7 +83,9 @@ public class ZarrIosp extends AbstractIOServiceProvider {
     Object fillValue = getFillValue(vinfo, dataType);
 
     // create layout object
-    Layout layout = new ZarrLayoutBB(v2, section, this.raf);
+    ChunkDecodeParallelism parallelism =
+        chunkDecodeParallelism != null ? chunkDecodeParallelism : ChunkDecodeParallelism.getGlobal();
+    Layout layout = new ZarrLayoutBB(v2, section, this.raf, parallelism);
     Object data = IospHelper.readDataFill((LayoutBB) layout, dataType, fillValue);
 
     Array array = Array.factory(dataType, section.getShape(), data);
@@ -0,0 +1,839 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp.zarr;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.IndexIterator;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.MAMath;
+import ucar.ma2.Range;
+import ucar.ma2.Section;
+import ucar.ma2.StructureData;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.Group;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Structure;
+import ucar.nc2.Variable;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.filter.Filter;
+import ucar.nc2.filter.Filters;
+import ucar.nc2.filter.UnknownFilterException;
+import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.IOServiceProviderWriter;
+import ucar.nc2.iosp.netcdf3.N3iosp;
+import ucar.nc2.util.CancelTask;
+import ucar.nc2.write.Nc4Chunking;
+import ucar.nc2.write.Nc4ChunkingDefault;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * IOSP for writing Zarr v2 directory stores, through NetcdfFormatWriter (format NetcdfFileFormat.ZARR) or
+ * NetcdfCopier/Nccopy.
+ * <p>
+ * Each group is written as a directory with .zgroup and .zattrs, each variable as a directory with .zarray, .zattrs
+ * and one file per chunk. Dimension names are written to the "_ARRAY_DIMENSIONS" attribute, as xarray does.
+ * Data is written little endian in C order, and the chunks touched by a write are encoded and written concurrently.
+ * A chunk that is only partly written, eg by writing one record at a time, is kept in memory until all of it has been
+ * written or the file is flushed, so that its file is written once rather than on every write.
+ * <p>
+ * Chunk shapes come from the "_ChunkSizes" attribute if present, else from the Nc4Chunking strategy, whose deflate
+ * level and shuffle setting also choose the zlib compressor and shuffle filter. A different compressor and filters
+ * (any ucar.nc2.filter codec, eg blosc) can be set with {@link #setCompressor} and {@link #setFilters}.
+ * <p>
+ * Unlimited dimensions grow as data is written; the array metadata is updated on flush.
+ * Structure and String variables are not supported, and are rejected by create().
+ */
+public class ZarrIospWriter extends AbstractIOServiceProvider implements IOServiceProviderWriter {
+
+  public static final String ARRAY_DIMENSIONS = "_ARRAY_DIMENSIONS";
+
+  private static final String fileTypeId = "Zarr";
+  private static final String fileTypeDescription = "Zarr v2 formatted dataset";
+  private static final int ZARR_FORMAT = 2;
+  private static final String CHUNK_SEPARATOR = ".";
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  private Nc4Chunking chunker = new Nc4ChunkingDefault();
+  private Map<String, Object> compressorProps; // null means use the chunker's deflate level
+  private List<Map<String, Object>> filterProps; // null means use the chunker's shuffle setting
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+  private ExecutorService executor;
+
+  private Path root;
+  private final Map<String, VarInfo> vars = new HashMap<>(); // keyed by variable full name
+  private final Map<Path, Map<String, Attribute>> attributes = new HashMap<>(); // keyed by object directory
+
+  public ZarrIospWriter() {}
+
+  /** Set the chunking strategy. Ignored if null. */
+  public ZarrIospWriter setChunker(Nc4Chunking chunker) {
+    if (chunker != null) {
+      this.chunker = chunker;
+    }
+    return this;
+  }
+
+  /**
+   * Use this compressor for all variables, instead of zlib at the chunker's deflate level.
+   *
+   * @param properties the numcodecs style properties of a ucar.nc2.filter codec, eg {"id": "blosc", "cname": "lz4"}.
+   *        null means no compression.
+   */
+  public ZarrIospWriter setCompressor(Map<String, Object> properties) {
+    this.compressorProps = properties == null ? new HashMap<>() : properties;
+    return this;
+  }
+
+  /**
+   * Use these filters for all variables, instead of the chunker's shuffle setting.
+   *
+   * @param properties the numcodecs style properties of each ucar.nc2.filter codec, in the order they are applied.
+   */
+  public ZarrIospWriter setFilters(List<Map<String, Object>> properties) {
+    this.filterProps = properties == null ? new ArrayList<>() : properties;
+    return this;
+  }
+
+  /** Set the maximum number of chunks encoded and written concurrently. Default is the number of processors. */
+  public ZarrIospWriter setParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be >= 1, was " + parallelism);
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  @Override
+  public boolean isValidFile(RandomAccessFile raf) {
+    return false; // only writes
+  }
+
+  @Override
+  public String getFileTypeId() {
+    return fileTypeId;
+  }
+
+  @Override
+  public String getFileTypeDescription() {
+    return fileTypeDescription;
+  }
+
+  ////////////////////////////////////////////////////////////////
+  // metadata
+
+  @Override
+  public void create(String filename, NetcdfFile ncfile, int extra, long preallocateSize, boolean largeFile)
+      throws IOException {
+    checkSupported(ncfile.getRootGroup()); // before anything is written
+    this.ncfile = ncfile;
+    this.location = filename;
+    this.root = Paths.get(filename);
+    if (Files.exists(root)) {
+      clearStore(root);
+    }
+    Files.createDirectories(root);
+    writeGroup(ncfile.getRootGroup(), root);
+  }
+
+  // remove an existing store, refusing to remove anything else
+  private static void clearStore(Path dir) throws IOException {
+    if (!Files.isDirectory(dir)) {
+      throw new IOException(dir + " exists and is not a directory");
+    }
+    boolean isEmpty;
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+      isEmpty = !entries.iterator().hasNext();
+    }
+    if (isEmpty) {
+      return;
+    }
+    if (!Files.exists(dir.resolve(ZarrKeys.ZGROUP))) {
+      throw new IOException(dir + " exists and is not a Zarr store");
+    }
+    try (Stream<Path> paths = Files.walk(dir)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        if (!path.equals(dir)) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  private static void checkSupported(Group group) throws IOException {
+    for (Variable v : group.getVariables()) {
+      if (v instanceof Structure) {
+        throw new IOException("Zarr writer does not support Structure " + v.getFullName());
+      }
+      if (getDtype(v.getDataType()) == null) {
+        throw new IOException(
+            "Zarr writer does not support data type " + v.getDataType() + " of variable " + v.getFullName());
+      }
+    }
+    for (Group nested : group.getGroups()) {
+      checkSupported(nested);
+    }
+  }
+
+  private void writeGroup(Group group, Path dir) throws IOException {
+    Files.createDirectories(dir);
+    Map<String, Object> zgroup = new LinkedHashMap<>();
+    zgroup.put("zarr_format", ZARR_FORMAT);
+    writeJson(dir.resolve(ZarrKeys.ZGROUP), zgroup);
+
+    Map<String, Attribute> atts = new LinkedHashMap<>();
+    group.attributes().forEach(att -> atts.put(att.getShortName(), att));
+    attributes.put(dir, atts);
+    writeAttributes(dir, null);
+
+    for (Variable v : group.getVariables()) {
+      writeVariable(v, dir.resolve(v.getShortName()));
+    }
+    for (Group nested : group.getGroups()) {
+      writeGroup(nested, dir.resolve(nested.getShortName()));
+    }
+  }
+
+  private void writeVariable(Variable v, Path dir) throws IOException {
+    String dtype = getDtype(v.getDataType()); // not null, see checkSupported()
+    Files.createDirectories(dir);
+
+    VarInfo vinfo = new VarInfo(v, dir, dtype, computeChunking(v), getFillValue(v));
+    vars.put(v.getFullName(), vinfo);
+    writeArrayMetadata(vinfo);
+
+    Map<String, Attribute> atts = new LinkedHashMap<>();
+    v.attributes().forEach(att -> atts.put(att.getShortName(), att));
+    attributes.put(dir, atts);
+    writeAttributes(dir, v);
+  }
+
+  private int[] computeChunking(Variable v) {
+    int rank = v.getRank();
+    int[] shape = v.getShape();
+    int[] chunks = new int[rank];
+
+    Attribute att = v.findAttribute(CDM.CHUNK_SIZES);
+    if (att != null && att.getDataType().isIntegral() && att.getLength() == rank) {
+      for (int i = 0; i < rank; i++) {
+        chunks[i] = att.getNumericValue(i).intValue();
+      }
+    } else if (chunker.isChunked(v)) {
+      long[] result = chunker.computeChunking(v);
+      for (int i = 0; i < rank && i < result.length; i++) {
+        chunks[i] = (int) result[i];
+      }
+    } else {
+      chunks = shape.clone();
+    }
+
+    // chunks must be positive, and need not be larger than fixed dimensions
+    for (int i = 0; i < rank; i++) {
+      Dimension dim = v.getDimension(i);
+      if (!dim.isUnlimited() && shape[i] > 0) {
+        chunks[i] = Math.min(chunks[i], shape[i]);
+      }
+      chunks[i] = Math.max(chunks[i], 1);
+    }
+    return chunks;
+  }
+
+  private static Number getFillValue(Variable v) {
+    if (v.getDataType() == DataType.CHAR) {
+      return null;
+    }
+    Attribute att = v.findAttribute(CDM.FILL_VALUE);
+    if (att != null && !att.isString()) {
+      return att.getNumericValue();
+    }
+    return N3iosp.getFillValueDefault(v.getDataType());
+  }
+
+  private static String getDtype(DataType dataType) {
+    switch (dataType) {
+      case BYTE:
+      case ENUM1:
+        return "|i1";
+      case UBYTE:
+        return "|u1";
+      case CHAR:
+        return "|S1";
+      case SHORT:
+      case ENUM2:
+        return "<i2";
+      case USHORT:
+        return "<u2";
+      case INT:
+      case ENUM4:
+        return "<i4";
+      case UINT:
+        return "<u4";
+      case LONG:
+        return "<i8";
+      case ULONG:
+        return "<u8";
+      case FLOAT:
+        return "<f4";
+      case DOUBLE:
+        return "<f8";
+      default:
+        return null;
+    }
+  }
+
+  private void writeArrayMetadata(VarInfo vinfo) throws IOException {
+    Map<String, Object> zarray = new LinkedHashMap<>();
+    zarray.put(ZarrKeys.CHUNKS, vinfo.chunks);
+    zarray.put(ZarrKeys.COMPRESSOR, vinfo.compressorProps);
+    zarray.put(ZarrKeys.DTYPE, vinfo.dtype);
+    Object fillValue = vinfo.fillValue == null ? null : toJson(vinfo.fillValue, vinfo.dataType.isUnsigned());
+    zarray.put(ZarrKeys.FILL_VALUE, fillValue);
+    zarray.put(ZarrKeys.FILTERS, vinfo.filterProps.isEmpty() ? null : vinfo.filterProps);
+    zarray.put(ZarrKeys.ORDER, ZArray.Order.C.name());
+    zarray.put(ZarrKeys.SHAPE, vinfo.shape);
+    zarray.put(ZarrKeys.DIMENSION_SEPARATOR, CHUNK_SEPARATOR);
+    zarray.put("zarr_format", ZARR_FORMAT);
+    writeJson(vinfo.dir.resolve(ZarrKeys.ZARRAY), zarray);
+  }
+
+  private void writeAttributes(Path dir, Variable v) throws IOException {
+    Map<String, Object> zattrs = new LinkedHashMap<>();
+    for (Attribute att : attributes.get(dir).values()) {
+      zattrs.put(att.getShortName(), attributeValue(att));
+    }
+    if (v != null) {
+      List<String> dimNames = new ArrayList<>();
+      for (int i = 0; i < v.getRank(); i++) {
+        String name = v.getDimension(i).getShortName();
+        dimNames.add(name != null ? name : "dim" + i);
+      }
+      zattrs.put(ARRAY_DIMENSIONS, dimNames);
+    }
+    writeJson(dir.resolve(ZarrKeys.ZATTRS), zattrs);
+  }
+
+  private static Object attributeValue(Attribute att) {
+    int n = att.getLength();
+    if (att.isString()) {
+      if (n == 1) {
+        return att.getStringValue();
+      }
+      List<String> values = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        values.add(att.getStringValue(i));
+      }
+      return values;
+    }
+    boolean unsigned = att.getDataType().isUnsigned();
+    if (n == 1) {
+      return toJson(att.getNumericValue(), unsigned);
+    }
+    List<Object> values = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      values.add(toJson(att.getNumericValue(i), unsigned));
+    }
+    return values;
+  }
+
+  private static Object toJson(Number value, boolean unsigned) {
+    return toJson(unsigned ? DataType.widenNumberIfNegative(value) : value);
+  }
+
+  // JSON has no NaN or infinities, Zarr writes them as strings
+  private static Object toJson(Number value) {
+    if (value instanceof Double || value instanceof Float) {
+      double d = value.doubleValue();
+      if (Double.isNaN(d)) {
+        return "NaN";
+      } else if (Double.isInfinite(d)) {
+        return d > 0 ? "Infinity" : "-Infinity";
+      }
+    }
+    return value;
+  }
+
+  private static void writeJson(Path path, Map<String, Object> value) throws IOException {
+    objectMapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), value);
+  }
+
+  @Override
+  public void openForWriting(RandomAccessFile raf, NetcdfFile ncfile, CancelTask cancelTask) throws IOException {
+    throw new IOException("Zarr writer can only create new stores");
+  }
+
+  @Override
+  public void setFill(boolean fill) {
+    // unwritten chunks are not stored, and read as the fill value
+  }
+
+  @Override
+  public boolean rewriteHeader(boolean largeFile) throws IOException {
+    flush();
+    return true;
+  }
+
+  @Override
+  public void updateAttribute(Variable v2, Attribute att) throws IOException {
+    Path dir = v2 == null ? root : vars.get(v2.getFullName()).dir;
+    attributes.get(dir).put(att.getShortName(), att);
+    writeAttributes(dir, v2);
+  }
+
+  @Override
+  public int appendStructureData(Structure s, StructureData sdata) throws IOException {
+    throw new IOException("Zarr writer does not support Structures");
+  }
+
+  @Override
+  public void flush() throws IOException {
+    List<Future<Void>> futures = new ArrayList<>();
+    for (VarInfo vinfo : vars.values()) {
+      for (Map.Entry<String, DirtyChunk> entry : vinfo.dirty.entrySet()) {
+        futures.add(getExecutor().submit(() -> {
+          DirtyChunk chunk = entry.getValue();
+          synchronized (chunk) {
+            if (!chunk.done) {
+              writeOut(vinfo, entry.getKey(), chunk);
+            }
+          }
+          return null;
+        }));
+      }
+    }
+    try {
+      waitFor(futures);
+    } catch (InvalidRangeException e) {
+      throw new IllegalStateException(e); // not thrown by writeOut
+    }
+
+    for (VarInfo vinfo : vars.values()) {
+      if (vinfo.shapeChanged) {
+        writeArrayMetadata(vinfo);
+        vinfo.shapeChanged = false;
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (root != null) {
+        flush();
+      }
+    } finally {
+      synchronized (this) {
+        if (executor != null) {
+          executor.shutdown();
+          executor = null;
+        }
+      }
+      super.close();
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////
+  // data
+
+  @Override
+  public void writeData(Variable v2, Section section, Array values) throws IOException, InvalidRangeException {
+    VarInfo vinfo = vars.get(v2.getFullName());
+    if (vinfo == null) {
+      throw new IllegalArgumentException("Variable " + v2.getFullName() + " is not in this file");
+    }
+    checkSection(section);
+
+    // grow unlimited dimensions
+    synchronized (vinfo) {
+      for (int i = 0; i < vinfo.shape.length; i++) {
+        int end = section.getRange(i).last() + 1;
+        if (end > vinfo.shape[i]) {
+          if (!vinfo.unlimited[i]) {
+            throw new InvalidRangeException("Section " + section + " is outside of variable " + v2.getFullName());
+          }
+          vinfo.shape[i] = end;
+          vinfo.shapeChanged = true;
+        }
+      }
+    }
+
+    List<ChunkSlice> slices = intersectingChunks(vinfo, section);
+    if (slices.size() == 1 || parallelism == 1) {
+      for (ChunkSlice slice : slices) {
+        writeChunk(vinfo, slice, values);
+      }
+      return;
+    }
+
+    List<Future<Void>> futures = new ArrayList<>(slices.size());
+    ExecutorService exec = getExecutor();
+    for (ChunkSlice slice : slices) {
+      futures.add(exec.submit(() -> {
+        writeChunk(vinfo, slice, values);
+        return null;
+      }));
+    }
+    waitFor(futures);
+  }
+
+  private synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newFixedThreadPool(parallelism, r -> {
+        Thread thread = new Thread(r, "zarr-writer");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return executor;
+  }
+
+  private static void waitFor(List<Future<Void>> futures) throws IOException, InvalidRangeException {
+    Throwable failure = null;
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failure = failure == null ? e : failure;
+      } catch (ExecutionException e) {
+        failure = failure == null ? e.getCause() : failure;
+      }
+    }
+    if (failure instanceof IOException) {
+      throw (IOException) failure;
+    } else if (failure instanceof InvalidRangeException) {
+      throw (InvalidRangeException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new IOException(failure);
+    }
+  }
+
+  // Writes to the same chunk, from this or another writeData(), are serialized on its DirtyChunk
+  private void writeChunk(VarInfo vinfo, ChunkSlice slice, Array values) throws IOException, InvalidRangeException {
+    Array src = values.sectionNoReduce(slice.srcOrigin, slice.shape, null);
+    while (true) {
+      DirtyChunk chunk = getDirtyChunk(vinfo, slice);
+      synchronized (chunk) {
+        if (chunk.done) {
+          continue; // just written out, start again from its file
+        }
+        Array dst = chunk.data.sectionNoReduce(slice.chunkOrigin, slice.shape, null);
+        MAMath.copy(dst, src);
+        chunk.written += src.getSize();
+        if (chunk.written >= slice.capacity) {
+          writeOut(vinfo, slice.key, chunk);
+        }
+        return;
+      }
+    }
+  }
+
+  private DirtyChunk getDirtyChunk(VarInfo vinfo, ChunkSlice slice) throws IOException {
+    try {
+      return vinfo.dirty.computeIfAbsent(slice.key, key -> {
+        try {
+          return new DirtyChunk(slice.coversChunk ? vinfo.makeFilledChunk() : readChunk(vinfo, vinfo.dir.resolve(key)));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  // write a chunk to its file and stop buffering it; the caller holds its lock
+  private void writeOut(VarInfo vinfo, String key, DirtyChunk chunk) throws IOException {
+    byte[] data = toBytes(chunk.data, vinfo.dataType);
+    for (Filter filter : vinfo.filters) {
+      data = filter.encode(data);
+    }
+    if (vinfo.compressor != null) {
+      data = vinfo.compressor.encode(data);
+    }
+    Files.write(vinfo.dir.resolve(key), data);
+    chunk.done = true;
+    vinfo.dirty.remove(key, chunk);
+  }
+
+  @Override
+  public Array readData(Variable v2, Section section) throws IOException, InvalidRangeException {
+    VarInfo vinfo = vars.get(v2.getFullName());
+    if (vinfo == null) {
+      throw new IllegalArgumentException("Variable " + v2.getFullName() + " is not in this file");
+    }
+    section = Section.fill(section, vinfo.shape);
+    checkSection(section);
+    Array result = Array.factory(vinfo.dataType, section.getShape());
+    for (ChunkSlice slice : intersectingChunks(vinfo, section)) {
+      Array dst = result.sectionNoReduce(slice.srcOrigin, slice.shape, null);
+      DirtyChunk dirty = vinfo.dirty.get(slice.key);
+      if (dirty != null) {
+        synchronized (dirty) {
+          if (!dirty.done) {
+            MAMath.copy(dst, dirty.data.sectionNoReduce(slice.chunkOrigin, slice.shape, null));
+            continue;
+          }
+        }
+      }
+      Array chunk = readChunk(vinfo, vinfo.dir.resolve(slice.key));
+      MAMath.copy(dst, chunk.sectionNoReduce(slice.chunkOrigin, slice.shape, null));
+    }
+    return result;
+  }
+
+  private Array readChunk(VarInfo vinfo, Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return vinfo.makeFilledChunk();
+    }
+    byte[] data = Files.readAllBytes(path);
+    if (vinfo.compressor != null) {
+      data = vinfo.compressor.decode(data);
+    }
+    for (int i = vinfo.filters.size() - 1; i >= 0; i--) {
+      data = vinfo.filters.get(i).decode(data);
+    }
+    return Array.factory(vinfo.dataType, vinfo.chunks, ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN));
+  }
+
+  private static void checkSection(Section section) throws InvalidRangeException {
+    for (Range r : section.getRanges()) {
+      if (r.stride() != 1) {
+        throw new InvalidRangeException("Zarr writer does not support strided sections: " + section);
+      }
+    }
+  }
+
+  private static byte[] toBytes(Array chunk, DataType dataType) {
+    int elemSize = dataType.getSize();
+    ByteBuffer bb = ByteBuffer.allocate((int) chunk.getSize() * elemSize).order(ByteOrder.LITTLE_ENDIAN);
+    switch (elemSize) {
+      case 1:
+        bb.put((byte[]) chunk.get1DJavaArray(DataType.BYTE));
+        break;
+      case 2:
+        bb.asShortBuffer().put((short[]) chunk.get1DJavaArray(DataType.SHORT));
+        break;
+      case 4:
+        if (dataType == DataType.FLOAT) {
+          bb.asFloatBuffer().put((float[]) chunk.get1DJavaArray(DataType.FLOAT));
+        } else {
+          bb.asIntBuffer().put((int[]) chunk.get1DJavaArray(DataType.INT));
+        }
+        break;
+      case 8:
+        if (dataType == DataType.DOUBLE) {
+          bb.asDoubleBuffer().put((double[]) chunk.get1DJavaArray(DataType.DOUBLE));
+        } else {
+          bb.asLongBuffer().put((long[]) chunk.get1DJavaArray(DataType.LONG));
+        }
+        break;
+      default:
+        throw new IllegalStateException("Unexpected element size " + elemSize + " for " + dataType);
+    }
+    return bb.array();
+  }
+
+  /** The part of a write or read that falls in one chunk. */
+  private static class ChunkSlice {
+    final String key; // name of the chunk file
+    final int[] chunkOrigin; // origin of the slice within the chunk
+    final int[] srcOrigin; // origin of the slice within the section
+    final int[] shape;
+    final boolean coversChunk; // true if the slice covers all of the chunk that is within the variable
+    final long capacity; // number of elements of the chunk that can be written, along unlimited dimensions too
+
+    ChunkSlice(String key, int[] chunkOrigin, int[] srcOrigin, int[] shape, boolean coversChunk, long capacity) {
+      this.key = key;
+      this.chunkOrigin = chunkOrigin;
+      this.srcOrigin = srcOrigin;
+      this.shape = shape;
+      this.coversChunk = coversChunk;
+      this.capacity = capacity;
+    }
+  }
+
+  /** A chunk that has been partly written, kept until all of it has been written or the file is flushed. */
+  private static class DirtyChunk {
+    final Array data;
+    long written; // elements written so far; overlapping writes are counted twice, which only writes it out early
+    boolean done; // written to its file, and no longer buffered
+
+    DirtyChunk(Array data) {
+      this.data = data;
+    }
+  }
+
+  private static List<ChunkSlice> intersectingChunks(VarInfo vinfo, Section section) {
+    int rank = vinfo.chunks.length;
+    List<ChunkSlice> result = new ArrayList<>();
+    if (rank == 0) {
+      result.add(new ChunkSlice("0", new int[0], new int[0], new int[0], true, 1));
+      return result;
+    }
+    if (section.computeSize() == 0) {
+      return result;
+    }
+
+    int[] first = new int[rank];
+    int[] last = new int[rank];
+    for (int i = 0; i < rank; i++) {
+      Range r = section.getRange(i);
+      first[i] = r.first() / vinfo.chunks[i];
+      last[i] = r.last() / vinfo.chunks[i];
+    }
+
+    int[] index = first.clone();
+    while (true) {
+      int[] chunkOrigin = new int[rank];
+      int[] srcOrigin = new int[rank];
+      int[] shape = new int[rank];
+      boolean covers = true;
+      long capacity = 1;
+      StringBuilder key = new StringBuilder();
+      for (int i = 0; i < rank; i++) {
+        Range r = section.getRange(i);
+        int chunkStart = index[i] * vinfo.chunks[i];
+        int chunkEnd = Math.min(chunkStart + vinfo.chunks[i], vinfo.shape[i]); // exclusive, within the variable
+        int start = Math.max(chunkStart, r.first());
+        int end = Math.min(chunkEnd, r.last() + 1);
+        chunkOrigin[i] = start - chunkStart;
+        srcOrigin[i] = start - r.first();
+        shape[i] = end - start;
+        covers &= (start == chunkStart && end == chunkEnd);
+        capacity *= vinfo.unlimited[i] ? vinfo.chunks[i] : chunkEnd - chunkStart;
+        if (i > 0) {
+          key.append(CHUNK_SEPARATOR);
+        }
+        key.append(index[i]);
+      }
+      result.add(new ChunkSlice(key.toString(), chunkOrigin, srcOrigin, shape, covers, capacity));
+
+      // odometer, innermost dimension fastest
+      int i = rank - 1;
+      while (i >= 0 && index[i] == last[i]) {
+        index[i] = first[i];
+        i--;
+      }
+      if (i < 0) {
+        return result;
+      }
+      index[i]++;
+    }
+  }
+
+  private class VarInfo {
+    final Path dir;
+    final DataType dataType;
+    final String dtype;
+    final int[] shape; // current shape, grows along unlimited dimensions
+    final boolean[] unlimited;
+    final int[] chunks;
+    final Number fillValue;
+    final Map<String, Object> compressorProps;
+    final List<Map<String, Object>> filterProps;
+    final Filter compressor;
+    final List<Filter> filters = new ArrayList<>();
+    final Map<String, DirtyChunk> dirty = new ConcurrentHashMap<>(); // partly written chunks, keyed by file name
+    volatile boolean shapeChanged;
+
+    VarInfo(Variable v, Path dir, String dtype, int[] chunks, Number fillValue) throws IOException {
+      this.dir = dir;
+      this.dataType = v.getDataType();
+      this.dtype = dtype;
+      this.shape = v.getShape().clone();
+      this.unlimited = new boolean[shape.length];
+      for (int i = 0; i < shape.length; i++) {
+        unlimited[i] = v.getDimension(i).isUnlimited();
+      }
+      this.chunks = chunks;
+      this.fillValue = fillValue;
+
+      int elemSize = v.getElementSize();
+      if (compressorProps != null) {
+        this.compressorProps = compressorProps.isEmpty() ? null : compressorProps;
+      } else {
+        int level = chunker.getDeflateLevel(v);
+        if (level > 0) {
+          Map<String, Object> zlib = new LinkedHashMap<>();
+          zlib.put(Filters.Keys.NAME, "zlib");
+          zlib.put("level", level);
+          this.compressorProps = zlib;
+        } else {
+          this.compressorProps = null;
+        }
+      }
+      if (filterProps != null) {
+        this.filterProps = filterProps;
+      } else if (this.compressorProps != null && chunker.isShuffle(v) && elemSize > 1) {
+        Map<String, Object> shuffle = new LinkedHashMap<>();
+        shuffle.put(Filters.Keys.NAME, "shuffle");
+        shuffle.put(Filters.Keys.ELEM_SIZE, elemSize);
+        this.filterProps = Arrays.asList(shuffle);
+      } else {
+        this.filterProps = new ArrayList<>();
+      }
+
+      this.compressor = this.compressorProps == null ? null : makeFilter(this.compressorProps, elemSize);
+      for (Map<String, Object> props : this.filterProps) {
+        filters.add(makeFilter(props, elemSize));
+      }
+    }
+
+    private Filter makeFilter(Map<String, Object> props, int elemSize) throws IOException {
+      Map<String, Object> withElemSize = new HashMap<>(props);
+      withElemSize.putIfAbsent(Filters.Keys.ELEM_SIZE, elemSize);
+      try {
+        return Filters.getFilter(withElemSize);
+      } catch (UnknownFilterException ex) {
+        throw new IOException(ex);
+      }
+    }
+
+    Array makeFilledChunk() {
+      Array chunk = Array.factory(dataType, chunks);
+      if (fillValue == null || fillValue.doubleValue() == 0.0) {
+        return chunk;
+      }
+      if (dataType.isIntegral() && dataType.getSize() == 8) { // a double cannot hold every long
+        IndexIterator ii = chunk.getIndexIterator();
+        while (ii.hasNext()) {
+          ii.setLongNext(fillValue.longValue());
+        }
+      } else {
+        MAMath.setDouble(chunk, fillValue.doubleValue());
+      }
+      return chunk;
+    }
+  }
+}
@@ -14,6 +14,7 @@ public final class ZarrKeys {
   public static final String ZARRAY = ".zarray";
   public static final String ZATTRS = ".zattrs";
   public static final String ZGROUP = ".zgroup";
+  public static final String ZMETADATA = ".zmetadata"; // consolidated metadata
 
   // key names
   public static final String SHAPE = "shape";
@@ -24,5 +25,7 @@ public final class ZarrKeys {
   public static final String ORDER = "order";
   public static final String FILTERS = "filters";
   public static final String DIMENSION_SEPARATOR = "dimension_separator";
+  public static final String METADATA = "metadata";
+  public static final String CONSOLIDATED_FORMAT = "zarr_consolidated_format";
 
 }
@@ -5,27 +5,30 @@ import ucar.ma2.Section;
 import ucar.nc2.Dimension;
 import ucar.nc2.Variable;
 import ucar.nc2.filter.Filter;
+import ucar.nc2.iosp.ChunkDecodeParallelism;
 import ucar.nc2.iosp.LayoutBB;
 import ucar.nc2.iosp.LayoutBBTiled;
 import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.io.zarr.RandomAccessDirectory;
 
 import java.io.IOException;
 import java.nio.*;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 /**
- * A tiled layout for Zarr formats that accommodates uncompressing and filtering data before returning
+ * A tiled layout for Zarr formats that accommodates uncompressing and filtering data before returning.
+ * Each chunk is found by name in the RandomAccessDirectory when it is read; chunks that do not exist are filled.
+ * With a {@link ChunkDecodeParallelism} greater than one, chunks are fetched and decoded concurrently, with at most
+ * that many chunks in flight.
  */
 public class ZarrLayoutBB implements LayoutBB {
 
   private LayoutBBTiled delegate;
 
-  private RandomAccessFile raf;
+  private final RandomAccessDirectory store;
+  private final ZarrHeader.VInfo vinfo;
   private ByteOrder byteOrder;
-  private final long varOffset; // start of variable data in raf
   private final Section want;
 
   private int[] chunkSize; // number of elements per chunks
@@ -33,16 +36,29 @@ public class ZarrLayoutBB implements LayoutBB {
   private int nChunks[]; // number of chunks per dimension
   private int totalNChunks; // total number of chunks
   private boolean F_order = false; // F order storage?
-  private Map<Integer, Long> initializedChunks; // set of chunks that exist as files and their compressed size
   private Filter compressor;
   private List<Filter> filters;
 
   public ZarrLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf) {
+    this(v2, wantSection, raf, ChunkDecodeParallelism.SERIAL);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param v2 Variable to read
+   * @param wantSection the wanted section of data
+   * @param raf the store, must be a RandomAccessDirectory
+   * @param parallelism maximum number of chunks fetched and decoded concurrently
+   */
+  public ZarrLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf, ChunkDecodeParallelism parallelism) {
+    if (!(raf instanceof RandomAccessDirectory)) {
+      throw new IllegalArgumentException("Zarr data must be read from a RandomAccessDirectory");
+    }
     // var data info
-    this.raf = raf;
-    ZarrHeader.VInfo vinfo = (ZarrHeader.VInfo) v2.getSPobject();
+    this.store = (RandomAccessDirectory) raf;
+    this.vinfo = (ZarrHeader.VInfo) v2.getSPobject();
     this.byteOrder = vinfo.getByteOrder();
-    this.varOffset = vinfo.getOffset();
     this.compressor = vinfo.getCompressor();
     this.filters = vinfo.getFilters();
 
@@ -50,13 +66,12 @@ public class ZarrLayoutBB implements LayoutBB {
     // fill in chunk info
     this.chunkSize = vinfo.getChunks();
     int ndims = this.chunkSize.length;
-    this.initializedChunks = vinfo.getInitializedChunks();
     this.nChunks = new int[ndims];
     this.totalNChunks = 1;
     for (int i = 0; i < ndims; i++) {
       Dimension dim = v2.getDimension(i);
       // round up nchunks if not evenly divisible by chunk size
-      this.nChunks[i] = (int) Math.ceil(dim.getLength() / this.chunkSize[i]);
+      this.nChunks[i] = (dim.getLength() + this.chunkSize[i] - 1) / this.chunkSize[i];
       this.totalNChunks *= nChunks[i];
     }
 
@@ -80,7 +95,7 @@ public class ZarrLayoutBB implements LayoutBB {
 
     // create delegate and chunk iterator
     ZarrLayoutBB.DataChunkIterator iter = new ZarrLayoutBB.DataChunkIterator();
-    delegate = new LayoutBBTiled(iter, chunkSize, elemSize, this.want);
+    delegate = new LayoutBBTiled(iter, chunkSize, elemSize, this.want, parallelism);
   }
 
   @Override
@@ -107,13 +122,11 @@ public class ZarrLayoutBB implements LayoutBB {
 
     private int[] currChunk; // current chunk in subscript coords
     private int chunkNum; // current chunk as flat index
-    private long currOffset; // byte position of current chunk
 
 
     DataChunkIterator() {
       this.currChunk = new int[chunkSize.length];
       this.chunkNum = 0;
-      this.currOffset = varOffset; // start at start of variable data
     }
 
     public boolean hasNext() {
@@ -121,7 +134,7 @@ public class ZarrLayoutBB implements LayoutBB {
     }
 
     public LayoutBBTiled.DataChunk next() {
-      DataChunk chunk = new ZarrLayoutBB.DataChunk(this.currChunk, this.chunkNum, this.currOffset);
+      DataChunk chunk = new ZarrLayoutBB.DataChunk(this.currChunk);
       incrementChunk();
       return chunk;
     }
@@ -134,47 +147,44 @@ public class ZarrLayoutBB implements LayoutBB {
         i--;
       }
       this.currChunk[i]++;
-      this.currOffset += initializedChunks.getOrDefault(this.chunkNum, (long) 0);
       this.chunkNum = ZarrUtils.subscriptsToIndex(this.currChunk, nChunks);
     }
   }
 
-  private class DataChunk implements LayoutBBTiled.DataChunk {
+  private class DataChunk implements LayoutBBTiled.DecodableDataChunk {
 
     private int[] offset; // start indices of chunk in elements
-    private long rafOffset; // start position of chunk in bytes
-    private int chunkNum;
+    private final String path; // path of chunk within the store
 
-    DataChunk(int[] index, int chunkNum, long rafOffset) {
-      this.rafOffset = rafOffset;
+    DataChunk(int[] index) {
+      this.path = vinfo.getChunkPath(index);
       this.offset = new int[index.length];
       for (int i = 0; i < index.length; i++) {
         int j = F_order ? index.length - i - 1 : i;
         this.offset[i] = index[j] * chunkSize[i];
       }
-      this.chunkNum = chunkNum;
     }
 
     public int[] getOffset() {
       return this.offset;
     }
 
-    public ByteBuffer getByteBuffer() throws IOException {
-      // read the data
-      byte[] data;
+    @Override
+    public byte[] readRaw() throws IOException {
+      // if chunk does not exist as file, there is nothing to read
+      byte[] data = store.readItem(this.path);
+      return data != null ? data : new byte[0];
+    }
+
+    @Override
+    public ByteBuffer decode(byte[] data) throws IOException {
       // if chunk does not exist as file, return empty buffer
-      long dataLength = initializedChunks.getOrDefault(chunkNum, (long) 0);
-      if (dataLength == 0) {
-        ByteBuffer result = ByteBuffer.wrap(new byte[0]);
+      if (data.length == 0) {
+        ByteBuffer result = ByteBuffer.wrap(data);
         result.order(byteOrder);
         return result;
       }
 
-      data = new byte[(int) dataLength];
-      raf.seek(this.rafOffset);
-      // raf.read(data, 0, (int)dataLength);
-      raf.readFully(data);
-
       // apply compressor
       data = compressor.decode(data);
       // apply filters in reverse order
@@ -186,6 +196,12 @@ public class ZarrLayoutBB implements LayoutBB {
       result.order(byteOrder);
       return result;
     }
+
+    @Override
+    public boolean canReadConcurrently() {
+      // each chunk is a separate item of the directory, which can be read independently
+      return true;
+    }
   }
 
 }
@@ -7,25 +7,44 @@ package ucar.unidata.io.zarr;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import thredds.filesystem.MFileOS;
+import thredds.filesystem.MFileOS7;
 import thredds.inventory.*;
+import thredds.inventory.zarr.MFileZip;
+import ucar.nc2.iosp.zarr.ZarrKeys;
 import ucar.nc2.util.cache.FileCacheable;
 import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.io.RemoteRandomAccessFile;
 import ucar.unidata.io.spi.RandomAccessFileProvider;
 
+import javax.annotation.Nullable;
 import java.io.*;
 import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class allows a directory structure to be read in memory as a single file.
  * RandomAccessDirectory implemented a tree structure with files as leaves.
  * It is read-only - writes should use the leaf RandomAccessFile write methods
+ * <p>
+ * The directory is not listed until its contents are needed as a single file. Individual items can be found by
+ * path with {@link #getItem(String)} without listing, which is much faster for object stores with many objects.
+ * In an object store, only the directory containing the item is listed, once, which gives the sizes of all the
+ * items in it without asking for each one.
+ * <p>
+ * Opening a store with consolidated metadata, reading its chunks, and checking its last modified time (e.g. by a
+ * file cache) do not list it. Only its length, and reading it as a single file, need the whole listing.
  */
 public class RandomAccessDirectory extends ucar.unidata.io.RandomAccessFile implements FileCacheable, Closeable {
 
   private static final Logger logger = LoggerFactory.getLogger(RandomAccessDirectory.class);
 
-  protected List<RandomAccessDirectoryItem> children; // all files within the store
+  protected List<RandomAccessDirectoryItem> children; // all files within the store, null until listed
+
+  private final Map<String, RandomAccessDirectoryItem> items = new ConcurrentHashMap<>(); // found by path
+
+  private final Set<String> listedDirs = new HashSet<>(); // directories of an object store that have been listed
 
   private RandomAccessFile currentFile; // file currently containing the file pointer
 
@@ -47,22 +66,40 @@ public class RandomAccessDirectory extends ucar.unidata.io.RandomAccessFile impl
     this.bufferSize = bufferSize;
     this.location = location.replace("\\", DELIMITER); // standardize path
     this.readonly = true; // RandomAccessDirectory does not support writes
+    // children are listed when first needed
+  }
 
-    // build children list
-    this.children = new ArrayList<>();
+  /**
+   * List all files within the store, if not already done
+   *
+   * @return files within the store, in sorted order
+   * @throws IOException
+   */
+  protected synchronized List<RandomAccessDirectoryItem> getChildren() throws IOException {
+    if (this.children != null) {
+      return this.children;
+    }
+    List<RandomAccessDirectoryItem> result = new ArrayList<>();
     MController controller = MControllers.create(location);
     CollectionConfig cc = new CollectionConfig("children", location, false, null, null);
     List<MFile> files = sortIterator(controller.getInventoryAll(cc, false)); // standardize order
-    if (files == null) {
-      return;
-    }
     long index = 0; // track file position in directory
     for (MFile mfile : files) {
       long length = mfile.getLength();
-      this.children.add(new VirtualRandomAccessFile(mfile.getPath().replace("\\", DELIMITER), index, length,
+      result.add(new VirtualRandomAccessFile(mfile.getPath().replace("\\", DELIMITER), index, length,
           mfile.getLastModified(), this.bufferSize));
       index += length;
     }
+    this.children = result;
+    return result;
+  }
+
+  private List<RandomAccessDirectoryItem> getChildrenUnchecked() {
+    try {
+      return getChildren();
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
   }
 
   /**
@@ -88,7 +125,7 @@ public class RandomAccessDirectory extends ucar.unidata.io.RandomAccessFile impl
    */
   public RandomAccessDirectoryItem getFileAtPos(int pos) {
     long tempPos = 0;
-    for (RandomAccessDirectoryItem item : this.children) {
+    for (RandomAccessDirectoryItem item : getChildrenUnchecked()) {
       long rafLength = item.length();
       if (tempPos + rafLength > pos) {
         return item;
@@ -98,6 +135,204 @@ public class RandomAccessDirectory extends ucar.unidata.io.RandomAccessFile impl
     return null;
   }
 
+  /**
+   * Return the directory item containing the specified position, or null if pos is past the end of the directory
+   *
+   * @param pos
+   * @return Directory item containing bytes at `pos`
+   */
+  public RandomAccessDirectoryItem findItem(long pos) {
+    // children are in order of start index
+    List<RandomAccessDirectoryItem> children = getChildrenUnchecked();
+    int low = 0;
+    int high = children.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      RandomAccessDirectoryItem item = children.get(mid);
+      if (pos < item.startIndex()) {
+        high = mid - 1;
+      } else if (pos >= item.startIndex() + item.length()) {
+        low = mid + 1;
+      } else {
+        return item;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Read bytes that lie within a single directory item, without using or moving the file pointer of the directory.
+   * Reads from different items may be done concurrently, eg to fetch several chunks of a store at once.
+   *
+   * @param pos position of the first byte, relative to the directory
+   * @param buff read buff.length bytes into this buffer
+   * @throws EOFException if the bytes are not all within one item
+   */
+  public void readItemFully(long pos, byte[] buff) throws IOException {
+    RandomAccessDirectoryItem item = findItem(pos);
+    if (item == null || pos + buff.length > item.startIndex() + item.length()) {
+      throw new EOFException("Reading " + buff.length + " bytes at " + pos + " is not within a single item of "
+          + this.location);
+    }
+    RandomAccessFile raf = item.getOrOpenRaf();
+    synchronized (raf) {
+      raf.seek(pos - item.startIndex());
+      raf.readFully(buff);
+    }
+  }
+
+  /**
+   * Find an item by its path within the store, without listing the store.
+   * Unless the store has already been listed, the item is looked up directly, and its startIndex is -1.
+   *
+   * @param path path relative to the store, e.g. "group/var/0.0"
+   * @return the item, or null if there is no such file
+   * @throws IOException
+   */
+  @Nullable
+  public RandomAccessDirectoryItem getItem(String path) throws IOException {
+    path = path.replace("\\", DELIMITER);
+    RandomAccessDirectoryItem item = this.items.get(path);
+    if (item != null) {
+      return item;
+    }
+
+    String itemLocation = resolve(path);
+    List<RandomAccessDirectoryItem> listed;
+    synchronized (this) {
+      listed = this.children;
+    }
+    if (listed != null) {
+      for (RandomAccessDirectoryItem child : listed) {
+        if (child.getLocation().equals(itemLocation)) {
+          this.items.putIfAbsent(path, child);
+          return child;
+        }
+      }
+    }
+
+    MFile mfile = MFiles.create(itemLocation);
+    if (mfile == null) {
+      return null;
+    }
+    if (!(mfile instanceof MFileOS || mfile instanceof MFileOS7 || mfile instanceof MFileZip)) {
+      // an object store, where each exists() or getLength() is a request
+      return getListedItem(path);
+    }
+    if (!mfile.exists() || mfile.isDirectory()) {
+      return null;
+    }
+    long length = mfile.getLength();
+    if (length <= 0) { // eg an entry that is missing from a zip store
+      return null;
+    }
+    // last modified is taken from the RandomAccessFile once opened
+    item = new VirtualRandomAccessFile(itemLocation, -1, length, -1, this.bufferSize);
+    RandomAccessDirectoryItem previous = this.items.putIfAbsent(path, item);
+    return previous != null ? previous : item;
+  }
+
+  // find an item of an object store by listing its directory, if not already done
+  @Nullable
+  private RandomAccessDirectoryItem getListedItem(String path) throws IOException {
+    int slash = path.lastIndexOf(DELIMITER);
+    String dir = slash < 0 ? "" : path.substring(0, slash + 1);
+    synchronized (this.listedDirs) {
+      if (!this.listedDirs.contains(dir)) {
+        listDirectory(dir);
+        this.listedDirs.add(dir);
+      }
+    }
+    return this.items.get(path);
+  }
+
+  private void listDirectory(String dir) throws IOException {
+    String dirLocation = resolve(dir);
+    MController controller = MControllers.create(dirLocation);
+    CollectionConfig cc = new CollectionConfig("items", dirLocation, false, null, null);
+    Iterator<MFile> files = controller.getInventoryTop(cc, false);
+    if (files == null) {
+      return;
+    }
+    while (files.hasNext()) {
+      MFile mfile = files.next();
+      String path = relativize(mfile.getPath().replace("\\", DELIMITER));
+      if (path != null && !mfile.isDirectory() && mfile.getLength() > 0) {
+        this.items.putIfAbsent(path, new ObjectItem(mfile, this.bufferSize));
+      }
+    }
+  }
+
+  /**
+   * Read all of an item, found by its path within the store, without listing the store or using the file pointer
+   * of the directory. Items may be read concurrently.
+   *
+   * @param path path relative to the store, e.g. "group/var/0.0"
+   * @return contents of the item, or null if there is no such file
+   * @throws IOException
+   */
+  @Nullable
+  public byte[] readItem(String path) throws IOException {
+    RandomAccessDirectoryItem item = getItem(path);
+    if (item == null) {
+      return null;
+    }
+    if (item instanceof ObjectItem && item.getRaf() == null) {
+      // a single GET, rather than opening the object (which asks for its size) and then reading it
+      byte[] buff = new byte[(int) item.length()];
+      try (DataInputStream in = new DataInputStream(((ObjectItem) item).mfile.getInputStream())) {
+        in.readFully(buff);
+      }
+      return buff;
+    }
+    RandomAccessFile raf = item.getOrOpenRaf();
+    if (raf instanceof RemoteRandomAccessFile) {
+      // a chunk in an object store: read it with as few, concurrent, requests as possible
+      RemoteRandomAccessFile.ByteRange all = new RemoteRandomAccessFile.ByteRange(0, (int) item.length());
+      return ((RemoteRandomAccessFile) raf).readRanges(Collections.singletonList(all)).get(0);
+    }
+    byte[] buff = new byte[(int) item.length()];
+    synchronized (raf) {
+      raf.seek(0);
+      raf.readFully(buff);
+    }
+    return buff;
+  }
+
+  // location of a path within the store, keeping any fragment (e.g. the delimiter of an object store) at the end
+  private String resolve(String path) {
+    return getBase() + DELIMITER + path + getFragment();
+  }
+
+  // path within the store of a location, or null if it is not within the store
+  @Nullable
+  private String relativize(String itemLocation) {
+    String prefix = getBase() + DELIMITER;
+    String fragment = getFragment();
+    if (!itemLocation.startsWith(prefix) || !itemLocation.endsWith(fragment)
+        || itemLocation.length() < prefix.length() + fragment.length()) {
+      return null;
+    }
+    return itemLocation.substring(prefix.length(), itemLocation.length() - fragment.length());
+  }
+
+  private String getBase() {
+    String base = this.location;
+    int hash = base.indexOf('#');
+    if (hash >= 0) {
+      base = base.substring(0, hash);
+    }
+    if (base.endsWith(DELIMITER)) {
+      base = base.substring(0, base.length() - DELIMITER.length());
+    }
+    return base;
+  }
+
+  private String getFragment() {
+    int hash = this.location.indexOf('#');
+    return hash >= 0 ? this.location.substring(hash) : "";
+  }
+
   /**
    * Find all files in the store that fall under the given path
    * 
@@ -110,7 +345,7 @@ public class RandomAccessDirectory extends ucar.unidata.io.RandomAccessFile impl
     path = path.replace("\\", DELIMITER);
 
     List<RandomAccessDirectoryItem> files = new ArrayList<>();
-    for (RandomAccessDirectoryItem item : this.children) {
+    for (RandomAccessDirectoryItem item : getChildren()) {
       String location = item.getLocation();
       if (location.contains(path)) {
         files.add(item);
@@ -128,7 +363,7 @@ public class RandomAccessDirectory extends ucar.unidata.io.RandomAccessFile impl
    */
   protected void setFileToPos(long pos) throws IOException {
     long tempPos = 0;
-    for (RandomAccessDirectoryItem item : this.children) {
+    for (RandomAccessDirectoryItem item : getChildren()) {
       long rafLength = item.length();
       if (tempPos + rafLength > pos) {
         this.currentFile = item.getOrOpenRaf();
@@ -144,7 +379,11 @@ public class RandomAccessDirectory extends ucar.unidata.io.RandomAccessFile impl
 
   @Override
   public synchronized void close() throws IOException {
-    for (RandomAccessDirectoryItem item : this.children) {
+    Set<RandomAccessDirectoryItem> opened = new HashSet<>(this.items.values());
+    if (this.children != null) {
+      opened.addAll(this.children);
+    }
+    for (RandomAccessDirectoryItem item : opened) {
       RandomAccessFile raf = item.getRaf();
       if (raf != null) {
         raf.close();
@@ -152,9 +391,39 @@ public class RandomAccessDirectory extends ucar.unidata.io.RandomAccessFile impl
     }
   }
 
+  /**
+   * The latest last modified time of the files in the store, or, if the store has not been listed, of its
+   * consolidated metadata, which changes when the variables of the store do.
+   * A store without consolidated metadata is listed to be opened anyway.
+   */
   @Override
   public long getLastModified() {
-    return children.stream().mapToLong(RandomAccessDirectoryItem::getLastModified).max().orElse(-1);
+    synchronized (this) {
+      if (this.children != null) {
+        return lastModified(this.children);
+      }
+    }
+    try {
+      RandomAccessDirectoryItem metadata = getItem(ZarrKeys.ZMETADATA);
+      if (metadata != null) {
+        // an object store item has it from the listing, a local one once opened
+        long lastModified = metadata.getLastModified();
+        if (lastModified > 0) {
+          return lastModified;
+        }
+        MFile mfile = MFiles.create(metadata.getLocation());
+        if (mfile != null) {
+          return mfile.getLastModified();
+        }
+      }
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+    return lastModified(getChildrenUnchecked());
+  }
+
+  private static long lastModified(List<RandomAccessDirectoryItem> items) {
+    return items.stream().mapToLong(RandomAccessDirectoryItem::getLastModified).max().orElse(-1);
   }
 
   @Override
@@ -162,9 +431,13 @@ public class RandomAccessDirectory extends ucar.unidata.io.RandomAccessFile impl
     return true;
   }
 
+  /**
+   * The total length of the files in the store. The store is listed the first time this is called, unless it already
+   * has been, so this should not be used just to open or validate a store.
+   */
   @Override
-  public long length() {
-    return children.stream().mapToLong(RandomAccessDirectoryItem::length).sum();
+  public long length() throws IOException {
+    return getChildren().stream().mapToLong(RandomAccessDirectoryItem::length).sum();
   }
 
   @Override
@@ -236,6 +509,16 @@ public class RandomAccessDirectory extends ucar.unidata.io.RandomAccessFile impl
     logger.error(WRITES_NOT_IMPLEMENTED_MESSAGE);
   }
 
+  // an item of an object store, found by listing, so its size is known without asking for it
+  private static class ObjectItem extends VirtualRandomAccessFile {
+    private final MFile mfile;
+
+    ObjectItem(MFile mfile, int bufferSize) {
+      super(mfile.getPath().replace("\\", DELIMITER), -1, mfile.getLength(), mfile.getLastModified(), bufferSize);
+      this.mfile = mfile;
+    }
+  }
+
   /**
    * Hook into service provider interface to RandomAccessFileProvider. Register in
    * META-INF.services.ucar.unidata.io.spi.RandomAccessFileProvider
@@ -49,11 +49,11 @@ public class VirtualRandomAccessFile implements RandomAccessDirectoryItem {
     return this.raf == null ? this.lastModified : this.raf.getLastModified();
   }
 
-  public RandomAccessFile getRaf() {
+  public synchronized RandomAccessFile getRaf() {
     return this.raf;
   }
 
-  public RandomAccessFile getOrOpenRaf() throws IOException {
+  public synchronized RandomAccessFile getOrOpenRaf() throws IOException {
     if (this.raf == null) {
       this.raf = NetcdfFiles.getRaf(this.location, this.bufferSize);
     }
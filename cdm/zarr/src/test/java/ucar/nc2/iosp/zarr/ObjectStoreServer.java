@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp.zarr;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * An in-process S3 compatible object store, serving a local directory as a single bucket over http, so that the
+ * object store path of RandomAccessDirectory can be tested without a network. Implements just what the CDM uses:
+ * ListObjects (V1 and V2, never truncated), HeadObject, and GetObject with an optional byte range.
+ * Each GetObject can be delayed, and the number of them in flight is tracked.
+ */
+class ObjectStoreServer implements AutoCloseable {
+  // CdmS3Uri only uses http, rather than https, for an endpoint on one of these ports
+  private static final int[] HTTP_PORTS = {8080, 8008, 9080, 7001, 16080};
+  private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+  final AtomicInteger gets = new AtomicInteger();
+  final AtomicInteger inFlight = new AtomicInteger();
+  final AtomicInteger maxInFlight = new AtomicInteger();
+
+  private final Path root;
+  private final String bucket;
+  private final long delayMillis;
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  /**
+   * Start serving a directory.
+   *
+   * @param root directory whose files are the objects, keyed by their path relative to it
+   * @param bucket name of the bucket
+   * @param delayMillis how long each GetObject takes
+   * @return the server, or null if none of the ports it can use are free
+   */
+  static ObjectStoreServer start(Path root, String bucket, long delayMillis) throws IOException {
+    for (int port : HTTP_PORTS) {
+      try {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        return new ObjectStoreServer(server, root, bucket, delayMillis);
+      } catch (BindException e) {
+        // try the next one
+      }
+    }
+    return null;
+  }
+
+  private ObjectStoreServer(HttpServer server, Path root, String bucket, long delayMillis) {
+    this.server = server;
+    this.root = root;
+    this.bucket = bucket;
+    this.delayMillis = delayMillis;
+    server.createContext("/", this::handle);
+    server.setExecutor(executor); // handle requests concurrently
+    server.start();
+  }
+
+  /** A cdms3 URI of a key in the bucket, which the CDM reads through this server. */
+  String getUri(String key, String fragment) {
+    return ZarrTestsCommon.S3_PREFIX + "//" + server.getAddress().getAddress().getHostAddress() + ":"
+        + server.getAddress().getPort() + "/" + bucket + "?" + key + "#" + fragment;
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      String path = exchange.getRequestURI().getRawPath();
+      String bucketPath = "/" + bucket;
+      if (path.equals(bucketPath) || path.equals(bucketPath + "/")) {
+        list(exchange, parseQuery(exchange.getRequestURI().getRawQuery()));
+      } else if (path.startsWith(bucketPath + "/")) {
+        String key = URLDecoder.decode(path.substring(bucketPath.length() + 1), "UTF-8");
+        Path file = root.resolve(key);
+        if (!Files.isRegularFile(file)) {
+          send(exchange, 404, "NoSuchKey", key);
+        } else if (exchange.getRequestMethod().equals("HEAD")) {
+          head(exchange, file);
+        } else {
+          get(exchange, file);
+        }
+      } else {
+        send(exchange, 404, "NoSuchBucket", path);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void list(HttpExchange exchange, Map<String, String> query) throws IOException {
+    String prefix = query.getOrDefault("prefix", "");
+    String delimiter = query.get("delimiter");
+    Map<String, Path> contents = new TreeMap<>();
+    TreeSet<String> commonPrefixes = new TreeSet<>();
+    try (Stream<Path> files = Files.walk(root)) {
+      files.filter(Files::isRegularFile).forEach(file -> {
+        String key = root.relativize(file).toString().replace(File.separatorChar, '/');
+        if (!key.startsWith(prefix)) {
+          return;
+        }
+        int end = delimiter == null ? -1 : key.indexOf(delimiter, prefix.length());
+        if (end >= 0) {
+          commonPrefixes.add(key.substring(0, end + delimiter.length()));
+        } else {
+          contents.put(key, file);
+        }
+      });
+    }
+
+    StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    xml.append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">");
+    xml.append("<Name>").append(bucket).append("</Name>");
+    xml.append("<Prefix>").append(escape(prefix)).append("</Prefix>");
+    if (delimiter != null) {
+      xml.append("<Delimiter>").append(escape(delimiter)).append("</Delimiter>");
+    }
+    xml.append("<MaxKeys>1000</MaxKeys><IsTruncated>false</IsTruncated>");
+    if ("2".equals(query.get("list-type"))) {
+      xml.append("<KeyCount>").append(contents.size() + commonPrefixes.size()).append("</KeyCount>");
+    } else {
+      xml.append("<Marker></Marker>");
+    }
+    for (Map.Entry<String, Path> entry : contents.entrySet()) {
+      File file = entry.getValue().toFile();
+      xml.append("<Contents><Key>").append(escape(entry.getKey())).append("</Key>");
+      xml.append("<LastModified>").append(format("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", file.lastModified()))
+          .append("</LastModified>");
+      xml.append("<ETag>").append(escape(etag(file))).append("</ETag>");
+      xml.append("<Size>").append(file.length()).append("</Size>");
+      xml.append("<StorageClass>STANDARD</StorageClass></Contents>");
+    }
+    for (String commonPrefix : commonPrefixes) {
+      xml.append("<CommonPrefixes><Prefix>").append(escape(commonPrefix)).append("</Prefix></CommonPrefixes>");
+    }
+    xml.append("</ListBucketResult>");
+
+    byte[] body = xml.toString().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/xml");
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private void head(HttpExchange exchange, Path file) throws IOException {
+    setObjectHeaders(exchange, file.toFile());
+    exchange.getResponseHeaders().set("Content-Length", Long.toString(file.toFile().length()));
+    exchange.sendResponseHeaders(200, -1);
+  }
+
+  private void get(HttpExchange exchange, Path file) throws IOException {
+    int n = inFlight.incrementAndGet();
+    maxInFlight.accumulateAndGet(n, Math::max);
+    gets.incrementAndGet();
+    try {
+      Thread.sleep(delayMillis);
+      byte[] data = Files.readAllBytes(file);
+      int status = 200;
+      int start = 0;
+      int end = data.length; // exclusive
+      String range = exchange.getRequestHeaders().getFirst("Range");
+      Matcher m = range == null ? null : RANGE.matcher(range);
+      if (m != null && m.matches()) {
+        start = Integer.parseInt(m.group(1));
+        if (!m.group(2).isEmpty()) {
+          end = Math.min(end, Integer.parseInt(m.group(2)) + 1);
+        }
+        if (start >= end) {
+          send(exchange, 416, "InvalidRange", range);
+          return;
+        }
+        status = 206;
+        exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + data.length);
+      }
+      setObjectHeaders(exchange, file.toFile());
+      exchange.sendResponseHeaders(status, end - start);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(data, start, end - start);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } finally {
+      inFlight.decrementAndGet();
+    }
+  }
+
+  private static void setObjectHeaders(HttpExchange exchange, File file) {
+    exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+    exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+    exchange.getResponseHeaders().set("ETag", etag(file));
+    exchange.getResponseHeaders().set("Last-Modified",
+        format("EEE, dd MMM yyyy HH:mm:ss 'GMT'", file.lastModified()));
+  }
+
+  private static void send(HttpExchange exchange, int status, String code, String resource) throws IOException {
+    String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<Error><Code>" + code + "</Code><Message>" + code
+        + "</Message><Resource>" + escape(resource) + "</Resource></Error>";
+    byte[] body = xml.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/xml");
+    if (exchange.getRequestMethod().equals("HEAD")) {
+      exchange.sendResponseHeaders(status, -1);
+      return;
+    }
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private static Map<String, String> parseQuery(String query) throws IOException {
+    Map<String, String> result = new HashMap<>();
+    if (query == null) {
+      return result;
+    }
+    for (String param : query.split("&")) {
+      int eq = param.indexOf('=');
+      String name = eq < 0 ? param : param.substring(0, eq);
+      String value = eq < 0 ? "" : param.substring(eq + 1);
+      result.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+    }
+    return result;
+  }
+
+  // changes when the file does
+  private static String etag(File file) {
+    return "\"" + Long.toHexString(file.length()) + "-" + Long.toHexString(file.lastModified()) + "\"";
+  }
+
+  private static String format(String pattern, long millis) {
+    SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    return format.format(new Date(millis));
+  }
+
+  private static String escape(String s) {
+    return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp.zarr;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.Group;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.write.NetcdfFormatWriter;
+import ucar.unidata.io.zarr.RandomAccessDirectory;
+import ucar.unidata.io.zarr.RandomAccessDirectoryItem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Test opening Zarr stores from consolidated metadata, and finding chunks by name
+ */
+public class TestZarrConsolidatedMetadata {
+
+  @ClassRule
+  public static TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static final String DIRECTORY_STORE_URI = ZarrTestsCommon.LOCAL_TEST_DATA_PATH + "zarr_test_data.zarr/";
+
+  private static final String[] VARIABLES = {"group_with_dims/var1D", "group_with_dims/var2D",
+      "group_with_dims/var3D", "group_with_dims/var4D", "group_with_attrs/F_order_array", "group_with_attrs/nested",
+      "group_with_attrs/partial_fill1", "group_with_attrs/partial_fill2", "group_with_attrs/uninitialized"};
+
+  private static String consolidatedStore;
+
+  /** Counts the number of times the directory is listed */
+  private static class CountingDirectory extends RandomAccessDirectory {
+    int listings;
+
+    CountingDirectory(String location) throws IOException {
+      super(location);
+    }
+
+    @Override
+    protected synchronized List<RandomAccessDirectoryItem> getChildren() throws IOException {
+      if (this.children == null) {
+        listings++;
+      }
+      return super.getChildren();
+    }
+  }
+
+  @BeforeClass
+  public static void makeConsolidatedStore() throws IOException {
+    // copy the test store and consolidate its metadata, as zarr.consolidate_metadata() does
+    Path source = Paths.get(DIRECTORY_STORE_URI);
+    Path dest = tempFolder.newFolder("consolidated.zarr").toPath();
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectNode metadata = mapper.createObjectNode();
+    try (Stream<Path> paths = Files.walk(source)) {
+      for (Path path : paths.collect(Collectors.toList())) {
+        String relative = source.relativize(path).toString().replace("\\", "/");
+        if (relative.isEmpty()) {
+          continue;
+        }
+        Files.copy(path, dest.resolve(relative));
+        String name = path.getFileName().toString();
+        if (name.equals(ZarrKeys.ZARRAY) || name.equals(ZarrKeys.ZATTRS) || name.equals(ZarrKeys.ZGROUP)) {
+          metadata.set(relative, mapper.readTree(path.toFile()));
+        }
+      }
+    }
+    ObjectNode zmetadata = mapper.createObjectNode();
+    zmetadata.set(ZarrKeys.METADATA, metadata);
+    zmetadata.put(ZarrKeys.CONSOLIDATED_FORMAT, 1);
+    mapper.writeValue(dest.resolve(ZarrKeys.ZMETADATA).toFile(), zmetadata);
+    consolidatedStore = dest.toString() + "/";
+  }
+
+  @Test
+  public void testSameAsListed() throws IOException {
+    try (NetcdfFile listed = NetcdfFiles.open(DIRECTORY_STORE_URI);
+        NetcdfFile consolidated = NetcdfFiles.open(consolidatedStore)) {
+      compareGroups(listed.getRootGroup(), consolidated.getRootGroup());
+      for (String name : VARIABLES) {
+        Array want = listed.findVariable(name).read();
+        Array got = consolidated.findVariable(name).read();
+        assertThat(got.getShape()).isEqualTo(want.getShape());
+        assertThat(got.get1DJavaArray(DataType.INT)).isEqualTo(want.get1DJavaArray(DataType.INT));
+      }
+    }
+  }
+
+  private void compareGroups(Group want, Group got) {
+    assertThat(got.getShortName()).isEqualTo(want.getShortName());
+    assertThat(got.attributes()).containsExactlyElementsIn(want.attributes());
+    assertThat(got.getVariables().size()).isEqualTo(want.getVariables().size());
+    for (Variable v : want.getVariables()) {
+      Variable other = got.findVariableLocal(v.getShortName());
+      assertThat((Object) other).isNotNull();
+      assertThat(other.getDataType()).isEqualTo(v.getDataType());
+      assertThat(other.getShape()).isEqualTo(v.getShape());
+      assertThat(other.attributes()).containsExactlyElementsIn(v.attributes());
+    }
+    assertThat(got.getGroups().size()).isEqualTo(want.getGroups().size());
+    for (Group g : want.getGroups()) {
+      Group other = got.findGroupLocal(g.getShortName());
+      assertThat(other).isNotNull();
+      compareGroups(g, other);
+    }
+  }
+
+  @Test
+  public void testOpenWithoutListing() throws IOException {
+    CountingDirectory store = new CountingDirectory(consolidatedStore);
+    try (NetcdfFile ncfile = NetcdfFiles.open(store, consolidatedStore, null, null)) {
+      for (String name : VARIABLES) {
+        ncfile.findVariable(name).read();
+      }
+      // as checked by a file cache
+      long lastModified = new File(consolidatedStore, ZarrKeys.ZMETADATA).lastModified();
+      assertThat(store.getLastModified()).isEqualTo(lastModified);
+      assertThat(store.listings).isEqualTo(0);
+
+      // only the length needs the listing, once
+      long length = store.length();
+      assertThat(length).isGreaterThan(0L);
+      assertThat(store.length()).isEqualTo(length);
+      assertThat(store.listings).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void testListedWithoutConsolidatedMetadata() throws IOException {
+    CountingDirectory store = new CountingDirectory(DIRECTORY_STORE_URI);
+    try (NetcdfFile ncfile = NetcdfFiles.open(store, DIRECTORY_STORE_URI, null, null)) {
+      assertThat((Object) ncfile.findVariable("group_with_dims/var2D")).isNotNull();
+      assertThat(store.getLastModified()).isGreaterThan(0L);
+      assertThat(store.length()).isGreaterThan(0L);
+      assertThat(store.listings).isEqualTo(1);
+    }
+    assertThat(store.listings).isEqualTo(1);
+  }
+
+  @Test
+  public void testChunksFoundByName() throws IOException, InvalidRangeException {
+    // more than 10 chunks, whose names do not sort in index order, and partial chunks at the edges
+    String location = new File(tempFolder.getRoot(), "many_chunks.zarr").getAbsolutePath();
+    NetcdfFormatWriter.Builder writerb = NetcdfFormatWriter.createNewZarr(location, null);
+    writerb.addDimension("x", 10);
+    writerb.addDimension("y", 14);
+    writerb.addVariable("data", DataType.INT, "x y")
+        .addAttribute(new Attribute(CDM.CHUNK_SIZES, Array.factory(DataType.INT, new int[] {2}, new int[] {3, 4})));
+    Array data = Array.makeArray(DataType.INT, 140, 0, 1).reshape(new int[] {10, 14});
+    try (NetcdfFormatWriter writer = writerb.build()) {
+      writer.write("data", data);
+    }
+
+    try (NetcdfFile ncfile = NetcdfFiles.open(location + "/")) {
+      Array got = ncfile.findVariable("data").read();
+      assertThat(got.getShape()).isEqualTo(new int[] {10, 14});
+      assertThat(got.get1DJavaArray(DataType.INT)).isEqualTo(data.get1DJavaArray(DataType.INT));
+    }
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp.zarr;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.write.NetcdfCopier;
+import ucar.nc2.write.NetcdfFileFormat;
+import ucar.nc2.write.NetcdfFormatWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Test writing Zarr stores and reading them back with ZarrIosp
+ */
+public class TestZarrIospWriter {
+
+  @ClassRule
+  public static TemporaryFolder tempFolder = new TemporaryFolder();
+
+  // shapes are multiples of the chunks, and each variable has at most 10 chunks
+  private NetcdfFormatWriter.Builder makeWriter(String location) {
+    NetcdfFormatWriter.Builder writerb = NetcdfFormatWriter.createNewZarr(location, null);
+    writerb.addAttribute(new Attribute("title", "zarr writer test"));
+    writerb.addDimension("time", 6);
+    writerb.addDimension("lat", 8);
+    writerb.addVariable("temperature", DataType.FLOAT, "time lat").addAttribute(new Attribute("units", "K"))
+        .addAttribute(new Attribute(CDM.CHUNK_SIZES, Array.factory(DataType.INT, new int[] {2}, new int[] {3, 4})));
+    writerb.addVariable("counts", DataType.INT, "time lat")
+        .addAttribute(new Attribute(CDM.CHUNK_SIZES, Array.factory(DataType.INT, new int[] {2}, new int[] {2, 8})));
+    writerb.addVariable("flags", DataType.SHORT, "lat").addAttribute(new Attribute(CDM.FILL_VALUE, (short) -99))
+        .addAttribute(new Attribute(CDM.CHUNK_SIZES, Array.factory(DataType.INT, new int[] {1}, new int[] {4})));
+    return writerb;
+  }
+
+  private void writeData(NetcdfFormatWriter writer) throws IOException, InvalidRangeException {
+    // temperature is written in two slabs that do not line up with the chunks
+    Array temperature = Array.makeArray(DataType.FLOAT, 48, 0.5, 1.0).reshape(new int[] {6, 8});
+    Variable temp = writer.findVariable("temperature");
+    writer.write(temp, new int[] {0, 0}, temperature.section(new int[] {0, 0}, new int[] {2, 8}));
+    writer.write(temp, new int[] {2, 0}, temperature.section(new int[] {2, 0}, new int[] {4, 8}));
+
+    writer.write(writer.findVariable("counts"), Array.makeArray(DataType.INT, 48, 0, 3).reshape(new int[] {6, 8}));
+
+    // only half of flags is written, the rest is fill
+    writer.write(writer.findVariable("flags"), new int[] {2},
+        Array.factory(DataType.SHORT, new int[] {4}, new short[] {1, 2, 3, 4}));
+  }
+
+  private void checkData(String location) throws IOException {
+    try (NetcdfFile ncfile = NetcdfFiles.open(location + "/")) {
+      assertThat(ncfile.getRootGroup().findAttributeString("title", null)).isEqualTo("zarr writer test");
+
+      Variable temp = ncfile.findVariable("temperature");
+      assertThat(temp).isNotNull();
+      assertThat(temp.getDataType()).isEqualTo(DataType.FLOAT);
+      assertThat(temp.findAttributeString("units", null)).isEqualTo("K");
+      Array data = temp.read();
+      assertThat(data.getShape()).isEqualTo(new int[] {6, 8});
+      for (int i = 0; i < 48; i++) {
+        assertThat(data.getFloat(i)).isEqualTo(0.5f + i);
+      }
+
+      Array counts = ncfile.findVariable("counts").read();
+      for (int i = 0; i < 48; i++) {
+        assertThat(counts.getInt(i)).isEqualTo(3 * i);
+      }
+
+      Array flags = ncfile.findVariable("flags").read();
+      assertThat(flags.get1DJavaArray(DataType.SHORT)).isEqualTo(new short[] {-99, -99, 1, 2, 3, 4, -99, -99});
+    }
+  }
+
+  @Test
+  public void testDefaultCompression() throws IOException, InvalidRangeException {
+    String location = new File(tempFolder.getRoot(), "default.zarr").getAbsolutePath();
+    try (NetcdfFormatWriter writer = makeWriter(location).build()) {
+      writeData(writer);
+    }
+    assertThat(new File(location, ".zgroup").exists()).isTrue();
+    assertThat(new File(location, "temperature/.zarray").exists()).isTrue();
+    assertThat(new File(location, "temperature/1.1").exists()).isTrue();
+    assertThat(new File(location, "flags/0").exists()).isTrue();
+    assertThat(new File(location, "flags/1").exists()).isTrue();
+    checkData(location);
+  }
+
+  @Test
+  public void testBloscCompression() throws IOException, InvalidRangeException {
+    String location = new File(tempFolder.getRoot(), "blosc.zarr").getAbsolutePath();
+    Map<String, Object> blosc = new HashMap<>();
+    blosc.put("id", "blosc");
+    blosc.put("cname", "lz4");
+    blosc.put("clevel", 5);
+    blosc.put("shuffle", 1);
+    ZarrIospWriter iosp = new ZarrIospWriter().setCompressor(blosc).setParallelism(2);
+
+    try (NetcdfFormatWriter writer = makeWriter(location).setIosp(iosp).build()) {
+      writeData(writer);
+    }
+    checkData(location);
+  }
+
+  @Test
+  public void testOverwrite() throws IOException, InvalidRangeException {
+    String location = new File(tempFolder.getRoot(), "overwrite.zarr").getAbsolutePath();
+    for (int i = 0; i < 2; i++) {
+      try (NetcdfFormatWriter writer = makeWriter(location).build()) {
+        writeData(writer);
+      }
+    }
+    checkData(location);
+  }
+
+  @Test(expected = IOException.class)
+  public void testWontOverwriteOtherDirectory() throws IOException {
+    File dir = tempFolder.newFolder("notzarr");
+    assertThat(new File(dir, "keep.txt").createNewFile()).isTrue();
+    try (NetcdfFormatWriter writer = makeWriter(dir.getAbsolutePath()).build()) {
+      // not reached
+    }
+  }
+
+  @Test
+  public void testRejectsStructure() throws IOException {
+    String location = new File(tempFolder.getRoot(), "structure.zarr").getAbsolutePath();
+    NetcdfFormatWriter.Builder writerb = makeWriter(location);
+    writerb.addStructure("obs", "time")
+        .addMemberVariable(Variable.builder().setName("value").setDataType(DataType.INT));
+    try (NetcdfFormatWriter writer = writerb.build()) {
+      fail("expected the Structure to be rejected");
+    } catch (IOException e) {
+      assertThat(e).hasMessageThat().contains("Structure obs");
+    }
+    assertThat(new File(location).exists()).isFalse(); // nothing was written
+  }
+
+  @Test
+  public void testCopy() throws IOException, InvalidRangeException {
+    String original = new File(tempFolder.getRoot(), "original.zarr").getAbsolutePath();
+    try (NetcdfFormatWriter writer = makeWriter(original).build()) {
+      writeData(writer);
+    }
+
+    String location = new File(tempFolder.getRoot(), "copy.zarr").getAbsolutePath();
+    try (NetcdfFile ncfileIn = NetcdfFiles.open(original + "/")) {
+      NetcdfFormatWriter.Builder writerb =
+          NetcdfFormatWriter.builder().setNewFile(true).setFormat(NetcdfFileFormat.ZARR).setLocation(location);
+      NetcdfCopier copier = NetcdfCopier.create(ncfileIn, writerb);
+      try (NetcdfFile ncfileOut = copier.write(null)) {
+        assertThat(ncfileOut.findVariable("temperature")).isNotNull();
+      }
+    }
+    checkData(location);
+  }
+
+  @Test
+  public void testWriteRecords() throws Exception {
+    String location = new File(tempFolder.getRoot(), "records.zarr").getAbsolutePath();
+    NetcdfFormatWriter.Builder writerb = NetcdfFormatWriter.createNewZarr(location, null);
+    writerb.addUnlimitedDimension("time");
+    writerb.addDimension("lat", 8);
+    writerb.addVariable("series", DataType.FLOAT, "time lat")
+        .addAttribute(new Attribute(CDM.CHUNK_SIZES, Array.factory(DataType.INT, new int[] {2}, new int[] {4, 8})));
+    Array values = Array.makeArray(DataType.FLOAT, 80, 0.5, 1.0).reshape(new int[] {10, 8});
+
+    ZarrIospWriter iosp = new ZarrIospWriter();
+    ExecutorService exec = Executors.newFixedThreadPool(4);
+    try (NetcdfFormatWriter writer = writerb.setIosp(iosp).build()) {
+      Variable series = writer.findVariable("series");
+      File first = new File(location, "series/0.0");
+
+      // the chunk is written once all of its records have been written
+      for (int t = 0; t < 4; t++) {
+        assertThat(first.exists()).isFalse();
+        writer.write(series, new int[] {t, 0}, values.section(new int[] {t, 0}, new int[] {1, 8}));
+      }
+      assertThat(first.exists()).isTrue();
+
+      // records written concurrently all end up in their chunks
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int t = 9; t >= 4; t--) {
+        int[] origin = {t, 0};
+        futures.add(exec.submit(() -> {
+          writer.write(series, origin, values.section(origin, new int[] {1, 8}));
+          return null;
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+      assertThat(new File(location, "series/1.0").exists()).isTrue();
+      assertThat(new File(location, "series/2.0").exists()).isFalse(); // only half written
+
+      // a partly written chunk can be read back before it is written
+      Array last = iosp.readData(series, new Section(new int[] {8, 0}, new int[] {2, 8}));
+      for (int i = 0; i < 16; i++) {
+        assertThat(last.getFloat(i)).isEqualTo(64.5f + i);
+      }
+    } finally {
+      exec.shutdown();
+    }
+    assertThat(new File(location, "series/2.0").exists()).isTrue();
+
+    try (NetcdfFile ncfile = NetcdfFiles.open(location + "/")) {
+      Array data = ncfile.findVariable("series").read();
+      assertThat(data.getShape()).isEqualTo(new int[] {10, 8});
+      for (int i = 0; i < 80; i++) {
+        assertThat(data.getFloat(i)).isEqualTo(0.5f + i);
+      }
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp.zarr;
+
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.iosp.ChunkDecodeParallelism;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Test fetching and decoding Zarr chunks concurrently
+ */
+public class TestZarrParallelRead {
+
+  private static final String ZARR_FILENAME = "zarr_test_data.zarr/";
+  private static final String DIRECTORY_STORE_URI = ZarrTestsCommon.LOCAL_TEST_DATA_PATH + ZARR_FILENAME;
+
+  private static final String[] VARIABLES = {"group_with_dims/var1D", "group_with_dims/var2D",
+      "group_with_dims/var3D", "group_with_dims/var4D", "group_with_attrs/F_order_array",
+      "group_with_attrs/partial_fill1", "group_with_attrs/partial_fill2", "group_with_attrs/uninitialized"};
+
+  @Test
+  public void testDirectoryStore() throws IOException {
+    try (NetcdfFile serial = NetcdfFiles.open(DIRECTORY_STORE_URI);
+        NetcdfFile parallel = NetcdfFiles.open(DIRECTORY_STORE_URI)) {
+      assertThat(parallel.sendIospMessage(ChunkDecodeParallelism.of(4))).isEqualTo(Boolean.TRUE);
+      for (String name : VARIABLES) {
+        compare(serial, parallel, name);
+      }
+    }
+  }
+
+  @Test
+  public void testObjectStore() throws IOException {
+    // each chunk fetch takes a while, as it would from a real object store
+    ObjectStoreServer server =
+        ObjectStoreServer.start(Paths.get(ZarrTestsCommon.LOCAL_TEST_DATA_PATH), "zarr_test", 20);
+    assumeTrue("no free port for the object store", server != null);
+    try (ObjectStoreServer closer = server;
+        NetcdfFile serial = NetcdfFiles.open(DIRECTORY_STORE_URI);
+        NetcdfFile parallel = NetcdfFiles.open(server.getUri(ZARR_FILENAME, ZarrTestsCommon.S3_FRAGMENT))) {
+      assertThat(parallel.sendIospMessage(ChunkDecodeParallelism.of(4))).isEqualTo(Boolean.TRUE);
+      int opened = server.gets.get();
+      for (String name : VARIABLES) {
+        compare(serial, parallel, name);
+      }
+      assertThat(server.gets.get()).isGreaterThan(opened); // the chunks came from the object store
+    }
+    assertThat(server.inFlight.get()).isEqualTo(0);
+    assertThat(server.maxInFlight.get()).isGreaterThan(1);
+    assertThat(server.maxInFlight.get()).isAtMost(4);
+  }
+
+  private void compare(NetcdfFile expected, NetcdfFile actual, String name) throws IOException {
+    Array want = expected.findVariable(name).read();
+    Array got = actual.findVariable(name).read();
+    assertThat(got.getShape()).isEqualTo(want.getShape());
+    assertThat(got.getDataType()).isEqualTo(want.getDataType());
+    // compare in the variable's own type, so fractional differences are not truncated away
+    DataType dataType = want.getDataType();
+    assertThat(got.get1DJavaArray(dataType)).isEqualTo(want.get1DJavaArray(dataType));
+  }
+}
@@ -9,6 +9,8 @@ import dap4.core.dmr.*;
 import dap4.core.interfaces.ArrayScheme;
 import ucar.ma2.Array;
 
+import java.nio.ByteBuffer;
+
 /**
  * Wrap an Array representing a variables' data, where the variable
  * is top-level or a field. The wrapper contains some additional
@@ -66,7 +68,12 @@ public class D4Array {
     return this.template;
   }
 
-  public Array getArray() {
+  public synchronized Array getArray() {
+    // In streaming mode, large atomic arrays are kept as a slice of the chunk data until used
+    if (this.array == null && this.storage instanceof ByteBuffer && this.dsp.d4compiler != null) {
+      this.array = this.dsp.d4compiler.createArray((DapVariable) this.template, this.storage);
+      this.storage = this.array.getStorage(); // release the chunk
+    }
     return this.array;
   }
 
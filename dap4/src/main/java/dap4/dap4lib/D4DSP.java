@@ -63,6 +63,7 @@ public abstract class D4DSP {
 
   // DAP stream compilation
   D4DataCompiler d4compiler = null;
+  protected boolean streaming = false;
 
   protected Map<DapVariable, D4Array> datamap = new HashMap<>();
 
@@ -104,6 +105,44 @@ public abstract class D4DSP {
     return this.datamap;
   }
 
+  public boolean isStreaming() {
+    return this.streaming;
+  }
+
+  /**
+   * In streaming mode, loadDAP() does not compile the databuffer;
+   * instead getVariableData() compiles the databuffer only as far as
+   * the requested variable. Must be set before loadDAP().
+   *
+   * @param streaming true for streaming mode
+   * @return this
+   */
+  public D4DSP setStreaming(boolean streaming) {
+    this.streaming = streaming;
+    return this;
+  }
+
+  /**
+   * Get the data for a top-level variable. In streaming mode, compile
+   * the databuffer up to and including the variable, if not already done.
+   *
+   * @param var the variable
+   * @return the data, or null if the variable is not in the databuffer
+   * @throws IOException
+   */
+  public synchronized D4Array getVariableData(DapVariable var) throws IOException {
+    D4Array data = this.datamap.get(var);
+    while (data == null && this.streaming && !this.streamclosed) {
+      D4Array next = this.d4compiler.compileNext(var);
+      if (next == null) {
+        this.stream.close(); // no longer needed
+        this.streamclosed = true;
+      } else if (next.getTemplate() == var)
+        data = next;
+    }
+    return data;
+  }
+
   public Map<DapVariable, Long> getChecksumMap(ChecksumSource src) {
     if (src == ChecksumSource.LOCAL)
       return this.d4compiler.localchecksummap;
@@ -123,6 +162,19 @@ public abstract class D4DSP {
     return this;
   }
 
+  /**
+   * Close the input stream, if still open, e.g. if a streamed databuffer
+   * has not been compiled completely.
+   *
+   * @throws IOException
+   */
+  public synchronized void close() throws IOException {
+    if (this.stream != null && !this.streamclosed) {
+      this.streamclosed = true;
+      this.stream.close();
+    }
+  }
+
   protected void addVariableData(DapVariable var, D4Array cursor) {
     this.datamap.put(var, cursor);
   }
@@ -192,6 +244,10 @@ public abstract class D4DSP {
     try {
       // "Compile" the databuffer section of the server response
       d4compiler = new D4DataCompiler(this, this.checksummode, this.remoteorder);
+      if (this.streaming) {
+        d4compiler.setStreaming(true);
+        return; // compiled as needed by getVariableData()
+      }
       d4compiler.compile();
       assert !this.streamclosed;
       this.stream.close(); // no longer needed
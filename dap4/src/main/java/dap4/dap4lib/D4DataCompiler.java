@@ -30,6 +30,24 @@ public class D4DataCompiler {
   //////////////////////////////////////////////////
   // Constants
 
+  // In streaming mode, fixed-size atomic variables at least this big are decoded from the chunk data in place
+  static int minslicesize = 64 * 1024;
+
+  //////////////////////////////////////////////////
+  // Static methods
+
+  /**
+   * Set the size in bytes above which streaming mode keeps a fixed-size atomic
+   * variable as a ByteBuffer slice of the chunk data instead of decoding it.
+   *
+   * @param size the size in bytes
+   */
+  public static void setMinSliceSize(int size) {
+    if (size < 0)
+      throw new IllegalArgumentException("Slice size must be >= 0: " + size);
+    minslicesize = size;
+  }
+
   //////////////////////////////////////////////////
   // Instance variables
 
@@ -47,6 +65,11 @@ public class D4DataCompiler {
   protected Map<DapVariable, Long> localchecksummap = new HashMap<>();
   protected Map<DapVariable, Long> remotechecksummap = new HashMap<>();
 
+  // Streaming state
+  protected boolean streaming = false;
+  protected int nextvar = 0; // index of the next top-level variable in the databuffer
+  protected DapVariable target = null; // the variable being compiled for, decoded rather than kept as a slice
+
   //////////////////////////////////////////////////
   // Constructor(s)
 
@@ -79,6 +102,25 @@ public class D4DataCompiler {
     return null;
   }
 
+  public boolean isStreaming() {
+    return this.streaming;
+  }
+
+  /**
+   * In streaming mode, large fixed-size atomic variables are decoded directly
+   * from the chunk data. Top-level ones that are compiled on the way to another
+   * variable are kept as ByteBuffer slices of the chunk data, and their Array is
+   * decoded from the slice when first used; only chunks with such slices are
+   * retained, the others are reused.
+   *
+   * @param streaming true for streaming mode
+   * @return this
+   */
+  public D4DataCompiler setStreaming(boolean streaming) {
+    this.streaming = streaming;
+    return this;
+  }
+
   protected void setChecksum(DapConstants.ChecksumSource src, DapVariable dvar, Long csum) {
     switch (src) {
       case LOCAL:
@@ -102,15 +144,50 @@ public class D4DataCompiler {
    * @throws DapException
    */
   public void compile() throws IOException {
-    assert (this.dmr != null && this.stream != null);
     // iterate over the variables represented in the databuffer
-    for (DapVariable vv : this.dmr.getTopVariables()) {
-      Object storage = compileVar(vv);
-      D4Array data = new D4Array(schemeFor(vv), this.dsp, vv).setStorage(storage);
-      assert data.getArray() == null;
-      data.setArray(createArray(vv, data.getStorage()));
-      this.dsp.addVariableData(vv, data);
+    while (compileNext() != null);
+  }
+
+  /**
+   * Compile the next top-level variable in the databuffer and
+   * add it to the DSP, so that it can be used without waiting
+   * for the rest of the databuffer.
+   * Its checksums, if any, are available when this returns.
+   *
+   * @return the data for the variable, or null if there are no more variables
+   * @throws IOException
+   */
+  public D4Array compileNext() throws IOException {
+    return compileNext(null);
+  }
+
+  /**
+   * As compileNext(), where target is the variable that is about to be used.
+   * In streaming mode, if it is the next variable, its data is decoded now
+   * instead of being kept as a slice of the chunk data.
+   *
+   * @param target the variable being compiled for, or null
+   * @return the data for the variable, or null if there are no more variables
+   * @throws IOException
+   */
+  public D4Array compileNext(DapVariable target) throws IOException {
+    assert (this.dmr != null && this.stream != null);
+    List<DapVariable> topvars = this.dmr.getTopVariables();
+    if (this.nextvar >= topvars.size())
+      return null;
+    DapVariable vv = topvars.get(this.nextvar++);
+    this.target = target;
+    Object storage;
+    try {
+      storage = compileVar(vv);
+    } finally {
+      this.target = null;
     }
+    D4Array data = new D4Array(schemeFor(vv), this.dsp, vv).setStorage(storage);
+    if (!(storage instanceof ByteBuffer)) // else decoded when first used, see D4Array.getArray()
+      data.setArray(createArray(vv, storage));
+    this.dsp.addVariableData(vv, data);
+    return data;
   }
 
   /**
@@ -118,7 +195,7 @@ public class D4DataCompiler {
    * Possible return values are:
    * 1. String - String[]
    * 2. Opaque - Bytebuffer[]
-   * 3. Fixed atomic - <type>[]
+   * 3. Fixed atomic - <type>[], or a ByteBuffer slice in streaming mode
    * 4. Structure - Object[][nfields]
    * 5. Sequence - Object[][nfields]
    */
@@ -165,6 +242,16 @@ public class D4DataCompiler {
     // All other fixed-size atomic types
     long dimproduct = var.getCount();
     long total = dimproduct * daptype.getSize();
+    if (this.streaming && total >= minslicesize && daptype.getTypeSort() != TypeSort.Char) {
+      // Keep the encoded values in place until used, unless they are used now
+      boolean keep = var.isTopLevel() && var != this.target;
+      ByteBuffer slice = this.stream.readSlice((int) total, keep).order(this.remoteorder);
+      if (keep)
+        return slice;
+      Object storage = CDMTypeFcns.newTypeVec(daptype, (int) dimproduct);
+      CDMTypeFcns.decodebuffer(daptype, slice, storage);
+      return storage;
+    }
     byte[] bytes = new byte[(int) total]; // total space required
     int red = this.stream.read(bytes);
     if (red <= 0)
@@ -398,6 +485,12 @@ public class D4DataCompiler {
     }
     DataType cdmtype = CDMTypeFcns.daptype2cdmtype(dtype);
     int[] shape = CDMUtil.computeEffectiveShape(var.getDimensions());
+    if (storage instanceof ByteBuffer) { // a slice of the chunk data
+      ByteBuffer slice = (ByteBuffer) storage;
+      Object vector = CDMTypeFcns.newTypeVec(dtype, slice.remaining() / dtype.getSize());
+      CDMTypeFcns.decodebuffer(dtype, slice, vector);
+      storage = vector;
+    }
     Array array = Array.factory(cdmtype, shape, storage);
     return array;
   }
@@ -46,6 +46,7 @@ public class DeChunkedInputStream extends InputStream {
     public int avail;
     public int pos;
     public int flags; // from last chunk header
+    public boolean retained; // a slice of the chunk data is still in use
 
     public Chunk() {
       chunk = null;
@@ -53,6 +54,7 @@ public class DeChunkedInputStream extends InputStream {
       avail = 0;
       pos = 0;
       flags = 0;
+      retained = false;
     }
   }
 
@@ -216,6 +218,39 @@ public class DeChunkedInputStream extends InputStream {
     return this.remoteorder;
   }
 
+  /**
+   * Read the next len bytes as a ByteBuffer with position zero and limit len.
+   * If the bytes all lie in the current chunk, the result is a slice of the chunk
+   * data, otherwise the bytes are copied.
+   * The checksum, if any, is updated from the chunk data directly.
+   * A slice that is not retained is only valid until the next read, since the
+   * chunk buffer is then reused; a retained slice keeps the whole chunk in memory.
+   *
+   * @param len number of bytes
+   * @param retain true if the slice is used after the next read
+   * @return the bytes
+   * @throws IOException
+   */
+  public ByteBuffer readSlice(int len, boolean retain) throws IOException {
+    if (len > 0 && this.chunk.avail == 0) {
+      int red = readChunk(this.chunk); // read next chunk
+      if (red <= 0)
+        throw new IOException("DeChunkedInputStream: IO error");
+    }
+    if (len > this.chunk.avail) {
+      byte[] bytes = new byte[len];
+      read(bytes);
+      return ByteBuffer.wrap(bytes);
+    }
+    ByteBuffer slice = ByteBuffer.wrap(this.chunk.chunk, this.chunk.pos, len).slice();
+    if (checksumming)
+      computeChecksum(this.chunk.chunk, this.chunk.pos, len);
+    this.chunk.pos += len;
+    this.chunk.avail -= len;
+    this.chunk.retained |= retain;
+    return slice;
+  }
+
   //////////////////////////////////////////////////
   // Methods
 
@@ -237,8 +272,9 @@ public class DeChunkedInputStream extends InputStream {
         else
           state = State.MORE;
         // Now read the chunk
-        if (this.chunk.chunk == null || this.chunk.size > this.chunk.chunk.length)
+        if (this.chunk.retained || this.chunk.chunk == null || this.chunk.size > this.chunk.chunk.length)
           this.chunk.chunk = new byte[this.chunk.size]; // reallocate
+        this.chunk.retained = false;
         this.chunk.pos = 0;
         this.chunk.avail = this.chunk.size;
         // read the whole chunk
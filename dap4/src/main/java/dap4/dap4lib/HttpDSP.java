@@ -100,17 +100,31 @@ public class HttpDSP extends D4DSP {
 
   /**
    * This will be called lazily when trying to read data.
+   * In streaming mode, the response stays open until
+   * the whole databuffer has been compiled.
    *
    * @throws DapException
    */
   public void loadDAP() throws DapException {
     String methodurl = getMethodUrl(RequestMode.DAP, this.checksummode);
-    try (InputStream stream = makeRequest(methodurl)) {
+    InputStream stream = null;
+    try {
+      stream = makeRequest(methodurl);
       // Extract and "compile" the server response, ignoring the leading DMR
       setStream(stream, RequestMode.DAP);
       super.loadDAP();
+      if (this.streaming)
+        stream = null; // closed by getVariableData() or close()
     } catch (IOException ioe) {
       throw new DapException(ioe);
+    } finally {
+      if (stream != null) {
+        try {
+          stream.close();
+        } catch (IOException ioe) {
+          // ignore
+        }
+      }
     }
   }
 
@@ -1359,8 +1359,18 @@ public abstract class CDMTypeFcns {
   }
 
   static public Object bytesAsTypeVec(DapType daptype, byte[] bytes) {
+    return newTypeVec(daptype, bytes.length / daptype.getSize());
+  }
+
+  /**
+   * Allocate a vector of the java type used for a fixed-size atomic type
+   *
+   * @param daptype the type
+   * @param count number of elements
+   * @return the vector, or null if the type is not fixed-size atomic
+   */
+  static public Object newTypeVec(DapType daptype, int count) {
     TypeSort tsort = daptype.getTypeSort();
-    int count = (bytes.length / daptype.getSize());
     switch (tsort) {
       case Char:
         return new char[count];
@@ -1382,7 +1392,7 @@ public abstract class CDMTypeFcns {
         return new double[count];
       case Enum:
         // Coverity[FB.BC_UNCONFIRMED_CAST]
-        return bytesAsTypeVec(((DapEnumeration) daptype).getBaseType(), bytes);
+        return newTypeVec(((DapEnumeration) daptype).getBaseType(), count);
       default:
         break;
     }
@@ -1390,18 +1400,31 @@ public abstract class CDMTypeFcns {
   }
 
   static public void decodebytes(ByteOrder remoteorder, DapType daptype, byte[] bytes, Object vector) {
+    if (daptype.getTypeSort() == TypeSort.Char) {
+      String cb = new String(bytes, DapUtil.UTF8);
+      char[] cv = (char[]) vector;
+      for (int i = 0; i < cv.length; i++)
+        cv[i] = cb.charAt(i);
+      return;
+    }
+    decodebuffer(daptype, ByteBuffer.wrap(bytes).order(remoteorder), vector);
+  }
+
+  /**
+   * Decode a fixed-size atomic type other than Char from a buffer,
+   * starting at its position and using its byte order.
+   * The position of the buffer is unchanged.
+   *
+   * @param daptype the type
+   * @param bb the encoded values
+   * @param vector the result of newTypeVec
+   */
+  static public void decodebuffer(DapType daptype, ByteBuffer bb, Object vector) {
     TypeSort tsort = daptype.getTypeSort();
-    ByteBuffer bb = ByteBuffer.wrap(bytes).order(remoteorder);
     switch (tsort) {
-      case Char:
-        String cb = new String(bytes, DapUtil.UTF8);
-        char[] cv = (char[]) vector;
-        for (int i = 0; i < cv.length; i++)
-          cv[i] = cb.charAt(i);
-        break;
       case Int8:
       case UInt8:
-        bb.get((byte[]) vector);
+        bb.duplicate().get((byte[]) vector);
         break;
       case Int16:
       case UInt16:
@@ -1433,12 +1456,11 @@ public abstract class CDMTypeFcns {
         break;
       case Enum:
         // Coverity[FB.BC_UNCONFIRMED_CAST]
-        decodebytes(remoteorder, ((DapEnumeration) daptype).getBaseType(), bytes, vector);
+        decodebuffer(((DapEnumeration) daptype).getBaseType(), bb, vector);
         break;
       default:
         break;
     }
-
   }
 
 }
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -181,6 +182,8 @@ public class DapNetcdfFile extends NetcdfFile {
     if (closed)
       return;
     closed = true; // avoid circular calls
+    if (dsp != null)
+      dsp.close();
     dsp = null;
   }
 
@@ -276,6 +279,8 @@ public class DapNetcdfFile extends NetcdfFile {
     // Ensure that the DSP has data
     ensuredata();
     Array result = arraymap.get(cdmvar);
+    if (result == null && this.dsp.isStreaming())
+      result = readStreamed(cdmvar);
     if (result == null)
       throw new IOException("No data for variable: " + cdmvar.getFullName());
     if (section != null) {
@@ -298,36 +303,64 @@ public class DapNetcdfFile extends NetcdfFile {
     this.cxt.put(D4Array.class, this.dsp.getVariableDataMap());
   }
 
+  /**
+   * In streaming mode, compile the databuffer as far as the variable,
+   * and verify its checksum before the rest of the databuffer is read.
+   *
+   * @param cdmvar A top-level variable
+   * @return its Array, or null if not in the databuffer
+   */
+  protected Array readStreamed(Variable cdmvar) throws IOException {
+    DapVariable dvar = (DapVariable) this.cdmCompiler.getNodeMap().get(cdmvar);
+    if (dvar == null)
+      return null;
+    synchronized (this.dsp) {
+      Array result = this.arraymap.get(cdmvar);
+      if (result == null) {
+        D4Array data = this.dsp.getVariableData(dvar);
+        if (data == null)
+          return null;
+        verifyChecksum(dvar);
+        result = data.getArray();
+        this.arraymap.put(cdmvar, result);
+      }
+      return result;
+    }
+  }
+
   protected void verifyChecksums() throws DapException {
+    for (DapVariable dvar : dmr.getTopVariables())
+      verifyChecksum(dvar);
+  }
+
+  protected void verifyChecksum(DapVariable dvar) throws DapException {
     ChecksumMode cmode = (ChecksumMode) this.cxt.get(ChecksumMode.class);
     Map<DapVariable, Long> remotechecksummap = (Map<DapVariable, Long>) cxt.get(DapConstants.ChecksumSource.REMOTE);
     Map<DapVariable, Long> localchecksummap = (Map<DapVariable, Long>) cxt.get(DapConstants.ChecksumSource.LOCAL);
 
     if (cmode != ChecksumMode.TRUE)
       return;
-    for (DapVariable dvar : dmr.getTopVariables()) {
-      // Verify the calculated checksums
-      Long remotechecksum = remotechecksummap.get(dvar);
-      Long localchecksum = localchecksummap.get(dvar);
-      assert ((localchecksum != null) && (remotechecksum != null));
-      if (!cxt.containsKey("hyrax")) {// Suppress the check for Hyrax, for now
-        if (localchecksum.longValue() != remotechecksum.longValue())
-          throw new DapException("Checksum mismatch: local=" + localchecksum + " remote=" + remotechecksum);
+    // Verify the calculated checksums
+    Long remotechecksum = remotechecksummap.get(dvar);
+    Long localchecksum = localchecksummap.get(dvar);
+    assert ((localchecksum != null) && (remotechecksum != null));
+    if (!cxt.containsKey("hyrax")) {// Suppress the check for Hyrax, for now
+      if (localchecksum.longValue() != remotechecksum.longValue())
+        throw new DapException("Checksum mismatch: local=" + localchecksum + " remote=" + remotechecksum);
+    }
+    // Verify the checksum Attribute, if any
+    DapAttribute csumattr = dvar.getChecksumAttribute();
+    if (csumattr != null) {
+      assert (csumattr.getValues().length == 1 && csumattr.getBaseType() == DapType.INT32);
+      Long attrcsum = (long) 0;
+      try {
+        attrcsum = Long.parseLong(csumattr.getValues()[0]);
+      } catch (NumberFormatException nfe) {
+        throw new DapException("Illegal Checksum attribute value", nfe);
       }
-      // Verify the checksum Attribute, if any
-      DapAttribute csumattr = dvar.getChecksumAttribute();
-      if (csumattr != null) {
-        assert (csumattr.getValues().length == 1 && csumattr.getBaseType() == DapType.INT32);
-        Long attrcsum = (long) 0;
-        try {
-          attrcsum = Long.parseLong(csumattr.getValues()[0]);
-        } catch (NumberFormatException nfe) {
-          throw new DapException("Illegal Checksum attribute value", nfe);
-        }
-        if (!cxt.containsKey("hyrax")) { // Suppress the check for Hyrax, for now
-          if (localchecksum.longValue() != attrcsum.longValue())
-            throw new DapException("Checksum mismatch: local=" + localchecksum + " attribute=" + attrcsum);
-        }
+      if (!cxt.containsKey("hyrax")) { // Suppress the check for Hyrax, for now
+        if (localchecksum.longValue() != attrcsum.longValue())
+          throw new DapException("Checksum mismatch: local=" + localchecksum + " attribute=" + attrcsum);
       }
     }
   }
@@ -349,6 +382,16 @@ public class DapNetcdfFile extends NetcdfFile {
     if (!this.daploaded) { // do not call twice
       this.daploaded = true;
       this.dsp.loadDAP();
+      if (this.dsp.isStreaming()) {
+        // The variables are compiled and their checksums verified as they are read, see readStreamed()
+        loadContext();
+        this.dsp.loadContext(this.cxt, RequestMode.DAP);
+        if (this.cdmCompiler == null)
+          this.cdmCompiler = new CDMCompiler(this, this.dsp);
+        // readData() looks up arrays outside the lock that readStreamed() adds them under
+        this.arraymap = new ConcurrentHashMap<Variable, Array>();
+        return;
+      }
       loadContext();
       verifyChecksums();
       this.dsp.loadContext(this.cxt, RequestMode.DAP);
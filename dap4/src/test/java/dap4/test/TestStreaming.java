@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package dap4.test;
+
+import dap4.core.dmr.DapVariable;
+import dap4.core.util.DapConstants;
+import dap4.dap4lib.D4Array;
+import dap4.dap4lib.D4DataCompiler;
+import dap4.dap4lib.cdm.nc2.DapNetcdfFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.nc2.Variable;
+import ucar.nc2.write.Ncdump;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test that reading a DAP4 response in streaming mode, where variables are
+ * compiled as they are read and large arrays are kept as slices of the chunks,
+ * gives the same data as compiling the whole response, and that the slices
+ * are released once used.
+ */
+public class TestStreaming extends DapTestCommon {
+
+  static protected final String INPUTDIR = "/rawtestfiles";
+  static protected final String INPUTEXT = ".nc.dap";
+  static protected final String INPUTQUERY = "?" + DapConstants.CHECKSUMTAG + "=false";
+
+  static protected final String[] NAMES = {"test_atomic_array", "test_atomic_types", "test_enum_array", "test_fill_2",
+      "test_one_vararray", "test_opaque_array", "test_struct_array", "test_unlim1", "test_utf8"};
+
+  @After
+  public void resetSliceSize() {
+    D4DataCompiler.setMinSliceSize(64 * 1024);
+  }
+
+  @Test
+  public void testSameAsCompiled() throws Exception {
+    D4DataCompiler.setMinSliceSize(0); // slice every array that can be
+    for (String name : NAMES) {
+      String url = "file://" + getResourceRoot() + INPUTDIR + "/" + name + INPUTEXT + INPUTQUERY;
+      Map<String, String> want = readAll(url, false);
+      Map<String, String> got = readAll(url, true);
+      Assert.assertFalse(name, want.isEmpty());
+      Assert.assertEquals(name, want, got);
+    }
+  }
+
+  // Only variables compiled on the way to another keep a slice of the chunk, and only until they are used
+  @Test
+  public void testSlicesReleased() throws Exception {
+    D4DataCompiler.setMinSliceSize(0);
+    String url = "file://" + getResourceRoot() + INPUTDIR + "/test_atomic_array" + INPUTEXT + INPUTQUERY;
+    try (DapNetcdfFile ncfile = new DapNetcdfFile(url)) {
+      ncfile.getDSP().setStreaming(true);
+      List<Variable> vars = new ArrayList<>(ncfile.getVariables());
+      Variable last = vars.get(vars.size() - 1);
+      last.read();
+      Map<DapVariable, D4Array> datamap = ncfile.getDSP().getVariableDataMap();
+      Assert.assertEquals(vars.size(), datamap.size());
+      int slices = 0;
+      for (D4Array data : datamap.values()) {
+        if (data.getStorage() instanceof ByteBuffer) {
+          Assert.assertNotEquals(last.getShortName(), data.getTemplate().getShortName());
+          slices++;
+        }
+      }
+      Assert.assertTrue(slices > 0);
+
+      for (Variable v : vars)
+        v.read();
+      for (D4Array data : datamap.values())
+        Assert.assertFalse(data.toString(), data.getStorage() instanceof ByteBuffer);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadSliceSize() {
+    D4DataCompiler.setMinSliceSize(-1);
+  }
+
+  // Read the top-level variables, last one first, so streaming has to compile ahead
+  private static Map<String, String> readAll(String url, boolean streaming) throws IOException {
+    Map<String, String> result = new LinkedHashMap<>();
+    try (DapNetcdfFile ncfile = new DapNetcdfFile(url)) {
+      ncfile.getDSP().setStreaming(streaming);
+      List<Variable> vars = new ArrayList<>(ncfile.getVariables());
+      Collections.reverse(vars);
+      for (Variable v : vars) {
+        if (v.getParentStructure() != null)
+          continue;
+        Array data = v.read();
+        result.put(v.getFullName(), Ncdump.printArray(data, v.getFullName(), null));
+      }
+    }
+    return result;
+  }
+}
@@ -8,10 +8,8 @@ package ucar.nc2.grib.collection;
 import javax.annotation.Nonnull;
 import thredds.featurecollection.FeatureCollectionConfig;
 import thredds.featurecollection.FeatureCollectionConfig.GribConfig;
-import thredds.inventory.CollectionUpdateType;
 import thredds.inventory.MCollection;
 import thredds.inventory.MFile;
-import ucar.nc2.grib.GribIndex;
 import ucar.nc2.grib.GribIndexCache;
 import ucar.nc2.grib.coord.Coordinate;
 import ucar.nc2.grib.coord.CoordinateEns;
@@ -27,7 +25,6 @@ import ucar.nc2.grib.grib2.Grib2Utils;
 import ucar.nc2.time.CalendarDate;
 import ucar.nc2.time.CalendarDateRange;
 import ucar.nc2.time.CalendarPeriod;
-import ucar.nc2.util.CloseableIterator;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
@@ -68,84 +65,74 @@ public class Grib1CollectionBuilder extends GribCollectionBuilder {
     logger.debug(" dcm={}", dcm);
 
     // place each record into its group
-    try (CloseableIterator<MFile> iter = dcm.getFileIterator()) { // not sorted
-      if (iter == null)
-        return new ArrayList<>(); // empty
+    List<FileIndex> fileIndexes = readFileIndexes();
+    if (fileIndexes == null)
+      return new ArrayList<>(); // empty
+
+    for (FileIndex fileIndex : fileIndexes) { // in collection order, so the result does not depend on parallelism
+      MFile mfile = fileIndex.mfile;
+      if (fileIndex.failure != null) {
+        logger.error("Grib1CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath()
+            + " failed", fileIndex.failure);
+        continue;
+      }
+      Grib1Index index = (Grib1Index) fileIndex.index;
+      if (Grib.debugGbxIndexOnly && index == null)
+        continue;
+      allFiles.add(mfile); // add on success
+
+      if (index == null) {
+        logger.error("Grib1CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath()
+            + " failed");
+        continue;
+      }
 
-      while (iter.hasNext()) {
-        MFile mfile = iter.next();
-        Grib1Index index;
-        try {
-          if (Grib.debugGbxIndexOnly) {
-            index = (Grib1Index) GribIndex.open(true, mfile);
-            if (index == null)
-              continue;
-          } else {
-            // here is where gbx9 files get recreated
-            index =
-                (Grib1Index) GribIndex.readOrCreateIndexFromSingleFile(true, mfile, CollectionUpdateType.test, logger);
-          }
-          allFiles.add(mfile); // add on success
-
-        } catch (IOException ioe) {
-          logger.error("Grib1CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath()
-              + " failed", ioe);
-          continue;
+      for (Grib1Record gr : index.getRecords()) { // we are using entire Grib1Record - likely this is the memory
+                                                  // bottleneck for how big a collection can handle
+        if (this.cust == null) {
+          cust = Grib1Customizer.factory(gr, null);
+          cust.setTimeUnitConverter(gribConfig.getTimeUnitConverter());
         }
-        if (index == null) {
-          logger.error("Grib1CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath()
-              + " failed");
-          continue;
+        if (filterIntervals(gr, gribConfig.intvFilter)) {
+          statsAll.filter++;
+          continue; // skip
         }
 
-        for (Grib1Record gr : index.getRecords()) { // we are using entire Grib1Record - likely this is the memory
-                                                    // bottleneck for how big a collection can handle
-          if (this.cust == null) {
-            cust = Grib1Customizer.factory(gr, null);
-            cust.setTimeUnitConverter(gribConfig.getTimeUnitConverter());
-          }
-          if (filterIntervals(gr, gribConfig.intvFilter)) {
-            statsAll.filter++;
-            continue; // skip
-          }
-
-          gr.setFile(fileno); // each record tracks which file it belongs to
-          Grib1Gds gds = gr.getGDS(); // use GDS to group records
-          int hashCode = gribConfig.convertGdsHash(gds.hashCode()); // allow external config to muck with gdsHash. Why?
-                                                                    // because of error in encoding and we need exact
-                                                                    // hash matching
-          if (0 == hashCode)
-            continue; // skip this group
-          // GdsHashObject gdsHashObject = new GdsHashObject(gr.getGDS(), hashOverride);
-
-          CalendarDate runtimeDate = gr.getReferenceDate();
-          long runtime = singleRuntime ? runtimeDate.getMillis() : 0; // separate Groups for each runtime, if
-                                                                      // singleRuntime is true
-          GroupAndRuntime gar = new GroupAndRuntime(hashCode, runtime);
-          Grib1CollectionWriter.Group g = gdsMap.get(gar);
-          if (g == null) {
-            g = new Grib1CollectionWriter.Group(gr.getGDSsection(), hashCode, runtimeDate);
-            gdsMap.put(gar, g);
-          }
-          g.records.add(gr);
-          g.runtimes.add(runtimeDate.getMillis());
+        gr.setFile(fileno); // each record tracks which file it belongs to
+        Grib1Gds gds = gr.getGDS(); // use GDS to group records
+        int hashCode = gribConfig.convertGdsHash(gds.hashCode()); // allow external config to muck with gdsHash. Why?
+                                                                  // because of error in encoding and we need exact
+                                                                  // hash matching
+        if (0 == hashCode)
+          continue; // skip this group
+        // GdsHashObject gdsHashObject = new GdsHashObject(gr.getGDS(), hashOverride);
+
+        CalendarDate runtimeDate = gr.getReferenceDate();
+        long runtime = singleRuntime ? runtimeDate.getMillis() : 0; // separate Groups for each runtime, if
+                                                                    // singleRuntime is true
+        GroupAndRuntime gar = new GroupAndRuntime(hashCode, runtime);
+        Grib1CollectionWriter.Group g = gdsMap.get(gar);
+        if (g == null) {
+          g = new Grib1CollectionWriter.Group(gr.getGDSsection(), hashCode, runtimeDate);
+          gdsMap.put(gar, g);
         }
-        fileno++;
-        statsAll.recordsTotal += index.getRecords().size();
+        g.records.add(gr);
+        g.runtimes.add(runtimeDate.getMillis());
       }
+      fileno++;
+      statsAll.recordsTotal += index.getRecords().size();
     }
 
     // rectilyze each group independently
     List<Grib1CollectionWriter.Group> groups = new ArrayList<>(gdsMap.values());
-    for (Grib1CollectionWriter.Group g : groups) {
-      GribRecordStats stats = new GribRecordStats(); // debugging
+    GribIndexParallelism.forEachOrdered(groups.iterator(), g -> {
+      RectilyzeLog log = new RectilyzeLog();
       Grib1Rectilyser rect = new Grib1Rectilyser(g.records, g.hashCode);
-      rect.make(gribConfig, stats, errlog);
+      rect.make(gribConfig, log.stats, log.info);
       g.gribVars = rect.gribvars;
       g.coords = rect.coords;
-
-      statsAll.add(stats);
-    }
+      return log;
+    }, log -> log.addTo(statsAll, errlog));
 
     // debugging and validation
     if (logger.isDebugEnabled())
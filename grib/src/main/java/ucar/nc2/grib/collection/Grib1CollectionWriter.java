@@ -122,7 +122,7 @@ class Grib1CollectionWriter extends GribCollectionWriter {
             first = vb.first;
           }
           GribCollectionProto.SparseArray vr = writeSparseArray(vb, g.fileSet);
-          byte[] b = vr.toByteArray();
+          byte[] b = GribCdmIndex.isFlatRecordTables() ? GribRecordTable.encode(vr) : vr.toByteArray();
           vb.pos = raf.getFilePointer();
           vb.length = b.length;
           raf.write(b);
@@ -8,10 +8,8 @@ package ucar.nc2.grib.collection;
 import javax.annotation.Nonnull;
 import thredds.featurecollection.FeatureCollectionConfig;
 import thredds.featurecollection.TimeUnitConverter;
-import thredds.inventory.CollectionUpdateType;
 import thredds.inventory.MCollection;
 import thredds.inventory.MFile;
-import ucar.nc2.grib.GribIndex;
 import ucar.nc2.grib.GribIndexCache;
 import ucar.nc2.grib.coord.Coordinate;
 import ucar.nc2.grib.coord.CoordinateEns;
@@ -27,7 +25,6 @@ import ucar.nc2.grib.grib2.table.Grib2Tables;
 import ucar.nc2.time.CalendarDate;
 import ucar.nc2.time.CalendarDateRange;
 import ucar.nc2.time.CalendarPeriod;
-import ucar.nc2.util.CloseableIterator;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
@@ -78,70 +75,60 @@ class Grib2CollectionBuilder extends GribCollectionBuilder {
 
     // place each record into its group
     int totalRecords = 0;
-    try (CloseableIterator<MFile> iter = dcm.getFileIterator()) { // not sorted
-      if (iter == null)
-        return new ArrayList<>(); // empty
+    List<FileIndex> fileIndexes = readFileIndexes();
+    if (fileIndexes == null)
+      return new ArrayList<>(); // empty
+
+    for (FileIndex fileIndex : fileIndexes) { // in collection order, so the result does not depend on parallelism
+      MFile mfile = fileIndex.mfile;
+      if (fileIndex.failure != null) {
+        logger.error("Grib2CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath()
+            + " failed", fileIndex.failure);
+        continue;
+      }
+      allFiles.add(mfile); // add on success
 
-      while (iter.hasNext()) {
-        MFile mfile = iter.next();
-        Grib2Index index;
+      Grib2Index index = (Grib2Index) fileIndex.index;
+      if (index == null) {
+        logger.error("Grib2CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath()
+            + " failed");
+        continue;
+      }
+      int n = index.getNRecords();
+      totalRecords += n;
 
-        try {
-          if (Grib.debugGbxIndexOnly) {
-            index = (Grib2Index) GribIndex.open(false, mfile);
-          } else {
-            // this is where gbx9 files get recreated
-            index =
-                (Grib2Index) GribIndex.readOrCreateIndexFromSingleFile(false, mfile, CollectionUpdateType.test, logger);
-          }
-          allFiles.add(mfile); // add on success
-
-        } catch (IOException ioe) {
-          logger.error("Grib2CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath()
-              + " failed", ioe);
-          continue;
+      for (Grib2Record gr : index.getRecords()) { // we are using entire Grib2Record - memory limitations
+        if (this.cust == null) {
+          this.cust = Grib2Tables.factory(gr);
         }
-        if (index == null) {
-          logger.error("Grib2CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath()
-              + " failed");
-          continue;
+        if (filterIntervals(gr, gribConfig.intvFilter)) {
+          statsAll.filter++;
+          continue; // skip
         }
-        int n = index.getNRecords();
-        totalRecords += n;
-
-        for (Grib2Record gr : index.getRecords()) { // we are using entire Grib2Record - memory limitations
-          if (this.cust == null) {
-            this.cust = Grib2Tables.factory(gr);
-          }
-          if (filterIntervals(gr, gribConfig.intvFilter)) {
-            statsAll.filter++;
-            continue; // skip
-          }
-
-          gr.setFile(fileno); // each record tracks which file it belongs to
-          Grib2Gds gds = gr.getGDS(); // use GDS to group records
-          int hashCode = gribConfig.convertGdsHash(gds.hashCode()); // allow external config to muck with gdsHash. Why?
-                                                                    // because of error in encoding and we need exact
-                                                                    // hash matching
-          if (0 == hashCode)
-            continue; // skip this group
-          // GdsHashObject gdsHashObject = new GdsHashObject(gr.getGDS(), hashCode);
-
-          CalendarDate runtimeDate = gr.getReferenceDate();
-          long runtime = singleRuntime ? runtimeDate.getMillis() : 0; // separate Groups for each runtime, if
-                                                                      // singleRuntime is true
-          GroupAndRuntime gar = new GroupAndRuntime(hashCode, runtime);
-          Grib2CollectionWriter.Group g = gdsMap.get(gar);
-          if (g == null) {
-            g = new Grib2CollectionWriter.Group(gr.getGDSsection(), hashCode, runtimeDate);
-            gdsMap.put(gar, g);
-          }
-          g.records.add(gr);
-          g.runtimes.add(runtimeDate.getMillis());
+
+        gr.setFile(fileno); // each record tracks which file it belongs to
+        Grib2Gds gds = gr.getGDS(); // use GDS to group records
+        int hashCode = gribConfig.convertGdsHash(gds.hashCode()); // allow external config to muck with gdsHash. Why?
+                                                                  // because of error in encoding and we need exact
+                                                                  // hash matching
+        if (0 == hashCode)
+          continue; // skip this group
+        // GdsHashObject gdsHashObject = new GdsHashObject(gr.getGDS(), hashCode);
+
+        CalendarDate runtimeDate = gr.getReferenceDate();
+        long runtime = singleRuntime ? runtimeDate.getMillis() : 0; // separate Groups for each runtime, if
+                                                                    // singleRuntime is true
+        GroupAndRuntime gar = new GroupAndRuntime(hashCode, runtime);
+        Grib2CollectionWriter.Group g = gdsMap.get(gar);
+        if (g == null) {
+          g = new Grib2CollectionWriter.Group(gr.getGDSsection(), hashCode, runtimeDate);
+          gdsMap.put(gar, g);
         }
-        fileno++;
-        statsAll.recordsTotal += index.getRecords().size();
+        g.records.add(gr);
+        g.runtimes.add(runtimeDate.getMillis());
       }
+      fileno++;
+      statsAll.recordsTotal += index.getRecords().size();
     }
 
     if (totalRecords == 0) {
@@ -151,15 +138,14 @@ class Grib2CollectionBuilder extends GribCollectionBuilder {
 
     // rectilyze each group independently
     List<Grib2CollectionWriter.Group> groups = new ArrayList<>(gdsMap.values());
-    for (Grib2CollectionWriter.Group g : groups) {
-      GribRecordStats stats = new GribRecordStats(); // debugging
+    GribIndexParallelism.forEachOrdered(groups.iterator(), g -> {
+      RectilyzeLog log = new RectilyzeLog();
       Grib2Rectilyser rect = new Grib2Rectilyser(g.records, g.hashCode);
-      rect.make(gribConfig, stats, errlog);
+      rect.make(gribConfig, log.stats, log.info);
       g.gribVars = rect.gribvars;
       g.coords = rect.coords;
-
-      statsAll.add(stats);
-    }
+      return log;
+    }, log -> log.addTo(statsAll, errlog));
 
     // debugging and validation
     if (logger.isDebugEnabled())
@@ -85,7 +85,7 @@ class Grib2CollectionWriter extends GribCollectionWriter {
    * MAGIC_START
    * version
    * sizeRecords
-   * SparseArray's (sizeRecords bytes)
+   * SparseArray's or GribRecordTables (sizeRecords bytes)
    * sizeIndex
    * GribCollectionIndex (sizeIndex bytes)
    */
@@ -120,7 +120,7 @@ class Grib2CollectionWriter extends GribCollectionWriter {
           if (first == null)
             first = vb.first;
           GribCollectionProto.SparseArray vr = writeSparseArray(vb, g.fileSet);
-          byte[] b = vr.toByteArray();
+          byte[] b = GribCdmIndex.isFlatRecordTables() ? GribRecordTable.encode(vr) : vr.toByteArray();
           vb.pos = raf.getFilePointer();
           vb.length = b.length;
           raf.write(b);
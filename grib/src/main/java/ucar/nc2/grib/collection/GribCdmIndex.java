@@ -33,6 +33,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Formatter;
@@ -74,6 +75,23 @@ public class GribCdmIndex implements IndexReader {
     gribCollectionCache = cache;
   }
 
+  private static volatile boolean flatRecordTables;
+
+  /**
+   * Write the records of each variable of a GribCollection as a flat table, which is memory-mapped and read in place,
+   * rather than as a protobuf message, which is read onto the heap. This keeps the heap used by many open
+   * collections small. Indexes written this way can only be read by this and later versions of the library, and on
+   * Windows, a mapped index cant be rewritten until the collection that mapped it is garbage collected.
+   * Default is false.
+   */
+  public static void setFlatRecordTables(boolean flat) {
+    flatRecordTables = flat;
+  }
+
+  public static boolean isFlatRecordTables() {
+    return flatRecordTables;
+  }
+
   // open GribCollectionImmutable from an existing index file. return null on failure
   static GribCollectionImmutable acquireGribCollection(FileFactory factory, Object hashKey, String location,
       int buffer_size, CancelTask cancelTask, Object spiObject) throws IOException {
@@ -394,16 +412,16 @@ public class GribCdmIndex implements IndexReader {
     long start = System.currentTimeMillis();
     Formatter errlog = new Formatter();
 
-    for (MCollection part : tp.makePartitions(updateType)) {
-      try {
-        updateGribCollection(isGrib1, part, updateType, FeatureCollectionConfig.PartitionType.timePeriod, logger,
-            errlog);
-
-      } catch (Throwable t) {
-        logger.warn("Error making partition " + part.getRoot(), t);
-        tp.removePartition(part); // keep on truckin; can happen if directory is empty
-      }
-    } // loop over component grib collections
+    GribIndexParallelism.forEachOrdered(tp.makePartitions(updateType).iterator(),
+        part -> updateChild(part, (child, childErrlog) -> updateGribCollection(isGrib1, child, updateType,
+            FeatureCollectionConfig.PartitionType.timePeriod, logger, childErrlog)),
+        result -> {
+          errlog.format("%s", result.errlog);
+          if (result.failure != null) {
+            logger.warn("Error making partition " + result.part.getRoot(), result.failure);
+            tp.removePartition(result.part); // keep on truckin; can happen if directory is empty
+          }
+        }); // loop over component grib collections
 
 
     try {
@@ -424,6 +442,33 @@ public class GribCdmIndex implements IndexReader {
     }
   }
 
+  private interface ChildUpdater {
+    boolean update(MCollection part, Formatter errlog) throws IOException;
+  }
+
+  /** The result of updating one child of a partition. */
+  private static class ChildUpdate {
+    final MCollection part;
+    final Formatter errlog = new Formatter(); // the children may be updated concurrently, see GribIndexParallelism
+    boolean changed;
+    Throwable failure;
+
+    ChildUpdate(MCollection part) {
+      this.part = part;
+    }
+  }
+
+  // may be called on several threads; failures are returned, to be handled in partition order
+  private static ChildUpdate updateChild(MCollection part, ChildUpdater updater) {
+    ChildUpdate result = new ChildUpdate(part);
+    try {
+      result.changed = updater.update(part, result.errlog);
+    } catch (Throwable t) {
+      result.failure = t;
+    }
+    return result;
+  }
+
   private static boolean isUpdateNeeded(String idxFilenameOrg, CollectionUpdateType updateType,
       GribCollectionType wantType, Logger logger) {
     if (updateType == CollectionUpdateType.never)
@@ -467,25 +512,27 @@ public class GribCdmIndex implements IndexReader {
 
     // check the children partitions first
     if (updateType != CollectionUpdateType.testIndexOnly) { // skip children on testIndexOnly
-      for (MCollection part : dpart.makePartitions(updateType)) {
-        part.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, config);
-        try {
-          if (part instanceof DirectoryPartition) { // LOOK if child partition fails, the parent partition doesnt know
-                                                    // that - suckage
-            updateDirectoryCollectionRecurse(isGrib1, (DirectoryPartition) part, config, updateType, logger);
-          } else {
-            Path partPath = Paths.get(part.getRoot());
-            updateLeafCollection(isGrib1, config, updateType, false, logger, partPath); // LOOK why not using part ??
-          }
-        } catch (IllegalStateException t) {
-          logger.warn("Error making partition {} '{}'", part.getRoot(), t.getMessage());
-          dpart.removePartition(part); // keep on truckin; can happen if directory is empty
-
-        } catch (Throwable t) {
-          logger.error("Error making partition " + part.getRoot(), t);
-          dpart.removePartition(part);
-        }
-      } // loop over partitions
+      GribIndexParallelism.forEachOrdered(dpart.makePartitions(updateType).iterator(),
+          part -> updateChild(part, (child, childErrlog) -> {
+            child.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, config);
+            // LOOK if child partition fails, the parent partition doesnt know that - suckage
+            if (child instanceof DirectoryPartition) {
+              return updateDirectoryCollectionRecurse(isGrib1, (DirectoryPartition) child, config, updateType, logger);
+            } else {
+              Path partPath = Paths.get(child.getRoot());
+              // LOOK why not using part ??
+              return updateLeafCollection(isGrib1, config, updateType, false, logger, partPath);
+            }
+          }), result -> {
+            if (result.failure instanceof IllegalStateException) {
+              logger.warn("Error making partition {} '{}'", result.part.getRoot(), result.failure.getMessage());
+              dpart.removePartition(result.part); // keep on truckin; can happen if directory is empty
+
+            } else if (result.failure != null) {
+              logger.error("Error making partition " + result.part.getRoot(), result.failure);
+              dpart.removePartition(result.part);
+            }
+          }); // loop over partitions
     }
 
     try {
@@ -571,23 +618,26 @@ public class GribCdmIndex implements IndexReader {
 
       // redo the children here
       if (updateType != CollectionUpdateType.testIndexOnly) { // skip children on testIndexOnly
-        partition.iterateOverMFileCollection(mfile -> {
+        List<MFile> mfiles = new ArrayList<>();
+        partition.iterateOverMFileCollection(mfiles::add);
+
+        GribIndexParallelism.forEachOrdered(mfiles.iterator(), mfile -> {
           MCollection part = new CollectionSingleFile(mfile, logger);
           part.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, config);
-
-          try {
-            boolean changed = updateGribCollection(isGrib1, part, updateType,
-                FeatureCollectionConfig.PartitionType.file, logger, errlog);
-            if (changed)
-              anyChange.set(true);
-
-          } catch (IllegalStateException t) {
-            logger.warn("Error making partition {} '{}'", part.getRoot(), t.getMessage());
-            partition.removePartition(part); // keep on truckin; can happen if directory is empty
-
-          } catch (Throwable t) {
-            logger.error("Error making partition " + part.getRoot(), t);
-            partition.removePartition(part);
+          return updateChild(part, (child, childErrlog) -> updateGribCollection(isGrib1, child, updateType,
+              FeatureCollectionConfig.PartitionType.file, logger, childErrlog));
+        }, result -> {
+          errlog.format("%s", result.errlog);
+          if (result.changed)
+            anyChange.set(true);
+
+          if (result.failure instanceof IllegalStateException) {
+            logger.warn("Error making partition {} '{}'", result.part.getRoot(), result.failure.getMessage());
+            partition.removePartition(result.part); // keep on truckin; can happen if directory is empty
+
+          } else if (result.failure != null) {
+            logger.error("Error making partition " + result.part.getRoot(), result.failure);
+            partition.removePartition(result.part);
           }
         });
       }
@@ -17,6 +17,7 @@ import ucar.nc2.grib.coord.Coordinate;
 import ucar.nc2.grib.coord.CoordinateRuntime;
 import ucar.nc2.grib.coord.CoordinateTime2D;
 import ucar.nc2.grib.coord.CoordinateTimeAbstract;
+import ucar.nc2.grib.coord.GribRecordStats;
 import ucar.nc2.grib.GribIndex;
 import ucar.nc2.grib.GribIndexCache;
 import ucar.nc2.time.CalendarDate;
@@ -252,6 +253,64 @@ abstract class GribCollectionBuilder {
     return ok;
   }
 
+  /** The gbx9 index of one file, or why it could not be read or created. */
+  protected static class FileIndex {
+    final MFile mfile;
+    final GribIndex index; // null if it failed
+    final IOException failure; // null unless it failed with an exception
+
+    private FileIndex(MFile mfile, GribIndex index, IOException failure) {
+      this.mfile = mfile;
+      this.index = index;
+      this.failure = failure;
+    }
+  }
+
+  /**
+   * Read or create the gbx9 index of each file of the collection, concurrently if GribIndexParallelism allows.
+   *
+   * @return the indexes in the order of the collection files, or null if the collection has no file iterator.
+   */
+  protected List<FileIndex> readFileIndexes() throws IOException {
+    try (CloseableIterator<MFile> iter = dcm.getFileIterator()) { // not sorted
+      if (iter == null)
+        return null;
+
+      List<FileIndex> result = new ArrayList<>();
+      GribIndexParallelism.forEachOrdered(iter, this::readFileIndex, result::add);
+      return result;
+    }
+  }
+
+  // may be called on several threads
+  private FileIndex readFileIndex(MFile mfile) {
+    try {
+      GribIndex index;
+      if (Grib.debugGbxIndexOnly) {
+        index = GribIndex.open(isGrib1, mfile);
+      } else {
+        // this is where gbx9 files get recreated
+        index = GribIndex.readOrCreateIndexFromSingleFile(isGrib1, mfile, CollectionUpdateType.test, logger);
+      }
+      return new FileIndex(mfile, index, null);
+    } catch (IOException ioe) {
+      return new FileIndex(mfile, null, ioe);
+    }
+  }
+
+  /** What rectilyzing one group reports, kept apart so that groups can be rectilyzed concurrently. */
+  protected static class RectilyzeLog {
+    final GribRecordStats stats = new GribRecordStats(); // debugging
+    final Formatter info = new Formatter();
+
+    /** Add to the totals, in group order. */
+    void addTo(GribRecordStats statsAll, Formatter errlog) {
+      statsAll.add(stats);
+      if (errlog != null)
+        errlog.format("%s", info);
+    }
+  }
+
   public interface Group {
     CalendarDate getRuntime();
 
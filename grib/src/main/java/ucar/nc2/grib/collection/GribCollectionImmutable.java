@@ -42,9 +42,12 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 
@@ -105,6 +108,8 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
   protected final String indexFilename; // full path of index Filename
 
   private FileCacheIF objCache; // optional object cache - used in the TDS
+  private ByteBuffer mappedIndex; // the index file, mapped when a flat record table is first read
+  private boolean mappedIndexFailed;
 
   GribCollectionImmutable(GribCollectionMutable gc) {
     countGC++;
@@ -139,6 +144,29 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
     }
   }
 
+  /**
+   * Memory-map the index file, for reading flat record tables in place.
+   *
+   * @return the mapped file, or null if it cant be mapped, eg if it is larger than 2 GB.
+   */
+  @Nullable
+  private synchronized ByteBuffer getMappedIndex() {
+    if (mappedIndex == null && !mappedIndexFailed) {
+      try (FileChannel channel = FileChannel.open(Paths.get(indexFilename), StandardOpenOption.READ)) {
+        long size = channel.size();
+        if (size <= Integer.MAX_VALUE) {
+          mappedIndex = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } else {
+          mappedIndexFailed = true;
+        }
+      } catch (IOException | RuntimeException e) {
+        logger.debug("Cant memory-map index {}", indexFilename, e);
+        mappedIndexFailed = true;
+      }
+    }
+    return mappedIndex;
+  }
+
   // overridden in PartitionCollection
   protected VariableIndex makeVariableIndex(GroupGC group, GribCollectionMutable.VariableIndex mutableVar) {
     return new VariableIndex(group, mutableVar);
@@ -447,7 +475,7 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
     }
   }
 
-  @Immutable // except for sa
+  @Immutable // except for sa and table
   public class VariableIndex {
     final GroupGC group; // belongs to this group
     final VariableIndex.Info info;
@@ -462,6 +490,7 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
 
     // read in on demand
     private SparseArray<Record> sa; // for GC only; lazily read; same array shape as variable, minus x and y
+    private GribRecordTable table; // instead of sa, if the index has flat record tables
 
     protected VariableIndex(GroupGC g, GribCollectionMutable.VariableIndex gcVar) {
       this.group = g;
@@ -478,15 +507,21 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
     }
 
     public synchronized void readRecords() throws IOException {
-      if (this.sa != null)
+      if (this.sa != null || this.table != null)
         return;
 
       if (recordsLen == 0)
         return;
-      byte[] b = new byte[recordsLen];
 
       try (RandomAccessFile indexRaf = RandomAccessFile.acquire(indexFilename)) {
+        indexRaf.order(RandomAccessFile.BIG_ENDIAN);
+        indexRaf.seek(recordsPos);
+        if (recordsLen >= 4 && indexRaf.readInt() == GribRecordTable.MAGIC) {
+          this.table = readRecordTable(indexRaf);
+          return;
+        }
 
+        byte[] b = new byte[recordsLen];
         indexRaf.seek(recordsPos);
         indexRaf.readFully(b);
 
@@ -525,12 +560,24 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
       }
     }
 
+    // a flat record table is used in place, from the mapped index if possible
+    private GribRecordTable readRecordTable(RandomAccessFile indexRaf) throws IOException {
+      ByteBuffer mapped = getMappedIndex();
+      if (mapped != null && recordsPos + recordsLen <= mapped.capacity())
+        return new GribRecordTable(mapped, (int) recordsPos, recordsLen);
+
+      byte[] b = new byte[recordsLen];
+      indexRaf.seek(recordsPos);
+      indexRaf.readFully(b);
+      return new GribRecordTable(ByteBuffer.wrap(b), 0, recordsLen);
+    }
+
     synchronized Record getRecordAt(int sourceIndex) {
-      return sa.getContent(sourceIndex);
+      return (table != null) ? table.getRecord(sourceIndex) : sa.getContent(sourceIndex);
     }
 
     synchronized Record getRecordAt(int[] sourceIndex) {
-      return sa.getContent(sourceIndex);
+      return (table != null) ? table.getRecord(sourceIndex) : sa.getContent(sourceIndex);
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -613,7 +660,7 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
 
         want[count++] = idx;
       }
-      return sa.getContent(want);
+      return (table != null) ? table.getRecord(want) : sa.getContent(want);
     }
 
     public List<Coordinate> getCoordinates() {
@@ -649,11 +696,14 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
       return coordIndex;
     }
 
-    public SparseArray<Record> getSparseArray() {
-      return sa;
+    /** The records read by readRecords(), copied onto the heap if the index has flat record tables. */
+    public synchronized SparseArray<Record> getSparseArray() {
+      return (table != null) ? table.toSparseArray() : sa;
     }
 
-    public int countNRecords() {
+    public synchronized int countNRecords() {
+      if (table != null)
+        return table.countNotMissing();
       return sa == null ? -1 : sa.countNotMissing();
     }
 
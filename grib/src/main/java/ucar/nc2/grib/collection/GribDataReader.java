@@ -22,15 +22,28 @@ import ucar.nc2.grib.grib1.Grib1SectionProductDefinition;
 import ucar.nc2.grib.grib1.tables.Grib1Customizer;
 import ucar.nc2.grib.grib2.Grib2Record;
 import ucar.nc2.grib.grib2.Grib2RecordScanner;
+import ucar.nc2.grib.grib2.Grib2SectionBitMap;
+import ucar.nc2.grib.grib2.Grib2SectionData;
+import ucar.nc2.grib.grib2.Grib2SectionDataRepresentation;
 import ucar.nc2.grib.grib2.table.Grib2Tables;
+import ucar.nc2.iosp.ChunkDecodeParallelism;
+import ucar.unidata.io.InMemoryRandomAccessFile;
 import ucar.unidata.io.RandomAccessFile;
 import javax.annotation.concurrent.Immutable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Grib Data Reader.
  * Split from GribIosp, so can be used by GribCoverage.
+ * <p>
+ * The records are read in order of file and position. With a {@link ChunkDecodeParallelism} level greater than one,
+ * the bytes of each record are still read in that order on the calling thread, but decoding them and copying the
+ * result into the DataReceiver is handed to a shared pool, with at most "level" records in flight.
  *
  * @author caron
  * @since 4/6/11
@@ -42,14 +55,27 @@ public abstract class GribDataReader {
 
   public static GribDataReader factory(GribCollectionImmutable gribCollection,
       GribCollectionImmutable.VariableIndex vindex) {
+    return factory(gribCollection, vindex, ChunkDecodeParallelism.getGlobal());
+  }
+
+  public static GribDataReader factory(GribCollectionImmutable gribCollection,
+      GribCollectionImmutable.VariableIndex vindex, ChunkDecodeParallelism parallelism) {
     if (gribCollection.isGrib1)
-      return new Grib1DataReader(gribCollection, vindex);
+      return new Grib1DataReader(gribCollection, vindex, parallelism);
     else
-      return new Grib2DataReader(gribCollection, vindex);
+      return new Grib2DataReader(gribCollection, vindex, parallelism);
   }
 
   protected abstract float[] readData(RandomAccessFile rafData, DataRecord dr) throws IOException;
 
+  /**
+   * Read all the bytes that readData(RandomAccessFile, DataRecord) needs for this record, so that it can be decoded
+   * from memory on another thread.
+   *
+   * @return the bytes, at the same positions as in rafData.
+   */
+  protected abstract RandomAccessFile readRecordBytes(RandomAccessFile rafData, DataRecord dr) throws IOException;
+
   protected abstract void show(RandomAccessFile rafData, long dataPos) throws IOException;
 
   /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -60,11 +86,14 @@ public abstract class GribDataReader {
 
   protected final GribCollectionImmutable gribCollection;
   private final GribCollectionImmutable.VariableIndex vindex;
+  private final ChunkDecodeParallelism parallelism;
   private final List<DataRecord> records = new ArrayList<>();
 
-  protected GribDataReader(GribCollectionImmutable gribCollection, GribCollectionImmutable.VariableIndex vindex) {
+  protected GribDataReader(GribCollectionImmutable gribCollection, GribCollectionImmutable.VariableIndex vindex,
+      ChunkDecodeParallelism parallelism) {
     this.gribCollection = gribCollection;
     this.vindex = vindex;
+    this.parallelism = parallelism;
   }
 
   /**
@@ -238,6 +267,7 @@ public abstract class GribDataReader {
 
     int currFile = -1;
     RandomAccessFile rafData = null;
+    RecordDecoder decoder = new RecordDecoder(dataReceiver);
     try {
       for (DataRecord dr : records) {
         if (Grib.debugIndexOnly || Grib.debugGbxIndexOnly) {
@@ -269,12 +299,13 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
         GdsHorizCoordSys hcs = vindex.group.getGdsHorizCoordSys();
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        decoder.decode(rafData, dr, hcs.nx);
       }
+      decoder.finish();
 
     } finally {
+      decoder.cancel();
       if (rafData != null)
         rafData.close(); // make sure its closed even on exception
     }
@@ -291,6 +322,7 @@ public abstract class GribDataReader {
 
     PartitionCollectionImmutable.DataRecord lastRecord = null;
     RandomAccessFile rafData = null;
+    RecordDecoder decoder = new RecordDecoder(dataReceiver);
     try {
 
       for (DataRecord dr : records) {
@@ -321,17 +353,128 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
         GdsHorizCoordSys hcs = dr.hcs;
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        decoder.decode(rafData, dr, hcs.nx);
       }
+      decoder.finish();
 
     } finally {
+      decoder.cancel();
       if (rafData != null)
         rafData.close(); // make sure its closed even on exception
     }
   }
 
+  /**
+   * Decodes records and sends them to the DataReceiver, either serially, or on the shared decode pool.
+   * The data files are only read on the calling thread.
+   */
+  private class RecordDecoder {
+    private final DataReceiverIF dataReceiver;
+    private final int level;
+    private final Deque<Future<?>> pending = new ArrayDeque<>(); // records being decoded
+
+    RecordDecoder(DataReceiverIF dataReceiver) {
+      this.dataReceiver = dataReceiver;
+      // validating and showing records, and finding the last record read, need the data file, so are done serially
+      boolean needsFile = validator != null || show || Grib2Record.getlastRecordRead;
+      this.level = needsFile ? 1 : parallelism.getLevel();
+    }
+
+    void decode(RandomAccessFile rafData, DataRecord dr, int nx) throws IOException {
+      if (level <= 1) {
+        float[] data = readData(rafData, dr);
+        dataReceiver.addData(data, dr.resultIndex, nx);
+        return;
+      }
+
+      while (pending.size() >= level) {
+        await(pending.removeFirst());
+      }
+      RandomAccessFile recordBytes = readRecordBytes(rafData, dr);
+      pending.addLast(ChunkDecodeParallelism.getExecutor().submit(() -> {
+        float[] data = readData(recordBytes, dr);
+        dataReceiver.addData(data, dr.resultIndex, nx); // each record has its own slots in the result
+        return null;
+      }));
+    }
+
+    /** Wait for all records to be decoded. */
+    void finish() throws IOException {
+      while (!pending.isEmpty()) {
+        await(pending.removeFirst());
+      }
+    }
+
+    /** Cancel any records still being decoded, after an exception. */
+    void cancel() {
+      for (Future<?> future : pending) {
+        future.cancel(true);
+      }
+      pending.clear();
+    }
+
+    private void await(Future<?> future) throws IOException {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while decoding GRIB record", e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException)
+          throw (IOException) cause;
+        if (cause instanceof RuntimeException)
+          throw (RuntimeException) cause;
+        if (cause instanceof Error)
+          throw (Error) cause;
+        throw new IOException(cause);
+      }
+    }
+  }
+
+  /**
+   * The bytes of one record, held in memory at their positions in the data file, so that the record can be decoded
+   * without the data file.
+   */
+  private static class RecordBytes extends InMemoryRandomAccessFile {
+    RecordBytes(String location, long startPos, byte[] data) {
+      super(location, data);
+      bufferStart = startPos;
+      dataEnd = startPos + data.length;
+      filePosition = startPos;
+    }
+
+    static RecordBytes read(RandomAccessFile rafData, long startPos, long endPos) throws IOException {
+      byte[] data = new byte[(int) (endPos - startPos)];
+      rafData.seek(startPos);
+      rafData.readFully(data);
+      return new RecordBytes(rafData.getLocation(), startPos, data);
+    }
+
+    @Override
+    protected void readBuffer(long pos) {
+      // all of the record is in the buffer, so any other position is outside of it
+      filePosition = pos;
+      endOfFile = true;
+    }
+
+    @Override
+    protected int read_(long pos, byte[] b, int offset, int len) {
+      int start = (int) (pos - bufferStart);
+      len = Math.min(len, buffer.length - start);
+      if (start < 0 || len <= 0)
+        return -1;
+      System.arraycopy(buffer, start, b, offset, len);
+      return len;
+    }
+
+    @Override
+    public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
+      return dest.write(ByteBuffer.wrap(buffer, (int) (offset - bufferStart), (int) nbytes));
+    }
+  }
+
   public static class DataRecord implements Comparable<DataRecord> {
     int resultIndex; // index into the result array
     final GribCollectionImmutable.Record record;
@@ -360,6 +503,10 @@ public abstract class GribDataReader {
   }
 
   public interface DataReceiverIF {
+    /**
+     * Add the data of one record. When records are decoded in parallel, this is called concurrently, but never
+     * twice for the same resultIndex.
+     */
     void addData(float[] data, int resultIndex, int nx);
 
     void setDataToZero(); // only used when debugging with gbx/ncx only, to fake the data
@@ -460,8 +607,9 @@ public abstract class GribDataReader {
   private static class Grib2DataReader extends GribDataReader {
     private final Grib2Tables cust;
 
-    Grib2DataReader(GribCollectionImmutable gribCollection, GribCollectionImmutable.VariableIndex vindex) {
-      super(gribCollection, vindex);
+    Grib2DataReader(GribCollectionImmutable gribCollection, GribCollectionImmutable.VariableIndex vindex,
+        ChunkDecodeParallelism parallelism) {
+      super(gribCollection, vindex, parallelism);
       this.cust = (Grib2Tables) gribCollection.cust;
     }
 
@@ -474,6 +622,18 @@ public abstract class GribDataReader {
           hcs.nyRaw, hcs.nptsInLine);
     }
 
+    @Override
+    protected RandomAccessFile readRecordBytes(RandomAccessFile rafData, DataRecord dr) throws IOException {
+      // the data representation, bitmap and data sections; the bitmap may be an earlier one in the same message
+      long dataPos = dr.record.pos + dr.record.drsOffset;
+      long bmsPos = (dr.record.bmsOffset > 0) ? dr.record.pos + dr.record.bmsOffset : dataPos;
+      rafData.seek(dataPos);
+      new Grib2SectionDataRepresentation(rafData);
+      new Grib2SectionBitMap(rafData);
+      Grib2SectionData dataSection = new Grib2SectionData(rafData);
+      return RecordBytes.read(rafData, Math.min(dataPos, bmsPos), dataSection.getEndingPosition());
+    }
+
     @Override
     protected void show(RandomAccessFile rafData, long pos) throws IOException {
       Grib2Record gr = Grib2RecordScanner.findRecordByDrspos(rafData, pos);
@@ -496,8 +656,9 @@ public abstract class GribDataReader {
   private static class Grib1DataReader extends GribDataReader {
     private final Grib1Customizer cust;
 
-    Grib1DataReader(GribCollectionImmutable gribCollection, GribCollectionImmutable.VariableIndex vindex) {
-      super(gribCollection, vindex);
+    Grib1DataReader(GribCollectionImmutable gribCollection, GribCollectionImmutable.VariableIndex vindex,
+        ChunkDecodeParallelism parallelism) {
+      super(gribCollection, vindex, parallelism);
       this.cust = (Grib1Customizer) gribCollection.cust;
     }
 
@@ -506,6 +667,13 @@ public abstract class GribDataReader {
       return Grib1Record.readData(rafData, dr.record.pos);
     }
 
+    @Override
+    protected RandomAccessFile readRecordBytes(RandomAccessFile rafData, DataRecord dr) throws IOException {
+      rafData.seek(dr.record.pos);
+      Grib1Record gr = new Grib1Record(rafData);
+      return RecordBytes.read(rafData, dr.record.pos, gr.getIs().getEndPos());
+    }
+
     @Override
     protected void show(RandomAccessFile rafData, long dataPos) throws IOException {
       rafData.seek(dataPos);
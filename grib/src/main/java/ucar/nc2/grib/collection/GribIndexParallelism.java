@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib.collection;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The number of independent tasks run concurrently while building GRIB collection indexes: the gbx9 index of each
+ * file, the grouping of the records of each GDS, the ncx4 index of each child of a partition, and the union of the
+ * coordinates of each variable of a partition. A level of 1 (the default) does everything serially on the calling
+ * thread.
+ * <p>
+ * With a level greater than 1, at most "level" tasks are in flight per step, and their results are used in the
+ * original order, so the index files written are the same as when built serially.
+ * Tasks may have tasks of their own (eg a partition of partitions), so they run on a shared pool of daemon threads
+ * that are created as needed, rather than on a fixed size pool which could deadlock.
+ *
+ * <pre>
+ * GribIndexParallelism.setLevel(Runtime.getRuntime().availableProcessors());
+ * GribCdmIndex.updateGribCollection(config, CollectionUpdateType.always, logger);
+ * </pre>
+ */
+public final class GribIndexParallelism {
+  private static volatile int level = 1;
+  private static ExecutorService executor;
+
+  /** Set the maximum number of tasks in flight per step, must be at least 1. */
+  public static void setLevel(int level) {
+    if (level < 1) {
+      throw new IllegalArgumentException("GRIB index parallelism must be >= 1, was " + level);
+    }
+    GribIndexParallelism.level = level;
+  }
+
+  public static int getLevel() {
+    return level;
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "grib-index");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return executor;
+  }
+
+  /** A task run on one item, possibly on another thread. */
+  interface Task<T, R> {
+    R apply(T item) throws IOException;
+  }
+
+  /** Uses the result of a Task, always on the calling thread. */
+  interface Result<R> {
+    void accept(R result) throws IOException;
+  }
+
+  /**
+   * Run the task on each item, and hand the results to the consumer in the order of the items.
+   * If a task or the consumer fails, tasks not yet started are cancelled, and those running are waited for, so that
+   * no index is still being written when this returns.
+   *
+   * @param items the items; only iterated on the calling thread.
+   * @param task independent of the other items, must be thread safe.
+   * @param consumer called on the calling thread, in order.
+   */
+  static <T, R> void forEachOrdered(Iterator<? extends T> items, Task<T, R> task, Result<R> consumer)
+      throws IOException {
+    int level = getLevel();
+    if (level <= 1) {
+      while (items.hasNext()) {
+        consumer.accept(task.apply(items.next()));
+      }
+      return;
+    }
+
+    ExecutorService exec = getExecutor();
+    Deque<Future<R>> inFlight = new ArrayDeque<>(level);
+    try {
+      while (items.hasNext()) {
+        T item = items.next();
+        inFlight.add(exec.submit(() -> task.apply(item)));
+        if (inFlight.size() >= level) {
+          consumer.accept(await(inFlight.poll()));
+        }
+      }
+      while (!inFlight.isEmpty()) {
+        consumer.accept(await(inFlight.poll()));
+      }
+    } finally {
+      for (Future<R> future : inFlight) {
+        future.cancel(false);
+      }
+      for (Future<R> future : inFlight) {
+        try {
+          future.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        } catch (ExecutionException | CancellationException e) {
+          // already failing
+        }
+      }
+    }
+  }
+
+  private static <R> R await(Future<R> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while building GRIB index", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw new IOException(cause);
+    }
+  }
+
+  private GribIndexParallelism() {}
+}
@@ -33,6 +33,7 @@ import ucar.nc2.grib.coord.VertCoordType;
 import ucar.nc2.grib.coord.VertCoordValue;
 import ucar.nc2.grib.grib2.Grib2Utils;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.ChunkDecodeParallelism;
 import ucar.nc2.time.Calendar;
 import ucar.nc2.time.CalendarPeriod;
 import ucar.nc2.util.CancelTask;
@@ -94,6 +95,11 @@ public abstract class GribIosp extends AbstractIOServiceProvider {
       return null;
     }
 
+    if (special instanceof ChunkDecodeParallelism) {
+      decodeParallelism = (ChunkDecodeParallelism) special;
+      return Boolean.TRUE;
+    }
+
     return super.sendIospMessage(special);
   }
 
@@ -107,6 +113,7 @@ public abstract class GribIosp extends AbstractIOServiceProvider {
   protected boolean isPartitioned;
   protected boolean owned; // if Iosp is owned by GribCollection; affects close() LOOK get rid of this
   protected ucar.nc2.grib.GribTables gribTable;
+  private ChunkDecodeParallelism decodeParallelism; // null means use the global setting
 
   public GribIosp(boolean isGrib1, org.slf4j.Logger logger) {
     this.isGrib1 = isGrib1;
@@ -1105,7 +1112,8 @@ public abstract class GribIosp extends AbstractIOServiceProvider {
     try {
       Array result;
       GribCollectionImmutable.VariableIndex vindex = (GribCollectionImmutable.VariableIndex) v2.getSPobject();
-      GribDataReader dataReader = GribDataReader.factory(gribCollection, vindex);
+      GribDataReader dataReader = GribDataReader.factory(gribCollection, vindex,
+          decodeParallelism != null ? decodeParallelism : ChunkDecodeParallelism.getGlobal());
       SectionIterable sectionIter = new SectionIterable(section, v2.getShape());
       result = dataReader.readData(sectionIter);
 
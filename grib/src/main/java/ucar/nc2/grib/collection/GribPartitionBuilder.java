@@ -35,6 +35,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * superclass to build Grib1/2 PartitionCollections
@@ -202,6 +203,17 @@ abstract class GribPartitionBuilder {
     }
   }
 
+  // a variable of the result, and the same variable in each partition, or null if missing
+  private static class VariableUnion {
+    final GribCollectionMutable.VariableIndex viResult;
+    final GribCollectionMutable.VariableIndex[] components;
+
+    VariableUnion(GribCollectionMutable.VariableIndex viResult, int npart) {
+      this.viResult = viResult;
+      this.components = new GribCollectionMutable.VariableIndex[npart];
+    }
+  }
+
   @Nullable
   private GribCollectionMutable.Dataset makeDataset2D(Formatter f) throws IOException {
     FeatureCollectionConfig config =
@@ -332,21 +344,33 @@ abstract class GribPartitionBuilder {
                                // now, assume non-dense
       CoordinateSharer sharify = new CoordinateSharer(isDense, logger);
 
-      // for each variable, create union of coordinates across the partitions
+      // for each variable, find its component variables in the partitions
+      List<VariableUnion> unions = new ArrayList<>(resultGroup.variList.size());
       for (GribCollectionMutable.VariableIndex viResult : resultGroup.variList) {
         PartitionCollectionMutable.VariableIndexPartitioned vip =
             (PartitionCollectionMutable.VariableIndexPartitioned) viResult;
         vip.finish(); // create the SA, remove list LOOK, could do it differently
 
-        // loop over partitions, make union coordinate; also time filter the intervals
-        CoordinatePartitionUnionizer unionizer = new CoordinatePartitionUnionizer(viResult, intvMap, logger);
+        VariableUnion union = new VariableUnion(viResult, npart);
         for (int partno = 0; partno < npart; partno++) {
           GribCollectionMutable.GroupGC group = gp.componentGroups[partno];
           if (group == null)
             continue; // tolerate missing groups
-          GribCollectionMutable.VariableIndex vi = group.findVariableByHash(viResult);
+          union.components[partno] = group.findVariableByHash(viResult); // tolerate missing variables
+        }
+        unions.add(union);
+      } // loop over variable
+
+      // for each variable, create union of coordinates across the partitions; the variables are independent, so may be
+      // unionized concurrently, but are shared in order
+      AtomicBoolean failed = new AtomicBoolean(false);
+      GribIndexParallelism.forEachOrdered(unions.iterator(), union -> {
+        // loop over partitions, make union coordinate; also time filter the intervals
+        CoordinatePartitionUnionizer unionizer = new CoordinatePartitionUnionizer(union.viResult, intvMap, logger);
+        for (int partno = 0; partno < npart; partno++) {
+          GribCollectionMutable.VariableIndex vi = union.components[partno];
           if (vi == null)
-            continue; // tolerate missing variables
+            continue;
           try {
             PartitionCollectionMutable.Partition part = ds2D.gctype.isUniqueTime() ? null : result.getPartition(partno);
             unionizer.addCoords(vi.getCoordinates(), part);
@@ -356,9 +380,16 @@ abstract class GribPartitionBuilder {
           }
         } // loop over partition
 
-        viResult.coords = unionizer.finish(); // the viResult coordinates have been ortho/regularized
-        sharify.addCoords(viResult.coords);
-      } // loop over variable
+        union.viResult.coords = unionizer.finish(); // the viResult coordinates have been ortho/regularized
+        return union.viResult;
+      }, viResult -> {
+        if (viResult == null)
+          failed.set(true);
+        else
+          sharify.addCoords(viResult.coords);
+      });
+      if (failed.get())
+        return null;
 
       // create a list of common coordinates, put them into the group, and now variables just reference those by index
       sharify.finish();
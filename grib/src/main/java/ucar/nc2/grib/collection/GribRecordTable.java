@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib.collection;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import ucar.nc2.grib.coord.SparseArray;
+
+/**
+ * The records of one variable of a GribCollection, stored in the index as flat, fixed width arrays, so that they can
+ * be memory-mapped and looked up without being deserialized. An alternative to the SparseArray protobuf message,
+ * written when {@link GribCdmIndex#setFlatRecordTables(boolean)} is set.
+ *
+ * <pre>
+ * int magic = "GRT1"
+ * int rank
+ * int[rank] shape       // multidim sizes
+ * int ndups             // duplicates found when creating
+ * int nrecords
+ * int[product(shape)] track   // 1-based index into records, 0 == missing
+ * nrecords * {int fileno, long startPos, int bmsOffset, int drsOffset}
+ * </pre>
+ *
+ * All values are big endian. A SparseArray message always starts with a field tag, never with 'G', so the two
+ * can be told apart by the first byte.
+ */
+@Immutable
+class GribRecordTable {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(GribRecordTable.class);
+
+  static final int MAGIC = 0x47525431; // "GRT1"
+  private static final int RECORD_SIZE = 4 + 8 + 4 + 4;
+
+  private final ByteBuffer buffer; // shared, only absolute gets are used
+  private final int[] shape;
+  private final int[] stride;
+  private final int totalSize;
+  private final int ndups;
+  private final int nrecords;
+  private final int trackStart; // position in buffer
+  private final int recordsStart; // position in buffer
+
+  /**
+   * A view of a table in a buffer, nothing is copied.
+   *
+   * @param buffer holds the table, eg a memory-mapped index file.
+   * @param start where the table starts in the buffer.
+   * @param length the length of the table.
+   * @throws IOException if the table is not valid.
+   */
+  GribRecordTable(ByteBuffer buffer, int start, int length) throws IOException {
+    this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+    int pos = start;
+    if (this.buffer.getInt(pos) != MAGIC)
+      throw new IOException("Not a GribRecordTable at " + start);
+    pos += 4;
+    int rank = this.buffer.getInt(pos);
+    pos += 4;
+    this.shape = new int[rank];
+    for (int i = 0; i < rank; i++) {
+      shape[i] = this.buffer.getInt(pos);
+      pos += 4;
+    }
+    this.ndups = this.buffer.getInt(pos);
+    pos += 4;
+    this.nrecords = this.buffer.getInt(pos);
+    pos += 4;
+
+    this.stride = new int[rank];
+    int product = 1;
+    for (int i = rank - 1; i >= 0; i--) {
+      stride[i] = product;
+      product *= shape[i];
+    }
+    this.totalSize = product;
+    this.trackStart = pos;
+    this.recordsStart = pos + 4 * totalSize;
+    if (recordsStart + (long) nrecords * RECORD_SIZE != (long) start + length)
+      throw new IOException("GribRecordTable length " + length + " does not match its shape "
+          + Arrays.toString(shape) + " and nrecords " + nrecords);
+  }
+
+  /** Convert a SparseArray message, as written by the GribCollectionWriters, to a GribRecordTable. */
+  static byte[] encode(GribCollectionProto.SparseArray proto) {
+    int rank = proto.getSizeCount();
+    int ntrack = proto.getTrackCount();
+    int nrecords = proto.getRecordsCount();
+    ByteBuffer bb = ByteBuffer.allocate(4 * (4 + rank + ntrack) + nrecords * RECORD_SIZE);
+    bb.putInt(MAGIC);
+    bb.putInt(rank);
+    for (int i = 0; i < rank; i++)
+      bb.putInt(proto.getSize(i));
+    bb.putInt(proto.getNdups());
+    bb.putInt(nrecords);
+    for (int i = 0; i < ntrack; i++)
+      bb.putInt(proto.getTrack(i));
+    for (int i = 0; i < nrecords; i++) {
+      GribCollectionProto.Record pr = proto.getRecords(i);
+      bb.putInt(pr.getFileno());
+      bb.putLong(pr.getStartPos());
+      bb.putInt(pr.getBmsOffset());
+      bb.putInt(pr.getDrsOffset());
+    }
+    return bb.array();
+  }
+
+  /** Get the record at the index into the flattened array, or null if missing. */
+  @Nullable
+  GribCollectionImmutable.Record getRecord(int idx) {
+    if (idx >= totalSize || idx < 0) {
+      logger.error("BAD index get=" + idx + " max= " + totalSize, new Throwable());
+      throw new ArrayIndexOutOfBoundsException(idx);
+    }
+    int recordIdx = buffer.getInt(trackStart + 4 * idx) - 1;
+    if (recordIdx < 0)
+      return null; // missing
+    if (recordIdx >= nrecords)
+      throw new IndexOutOfBoundsException("record " + recordIdx + " of " + nrecords);
+    int pos = recordsStart + recordIdx * RECORD_SIZE;
+    return new GribCollectionImmutable.Record(buffer.getInt(pos), buffer.getLong(pos + 4), buffer.getInt(pos + 12),
+        buffer.getInt(pos + 16));
+  }
+
+  /** Get the record at the multidim index, or null if missing. */
+  @Nullable
+  GribCollectionImmutable.Record getRecord(int[] index) {
+    int where = 0;
+    for (int i = 0; i < index.length; i++)
+      where += index[i] * stride[i];
+    return getRecord(where);
+  }
+
+  int countNotMissing() {
+    int result = 0;
+    for (int idx = 0; idx < totalSize; idx++)
+      if (buffer.getInt(trackStart + 4 * idx) > 0)
+        result++;
+    return result;
+  }
+
+  /** Read the whole table onto the heap, eg for showing it. */
+  SparseArray<GribCollectionImmutable.Record> toSparseArray() {
+    int[] track = new int[totalSize];
+    for (int idx = 0; idx < totalSize; idx++)
+      track[idx] = buffer.getInt(trackStart + 4 * idx);
+    List<GribCollectionImmutable.Record> records = new ArrayList<>(nrecords);
+    for (int i = 0; i < nrecords; i++) {
+      int pos = recordsStart + i * RECORD_SIZE;
+      records.add(new GribCollectionImmutable.Record(buffer.getInt(pos), buffer.getLong(pos + 4),
+          buffer.getInt(pos + 12), buffer.getInt(pos + 16)));
+    }
+    return new SparseArray<>(shape.clone(), track, records, ndups);
+  }
+}
@@ -5,21 +5,22 @@
 package ucar.nc2.grib.coord;
 
 import ucar.nc2.time.CalendarDate;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Reuse immutable calendar date objects.
  * LOOK: This optimization could go away.
+ * Thread safe, since partitions may be indexed on several threads.
  *
  * @author caron
  * @since 4/3/2015
  */
 public class CalendarDateFactory {
-  private Map<Long, CalendarDate> map;
+  private final ConcurrentMap<Long, CalendarDate> map;
 
   public CalendarDateFactory(CoordinateRuntime master) {
-    map = new HashMap<>(master.getSize() * 2);
+    map = new ConcurrentHashMap<>(master.getSize() * 2);
     for (Object valo : master.getValues()) {
       CalendarDate cd = CalendarDate.of((Long) valo);
       map.put(cd.getMillis(), cd);
@@ -27,10 +28,7 @@ public class CalendarDateFactory {
   }
 
   public CalendarDate get(CalendarDate cd) {
-    CalendarDate cdc = map.get(cd.getMillis());
-    if (cdc != null)
-      return cdc;
-    map.put(cd.getMillis(), cd);
-    return cd;
+    CalendarDate cdc = map.putIfAbsent(cd.getMillis(), cd);
+    return (cdc != null) ? cdc : cd;
   }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib.collection;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import thredds.featurecollection.FeatureCollectionConfig;
+import thredds.featurecollection.FeatureCollectionType;
+import thredds.inventory.CollectionUpdateType;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/**
+ * Test building GRIB collection indexes concurrently writes the same index files as building them serially
+ */
+public class TestGribIndexParallelism {
+  private static final String[] FILES = {"ds.sky.grib2", "ds.snow.grib2", "pdsScale.pds1.grib2", "sref.pds2.grib2",
+      "GFS_Global_onedeg_20220627_0000.TotalPrecip.Out48hrs.grib2"};
+
+  @Rule
+  public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void resetLevel() {
+    GribIndexParallelism.setLevel(1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLevelMustBePositive() {
+    GribIndexParallelism.setLevel(0);
+  }
+
+  @Test
+  public void testCollectionSameAsSerial() throws IOException {
+    checkSameAsSerial("none");
+  }
+
+  @Test
+  public void testFilePartitionSameAsSerial() throws IOException {
+    checkSameAsSerial("file");
+  }
+
+  private void checkSameAsSerial(String partition) throws IOException {
+    File dir = tempFolder.newFolder();
+    for (String filename : FILES) {
+      Files.copy(Paths.get("../grib/src/test/data/", filename), dir.toPath().resolve(filename));
+    }
+    String spec = dir.getPath().replace('\\', '/') + "/.*\\.grib2$";
+    FeatureCollectionConfig config = new FeatureCollectionConfig("parallel", "parallel", FeatureCollectionType.GRIB2,
+        spec, null, null, null, partition, null);
+
+    GribIndexParallelism.setLevel(1);
+    Map<String, Object> serial = buildIndexes(config, dir, partition.equals("file"));
+    GribIndexParallelism.setLevel(4);
+    Map<String, Object> parallel = buildIndexes(config, dir, partition.equals("file"));
+
+    assertThat(serial).isNotEmpty();
+    assertThat(parallel.keySet()).containsExactlyElementsIn(serial.keySet());
+    for (Map.Entry<String, Object> entry : serial.entrySet()) {
+      assertWithMessage(entry.getKey()).that(parallel.get(entry.getKey())).isEqualTo(entry.getValue());
+    }
+  }
+
+  // build the indexes from scratch, and return their contents
+  private Map<String, Object> buildIndexes(FeatureCollectionConfig config, File dir, boolean isPartition)
+      throws IOException {
+    for (File file : dir.listFiles()) {
+      if (!file.getName().endsWith(".grib2")) {
+        assertThat(file.delete()).isTrue();
+      }
+    }
+    GribCdmIndex.updateGribCollection(config, CollectionUpdateType.always, null);
+
+    Map<String, Object> result = new TreeMap<>();
+    for (File file : dir.listFiles()) {
+      String name = file.getName();
+      if (name.endsWith(".grib2")) {
+        continue;
+      }
+      if (!isPartition || isIndexOfOneFile(name)) {
+        result.put(name, Files.readAllBytes(file.toPath()));
+      } else {
+        // a partition index has the last modified time of each child index, so compare what it describes
+        try (NetcdfFile ncfile = NetcdfFiles.open(file.getPath())) {
+          result.put(name, ncfile.toString());
+        }
+      }
+    }
+    return result;
+  }
+
+  private static boolean isIndexOfOneFile(String name) {
+    for (String filename : FILES) {
+      if (name.startsWith(filename)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib.collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+import ucar.nc2.iosp.ChunkDecodeParallelism;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Test decoding GRIB records concurrently gives the same data as decoding them serially
+ */
+@RunWith(Parameterized.class)
+public class TestGribParallelRead {
+
+  @Parameterized.Parameters(name = "{0}")
+  public static List<Object[]> getTestParameters() {
+    return Arrays.asList(new Object[][] {
+        // multiple records per variable, with simple, complex and jpeg2000 packing
+        {"GFS_Global_onedeg_20220627_0000.TotalPrecip.Out48hrs.grib2"}, {"pdsScale.pds1.grib2"},
+        {"ds.sky.grib2"}, {"Lannion.pds31.grib2"}, {"jma.grib1"}, {"complex_packing.grib1"},
+        {"D2.2006091400.F012.002M.CLWMR.grib1"}});
+  }
+
+  private final String filename;
+
+  public TestGribParallelRead(String filename) {
+    this.filename = "../grib/src/test/data/" + filename;
+  }
+
+  @Test
+  public void testSameAsSerial() throws IOException {
+    try (NetcdfFile serial = NetcdfFiles.open(filename); NetcdfFile parallel = NetcdfFiles.open(filename)) {
+      assertThat(serial.sendIospMessage(ChunkDecodeParallelism.SERIAL)).isEqualTo(Boolean.TRUE);
+      assertThat(parallel.sendIospMessage(ChunkDecodeParallelism.of(4))).isEqualTo(Boolean.TRUE);
+      for (Variable v : serial.getVariables()) {
+        if (v.getDataType() != DataType.FLOAT) {
+          continue; // coordinates are not read from the records
+        }
+        Array want = v.read();
+        Array got = parallel.findVariable(v.getFullNameEscaped()).read();
+        assertThat(got.getShape()).isEqualTo(want.getShape());
+        assertThat(got.get1DJavaArray(DataType.FLOAT)).isEqualTo(want.get1DJavaArray(DataType.FLOAT));
+      }
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib.collection;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+import ucar.nc2.grib.coord.SparseArray;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Test reading variable records from flat record tables gives the same records as from SparseArray messages
+ */
+public class TestGribRecordTable {
+  private static final String FILENAME = "GFS_Global_onedeg_20220627_0000.TotalPrecip.Out48hrs.grib2";
+
+  @Rule
+  public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void resetFlat() {
+    GribCdmIndex.setFlatRecordTables(false);
+  }
+
+  @Test
+  public void testEncode() throws IOException {
+    // shape (2, 3), with the records of index 1 and 4 missing
+    GribCollectionProto.SparseArray.Builder b = GribCollectionProto.SparseArray.newBuilder();
+    b.addSize(2).addSize(3);
+    int[] track = {1, 0, 2, 3, 0, 4};
+    for (int t : track)
+      b.addTrack(t);
+    for (int i = 0; i < 4; i++) {
+      b.addRecords(GribCollectionProto.Record.newBuilder().setFileno(i).setStartPos((1L << 33) + i).setBmsOffset(i * 10)
+          .setDrsOffset(i * 100));
+    }
+    b.setNdups(7);
+
+    byte[] encoded = GribRecordTable.encode(b.build());
+    // as if in the middle of an index file
+    ByteBuffer bb = ByteBuffer.allocate(encoded.length + 100);
+    bb.position(50);
+    bb.put(encoded);
+    GribRecordTable table = new GribRecordTable(bb, 50, encoded.length);
+
+    assertThat(table.countNotMissing()).isEqualTo(4);
+    assertThat(table.getRecord(1)).isNull();
+    assertThat(table.getRecord(new int[] {1, 1})).isNull();
+    GribCollectionImmutable.Record record = table.getRecord(new int[] {1, 2});
+    assertThat(record.fileno).isEqualTo(3);
+    assertThat(record.pos).isEqualTo((1L << 33) + 3);
+    assertThat(record.bmsOffset).isEqualTo(30);
+    assertThat(record.drsOffset).isEqualTo(300);
+
+    SparseArray<GribCollectionImmutable.Record> sa = table.toSparseArray();
+    assertThat(sa.getShape()).isEqualTo(new int[] {2, 3});
+    assertThat(sa.getTrack()).isEqualTo(track);
+    assertThat(sa.getNdups()).isEqualTo(7);
+    assertThat(sa.getContent()).hasSize(4);
+    assertThat(sa.getContent(2).pos).isEqualTo(table.getRecord(2).pos);
+  }
+
+  @Test(expected = IOException.class)
+  public void testBadLength() throws IOException {
+    GribCollectionProto.SparseArray.Builder b = GribCollectionProto.SparseArray.newBuilder();
+    b.addSize(1).addTrack(0);
+    byte[] encoded = GribRecordTable.encode(b.build());
+    new GribRecordTable(ByteBuffer.wrap(encoded), 0, encoded.length + 4);
+  }
+
+  @Test
+  public void testSameDataAsSparseArray() throws IOException {
+    File protoFile = copy(tempFolder.newFolder());
+    File flatFile = copy(tempFolder.newFolder());
+
+    try (NetcdfFile proto = NetcdfFiles.open(protoFile.getPath())) {
+      GribCdmIndex.setFlatRecordTables(true);
+      try (NetcdfFile flat = NetcdfFiles.open(flatFile.getPath())) {
+        int count = 0;
+        for (Variable v : proto.getVariables()) {
+          if (v.getDataType() != DataType.FLOAT) {
+            continue; // coordinates are not read from the records
+          }
+          Array want = v.read();
+          Array got = flat.findVariable(v.getFullNameEscaped()).read();
+          assertThat(got.get1DJavaArray(DataType.FLOAT)).isEqualTo(want.get1DJavaArray(DataType.FLOAT));
+          count++;
+        }
+        assertThat(count).isGreaterThan(0);
+      }
+    }
+
+    // the indexes differ only in the record tables
+    byte[] protoIndex = readIndex(protoFile.getParentFile());
+    byte[] flatIndex = readIndex(flatFile.getParentFile());
+    assertThat(flatIndex).isNotEqualTo(protoIndex);
+  }
+
+  private static byte[] readIndex(File dir) throws IOException {
+    File[] indexes = dir.listFiles((d, name) -> name.endsWith(GribCdmIndex.NCX_SUFFIX));
+    assertThat(indexes).hasLength(1);
+    return Files.readAllBytes(indexes[0].toPath());
+  }
+
+  private static File copy(File dir) throws IOException {
+    File result = new File(dir, FILENAME);
+    Files.copy(Paths.get("../grib/src/test/data/", FILENAME), result.toPath());
+    return result;
+  }
+}
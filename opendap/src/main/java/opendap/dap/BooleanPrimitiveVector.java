@@ -158,14 +158,10 @@ public class BooleanPrimitiveVector extends PrimitiveVector {
    */
   public synchronized void deserialize(DataInputStream source, ServerVersion sv, StatusUI statusUI)
       throws IOException, EOFException, DataReadException {
-    for (int i = 0; i < vals.length; i++) {
-      vals[i] = source.readBoolean();
-      if (statusUI != null) {
-        statusUI.incrementByteCount(1);
-        if (statusUI.userCancelled())
-          throw new DataReadException("User cancelled");
-      }
-    }
+    deserializeXdr(source, vals.length, 1, statusUI, (block, start, n) -> {
+      for (int i = 0; i < n; i++)
+        vals[start + i] = block.get() != 0;
+    });
   }
 
   /**
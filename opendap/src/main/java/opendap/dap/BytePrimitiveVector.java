@@ -166,14 +166,7 @@ public class BytePrimitiveVector extends PrimitiveVector {
     // number of bytes to pad
     int pad = (modFour != 0) ? (4 - modFour) : 0;
 
-    for (int i = 0; i < vals.length; i++) {
-      vals[i] = source.readByte();
-      if (statusUI != null) {
-        statusUI.incrementByteCount(1);
-        if (statusUI.userCancelled())
-          throw new DataReadException("User cancelled");
-      }
-    }
+    deserializeXdr(source, vals.length, 1, statusUI, (block, start, n) -> block.get(vals, start, n));
     // pad out to a multiple of four bytes
     byte unused;
     for (int i = 0; i < pad; i++)
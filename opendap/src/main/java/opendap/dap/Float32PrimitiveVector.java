@@ -161,16 +161,7 @@ public class Float32PrimitiveVector extends PrimitiveVector {
    */
   public synchronized void deserialize(DataInputStream source, ServerVersion sv, StatusUI statusUI)
       throws IOException, EOFException, DataReadException {
-    for (int i = 0; i < vals.length; i++) {
-      vals[i] = source.readFloat();
-
-      // LogStream.out.printf("%d:%f ",i,vals[i]);
-      if (statusUI != null) {
-        statusUI.incrementByteCount(8);
-        if (statusUI.userCancelled())
-          throw new DataReadException("User cancelled");
-      }
-    }
+    deserializeXdr(source, vals.length, 4, statusUI, (block, start, n) -> block.asFloatBuffer().get(vals, start, n));
   }
 
   /**
@@ -160,14 +160,7 @@ public class Int32PrimitiveVector extends PrimitiveVector {
    */
   public synchronized void deserialize(DataInputStream source, ServerVersion sv, StatusUI statusUI)
       throws IOException, EOFException, DataReadException {
-    for (int i = 0; i < vals.length; i++) {
-      vals[i] = source.readInt();
-      if (statusUI != null) {
-        statusUI.incrementByteCount(4);
-        if (statusUI.userCancelled())
-          throw new DataReadException("User cancelled");
-      }
-    }
+    deserializeXdr(source, vals.length, 4, statusUI, (block, start, n) -> block.asIntBuffer().get(vals, start, n));
   }
 
   /**
@@ -41,6 +41,7 @@
 package opendap.dap;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 /**
  * A helper class for <code>DVector</code>. It allows <code>DVector</code>,
@@ -263,6 +264,58 @@ public abstract class PrimitiveVector extends DAPNode implements ClientIO {
     return v;
   }
 
+  /**
+   * The number of bytes of XDR data read and decoded at a time by <code>deserializeXdr</code>.
+   */
+  protected static final int XDR_BLOCK_SIZE = 64 * 1024;
+
+  /**
+   * Converts a block of XDR encoded elements into the values of a <code>PrimitiveVector</code>.
+   */
+  protected interface XdrBlockDecoder {
+    /**
+     * @param block the big-endian XDR data, positioned at the first element.
+     * @param start the index of the first element.
+     * @param n the number of elements in the block.
+     */
+    void decode(ByteBuffer block, int start, int n);
+  }
+
+  /**
+   * Reads <code>nelems</code> XDR encoded elements of <code>elemSize</code> bytes each, a block at a time,
+   * instead of an element at a time. The byte count and user cancellation are checked once per block.
+   *
+   * @param source a <code>DataInputStream</code> to read from.
+   * @param nelems the number of elements.
+   * @param elemSize the size of one XDR element in bytes.
+   * @param statusUI the <code>StatusUI</code> object to use for GUI updates
+   *        and user cancellation notification (may be null).
+   * @param decoder converts each block into the values.
+   * @throws DataReadException if the user cancels the download.
+   * @throws EOFException if EOF is found before all the elements are read.
+   * @throws IOException thrown on any other InputStream exception.
+   */
+  protected static void deserializeXdr(DataInputStream source, int nelems, int elemSize, StatusUI statusUI,
+      XdrBlockDecoder decoder) throws IOException, EOFException, DataReadException {
+    int perBlock = Math.max(1, XDR_BLOCK_SIZE / elemSize);
+    byte[] buff = new byte[Math.min(perBlock, nelems) * elemSize];
+    ByteBuffer block = ByteBuffer.wrap(buff); // XDR is big-endian, the ByteBuffer default
+
+    for (int start = 0; start < nelems; start += perBlock) {
+      int n = Math.min(perBlock, nelems - start);
+      source.readFully(buff, 0, n * elemSize);
+      block.clear();
+      block.limit(n * elemSize);
+      decoder.decode(block, start, n);
+
+      if (statusUI != null) {
+        statusUI.incrementByteCount(n * elemSize);
+        if (statusUI.userCancelled())
+          throw new DataReadException("User cancelled");
+      }
+    }
+  }
+
 }
 
 
@@ -521,7 +521,7 @@ public class ConvertD2N {
           "DODSVariable extractScalar invalid dataType= " + dodsScalar.getClass().getName());
   }
 
-  // convert a DODS scalar value
+  // convert a DODS array of primitives inside a structure, straight from the PrimitiveVector's internal storage
   private void iconvertDataPrimitiveArray(PrimitiveVector pv, IndexIterator ii) {
     BaseType bt = pv.getTemplate();
 
@@ -533,44 +533,27 @@ public class ConvertD2N {
         ii.setObjectNext(ds.getValue()); // LOOK CHAR ?
       }
 
-    } else if (bt instanceof DUInt32) {
-      UInt32PrimitiveVector bpv = (UInt32PrimitiveVector) pv;
-      for (int row = 0; row < bpv.getLength(); row++) {
-        int ival = bpv.getValue(row);
-        long lval = DataType.unsignedIntToLong(ival); // LOOK unsigned
-        ii.setLongNext(lval);
-      }
-    } else if (bt instanceof DUInt16) {
-      UInt16PrimitiveVector bpv = (UInt16PrimitiveVector) pv;
-      for (int row = 0; row < bpv.getLength(); row++) {
-        short sval = bpv.getValue(row); // LOOK unsigned
-        int ival = DataType.unsignedShortToInt(sval);
-        ii.setIntNext(ival);
-      }
-    } else if (bt instanceof DFloat32) {
-      Float32PrimitiveVector bpv = (Float32PrimitiveVector) pv;
-      for (int row = 0; row < bpv.getLength(); row++)
-        ii.setFloatNext(bpv.getValue(row));
+    } else if ((bt instanceof DInt32) || (bt instanceof DUInt32)) {
+      // the member array is INT or UINT, which both keep the bits in an int
+      for (int val : (int[]) pv.getInternalStorage())
+        ii.setIntNext(val);
 
-    } else if (bt instanceof DFloat64) {
-      Float64PrimitiveVector bpv = (Float64PrimitiveVector) pv;
-      for (int row = 0; row < bpv.getLength(); row++)
-        ii.setDoubleNext(bpv.getValue(row));
+    } else if ((bt instanceof DInt16) || (bt instanceof DUInt16)) {
+      // the member array is SHORT or USHORT, which both keep the bits in a short
+      for (short val : (short[]) pv.getInternalStorage())
+        ii.setShortNext(val);
 
-    } else if (bt instanceof DInt32) {
-      Int32PrimitiveVector bpv = (Int32PrimitiveVector) pv;
-      for (int row = 0; row < bpv.getLength(); row++)
-        ii.setIntNext(bpv.getValue(row));
+    } else if (bt instanceof DFloat32) {
+      for (float val : (float[]) pv.getInternalStorage())
+        ii.setFloatNext(val);
 
-    } else if (bt instanceof DInt16) {
-      Int16PrimitiveVector bpv = (Int16PrimitiveVector) pv;
-      for (int row = 0; row < bpv.getLength(); row++)
-        ii.setShortNext(bpv.getValue(row));
+    } else if (bt instanceof DFloat64) {
+      for (double val : (double[]) pv.getInternalStorage())
+        ii.setDoubleNext(val);
 
     } else if (bt instanceof DByte) {
-      BytePrimitiveVector bpv = (BytePrimitiveVector) pv;
-      for (int row = 0; row < bpv.getLength(); row++)
-        ii.setByteNext(bpv.getValue(row));
+      for (byte val : (byte[]) pv.getInternalStorage())
+        ii.setByteNext(val);
 
     } else
       throw new IllegalArgumentException("DODSVariable extractScalar invalid dataType= " + bt.getClass().getName());
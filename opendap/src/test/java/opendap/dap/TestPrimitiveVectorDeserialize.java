@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package opendap.dap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.util.Random;
+import org.junit.Test;
+
+/** Test the PrimitiveVectors decode XDR a block at a time the same as DataInputStream does an element at a time */
+public class TestPrimitiveVectorDeserialize {
+
+  private static class CountingStatus implements StatusUI {
+    long nbytes;
+    boolean cancel;
+
+    public void incrementByteCount(int bytes) {
+      nbytes += bytes;
+    }
+
+    public boolean userCancelled() {
+      return cancel;
+    }
+
+    public void finished() {}
+  }
+
+  @Test
+  public void testSameAsDataInputStream() throws Exception {
+    Random random = new Random(17);
+    for (int len : new int[] {0, 1, 3, 1000, 16384, 16385, 100003}) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bos);
+      float[] floats = new float[len];
+      double[] doubles = new double[len];
+      int[] ints = new int[len];
+      short[] shorts = new short[len];
+      byte[] bytes = new byte[len];
+      for (int i = 0; i < len; i++) {
+        floats[i] = random.nextFloat();
+        out.writeFloat(floats[i]);
+      }
+      for (int i = 0; i < len; i++) {
+        doubles[i] = random.nextDouble();
+        out.writeDouble(doubles[i]);
+      }
+      for (int i = 0; i < len; i++) {
+        ints[i] = random.nextInt();
+        out.writeInt(ints[i]);
+      }
+      for (int i = 0; i < len; i++) {
+        shorts[i] = (short) random.nextInt();
+        out.writeInt(shorts[i]); // XDR shorts are 4 bytes
+      }
+      random.nextBytes(bytes);
+      out.write(bytes);
+      for (int i = 0; i < (4 - len % 4) % 4; i++)
+        out.write(0); // pad
+      out.writeInt(1234);
+
+      DataInputStream source = new DataInputStream(new ByteArrayInputStream(bos.toByteArray()));
+      CountingStatus status = new CountingStatus();
+      Float32PrimitiveVector fv = new Float32PrimitiveVector(new DFloat32());
+      fv.setLength(len);
+      fv.deserialize(source, null, status);
+      Float64PrimitiveVector dv = new Float64PrimitiveVector(new DFloat64());
+      dv.setLength(len);
+      dv.deserialize(source, null, status);
+      Int32PrimitiveVector iv = new Int32PrimitiveVector(new DInt32());
+      iv.setLength(len);
+      iv.deserialize(source, null, status);
+      Int16PrimitiveVector sv = new Int16PrimitiveVector(new DInt16());
+      sv.setLength(len);
+      sv.deserialize(source, null, status);
+      BytePrimitiveVector bv = new BytePrimitiveVector(new DByte());
+      bv.setLength(len);
+      bv.deserialize(source, null, status);
+
+      assertThat((float[]) fv.getInternalStorage()).isEqualTo(floats);
+      assertThat((double[]) dv.getInternalStorage()).isEqualTo(doubles);
+      assertThat((int[]) iv.getInternalStorage()).isEqualTo(ints);
+      assertThat((short[]) sv.getInternalStorage()).isEqualTo(shorts);
+      assertThat((byte[]) bv.getInternalStorage()).isEqualTo(bytes);
+      assertThat(source.readInt()).isEqualTo(1234);
+      assertThat(status.nbytes).isEqualTo(bos.size() - 4);
+    }
+  }
+
+  @Test(expected = DataReadException.class)
+  public void testCancel() throws Exception {
+    CountingStatus status = new CountingStatus();
+    status.cancel = true;
+    Float64PrimitiveVector dv = new Float64PrimitiveVector(new DFloat64());
+    dv.setLength(100000);
+    dv.deserialize(new DataInputStream(new ByteArrayInputStream(new byte[800000])), null, status);
+  }
+
+  @Test(expected = EOFException.class)
+  public void testTooShort() throws Exception {
+    Int32PrimitiveVector iv = new Int32PrimitiveVector(new DInt32());
+    iv.setLength(100000);
+    iv.deserialize(new DataInputStream(new ByteArrayInputStream(new byte[4000])), null, null);
+  }
+}
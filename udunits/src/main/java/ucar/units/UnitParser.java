@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.units;
+
+import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe parsing of unit specifications, with a cache of the parsed units and of the converters between them.
+ * <p>
+ * UnitFormatImpl.parse() serializes all callers on one lock, because the StandardUnitFormat parser is not thread-safe.
+ * Here each thread has its own parser, and a specification is only parsed the first time it is seen, so callers that
+ * parse the same few specifications (eg "degrees_north", "days since 1970-01-01") do not contend.
+ * <p>
+ * The caches are bounded: when one reaches its maximum size it is cleared. Units added to the unit database after a
+ * specification has been parsed are not seen until clearCache() is called.
+ */
+public final class UnitParser {
+  private static final int DEFAULT_MAX_SIZE = 1000;
+
+  private static final ThreadLocal<StandardUnitFormat> parsers =
+      ThreadLocal.withInitial(() -> new StandardUnitFormat(new StringReader("")));
+
+  private static final Map<String, Unit> units = new ConcurrentHashMap<>();
+  private static final Map<ConverterKey, Converter> converters = new ConcurrentHashMap<>();
+  private static volatile int maxSize = DEFAULT_MAX_SIZE;
+
+  private UnitParser() {}
+
+  /**
+   * Parses a unit specification, using the default unit format and unit database.
+   *
+   * @param spec The unit specification (e.g. "m/s").
+   * @return The unit corresponding to the specification.
+   * @throws UnitException The specification couldn't be parsed, see UnitFormat.parse().
+   */
+  public static Unit parse(String spec) throws UnitException {
+    if (spec == null)
+      throw new UnitParseException(spec);
+    Unit unit = units.get(spec);
+    if (unit == null) {
+      unit = parseUncached(spec);
+      put(units, spec, unit);
+    }
+    return unit;
+  }
+
+  /**
+   * Gets the converter between two unit specifications.
+   *
+   * @param fromSpec Convert from this unit specification.
+   * @param toSpec Convert to this unit specification.
+   * @return The converter.
+   * @throws UnitException The specifications couldn't be parsed, or the units aren't convertible.
+   */
+  public static Converter getConverter(String fromSpec, String toSpec) throws UnitException {
+    if (fromSpec == null || toSpec == null)
+      throw new UnitParseException(null);
+    ConverterKey key = new ConverterKey(fromSpec, toSpec);
+    Converter converter = converters.get(key);
+    if (converter == null) {
+      converter = parse(fromSpec).getConverterTo(parse(toSpec));
+      put(converters, key, converter);
+    }
+    return converter;
+  }
+
+  /**
+   * Sets the maximum number of units, and of converters, that are cached.
+   *
+   * @param max The maximum size of each cache, 0 for no caching.
+   */
+  public static void setMaxCacheSize(int max) {
+    if (max < 0)
+      throw new IllegalArgumentException("Cache size must be >= 0: " + max);
+    maxSize = max;
+    clearCache();
+  }
+
+  /** Removes all cached units and converters. */
+  public static void clearCache() {
+    units.clear();
+    converters.clear();
+  }
+
+  static int getCacheSize() {
+    return units.size();
+  }
+
+  private static Unit parseUncached(String spec) throws UnitException {
+    UnitFormat format = UnitFormatManager.instance();
+    if (format instanceof StandardUnitFormat) // use this thread's parser
+      return parsers.get().parse(spec, UnitDBManager.instance());
+    return format.parse(spec); // someone called UnitFormatManager.setInstance()
+  }
+
+  private static <K, V> void put(Map<K, V> cache, K key, V value) {
+    int max = maxSize;
+    if (max == 0)
+      return;
+    if (cache.size() >= max)
+      cache.clear();
+    cache.put(key, value);
+  }
+
+  private static final class ConverterKey {
+    private final String fromSpec;
+    private final String toSpec;
+
+    ConverterKey(String fromSpec, String toSpec) {
+      this.fromSpec = fromSpec;
+      this.toSpec = toSpec;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (!(o instanceof ConverterKey))
+        return false;
+      ConverterKey that = (ConverterKey) o;
+      return fromSpec.equals(that.fromSpec) && toSpec.equals(that.toSpec);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * fromSpec.hashCode() + toSpec.hashCode();
+    }
+  }
+}
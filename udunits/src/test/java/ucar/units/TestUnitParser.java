@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2022 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.units;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Test;
+
+/** Test UnitParser parses the same units as the default UnitFormat, and caches them */
+public class TestUnitParser {
+  private static final String[] SPECS = {"m", "km", "m/s", "degrees_north", "degC", "hPa", "days since 1970-01-01",
+      "secs since 1999-02-03 00:00:00", "hours since 2001-01-01T06:00:00Z", "10 m", "kg.m2.s-2", "foo", "percent"};
+
+  @After
+  public void resetCache() {
+    UnitParser.setMaxCacheSize(1000);
+  }
+
+  @Test
+  public void testSameAsUnitFormat() throws Exception {
+    UnitFormat format = UnitFormatManager.instance();
+    for (String spec : SPECS) {
+      Unit want = format.parse(spec);
+      assertEquals(spec, want, UnitParser.parse(spec));
+      assertSame(spec, UnitParser.parse(spec), UnitParser.parse(spec));
+    }
+  }
+
+  @Test
+  public void testConverter() throws Exception {
+    Converter converter = UnitParser.getConverter("km", "m");
+    assertEquals(1500.0, converter.convert(1.5), 0.0);
+    assertSame(converter, UnitParser.getConverter("km", "m"));
+    assertEquals(-272.15, UnitParser.getConverter("K", "degC").convert(1.0), 1e-9);
+  }
+
+  @Test(expected = ConversionException.class)
+  public void testNotConvertible() throws Exception {
+    UnitParser.getConverter("m", "s");
+  }
+
+  @Test(expected = UnitParseException.class)
+  public void testBadSpec() throws Exception {
+    UnitParser.parse("m/");
+  }
+
+  @Test
+  public void testBounded() throws Exception {
+    UnitParser.setMaxCacheSize(5);
+    for (int i = 0; i < 20; i++)
+      UnitParser.parse((i + 1) + " m");
+    assertTrue(UnitParser.getCacheSize() <= 5);
+
+    UnitParser.setMaxCacheSize(0);
+    UnitParser.parse("m");
+    assertEquals(0, UnitParser.getCacheSize());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadCacheSize() {
+    UnitParser.setMaxCacheSize(-1);
+  }
+
+  @Test
+  public void testConcurrent() throws Exception {
+    UnitFormat format = UnitFormatManager.instance();
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      for (int round = 0; round < 5; round++) {
+        UnitParser.clearCache();
+        List<Future<Unit>> futures = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+          final String spec = SPECS[i % SPECS.length];
+          futures.add(pool.submit((Callable<Unit>) () -> UnitParser.parse(spec)));
+        }
+        for (int i = 0; i < futures.size(); i++)
+          assertEquals(format.parse(SPECS[i % SPECS.length]), futures.get(i).get());
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}